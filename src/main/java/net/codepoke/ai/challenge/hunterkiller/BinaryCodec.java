@@ -0,0 +1,1210 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import lombok.Getter;
+import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.enums.StructureOrderType;
+import net.codepoke.ai.challenge.hunterkiller.enums.StructureType;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitOrderType;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Floor;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Space;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Wall;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Infected;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Medic;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderStatistics;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.StructureOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Compact binary format for {@link HunterKillerState}s and {@link HunterKillerAction}s, as an alternative to their JSON
+ * format. Values are written to a {@link ByteBuffer} as variable-length integers of 7 bits per byte, so that small
+ * values only take up a single byte.
+ *
+ * The static terrain of a map (see {@link Map#isStaticTerrain(GameObject)}) is never written. Instead, a state refers
+ * to its map by name and by a hash of the terrain, and a codec is created for the map that the states are played on.
+ * A codec can therefore only read states that were written by a codec for the same map. The states it reads share the
+ * static terrain of that map, in the same way as a {@link Map#copy()} does.
+ *
+ * Each record starts with the {@link BinaryCodec#VERSION} of the format and the kind of record. Reading a record of a
+ * different version, of a different kind or for a different map throws a {@link HunterKillerException}. Writing a
+ * record into a buffer that does not have enough room left throws a {@link java.nio.BufferOverflowException}.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class BinaryCodec {
+
+	// region Constants
+
+	/**
+	 * The version of the format, this should be increased whenever the format changes.
+	 */
+	public static final int VERSION = 2;
+
+	/** Identifiers for the kinds of records. */
+	private static final int KIND_STATE = 1, KIND_ACTION = 2, KIND_DELTA = 3, KIND_TERRAIN = 4;
+
+	/** Kinds that are written for orders without a type, other orders are written as their packed kind. */
+	private static final int UNIT_ORDER_KIND_NONE = -1, STRUCTURE_ORDER_KIND_NONE = -2;
+
+	/**
+	 * Identifiers for the entries in the collection of objects of a map. Empty and terrain entries are followed by the
+	 * number of consecutive IDs they cover, the other tags by the values of a single object.
+	 */
+	private static final int TAG_EMPTY = 0, TAG_TERRAIN = 1, TAG_FLOOR = 2, TAG_WALL = 3, TAG_SPACE = 4, TAG_DOOR = 5,
+			TAG_STRUCTURE = 6, TAG_SOLDIER = 7, TAG_MEDIC = 8, TAG_INFECTED = 9;
+
+	/**
+	 * Identifiers for the entries in a delta, besides the tags of complete objects. A changed entry is followed by the
+	 * bits of the values that changed, and those values.
+	 */
+	private static final int TAG_REMOVED = 10, TAG_CHANGED = 11;
+
+	/** Bits for the values of an object that can change during a game. */
+	private static final int CHANGED_HP = 1, CHANGED_POSITION = 2, CHANGED_ORIENTATION = 4, CHANGED_COOLDOWN = 8,
+			CHANGED_FIELD_OF_VIEW = 16, CHANGED_OPEN_TIMER = 32, CHANGED_CONTROLLER = 64;
+
+	/** Bits for the values of a player that can change during a game. */
+	private static final int CHANGED_RESOURCE = 1, CHANGED_SCORE = 2, CHANGED_UNITS = 4, CHANGED_STRUCTURES = 8, CHANGED_STATS = 16,
+			CHANGED_COMMAND_CENTER = 32;
+
+	/** Bits for the boolean values of map features and structures. */
+	private static final int FLAG_DESTRUCTIBLE = 1, FLAG_BLOCKING_LOS = 2, FLAG_WALKABLE = 4, FLAG_CAPTURABLE = 1,
+			FLAG_ALLOWS_SPAWNING = 2, FLAG_GENERATES_RESOURCE = 4, FLAG_GENERATES_SCORE = 8, FLAG_COMMAND_CENTER = 16;
+
+	/** Bits describing the field-of-view of a unit. */
+	private static final int FOV_VALID = 1, FOV_SIZED = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static ThreadLocal<IntArray> PENDING_IDS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The map this codec writes and reads states for.
+	 */
+	@Getter
+	private Map map;
+
+	/**
+	 * The hash of the static terrain of the map, see {@link BinaryCodec#calculateTerrainHash(Map)}.
+	 */
+	@Getter
+	private long terrainHash;
+
+	/**
+	 * The static terrain of the map at the time this codec was created, indexed by ID.
+	 */
+	private GameObject[] terrain;
+
+	/**
+	 * The name of the map, encoded as UTF-8. A map without a name is written as an empty name, which is read back as
+	 * null.
+	 */
+	private byte[] nameBytes;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a codec for the states of a map.
+	 *
+	 * @param map
+	 *            The {@link Map} that is played on, for example the map of the initial state of a game. Only its static
+	 *            terrain is remembered, so it can safely be changed afterwards.
+	 */
+	public BinaryCodec(Map map) {
+		this.map = map;
+		this.terrainHash = calculateTerrainHash(map);
+		this.nameBytes = map.name != null ? map.name.getBytes(UTF8) : new byte[0];
+		Array<GameObject> objects = map.getObjects();
+		terrain = new GameObject[objects.size];
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object != null && Map.isStaticTerrain(object))
+				terrain[i] = object;
+		}
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns a hash of the size and static terrain of a map. Maps that have the same hash have the same static terrain
+	 * objects, with the same IDs.
+	 *
+	 * @param map
+	 *            The {@link Map} to calculate the hash for.
+	 */
+	public static long calculateTerrainHash(Map map) {
+		long hash = ((long) map.getMapWidth() << 32) | map.getMapHeight();
+		Array<GameObject> objects = map.getObjects();
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object != null && Map.isStaticTerrain(object))
+				hash ^= ZobristKeys.key(object, map.toPosition(object.getLocation()));
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes a state to a buffer.
+	 *
+	 * @param state
+	 *            The {@link HunterKillerState} to write, its map should have the same static terrain as the map of
+	 *            this codec.
+	 * @param buffer
+	 *            The buffer to write to.
+	 */
+	public void write(HunterKillerState state, ByteBuffer buffer) {
+		writeHeader(buffer, KIND_STATE);
+		writeVarInt(buffer, nameBytes.length);
+		buffer.put(nameBytes);
+		buffer.putLong(terrainHash);
+
+		writeVarInt(buffer, state.getCurrentRound());
+		writeVarInt(buffer, state.getActivePlayerID());
+		Ruleset ruleset = state.getRuleset();
+		writeSignedVarInt(buffer, ruleset.getStartingResources());
+		writeSignedVarInt(buffer, ruleset.getBaseResourceGeneration());
+
+		writeMap(state.getMap(), buffer);
+
+		Player[] players = state.getPlayers();
+		writeVarInt(buffer, players.length);
+		for (int i = 0; i < players.length; i++) {
+			writePlayer(players[i], buffer);
+		}
+	}
+
+	/**
+	 * Reads a state from a buffer. The state shares its static terrain with the map of this codec.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The {@link HunterKillerState} that was read.
+	 */
+	public HunterKillerState readState(ByteBuffer buffer) {
+		readHeader(buffer, KIND_STATE);
+		readMapReference(buffer);
+
+		int currentRound = readVarInt(buffer);
+		int activePlayerID = readVarInt(buffer);
+		Ruleset ruleset = new Ruleset(readSignedVarInt(buffer), readSignedVarInt(buffer));
+		// Most games use the default rules, so share those where possible
+		if (ruleset.equals(Ruleset.DEFAULT))
+			ruleset = Ruleset.DEFAULT;
+
+		Map newMap = readMap(buffer, ruleset);
+
+		Player[] players = new Player[readVarInt(buffer)];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = readPlayer(buffer);
+		}
+		return new HunterKillerState(newMap, players, currentRound, activePlayerID, ruleset);
+	}
+
+	/**
+	 * Writes the static terrain of our map to a buffer, so that a codec for the same map can be created from it through
+	 * {@link BinaryCodec#readTerrain(ByteBuffer)}. This is useful for files that need to be readable on their own.
+	 *
+	 * @param buffer
+	 *            The buffer to write to.
+	 */
+	public void writeTerrain(ByteBuffer buffer) {
+		writeHeader(buffer, KIND_TERRAIN);
+		writeVarInt(buffer, nameBytes.length);
+		buffer.put(nameBytes);
+		buffer.putLong(terrainHash);
+		writeVarInt(buffer, map.getMapWidth());
+		writeVarInt(buffer, map.getMapHeight());
+
+		writeVarInt(buffer, terrain.length);
+		int emptyRun = 0;
+		for (int i = 0; i < terrain.length; i++) {
+			if (terrain[i] == null) {
+				emptyRun++;
+				continue;
+			}
+			if (emptyRun > 0) {
+				buffer.put((byte) TAG_EMPTY);
+				writeVarInt(buffer, emptyRun);
+				emptyRun = 0;
+			}
+			writeObject(map, terrain[i], buffer);
+		}
+		if (emptyRun > 0) {
+			buffer.put((byte) TAG_EMPTY);
+			writeVarInt(buffer, emptyRun);
+		}
+	}
+
+	/**
+	 * Reads the static terrain of a map from a buffer, see {@link BinaryCodec#writeTerrain(ByteBuffer)}, and creates a
+	 * codec for it.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return A {@link BinaryCodec} for a {@link Map} that only contains the static terrain that was read.
+	 */
+	public static BinaryCodec readTerrain(ByteBuffer buffer) {
+		readHeader(buffer, KIND_TERRAIN);
+		byte[] name = new byte[readVarInt(buffer)];
+		buffer.get(name);
+		long hash = buffer.getLong();
+		Map terrainMap = new Map(name.length > 0 ? new String(name, UTF8) : null, readVarInt(buffer), readVarInt(buffer));
+
+		int objectCount = readVarInt(buffer);
+		Array<GameObject> objects = terrainMap.getObjects();
+		objects.ensureCapacity(objectCount - objects.size);
+		objects.size = objectCount; // Force size so we can directly set the objects
+		for (int i = 0; i < objectCount;) {
+			int tag = buffer.get();
+			if (tag == TAG_EMPTY) {
+				i += readVarInt(buffer);
+			} else {
+				GameObject object = readObject(terrainMap, tag, buffer, Ruleset.DEFAULT);
+				object.setID(i);
+				objects.set(i, object);
+				i++;
+			}
+		}
+		terrainMap.getRegistry()
+					.rebuild(objects);
+		for (int i = 0; i < objectCount; i++) {
+			GameObject object = objects.get(i);
+			if (object != null)
+				terrainMap.place(terrainMap.toPosition(object.getLocation()), object);
+		}
+
+		BinaryCodec codec = new BinaryCodec(terrainMap);
+		if (codec.terrainHash != hash)
+			throw new HunterKillerException(StringExtensions.format("The terrain of map '%s' does not match its hash", terrainMap.name));
+		return codec;
+	}
+
+	/**
+	 * Writes an action to a buffer. The orders are written as they are, without checking whether they are possible. An
+	 * order for an object that does not exist, without a type or with a target location that is not on the map is read
+	 * back the same way, so handling the action that was read fails in the same way as handling the original.
+	 *
+	 * @param action
+	 *            The {@link HunterKillerAction} to write, its orders should be for the map of this codec.
+	 * @param buffer
+	 *            The buffer to write to.
+	 */
+	public void write(HunterKillerAction action, ByteBuffer buffer) {
+		writeHeader(buffer, KIND_ACTION);
+		writeSignedVarInt(buffer, action.getActingPlayerID());
+		writeSignedVarInt(buffer, action.getCurrentRound());
+
+		Array<HunterKillerOrder> orders = action.getOrders();
+		writeVarInt(buffer, orders.size);
+		for (int i = 0; i < orders.size; i++) {
+			HunterKillerOrder order = orders.get(i);
+			writeSignedVarInt(buffer, order.objectID);
+			if (order instanceof StructureOrder) {
+				StructureOrderType orderType = ((StructureOrder) order).getOrderType();
+				buffer.put((byte) (orderType != null ? PackedOrder.STRUCTURE_KIND + orderType.ordinal() : STRUCTURE_ORDER_KIND_NONE));
+			} else if (order instanceof UnitOrder) {
+				UnitOrder unitOrder = (UnitOrder) order;
+				UnitOrderType orderType = unitOrder.getOrderType();
+				buffer.put((byte) (orderType != null ? orderType.ordinal() : UNIT_ORDER_KIND_NONE));
+				UnitType unitType = unitOrder.getUnitType();
+				buffer.put((byte) (unitType != null ? unitType.ordinal() + 1 : 0));
+				// The target location is written as coordinates, because it does not have to be on the map
+				MapLocation target = unitOrder.getTargetLocation();
+				buffer.put((byte) (target != null ? 1 : 0));
+				if (target != null) {
+					writeSignedVarInt(buffer, target.getX());
+					writeSignedVarInt(buffer, target.getY());
+				}
+			} else {
+				throw new HunterKillerException("Cannot write order of type " + order.getClass()
+																						.getName());
+			}
+		}
+	}
+
+	/**
+	 * Reads an action from a buffer.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The {@link HunterKillerAction} that was read.
+	 */
+	public HunterKillerAction readAction(ByteBuffer buffer) {
+		readHeader(buffer, KIND_ACTION);
+		HunterKillerAction action = new HunterKillerAction(readSignedVarInt(buffer), readSignedVarInt(buffer));
+
+		int orderCount = readVarInt(buffer);
+		for (int i = 0; i < orderCount; i++) {
+			int objectID = readSignedVarInt(buffer);
+			int kind = buffer.get();
+			HunterKillerOrder order;
+			if (kind >= PackedOrder.STRUCTURE_KIND || kind == STRUCTURE_ORDER_KIND_NONE) {
+				StructureOrder structureOrder = new StructureOrder();
+				if (kind != STRUCTURE_ORDER_KIND_NONE)
+					structureOrder.setOrderType(StructureOrderType.values[kind - PackedOrder.STRUCTURE_KIND]);
+				order = structureOrder;
+			} else {
+				UnitOrder unitOrder = new UnitOrder();
+				if (kind != UNIT_ORDER_KIND_NONE)
+					unitOrder.setOrderType(UnitOrderType.values[kind]);
+				int unitType = buffer.get();
+				unitOrder.setUnitType(unitType > 0 ? UnitType.values[unitType - 1] : null);
+				if (buffer.get() == 1) {
+					int x = readSignedVarInt(buffer);
+					int y = readSignedVarInt(buffer);
+					// Locations on the map are shared, see Map#toLocation(int)
+					unitOrder.setTargetLocation(map.isXonMap(x) && map.isYonMap(y) ? map.toLocation(map.toPosition(x, y))
+																				: new MapLocation(x, y));
+				}
+				order = unitOrder;
+			}
+			order.objectID = objectID;
+			action.addOrder(order);
+		}
+		return action;
+	}
+
+	/**
+	 * Writes the changes between two states to a buffer. Only the objects and players that differ between the states
+	 * are written, and of those only the values that differ. Applying the delta to the first state through
+	 * {@link BinaryCodec#applyDelta(HunterKillerState, ByteBuffer)} results in the second state.
+	 *
+	 * @param previous
+	 *            The {@link HunterKillerState} the receiving side has, this should be a different instance than the
+	 *            current state.
+	 * @param state
+	 *            The current {@link HunterKillerState}.
+	 * @param buffer
+	 *            The buffer to write to.
+	 */
+	public void writeDelta(HunterKillerState previous, HunterKillerState state, ByteBuffer buffer) {
+		writeHeader(buffer, KIND_DELTA);
+		writeVarInt(buffer, previous.getCurrentRound());
+		writeVarInt(buffer, previous.getActivePlayerID());
+		writeVarInt(buffer, state.getCurrentRound());
+		writeVarInt(buffer, state.getActivePlayerID());
+		// The receiving side checks its result against this hash
+		buffer.putLong(state.hashKey());
+
+		Map before = previous.getMap();
+		Map after = state.getMap();
+		writeVarInt(buffer, after.currentTick);
+		writeVarInt(buffer, after.getObjects().size);
+
+		// Objects that could change, or have been removed
+		IntArray dynamicIDs = before.getRegistry()
+									.getDynamicIDs();
+		for (int i = 0; i < dynamicIDs.size; i++) {
+			int id = dynamicIDs.get(i);
+			writeObjectDelta(after, id, before.getObject(id), after.getObject(id), buffer);
+		}
+		// Objects that are new
+		IntArray newDynamicIDs = after.getRegistry()
+										.getDynamicIDs();
+		for (int i = 0; i < newDynamicIDs.size; i++) {
+			int id = newDynamicIDs.get(i);
+			if (before.getObject(id) == null)
+				writeObjectDelta(after, id, null, after.getObject(id), buffer);
+		}
+		// New static terrain (such as the Space left by a structure) got an ID that was free, or a new one
+		IntArray freeIDs = before.getIdBuffer();
+		for (int i = 0; i < freeIDs.size; i++) {
+			writeNewTerrain(before, after, freeIDs.get(i), buffer);
+		}
+		for (int id = before.getObjects().size; id < after.getObjects().size; id++) {
+			writeNewTerrain(before, after, id, buffer);
+		}
+		// The end of the objects is marked by an ID of 0, all other IDs are shifted by one
+		writeVarInt(buffer, 0);
+
+		writeIntArray(after.getIdBuffer(), buffer);
+		writeIntArray(after.getCommandCenterObjectIDs(), buffer);
+
+		Player[] players = state.getPlayers();
+		for (int i = 0; i < players.length; i++) {
+			writePlayerDelta(previous.getPlayer(i), players[i], buffer);
+		}
+	}
+
+	/**
+	 * Applies changes that were written through {@link BinaryCodec#writeDelta(HunterKillerState, HunterKillerState, ByteBuffer)}
+	 * to a state. The state should be the same as the previous state the delta was written for.
+	 *
+	 * @param state
+	 *            The {@link HunterKillerState} to change.
+	 * @param buffer
+	 *            The buffer to read from.
+	 */
+	public void applyDelta(HunterKillerState state, ByteBuffer buffer) {
+		readHeader(buffer, KIND_DELTA);
+		int previousRound = readVarInt(buffer);
+		int previousPlayerID = readVarInt(buffer);
+		if (previousRound != state.getCurrentRound() || previousPlayerID != state.getActivePlayerID())
+			throw new HunterKillerException(StringExtensions.format("Cannot apply delta for round %d (player %d) to round %d (player %d)",
+																	previousRound,
+																	previousPlayerID,
+																	state.getCurrentRound(),
+																	state.getActivePlayerID()));
+		int currentRound = readVarInt(buffer);
+		int activePlayerID = readVarInt(buffer);
+		long expectedHash = buffer.getLong();
+
+		Map map = state.getMap();
+		map.currentTick = readVarInt(buffer);
+		Array<GameObject> objects = map.getObjects();
+		int objectCount = readVarInt(buffer);
+		if (objects.size < objectCount)
+			objects.setSize(objectCount);
+
+		// Objects are only placed once all of them have been read, so that units can move into each other's location
+		IntArray pendingIDs = PENDING_IDS.get();
+		pendingIDs.clear();
+		for (int entry = readVarInt(buffer); entry > 0; entry = readVarInt(buffer)) {
+			int id = entry - 1;
+			int tag = buffer.get();
+			GameObject current = map.getObject(id);
+			if (tag == TAG_CHANGED) {
+				applyObjectChanges(map, current, buffer, pendingIDs);
+				continue;
+			}
+			if (current != null)
+				map.unregisterGameObject(current);
+			if (tag == TAG_REMOVED)
+				continue;
+			GameObject object = readObject(map, tag, buffer, state.getRuleset());
+			object.setID(id);
+			objects.set(id, object);
+			map.getRegistry()
+				.add(object);
+			pendingIDs.add(id);
+		}
+		for (int i = 0; i < pendingIDs.size; i++) {
+			GameObject object = objects.get(pendingIDs.get(i));
+			map.place(map.toPosition(object.getLocation()), object);
+		}
+
+		readIntArray(buffer, map.getIdBuffer());
+		readIntArray(buffer, map.getCommandCenterObjectIDs());
+
+		Player[] players = state.getPlayers();
+		for (int i = 0; i < players.length; i++) {
+			applyPlayerChanges(players[i], buffer);
+		}
+		state.setTurn(currentRound, activePlayerID);
+
+		if (state.hashKey() != expectedHash)
+			throw new HunterKillerException(StringExtensions.format("Applying delta for round %d (player %d) resulted in a different state",
+																	currentRound,
+																	activePlayerID));
+	}
+
+	/**
+	 * Whether or not the next record in a buffer is a delta, see
+	 * {@link BinaryCodec#writeDelta(HunterKillerState, HunterKillerState, ByteBuffer)}. This does not move the position
+	 * of the buffer.
+	 *
+	 * @param buffer
+	 *            The buffer to look in.
+	 */
+	public static boolean isDelta(ByteBuffer buffer) {
+		return buffer.get(buffer.position() + 1) == KIND_DELTA;
+	}
+
+	/**
+	 * Writes a non-negative value as a variable-length integer, 7 bits per byte starting with the least significant
+	 * bits. The highest bit of each byte indicates whether or not another byte follows.
+	 *
+	 * @param buffer
+	 *            The buffer to write to.
+	 * @param value
+	 *            The value to write. Negative values are written as 5 bytes, see
+	 *            {@link BinaryCodec#writeSignedVarInt(ByteBuffer, int)} for values that can be negative.
+	 */
+	public static void writeVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads a variable-length integer, see {@link BinaryCodec#writeVarInt(ByteBuffer, int)}.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 */
+	public static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new HunterKillerException("Malformed variable-length integer at position " + buffer.position());
+	}
+
+	/**
+	 * Writes a value that can be negative as a variable-length integer, by first mapping it to a non-negative value
+	 * (zigzag encoding). This way values close to 0 take up a single byte, regardless of their sign.
+	 *
+	 * @param buffer
+	 *            The buffer to write to.
+	 * @param value
+	 *            The value to write.
+	 */
+	public static void writeSignedVarInt(ByteBuffer buffer, int value) {
+		writeVarInt(buffer, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Reads a variable-length integer that can be negative, see {@link BinaryCodec#writeSignedVarInt(ByteBuffer, int)}.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 */
+	public static int readSignedVarInt(ByteBuffer buffer) {
+		int value = readVarInt(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Writes the version of the format and the kind of record.
+	 */
+	private static void writeHeader(ByteBuffer buffer, int kind) {
+		buffer.put((byte) VERSION);
+		buffer.put((byte) kind);
+	}
+
+	/**
+	 * Reads the version of the format and the kind of record, and checks that they are what we expect.
+	 */
+	private static void readHeader(ByteBuffer buffer, int expectedKind) {
+		int version = buffer.get();
+		if (version != VERSION)
+			throw new HunterKillerException(StringExtensions.format("Unsupported format version %d, expected %d", version, VERSION));
+		int kind = buffer.get();
+		if (kind != expectedKind)
+			throw new HunterKillerException(StringExtensions.format("Unexpected kind of record %d, expected %d", kind, expectedKind));
+	}
+
+	/**
+	 * Reads the name and terrain hash of the map a state was written for, and checks that they are the same as ours.
+	 */
+	private void readMapReference(ByteBuffer buffer) {
+		int length = readVarInt(buffer);
+		boolean sameName = length == nameBytes.length;
+		int start = buffer.position();
+		for (int i = 0; sameName && i < length; i++) {
+			sameName = buffer.get(start + i) == nameBytes[i];
+		}
+		if (!sameName) {
+			byte[] name = new byte[length];
+			buffer.get(name);
+			throw new HunterKillerException(StringExtensions.format("Cannot read state of map '%s', this codec is for map '%s'",
+																	new String(name, UTF8),
+																	map.name));
+		}
+		buffer.position(start + length);
+		long hash = buffer.getLong();
+		if (hash != terrainHash)
+			throw new HunterKillerException(StringExtensions.format("Cannot read state of map '%s', its terrain is different", map.name));
+	}
+
+	/**
+	 * Writes the content of a map that can change during a game.
+	 */
+	private void writeMap(Map state, ByteBuffer buffer) {
+		writeVarInt(buffer, state.currentTick);
+
+		Array<GameObject> objects = state.getObjects();
+		writeVarInt(buffer, objects.size);
+		int runTag = -1, runLength = 0;
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			int tag = object == null ? TAG_EMPTY : isOurTerrain(i, object) ? TAG_TERRAIN : -1;
+			// Empty and terrain entries are collected into runs
+			if (tag != runTag && runLength > 0) {
+				buffer.put((byte) runTag);
+				writeVarInt(buffer, runLength);
+				runLength = 0;
+			}
+			if (tag >= 0) {
+				runTag = tag;
+				runLength++;
+			} else {
+				runTag = -1;
+				writeObject(state, object, buffer);
+			}
+		}
+		if (runLength > 0) {
+			buffer.put((byte) runTag);
+			writeVarInt(buffer, runLength);
+		}
+
+		writeIntArray(state.getIdBuffer(), buffer);
+		writeIntArray(state.getCommandCenterObjectIDs(), buffer);
+	}
+
+	/**
+	 * Reads the content of a map, and places it on a new map that shares our static terrain.
+	 */
+	private Map readMap(ByteBuffer buffer, Ruleset ruleset) {
+		Map newMap = map.copyLayout();
+		newMap.currentTick = readVarInt(buffer);
+
+		int objectCount = readVarInt(buffer);
+		Array<GameObject> objects = newMap.getObjects();
+		objects.ensureCapacity(objectCount - objects.size);
+		objects.size = objectCount; // Force size so we can directly set the objects
+		for (int i = 0; i < objectCount;) {
+			int tag = buffer.get();
+			if (tag == TAG_EMPTY || tag == TAG_TERRAIN) {
+				int runLength = readVarInt(buffer);
+				for (int end = i + runLength; i < end; i++) {
+					objects.set(i, tag == TAG_TERRAIN ? terrain[i] : null);
+				}
+			} else {
+				GameObject object = readObject(newMap, tag, buffer, ruleset);
+				object.setID(i);
+				objects.set(i, object);
+				i++;
+			}
+		}
+		newMap.getRegistry()
+				.rebuild(objects);
+
+		readIntArray(buffer, newMap.getIdBuffer());
+		readIntArray(buffer, newMap.getCommandCenterObjectIDs());
+
+		// Place the objects in order of their IDs, like when reading a map from JSON
+		for (int i = 0; i < objectCount; i++) {
+			GameObject object = objects.get(i);
+			if (object != null)
+				newMap.place(newMap.toPosition(object.getLocation()), object);
+		}
+		return newMap;
+	}
+
+	/**
+	 * Whether or not an object is the same as the static terrain we have with its ID.
+	 */
+	private boolean isOurTerrain(int id, GameObject object) {
+		if (id >= terrain.length || terrain[id] == null || !Map.isStaticTerrain(object))
+			return false;
+		return terrain[id] == object || terrain[id].equals(object);
+	}
+
+	/**
+	 * Writes the tag and values of a single object.
+	 */
+	private void writeObject(Map state, GameObject object, ByteBuffer buffer) {
+		if (object instanceof Unit) {
+			Unit unit = (Unit) object;
+			buffer.put((byte) (unit instanceof Soldier ? TAG_SOLDIER : unit instanceof Medic ? TAG_MEDIC : TAG_INFECTED));
+			writeVarInt(buffer, state.toPosition(unit.getLocation()));
+			writeVarInt(buffer, unit.getHpMax());
+			writeSignedVarInt(buffer, unit.getHpCurrent());
+			writeSignedVarInt(buffer, unit.getControllingPlayerID());
+			buffer.put((byte) unit.getOrientation()
+									.ordinal());
+			writeVarInt(buffer, unit.getFieldOfViewRange());
+			writeVarInt(buffer, unit.getFieldOfViewAngle());
+			writeVarInt(buffer, unit.getAttackRange());
+			writeSignedVarInt(buffer, unit.getAttackDamage());
+			writeSignedVarInt(buffer, unit.getSpecialAttackCooldown());
+			writeVarInt(buffer, unit.getSpawnCost());
+			writeSignedVarInt(buffer, unit.getScoreWorth());
+			writeFieldOfView(state, unit, buffer);
+			return;
+		}
+
+		MapFeature feature = (MapFeature) object;
+		if (feature instanceof Structure)
+			buffer.put((byte) TAG_STRUCTURE);
+		else if (feature instanceof Door)
+			buffer.put((byte) TAG_DOOR);
+		else if (feature instanceof Wall)
+			buffer.put((byte) TAG_WALL);
+		else if (feature instanceof Space)
+			buffer.put((byte) TAG_SPACE);
+		else if (feature instanceof Floor)
+			buffer.put((byte) TAG_FLOOR);
+		else
+			throw new HunterKillerException("Cannot write object of type " + object.getClass()
+																					.getName());
+		writeVarInt(buffer, state.toPosition(feature.getLocation()));
+		writeVarInt(buffer, feature.getHpMax());
+		writeSignedVarInt(buffer, feature.getHpCurrent());
+		buffer.put((byte) ((feature.isDestructible() ? FLAG_DESTRUCTIBLE : 0) | (feature.isBlockingLOS() ? FLAG_BLOCKING_LOS : 0) | (feature.isWalkable() ? FLAG_WALKABLE
+				: 0)));
+
+		if (feature instanceof Door) {
+			writeSignedVarInt(buffer, ((Door) feature).getOpenTimer());
+		} else if (feature instanceof Structure) {
+			Structure structure = (Structure) feature;
+			buffer.put((byte) structure.getType()
+										.ordinal());
+			writeSignedVarInt(buffer, structure.getControllingPlayerID());
+			buffer.put((byte) ((structure.isCapturable() ? FLAG_CAPTURABLE : 0) | (structure.isAllowsSpawning() ? FLAG_ALLOWS_SPAWNING : 0)
+								| (structure.isGeneratesResource() ? FLAG_GENERATES_RESOURCE : 0)
+								| (structure.isGeneratesScore() ? FLAG_GENERATES_SCORE : 0) | (structure.isCommandCenter() ? FLAG_COMMAND_CENTER
+					: 0)));
+			// Structures that don't allow spawning have no spawn location, so write the position shifted by one
+			MapLocation spawnLocation = structure.getSpawnLocation();
+			writeVarInt(buffer, spawnLocation != null ? state.toPosition(spawnLocation) + 1 : 0);
+			writeSignedVarInt(buffer, structure.getResourceGeneration());
+			writeSignedVarInt(buffer, structure.getScoreGeneration());
+		}
+	}
+
+	/**
+	 * Reads the values of a single object, see {@link BinaryCodec#writeObject(Map, GameObject, ByteBuffer)}.
+	 */
+	private static GameObject readObject(Map newMap, int tag, ByteBuffer buffer, Ruleset ruleset) {
+		MapLocation location = newMap.toLocation(readVarInt(buffer));
+		int hpMax = readVarInt(buffer);
+		int hpCurrent = readSignedVarInt(buffer);
+
+		if (tag == TAG_SOLDIER || tag == TAG_MEDIC || tag == TAG_INFECTED) {
+			int playerID = readSignedVarInt(buffer);
+			Direction orientation = Direction.values[buffer.get()];
+			int fovRange = readVarInt(buffer);
+			int fovAngle = readVarInt(buffer);
+			int attackRange = readVarInt(buffer);
+			int attackDamage = readSignedVarInt(buffer);
+			int cooldown = readSignedVarInt(buffer);
+			int spawnCost = readVarInt(buffer);
+			int scoreWorth = readSignedVarInt(buffer);
+			Unit unit;
+			if (tag == TAG_SOLDIER)
+				unit = new Soldier(playerID, location, hpMax, hpCurrent, orientation, fovRange, fovAngle, attackRange, attackDamage,
+									cooldown, spawnCost, scoreWorth);
+			else if (tag == TAG_MEDIC)
+				unit = new Medic(playerID, location, hpMax, hpCurrent, orientation, fovRange, fovAngle, attackRange, attackDamage, cooldown,
+									spawnCost, scoreWorth);
+			else
+				unit = new Infected(playerID, location, hpMax, hpCurrent, orientation, fovRange, fovAngle, attackRange, attackDamage,
+									cooldown, spawnCost, scoreWorth);
+			readFieldOfView(newMap, unit, buffer);
+			return unit;
+		}
+
+		int flags = buffer.get();
+		MapFeature feature;
+		switch (tag) {
+		case TAG_FLOOR:
+			feature = new Floor(location);
+			break;
+		case TAG_WALL:
+			feature = new Wall(location);
+			break;
+		case TAG_SPACE:
+			feature = new Space(location);
+			break;
+		case TAG_DOOR:
+			feature = new Door(location, readSignedVarInt(buffer));
+			break;
+		case TAG_STRUCTURE:
+			Structure structure = new Structure(location, StructureType.values[buffer.get()], ruleset);
+			structure.setControllingPlayerID(readSignedVarInt(buffer));
+			int structureFlags = buffer.get();
+			structure.setCapturable((structureFlags & FLAG_CAPTURABLE) != 0);
+			structure.setAllowsSpawning((structureFlags & FLAG_ALLOWS_SPAWNING) != 0);
+			structure.setGeneratesResource((structureFlags & FLAG_GENERATES_RESOURCE) != 0);
+			structure.setGeneratesScore((structureFlags & FLAG_GENERATES_SCORE) != 0);
+			structure.setCommandCenter((structureFlags & FLAG_COMMAND_CENTER) != 0);
+			int spawnPosition = readVarInt(buffer);
+			structure.setSpawnLocation(spawnPosition > 0 ? newMap.toLocation(spawnPosition - 1) : null);
+			structure.setResourceGeneration(readSignedVarInt(buffer));
+			structure.setScoreGeneration(readSignedVarInt(buffer));
+			feature = structure;
+			break;
+		default:
+			throw new HunterKillerException("Unknown object tag " + tag);
+		}
+		feature.setHpMax(hpMax);
+		feature.setHpCurrent(hpCurrent);
+		feature.setDestructible((flags & FLAG_DESTRUCTIBLE) != 0);
+		feature.setBlockingLOS((flags & FLAG_BLOCKING_LOS) != 0);
+		feature.setWalkable((flags & FLAG_WALKABLE) != 0);
+		return feature;
+	}
+
+	/**
+	 * Writes the entry of an object in a delta, if it has changed.
+	 */
+	private void writeObjectDelta(Map state, int id, GameObject before, GameObject after, ByteBuffer buffer) {
+		if (after == null) {
+			if (before != null) {
+				writeVarInt(buffer, id + 1);
+				buffer.put((byte) TAG_REMOVED);
+			}
+			return;
+		}
+		if (before == null || !hasSameConstants(before, after)) {
+			writeVarInt(buffer, id + 1);
+			writeObject(state, after, buffer);
+			return;
+		}
+
+		int changes = 0;
+		if (before.getHpCurrent() != after.getHpCurrent())
+			changes |= CHANGED_HP;
+		if (!before.getLocation()
+					.equals(after.getLocation()))
+			changes |= CHANGED_POSITION;
+		if (after instanceof Unit) {
+			Unit beforeUnit = (Unit) before;
+			Unit afterUnit = (Unit) after;
+			if (beforeUnit.getOrientation() != afterUnit.getOrientation())
+				changes |= CHANGED_ORIENTATION;
+			if (beforeUnit.getSpecialAttackCooldown() != afterUnit.getSpecialAttackCooldown())
+				changes |= CHANGED_COOLDOWN;
+			if (beforeUnit.isFieldOfViewValid() != afterUnit.isFieldOfViewValid() || !beforeUnit.getFieldOfView()
+																								.equals(afterUnit.getFieldOfView()))
+				changes |= CHANGED_FIELD_OF_VIEW;
+		} else if (after instanceof Door) {
+			if (((Door) before).getOpenTimer() != ((Door) after).getOpenTimer())
+				changes |= CHANGED_OPEN_TIMER;
+		} else if (after instanceof Structure) {
+			if (((Structure) before).getControllingPlayerID() != ((Structure) after).getControllingPlayerID())
+				changes |= CHANGED_CONTROLLER;
+		}
+		if (changes == 0)
+			return;
+
+		writeVarInt(buffer, id + 1);
+		buffer.put((byte) TAG_CHANGED);
+		buffer.put((byte) changes);
+		if ((changes & CHANGED_HP) != 0)
+			writeSignedVarInt(buffer, after.getHpCurrent());
+		if ((changes & CHANGED_POSITION) != 0)
+			writeVarInt(buffer, state.toPosition(after.getLocation()));
+		if ((changes & CHANGED_ORIENTATION) != 0)
+			buffer.put((byte) ((Unit) after).getOrientation()
+											.ordinal());
+		if ((changes & CHANGED_COOLDOWN) != 0)
+			writeSignedVarInt(buffer, ((Unit) after).getSpecialAttackCooldown());
+		if ((changes & CHANGED_FIELD_OF_VIEW) != 0)
+			writeFieldOfView(state, (Unit) after, buffer);
+		if ((changes & CHANGED_OPEN_TIMER) != 0)
+			writeSignedVarInt(buffer, ((Door) after).getOpenTimer());
+		if ((changes & CHANGED_CONTROLLER) != 0)
+			writeSignedVarInt(buffer, ((Structure) after).getControllingPlayerID());
+	}
+
+	/**
+	 * Writes the entry of an object in a delta, if it is static terrain that did not exist before.
+	 */
+	private void writeNewTerrain(Map before, Map after, int id, ByteBuffer buffer) {
+		GameObject object = after.getObject(id);
+		if (object != null && Map.isStaticTerrain(object) && before.getObject(id) == null)
+			writeObjectDelta(after, id, null, object, buffer);
+	}
+
+	/**
+	 * Applies the changed values of an object, see
+	 * {@link BinaryCodec#writeObjectDelta(Map, int, GameObject, GameObject, ByteBuffer)}. An object that moves is taken
+	 * off the map, and its ID is added to the objects that still need to be placed.
+	 */
+	private void applyObjectChanges(Map map, GameObject object, ByteBuffer buffer, IntArray pendingIDs) {
+		int changes = buffer.get();
+		if ((changes & CHANGED_HP) != 0)
+			object.setHpCurrent(readSignedVarInt(buffer));
+		if ((changes & CHANGED_POSITION) != 0) {
+			MapLocation location = map.toLocation(readVarInt(buffer));
+			map.remove(object.getLocation(), object);
+			object.setLocation(location);
+			pendingIDs.add(object.getID());
+		}
+		if ((changes & CHANGED_ORIENTATION) != 0)
+			((Unit) object).setOrientation(Direction.values[buffer.get()]);
+		if ((changes & CHANGED_COOLDOWN) != 0)
+			((Unit) object).setSpecialAttackCooldown(readSignedVarInt(buffer));
+		if ((changes & CHANGED_FIELD_OF_VIEW) != 0)
+			readFieldOfView(map, (Unit) object, buffer);
+		if ((changes & CHANGED_OPEN_TIMER) != 0) {
+			((Door) object).setOpenTimer(readSignedVarInt(buffer));
+			map.updateBlockingLOS(map.toPosition(object.getLocation()));
+		}
+		if ((changes & CHANGED_CONTROLLER) != 0)
+			((Structure) object).setControllingPlayerID(readSignedVarInt(buffer));
+	}
+
+	/**
+	 * Whether or not two objects only differ in the values that can change during a game. If they don't, the second
+	 * object has replaced the first one and needs to be written completely.
+	 */
+	private boolean hasSameConstants(GameObject before, GameObject after) {
+		if (before.getClass() != after.getClass() || before.getHpMax() != after.getHpMax())
+			return false;
+		if (after instanceof Unit) {
+			Unit beforeUnit = (Unit) before;
+			Unit afterUnit = (Unit) after;
+			return beforeUnit.getControllingPlayerID() == afterUnit.getControllingPlayerID()
+					&& beforeUnit.getFieldOfViewRange() == afterUnit.getFieldOfViewRange()
+					&& beforeUnit.getFieldOfViewAngle() == afterUnit.getFieldOfViewAngle()
+					&& beforeUnit.getAttackRange() == afterUnit.getAttackRange()
+					&& beforeUnit.getAttackDamage() == afterUnit.getAttackDamage() && beforeUnit.getSpawnCost() == afterUnit.getSpawnCost()
+					&& beforeUnit.getScoreWorth() == afterUnit.getScoreWorth();
+		}
+		MapFeature beforeFeature = (MapFeature) before;
+		MapFeature afterFeature = (MapFeature) after;
+		// Doors block line-of-sight depending on their timer, other features never change this
+		if (!before.getLocation()
+					.equals(after.getLocation()) || beforeFeature.isDestructible() != afterFeature.isDestructible()
+			|| beforeFeature.isWalkable() != afterFeature.isWalkable()
+			|| (!(after instanceof Door) && beforeFeature.isBlockingLOS() != afterFeature.isBlockingLOS()))
+			return false;
+		if (after instanceof Structure) {
+			Structure beforeStructure = (Structure) before;
+			Structure afterStructure = (Structure) after;
+			MapLocation spawnLocation = afterStructure.getSpawnLocation();
+			return beforeStructure.getType() == afterStructure.getType() && beforeStructure.isCapturable() == afterStructure.isCapturable()
+					&& beforeStructure.isAllowsSpawning() == afterStructure.isAllowsSpawning()
+					&& beforeStructure.isGeneratesResource() == afterStructure.isGeneratesResource()
+					&& beforeStructure.isGeneratesScore() == afterStructure.isGeneratesScore()
+					&& beforeStructure.isCommandCenter() == afterStructure.isCommandCenter()
+					&& beforeStructure.getResourceGeneration() == afterStructure.getResourceGeneration()
+					&& beforeStructure.getScoreGeneration() == afterStructure.getScoreGeneration()
+					&& (spawnLocation == null ? beforeStructure.getSpawnLocation() == null : spawnLocation.equals(beforeStructure.getSpawnLocation()));
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the values of a player that differ between two states.
+	 */
+	private void writePlayerDelta(Player before, Player after, ByteBuffer buffer) {
+		int changes = 0;
+		if (before.getResource() != after.getResource())
+			changes |= CHANGED_RESOURCE;
+		if (before.getScore() != after.getScore())
+			changes |= CHANGED_SCORE;
+		if (!before.getUnitIDs()
+					.equals(after.getUnitIDs()))
+			changes |= CHANGED_UNITS;
+		if (!before.getStructureIDs()
+					.equals(after.getStructureIDs()))
+			changes |= CHANGED_STRUCTURES;
+		if (!before.getStats()
+					.equals(after.getStats()))
+			changes |= CHANGED_STATS;
+		if (before.getCommandCenterID() != after.getCommandCenterID())
+			changes |= CHANGED_COMMAND_CENTER;
+
+		buffer.put((byte) changes);
+		if ((changes & CHANGED_RESOURCE) != 0)
+			writeSignedVarInt(buffer, after.getResource());
+		if ((changes & CHANGED_SCORE) != 0)
+			writeSignedVarInt(buffer, after.getScore());
+		if ((changes & CHANGED_UNITS) != 0)
+			writeIntArray(after.getUnitIDs(), buffer);
+		if ((changes & CHANGED_STRUCTURES) != 0)
+			writeIntArray(after.getStructureIDs(), buffer);
+		if ((changes & CHANGED_STATS) != 0)
+			writeStats(after.getStats(), buffer);
+		if ((changes & CHANGED_COMMAND_CENTER) != 0)
+			writeSignedVarInt(buffer, after.getCommandCenterID());
+	}
+
+	/**
+	 * Applies the changed values of a player, see {@link BinaryCodec#writePlayerDelta(Player, Player, ByteBuffer)}.
+	 */
+	private void applyPlayerChanges(Player player, ByteBuffer buffer) {
+		int changes = buffer.get();
+		if ((changes & CHANGED_RESOURCE) != 0)
+			player.setResource(readSignedVarInt(buffer));
+		if ((changes & CHANGED_SCORE) != 0)
+			player.setScore(readSignedVarInt(buffer));
+		if ((changes & CHANGED_UNITS) != 0)
+			readIntArray(buffer, player.getUnitIDs());
+		if ((changes & CHANGED_STRUCTURES) != 0)
+			readIntArray(buffer, player.getStructureIDs());
+		if ((changes & CHANGED_STATS) != 0)
+			readStats(buffer, player.getStats());
+		if ((changes & CHANGED_COMMAND_CENTER) != 0)
+			player.setCommandCenterID(readSignedVarInt(buffer));
+	}
+
+	/**
+	 * Writes the field-of-view of a unit, as the differences between its consecutive visible positions.
+	 */
+	private void writeFieldOfView(Map state, Unit unit, ByteBuffer buffer) {
+		FieldOfView fieldOfView = unit.getFieldOfView();
+		// A unit that was never placed has a field-of-view without a size
+		boolean sized = fieldOfView.getMapWidth() > 0;
+		if (sized && (fieldOfView.getMapWidth() != state.getMapWidth() || fieldOfView.getMapHeight() != state.getMapHeight()))
+			throw new HunterKillerException("Cannot write field-of-view for a different map size: " + unit);
+		buffer.put((byte) ((unit.isFieldOfViewValid() ? FOV_VALID : 0) | (sized ? FOV_SIZED : 0)));
+		if (!sized)
+			return;
+		writeVarInt(buffer, fieldOfView.size());
+		int previous = 0;
+		for (int position = fieldOfView.nextPosition(0); position >= 0; position = fieldOfView.nextPosition(position + 1)) {
+			writeVarInt(buffer, position - previous);
+			previous = position;
+		}
+	}
+
+	/**
+	 * Reads the field-of-view of a unit, see {@link BinaryCodec#writeFieldOfView(Map, Unit, ByteBuffer)}.
+	 */
+	private static void readFieldOfView(Map newMap, Unit unit, ByteBuffer buffer) {
+		int flags = buffer.get();
+		if ((flags & FOV_SIZED) != 0) {
+			FieldOfView fieldOfView = new FieldOfView(newMap.getMapWidth(), newMap.getMapHeight());
+			int count = readVarInt(buffer);
+			int position = 0;
+			for (int i = 0; i < count; i++) {
+				position += readVarInt(buffer);
+				fieldOfView.add(position);
+			}
+			unit.updateFieldOfView(fieldOfView);
+		}
+		if ((flags & FOV_VALID) != 0)
+			unit.updateFieldOfView(unit.getFieldOfView());
+		else
+			unit.invalidateFieldOfView();
+	}
+
+	/**
+	 * Writes the values of a player.
+	 */
+	private void writePlayer(Player player, ByteBuffer buffer) {
+		writeVarInt(buffer, player.getID());
+		byte[] name = player.getName()
+							.getBytes(UTF8);
+		writeVarInt(buffer, name.length);
+		buffer.put(name);
+		writeSignedVarInt(buffer, player.getMapSection());
+		writeSignedVarInt(buffer, player.getResource());
+		writeSignedVarInt(buffer, player.getCommandCenterID());
+		writeSignedVarInt(buffer, player.getScore());
+		writeIntArray(player.getUnitIDs(), buffer);
+		writeIntArray(player.getStructureIDs(), buffer);
+
+		writeStats(player.getStats(), buffer);
+	}
+
+	/**
+	 * Reads the values of a player, see {@link BinaryCodec#writePlayer(Player, ByteBuffer)}.
+	 */
+	private Player readPlayer(ByteBuffer buffer) {
+		int id = readVarInt(buffer);
+		byte[] name = new byte[readVarInt(buffer)];
+		buffer.get(name);
+		int mapSection = readSignedVarInt(buffer);
+		Player player = new Player(id, new String(name, UTF8), mapSection, readSignedVarInt(buffer));
+		player.setCommandCenterID(readSignedVarInt(buffer));
+		player.setScore(readSignedVarInt(buffer));
+		readIntArray(buffer, player.getUnitIDs());
+		readIntArray(buffer, player.getStructureIDs());
+
+		readStats(buffer, player.getStats());
+		return player;
+	}
+
+	/**
+	 * Writes the order statistics of a player.
+	 */
+	private void writeStats(OrderStatistics stats, ByteBuffer buffer) {
+		writeVarInt(buffer, stats.issued);
+		writeVarInt(buffer, stats.success);
+		writeVarInt(buffer, stats.failed);
+		writeVarInt(buffer, stats.spawnSoldier);
+		writeVarInt(buffer, stats.spawnMedic);
+		writeVarInt(buffer, stats.spawnInfected);
+		writeVarInt(buffer, stats.move);
+		writeVarInt(buffer, stats.rotateClockwise);
+		writeVarInt(buffer, stats.rotateCounter);
+		writeVarInt(buffer, stats.attack);
+		writeVarInt(buffer, stats.heal);
+		writeVarInt(buffer, stats.grenade);
+		writeVarInt(buffer, stats.attackUnit);
+		writeVarInt(buffer, stats.attackStructure);
+		writeVarInt(buffer, stats.attackAlly);
+	}
+
+	/**
+	 * Reads the order statistics of a player into existing statistics, see
+	 * {@link BinaryCodec#writeStats(OrderStatistics, ByteBuffer)}.
+	 */
+	private void readStats(ByteBuffer buffer, OrderStatistics stats) {
+		stats.issued = readVarInt(buffer);
+		stats.success = readVarInt(buffer);
+		stats.failed = readVarInt(buffer);
+		stats.spawnSoldier = readVarInt(buffer);
+		stats.spawnMedic = readVarInt(buffer);
+		stats.spawnInfected = readVarInt(buffer);
+		stats.move = readVarInt(buffer);
+		stats.rotateClockwise = readVarInt(buffer);
+		stats.rotateCounter = readVarInt(buffer);
+		stats.attack = readVarInt(buffer);
+		stats.heal = readVarInt(buffer);
+		stats.grenade = readVarInt(buffer);
+		stats.attackUnit = readVarInt(buffer);
+		stats.attackStructure = readVarInt(buffer);
+		stats.attackAlly = readVarInt(buffer);
+	}
+
+	/**
+	 * Writes the size and the values of a collection.
+	 */
+	private void writeIntArray(IntArray values, ByteBuffer buffer) {
+		writeVarInt(buffer, values.size);
+		for (int i = 0; i < values.size; i++) {
+			writeVarInt(buffer, values.get(i));
+		}
+	}
+
+	/**
+	 * Reads the values of a collection into an existing collection, see
+	 * {@link BinaryCodec#writeIntArray(IntArray, ByteBuffer)}.
+	 */
+	private void readIntArray(ByteBuffer buffer, IntArray values) {
+		int size = readVarInt(buffer);
+		values.clear();
+		values.ensureCapacity(size);
+		for (int i = 0; i < size; i++) {
+			values.add(readVarInt(buffer));
+		}
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,232 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Arrays;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Collection of distance fields towards the {@link Structure}s on a {@link Map}. A distance field contains, for every
+ * position on the map, the number of moves it takes to reach a structure over walkable terrain. Units are ignored, since
+ * they move around every round. A distance field is computed through a breadth-first search the first time it is
+ * requested, and is kept until the walkability of any location on the map changes (for example when a structure is
+ * destroyed).
+ *
+ * The distance fields themselves are never altered once they have been computed, which means that copies of this
+ * collection can share them. See {@link DistanceFields#copy()}.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class DistanceFields {
+
+	// region Constants
+
+	/**
+	 * The distance for positions from which a structure cannot be reached.
+	 */
+	public static final int UNREACHABLE = -1;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The distance fields that have been computed, indexed by the ID of the structure they lead to.
+	 */
+	private IntMap<int[]> fields = new IntMap<int[]>();
+
+	/**
+	 * The walkability of each position at the time the distance fields were computed, one bit per position. Null if no
+	 * distance fields have been computed yet.
+	 */
+	private long[] walkable;
+
+	/**
+	 * The queue used during the breadth-first search.
+	 */
+	private int[] queue;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the number of moves it takes to get from a position to a structure, or {@link DistanceFields#UNREACHABLE}
+	 * if the structure can't be reached from that position, or does not exist.
+	 *
+	 * @param map
+	 *            The {@link Map} the structure is on.
+	 * @param structureID
+	 *            The ID of the structure.
+	 * @param position
+	 *            The position to get the distance from.
+	 */
+	public int distanceTo(Map map, int structureID, int position) {
+		int[] field = getField(map, structureID);
+		return field != null ? field[position] : UNREACHABLE;
+	}
+
+	/**
+	 * Returns the position adjacent to a position that is one move closer to a structure. If several adjacent positions
+	 * are, the first one in the order of {@link net.codepoke.ai.challenge.hunterkiller.enums.Direction#values
+	 * Direction.values} is returned. Returns -1 if the structure can't be reached from the position, or if the
+	 * position is the structure's location. Note that the returned position can be the structure's location, which is
+	 * not necessarily walkable.
+	 *
+	 * @param map
+	 *            The {@link Map} the structure is on.
+	 * @param structureID
+	 *            The ID of the structure.
+	 * @param position
+	 *            The position to take a step from.
+	 */
+	public int nextStepToward(Map map, int structureID, int position) {
+		int[] field = getField(map, structureID);
+		if (field == null || field[position] <= 0)
+			return -1;
+
+		int width = map.getMapWidth();
+		int x = position % width, y = position / width;
+		int target = field[position] - 1;
+		// Go through the adjacent positions in the order north, east, south, west
+		if (y > 0 && field[position - width] == target)
+			return position - width;
+		if (x < width - 1 && field[position + 1] == target)
+			return position + 1;
+		if (y < map.getMapHeight() - 1 && field[position + width] == target)
+			return position + width;
+		if (x > 0 && field[position - 1] == target)
+			return position - 1;
+		return -1;
+	}
+
+	/**
+	 * Checks whether the walkability of a position has changed since the distance fields were computed. If it has, all
+	 * distance fields are discarded. This is called by the map when features are placed or removed.
+	 *
+	 * @param map
+	 *            The {@link Map} the position is on.
+	 * @param position
+	 *            The position on the map.
+	 */
+	public void update(Map map, int position) {
+		if (walkable == null)
+			return;
+		boolean isWalkable = isWalkable(map, position);
+		boolean wasWalkable = (walkable[position >>> 6] & (1L << position)) != 0;
+		if (isWalkable != wasWalkable)
+			reset();
+	}
+
+	/**
+	 * Discards all distance fields.
+	 */
+	public void reset() {
+		walkable = null;
+		fields.clear();
+	}
+
+	/**
+	 * Returns a copy of this collection, which shares the distance fields that have been computed so far.
+	 */
+	public DistanceFields copy() {
+		DistanceFields copy = new DistanceFields();
+		if (walkable != null) {
+			copy.walkable = Arrays.copyOf(walkable, walkable.length);
+			copy.fields.putAll(fields);
+		}
+		return copy;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Returns the distance field for a structure, computing it if needed. Returns null if there is no structure with
+	 * the ID.
+	 */
+	private int[] getField(Map map, int structureID) {
+		// Make sure the structure still exists, it might have been destroyed since its distance field was computed
+		GameObject object = map.getObject(structureID);
+		if (!(object instanceof Structure) || !map.isOnMap(object.getLocation()))
+			return null;
+
+		int[] field = fields.get(structureID);
+		if (field != null)
+			return field;
+
+		if (walkable == null)
+			recordWalkable(map);
+		field = computeField(map, map.toPosition(object.getLocation()));
+		fields.put(structureID, field);
+		return field;
+	}
+
+	/**
+	 * Computes the distance from every position on a map to a target position through a breadth-first search.
+	 */
+	private int[] computeField(Map map, int target) {
+		int width = map.getMapWidth(), height = map.getMapHeight();
+		int[] field = new int[width * height];
+		Arrays.fill(field, UNREACHABLE);
+		if (queue == null || queue.length != field.length)
+			queue = new int[field.length];
+
+		// Search outward from the target, which itself does not need to be walkable
+		int head = 0, tail = 0;
+		field[target] = 0;
+		queue[tail++] = target;
+		while (head < tail) {
+			int position = queue[head++];
+			int x = position % width, y = position / width;
+			int distance = field[position] + 1;
+			if (y > 0)
+				tail = visit(field, position - width, distance, tail);
+			if (x < width - 1)
+				tail = visit(field, position + 1, distance, tail);
+			if (y < height - 1)
+				tail = visit(field, position + width, distance, tail);
+			if (x > 0)
+				tail = visit(field, position - 1, distance, tail);
+		}
+		return field;
+	}
+
+	/**
+	 * Sets the distance to a position if it has not been reached yet and is walkable, and adds it to the queue.
+	 *
+	 * @return The new end of the queue.
+	 */
+	private int visit(int[] field, int position, int distance, int tail) {
+		if (field[position] != UNREACHABLE || (walkable[position >>> 6] & (1L << position)) == 0)
+			return tail;
+		field[position] = distance;
+		queue[tail] = position;
+		return tail + 1;
+	}
+
+	/**
+	 * Records the current walkability of every position on a map.
+	 */
+	private void recordWalkable(Map map) {
+		int positions = map.getMapWidth() * map.getMapHeight();
+		walkable = new long[(positions + 63) >>> 6];
+		for (int i = 0; i < positions; i++) {
+			if (isWalkable(map, i))
+				walkable[i >>> 6] |= 1L << i;
+		}
+	}
+
+	private static boolean isWalkable(Map map, int position) {
+		MapFeature feature = (MapFeature) map.getMapContent()[position][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX];
+		return feature != null && feature.isWalkable();
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,292 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A collection of the positions on a {@link Map} that are visible, stored as a bitset with one bit per position (see
+ * {@link Map#toPosition(int, int)}). This avoids creating a {@link MapLocation} for every visible position, and allows
+ * fields-of-view to be combined word-by-word.
+ *
+ * Iterating over the visible positions without allocating can be done through
+ * {@link FieldOfView#nextPosition(int)}:
+ *
+ * <pre>
+ * for (int position = fov.nextPosition(0); position &gt;= 0; position = fov.nextPosition(position + 1)) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@NoArgsConstructor
+public class FieldOfView
+		implements Iterable<MapLocation> {
+
+	// region Constants
+
+	/**
+	 * The number of positions stored in one word.
+	 */
+	private static final int WORD_SIZE = 64;
+
+	/**
+	 * The number of bits to shift a position by to get the index of its word.
+	 */
+	private static final int WORD_SHIFT = 6;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The width of the map this field-of-view is on.
+	 */
+	@Getter
+	private int mapWidth;
+
+	/**
+	 * The height of the map this field-of-view is on.
+	 */
+	@Getter
+	private int mapHeight;
+
+	/**
+	 * The bits representing the positions on the map, a set bit means the position is visible.
+	 */
+	private long[] words;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs an empty field-of-view for a map of a specific size.
+	 *
+	 * @param mapWidth
+	 *            The width of the map.
+	 * @param mapHeight
+	 *            The height of the map.
+	 */
+	public FieldOfView(int mapWidth, int mapHeight) {
+		this.mapWidth = mapWidth;
+		this.mapHeight = mapHeight;
+		this.words = new long[((mapWidth * mapHeight) + WORD_SIZE - 1) >>> WORD_SHIFT];
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param other
+	 *            The field-of-view to copy.
+	 */
+	public FieldOfView(FieldOfView other) {
+		this.mapWidth = other.mapWidth;
+		this.mapHeight = other.mapHeight;
+		this.words = Arrays.copyOf(other.words, other.words.length);
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Marks a position as visible.
+	 *
+	 * @param position
+	 *            The position on the map.
+	 */
+	public void add(int position) {
+		words[position >>> WORD_SHIFT] |= 1L << position;
+	}
+
+	/**
+	 * Marks a location as visible. Locations that are not on the map are ignored.
+	 *
+	 * @param location
+	 *            The location on the map.
+	 */
+	public void add(MapLocation location) {
+		if (isOnMap(location.getX(), location.getY()))
+			add(Map.toPosition(location.getX(), location.getY(), mapWidth));
+	}
+
+	/**
+	 * Whether or not a position is visible. Positions that are not on the map are never visible.
+	 *
+	 * @param position
+	 *            The position on the map.
+	 */
+	public boolean contains(int position) {
+		if (position < 0 || position >= mapWidth * mapHeight)
+			return false;
+		return (words[position >>> WORD_SHIFT] & (1L << position)) != 0;
+	}
+
+	/**
+	 * Whether or not a location is visible. Locations that are not on the map are never visible.
+	 *
+	 * @param location
+	 *            The location on the map.
+	 */
+	public boolean contains(MapLocation location) {
+		if (location == null || !isOnMap(location.getX(), location.getY()))
+			return false;
+		return contains(Map.toPosition(location.getX(), location.getY(), mapWidth));
+	}
+
+	/**
+	 * Adds all positions that are visible in another field-of-view to this one. Both need to be on maps of the same
+	 * size, with the exception of an empty field-of-view that was never placed on a map.
+	 *
+	 * @param other
+	 *            The field-of-view to add.
+	 */
+	public void addAll(FieldOfView other) {
+		long[] otherWords = other.words;
+		int length = Math.min(words.length, otherWords.length);
+		for (int i = 0; i < length; i++) {
+			words[i] |= otherWords[i];
+		}
+	}
+
+	/**
+	 * Returns the first visible position that is equal to or greater than a specific position, or -1 if there is
+	 * none.
+	 *
+	 * @param fromPosition
+	 *            The position to start looking from.
+	 */
+	public int nextPosition(int fromPosition) {
+		if (fromPosition < 0)
+			fromPosition = 0;
+		int wordIndex = fromPosition >>> WORD_SHIFT;
+		if (wordIndex >= words.length)
+			return -1;
+
+		// Mask out the positions before the starting position
+		long word = words[wordIndex] & (-1L << fromPosition);
+		while (true) {
+			if (word != 0)
+				return (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+			if (++wordIndex == words.length)
+				return -1;
+			word = words[wordIndex];
+		}
+	}
+
+	/**
+	 * Returns the number of visible positions.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < words.length; i++) {
+			size += Long.bitCount(words[i]);
+		}
+		return size;
+	}
+
+	/**
+	 * Whether or not no position is visible.
+	 */
+	public boolean isEmpty() {
+		for (int i = 0; i < words.length; i++) {
+			if (words[i] != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Marks all positions as not visible.
+	 */
+	public void clear() {
+		Arrays.fill(words, 0L);
+	}
+
+	/**
+	 * Returns a copy of this field-of-view.
+	 */
+	public FieldOfView copy() {
+		return new FieldOfView(this);
+	}
+
+	// endregion
+
+	// region Overridden methods
+
+	/**
+	 * Returns an iterator over the visible locations. Note that this creates a new {@link MapLocation} for each
+	 * location, use {@link FieldOfView#nextPosition(int)} where performance matters.
+	 */
+	@Override
+	public Iterator<MapLocation> iterator() {
+		return new Iterator<MapLocation>() {
+
+			private int next = nextPosition(0);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public MapLocation next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				MapLocation location = Map.toLocation(next, mapWidth);
+				next = nextPosition(next + 1);
+				return location;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof FieldOfView))
+			return false;
+		FieldOfView other = (FieldOfView) o;
+		return mapWidth == other.mapWidth && mapHeight == other.mapHeight && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int position = nextPosition(0); position >= 0; position = nextPosition(position + 1)) {
+			if (builder.length() > 1)
+				builder.append(",");
+			builder.append(Map.toLocation(position, mapWidth));
+		}
+		return builder.append("]")
+						.toString();
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Whether or not the coordinates are within the boundaries of the map.
+	 */
+	private boolean isOnMap(int x, int y) {
+		return x >= 0 && x < mapWidth && y >= 0 && y < mapHeight;
+	}
+
+	// endregion
+
+}
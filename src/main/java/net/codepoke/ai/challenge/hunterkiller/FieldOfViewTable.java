@@ -0,0 +1,320 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import net.codepoke.ai.challenge.hunterkiller.LineOfSight.CacheEntry;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Table that remembers the fields-of-view that have been computed on a map, so that they only need to be computed
+ * once. A field-of-view depends on the location, range, orientation and angle of the viewer (see {@link CacheEntry}),
+ * but also on the features around it that can change whether they block line-of-sight. These are {@link Door}s that
+ * open and close, and {@link Structure}s that can be destroyed. The table therefore keeps the fields-of-view for a
+ * viewer per combination of blocking-states of the changeable positions within its viewing range.
+ *
+ * The changeable positions are the positions that did not contain static terrain (see
+ * {@link Map#isStaticTerrain(GameObject)}) when the table was first used or shared. These stay the same while the map
+ * changes, so a destroyed Structure that is replaced by a Space is still part of the key. Because the key covers
+ * everything that can differ between maps with the same layout, one table is shared by a map and all of its copies
+ * (see {@link FieldOfViewTable#share(Map)}). When a feature is placed on any other position, the layout of that map
+ * has changed and it needs a table of its own (see {@link FieldOfViewTable#fitsLayout(int)}).
+ *
+ * The table can be used by multiple threads at the same time. It holds at most {@link #MAX_FIELD_OF_VIEWS}
+ * fields-of-view, and is emptied when it grows beyond that. Note that the fields-of-view in the table are handed out to
+ * multiple units, so they should never be altered.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class FieldOfViewTable {
+
+	// region Constants
+
+	/**
+	 * The maximum number of fields-of-view the table holds before it is emptied.
+	 */
+	public static final int MAX_FIELD_OF_VIEWS = 1 << 16;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The fields-of-view per viewer.
+	 */
+	private ConcurrentHashMap<CacheEntry, Views> table = new ConcurrentHashMap<CacheEntry, Views>();
+
+	/**
+	 * The number of fields-of-view in the table. Since the table is not locked as a whole, this can be slightly off
+	 * while threads are emptying it.
+	 */
+	private AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * Bit set of the changeable positions of the map, or null if the table has not been used or shared yet. This is
+	 * never altered once created.
+	 */
+	private volatile long[] changeable;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the field-of-view for a viewer on a map, as it was stored through
+	 * {@link FieldOfViewTable#put(Map, CacheEntry, FieldOfView)}. If no field-of-view is stored for the viewer and the
+	 * current blocking-states of the changeable features around it, null is returned.
+	 *
+	 * @param map
+	 *            The {@link Map} the viewer is on.
+	 * @param entry
+	 *            The viewer.
+	 */
+	public FieldOfView get(Map map, CacheEntry entry) {
+		Views views = table.get(entry);
+		if (views == null)
+			return null;
+		return views.get(map);
+	}
+
+	/**
+	 * Stores the field-of-view for a viewer on a map, for the current blocking-states of the changeable features around
+	 * it.
+	 *
+	 * @param map
+	 *            The {@link Map} the viewer is on.
+	 * @param entry
+	 *            The viewer.
+	 * @param fieldOfView
+	 *            The field-of-view that was computed for the viewer.
+	 */
+	public void put(Map map, CacheEntry entry, FieldOfView fieldOfView) {
+		// Empty the table when it has grown too large, the views that are still used will be stored again
+		if (count.get() >= MAX_FIELD_OF_VIEWS)
+			clear();
+		Views views = table.get(entry);
+		if (views == null) {
+			Views created = new Views(map, entry, getChangeable(map));
+			views = table.putIfAbsent(entry, created);
+			if (views == null)
+				views = created;
+		}
+		if (views.put(map, fieldOfView))
+			count.incrementAndGet();
+	}
+
+	/**
+	 * Whether or not a feature can be placed on a position without changing the layout this table was created for. If
+	 * not, the map the feature is placed on should no longer use this table.
+	 *
+	 * @param position
+	 *            The position of the feature.
+	 */
+	public boolean fitsLayout(int position) {
+		long[] positions = changeable;
+		return positions == null || (positions[position >>> 6] & (1L << position)) != 0;
+	}
+
+	/**
+	 * Returns this table, so that it can be used for a copy of a map. The changeable positions are taken from the map
+	 * if that has not been done yet, so that they are the same for all maps that share the table.
+	 *
+	 * @param map
+	 *            The {@link Map} this table is used on.
+	 */
+	public FieldOfViewTable share(Map map) {
+		getChangeable(map);
+		return this;
+	}
+
+	/**
+	 * Removes all fields-of-view from the table. The changeable positions are kept.
+	 */
+	public void clear() {
+		table.clear();
+		count.set(0);
+	}
+
+	/**
+	 * Returns the number of viewers in the table.
+	 */
+	public int size() {
+		return table.size();
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Returns the bit set of changeable positions of a map, finding them if that has not been done yet.
+	 *
+	 * @param map
+	 *            The {@link Map} this table is used on.
+	 */
+	private long[] getChangeable(Map map) {
+		long[] positions = changeable;
+		if (positions == null) {
+			GameObject[][] content = map.getMapContent();
+			positions = new long[(content.length + 63) >>> 6];
+			for (int i = 0; i < content.length; i++) {
+				GameObject feature = content[i][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX];
+				if (feature != null && !Map.isStaticTerrain(feature))
+					positions[i >>> 6] |= 1L << i;
+			}
+			// Maps that share a table have the same layout, so it does not matter which thread gets to set this
+			changeable = positions;
+		}
+		return positions;
+	}
+
+	// endregion
+
+	// region Inner classes
+
+	/**
+	 * The fields-of-view for a single viewer. Access is synchronized on the instance, since viewers are looked up by
+	 * every map that shares the table.
+	 */
+	private static class Views {
+
+		/**
+		 * The changeable positions within the viewer's range.
+		 */
+		private int[] changeablePositions;
+
+		/**
+		 * The fields-of-view, indexed by the blocking-states of the changeable features. Used when there are at most 64
+		 * changeable positions.
+		 */
+		private LongMap<FieldOfView> fieldOfViews;
+
+		/**
+		 * The fields-of-view, indexed by the blocking-states of the changeable features. Used when there are more than
+		 * 64 changeable positions.
+		 */
+		private HashMap<WideKey, FieldOfView> wideFieldOfViews;
+
+		/**
+		 * Finds the changeable positions around a viewer.
+		 *
+		 * @param map
+		 *            The {@link Map} the viewer is on.
+		 * @param entry
+		 *            The viewer.
+		 * @param changeable
+		 *            Bit set of the changeable positions of the map.
+		 */
+		public Views(Map map, CacheEntry entry, long[] changeable) {
+			MapLocation location = entry.getLocation();
+			// The line-of-sight computation looks one location beyond its range to determine the edges of shadows
+			int radius = entry.getRange() + 1;
+			IntArray positions = new IntArray();
+			for (int x = location.getX() - radius; x <= location.getX() + radius; x++) {
+				for (int y = location.getY() - radius; y <= location.getY() + radius; y++) {
+					if (!map.isXonMap(x) || !map.isYonMap(y))
+						continue;
+					int position = map.toPosition(x, y);
+					if ((changeable[position >>> 6] & (1L << position)) != 0)
+						positions.add(position);
+				}
+			}
+			changeablePositions = positions.toArray();
+			if (changeablePositions.length <= 64)
+				fieldOfViews = new LongMap<FieldOfView>();
+			else
+				wideFieldOfViews = new HashMap<WideKey, FieldOfView>();
+		}
+
+		/**
+		 * Returns the field-of-view for the current blocking-states of the changeable features, or null if there is
+		 * none.
+		 *
+		 * @param map
+		 *            The {@link Map} the viewer is on.
+		 */
+		public synchronized FieldOfView get(Map map) {
+			if (fieldOfViews != null)
+				return fieldOfViews.get(getKey(map, 0, changeablePositions.length));
+			return wideFieldOfViews.get(getWideKey(map));
+		}
+
+		/**
+		 * Stores the field-of-view for the current blocking-states of the changeable features. Returns whether or not
+		 * there was no field-of-view stored for these states yet.
+		 *
+		 * @param map
+		 *            The {@link Map} the viewer is on.
+		 * @param fieldOfView
+		 *            The field-of-view that was computed for the viewer.
+		 */
+		public synchronized boolean put(Map map, FieldOfView fieldOfView) {
+			if (fieldOfViews != null)
+				return fieldOfViews.put(getKey(map, 0, changeablePositions.length), fieldOfView) == null;
+			return wideFieldOfViews.put(getWideKey(map), fieldOfView) == null;
+		}
+
+		/**
+		 * Returns the key representing the blocking-states of a range of at most 64 changeable positions around the
+		 * viewer. A position without a feature, such as a destroyed Structure that has not been replaced yet, does not
+		 * block.
+		 *
+		 * @param map
+		 *            The {@link Map} the viewer is on.
+		 * @param from
+		 *            The index of the first changeable position to include.
+		 * @param to
+		 *            The index after the last changeable position to include.
+		 */
+		private long getKey(Map map, int from, int to) {
+			GameObject[][] content = map.getMapContent();
+			long key = 0;
+			for (int i = from; i < to; i++) {
+				MapFeature feature = (MapFeature) content[changeablePositions[i]][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX];
+				if (feature != null && feature.isBlockingLOS())
+					key |= 1L << (i - from);
+			}
+			return key;
+		}
+
+		/**
+		 * Returns the key representing the blocking-states of all changeable positions around the viewer, 64 positions
+		 * per word.
+		 *
+		 * @param map
+		 *            The {@link Map} the viewer is on.
+		 */
+		private WideKey getWideKey(Map map) {
+			long[] words = new long[(changeablePositions.length + 63) >>> 6];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = getKey(map, i << 6, Math.min((i + 1) << 6, changeablePositions.length));
+			}
+			return new WideKey(words);
+		}
+
+	}
+
+	/**
+	 * Key for the fields-of-view of a viewer with more than 64 changeable positions around it.
+	 */
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	private static class WideKey {
+
+		private long[] words;
+
+	}
+
+	// endregion
+
+}
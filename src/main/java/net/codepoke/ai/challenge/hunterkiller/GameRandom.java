@@ -0,0 +1,119 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Seedable random number generator that is used for all random decisions in the game, such as the creation of an
+ * initial state (see {@link HunterKillerStateFactory}) and the generation of random orders (see {@link MoveGenerator}).
+ * A game that is started from the same seed will make the same random decisions, which means it can be reproduced.
+ *
+ * A generator can be split into a new, independent generator (see {@link GameRandom#split()}). This allows every
+ * thread to use its own generator, while still being reproducible from a single seed.
+ *
+ * Note that the shuffle methods in this class should be used instead of {@link Array#shuffle()} and
+ * {@link IntArray#shuffle()}, which use a global generator.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class GameRandom
+		extends RandomXS128 {
+
+	// region Constants
+
+	private static final long serialVersionUID = 1L;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a generator with a random seed.
+	 */
+	public GameRandom() {
+		super();
+	}
+
+	/**
+	 * Constructs a generator from a seed.
+	 *
+	 * @param seed
+	 *            The seed.
+	 */
+	public GameRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Constructs a generator with a specific internal state, see {@link RandomXS128#getState(int)}.
+	 *
+	 * @param seed0
+	 *            The first part of the state.
+	 * @param seed1
+	 *            The second part of the state.
+	 */
+	public GameRandom(long seed0, long seed1) {
+		super(seed0, seed1);
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns a new generator that is seeded from this generator. The new generator produces a different sequence of
+	 * numbers than this generator, and advances independently from it. The seed is scrambled (see
+	 * {@link ZobristKeys#mix(long)}), so that generators split off one after another are unrelated.
+	 */
+	public GameRandom split() {
+		return new GameRandom(ZobristKeys.mix(nextLong()));
+	}
+
+	/**
+	 * Returns a copy of this generator, which will produce the same sequence of numbers as this generator.
+	 */
+	public GameRandom copy() {
+		return new GameRandom(getState(0), getState(1));
+	}
+
+	/**
+	 * Returns a random item from an array, or null if the array is empty.
+	 *
+	 * @param array
+	 *            The array to pick an item from.
+	 */
+	public <T> T random(Array<T> array) {
+		if (array.size == 0)
+			return null;
+		return array.get(nextInt(array.size));
+	}
+
+	/**
+	 * Shuffles the items in an array.
+	 *
+	 * @param array
+	 *            The array to shuffle.
+	 */
+	public <T> void shuffle(Array<T> array) {
+		for (int i = array.size - 1; i > 0; i--) {
+			array.swap(i, nextInt(i + 1));
+		}
+	}
+
+	/**
+	 * Shuffles the items in an array.
+	 *
+	 * @param array
+	 *            The array to shuffle.
+	 */
+	public void shuffle(IntArray array) {
+		for (int i = array.size - 1; i > 0; i--) {
+			array.swap(i, nextInt(i + 1));
+		}
+	}
+
+	// endregion
+
+}
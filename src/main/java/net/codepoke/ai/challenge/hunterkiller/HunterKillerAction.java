@@ -1,5 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,7 +14,7 @@ import net.codepoke.ai.challenge.hunterkiller.orders.StructureOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
 
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
 import com.badlogic.gdx.utils.JsonValue;
@@ -52,6 +53,14 @@ public class HunterKillerAction
 	 */
 	private Array<HunterKillerOrder> orders;
 
+	/**
+	 * The IDs of the objects that have an order in this action, so checking for an existing order does not require
+	 * going through all orders. Note that this is only kept up to date when orders are added and removed through this
+	 * class, instead of through {@link HunterKillerAction#getOrders()}.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient IntSet orderedObjectIDs = new IntSet();
+
 	// endregion
 
 	// region Constructor
@@ -68,6 +77,20 @@ public class HunterKillerAction
 		orders = new Array<HunterKillerOrder>();
 	}
 
+	/**
+	 * Constructs a new HunterKillerAction for a specific player and round.
+	 * 
+	 * @param actingPlayerID
+	 *            The ID of the player that is acting.
+	 * @param currentRound
+	 *            The round number the action is for.
+	 */
+	public HunterKillerAction(int actingPlayerID, int currentRound) {
+		this.actingPlayerID = actingPlayerID;
+		this.currentRound = currentRound;
+		orders = new Array<HunterKillerOrder>();
+	}
+
 	// endregion
 
 	// region Public methods
@@ -81,13 +104,11 @@ public class HunterKillerAction
 	 * @return Whether or not the order was successfully added.
 	 */
 	public boolean addOrder(HunterKillerOrder order) {
-		// Check if there isn't already an order for the object
-		IntArray objectIDs = new IntArray(getObjectIDs());
-		if (!objectIDs.contains(order.getObjectID())) {
-			orders.add(order);
-			return true;
-		}
-		return false;
+		// Only add the order if there isn't already an order for the object
+		if (!orderedObjectIDs.add(order.getObjectID()))
+			return false;
+		orders.add(order);
+		return true;
 	}
 
 	/**
@@ -99,20 +120,49 @@ public class HunterKillerAction
 	 */
 	public boolean removeOrderForObject(GameObject object) {
 		// Try to remove the order that is for the specified object
-		IntArray objectIDs = new IntArray(getObjectIDs());
-		if (objectIDs.contains(object.getID())) {
-			for (int i = 0; i < orders.size; i++) {
-				if (orders.get(i)
-							.getObjectID() == object.getID()) {
-					orders.removeIndex(i);
-					return true;
-				}
-			}
+		if (!orderedObjectIDs.remove(object.getID()))
 			return false;
+		for (int i = 0; i < orders.size; i++) {
+			if (orders.get(i)
+						.getObjectID() == object.getID()) {
+				orders.removeIndex(i);
+				return true;
+			}
 		}
 		return false;
 	}
 
+	/**
+	 * Whether or not this action contains an order for an object.
+	 * 
+	 * @param objectID
+	 *            The ID of the object.
+	 */
+	public boolean hasOrderForObject(int objectID) {
+		return orderedObjectIDs.contains(objectID);
+	}
+
+	/**
+	 * Removes all orders from this action, keeping the storage for them so it can be filled again.
+	 */
+	public void clear() {
+		orders.clear();
+		orderedObjectIDs.clear();
+	}
+
+	/**
+	 * Removes all orders from this action and prepares it for the current player and round of a state. This allows an
+	 * action to be reused for every turn of a game, instead of creating a new one.
+	 * 
+	 * @param state
+	 *            The current state of the game.
+	 */
+	public void reset(HunterKillerState state) {
+		this.actingPlayerID = state.getCurrentPlayer();
+		this.currentRound = state.getCurrentRound();
+		clear();
+	}
+
 	/**
 	 * Returns the IDs of the objects that have orders in this action.
 	 * 
@@ -189,6 +239,7 @@ public class HunterKillerAction
 		currentRound = (raw = raw.next).asInt();
 
 		orders = new Array<HunterKillerOrder>((raw = raw.next).asInt());
+		orderedObjectIDs.clear();
 
 		// Each next
 		while ((raw = raw.next) != null) {
@@ -221,6 +272,7 @@ public class HunterKillerAction
 
 			order.objectID = objectID;
 			orders.add(order);
+			orderedObjectIDs.add(objectID);
 
 		}
 
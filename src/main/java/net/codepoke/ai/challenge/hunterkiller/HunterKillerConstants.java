@@ -1,6 +1,5 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
-import lombok.Setter;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
@@ -102,8 +101,7 @@ public class HunterKillerConstants {
 	/**
 	 * Bases generate the default amount of resources.
 	 */
-	@Setter
-	public static int BASE_RESOURCE_GENERATION = STRUCTURE_RESOURCE_GENERATION;
+	public static final int BASE_RESOURCE_GENERATION = STRUCTURE_RESOURCE_GENERATION;
 
 	// endregion
 
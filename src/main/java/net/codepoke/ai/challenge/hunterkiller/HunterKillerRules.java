@@ -2,6 +2,8 @@ package net.codepoke.ai.challenge.hunterkiller;
 
 import java.util.List;
 
+import lombok.Getter;
+import lombok.Setter;
 import net.codepoke.ai.GameRules;
 import net.codepoke.ai.GameRules.Result.Ranking;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
@@ -17,12 +19,16 @@ import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Infected;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Medic;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.listeners.ActionListener;
 import net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderFailure;
 import net.codepoke.ai.challenge.hunterkiller.orders.OrderStatistics;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.StructureOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
 
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * Class representing the game logic for HunterKiller.
@@ -39,12 +45,63 @@ public class HunterKillerRules
 	/** Whether or not logging should be sent to the console. */
 	private static final boolean LOG_TO_CONSOLE = false;
 
+	/**
+	 * Orders that packed orders are decoded into for the current thread, so that handling them does not create any
+	 * objects. See {@link PackedOrder#decode(Map, int, UnitOrder, StructureOrder)}.
+	 */
+	private static ThreadLocal<UnitOrder> PACKED_UNIT_ORDER = new ThreadLocal<UnitOrder>() {
+		@Override
+		protected UnitOrder initialValue() {
+			return new UnitOrder();
+		}
+	};
+	private static ThreadLocal<StructureOrder> PACKED_STRUCTURE_ORDER = new ThreadLocal<StructureOrder>() {
+		@Override
+		protected StructureOrder initialValue() {
+			return new StructureOrder();
+		}
+	};
+
+	/**
+	 * Listener that is notified of every valid action that is handled through
+	 * {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction, HunterKillerUndoLog)}, or null if there is
+	 * none. Actions handled through {@link HunterKillerRules#handleTrusted(HunterKillerState, HunterKillerAction)} are
+	 * not passed to the listener.
+	 */
+	@Getter
+	@Setter
+	private ActionListener actionListener;
+
 	/**
 	 * Handles the specified action. Also ends the player's turn and checks for a completed game
 	 * state.
 	 */
 	@Override
 	public Result handle(HunterKillerState state, HunterKillerAction action) {
+		return handle(state, action, null);
+	}
+
+	/**
+	 * Handles the specified action, while recording the changes made to the state in an undo log. The state can be
+	 * returned to its situation before this action through
+	 * {@link HunterKillerRules#undo(HunterKillerState, HunterKillerUndoLog)}.
+	 * 
+	 * {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction)}
+	 * 
+	 * @param undoLog
+	 *            The log to record the changes in, or null if no record is required.
+	 */
+	public Result handle(HunterKillerState state, HunterKillerAction action, HunterKillerUndoLog undoLog) {
+		// Record the changes made to the state while the action is handled
+		if (undoLog != null) {
+			undoLog.record(state);
+			try {
+				return handle(state, action, null);
+			} finally {
+				undoLog.stopRecording();
+			}
+		}
+
 		// Check to make sure only the active player can perform an action
 		if (action.getActingPlayerID() != state.getCurrentPlayer()) {
 			return new Result(false, false, null, "Invalid action",
@@ -60,6 +117,9 @@ public class HunterKillerRules
 														state.getCurrentRound()));
 		}
 
+		if (actionListener != null)
+			actionListener.actionPerforming(state, action);
+
 		// Perform the action requested by the player
 		Result actionResult = performAction(state, action);
 		// End the player's turn
@@ -85,6 +145,103 @@ public class HunterKillerRules
 		return actionResult;
 	}
 
+	/**
+	 * Reverts the last action that was handled on a state, using the log that was recorded while handling it. This
+	 * includes rolling back the end of the player's turn.
+	 * 
+	 * @param state
+	 *            The state the action was handled on.
+	 * @param undoLog
+	 *            The log that was recorded through
+	 *            {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction, HunterKillerUndoLog)}.
+	 */
+	public void undo(HunterKillerState state, HunterKillerUndoLog undoLog) {
+		undoLog.restore(state);
+	}
+
+	/**
+	 * Handles an action that only contains orders that are known to be possible, such as orders generated by the
+	 * {@link MoveGenerator} or added through
+	 * {@link HunterKillerRules#addOrderIfPossible(HunterKillerAction, HunterKillerState, HunterKillerOrder, StringBuilder, StringBuilder)}
+	 * . Unlike {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction)}, this does not check whether the
+	 * action and its orders are possible, and does not create a {@link Result} or any failure messages. This makes it
+	 * suitable for simulations, where many actions are handled. The player's turn is ended afterwards, use
+	 * {@link HunterKillerState#isDone()} to check whether the game has ended.
+	 *
+	 * Note that executing an order that is not possible leaves the state in an undefined situation. Also note that the
+	 * {@link ActionListener} of these rules is not notified, so these actions do not end up in a replay.
+	 *
+	 * @param state
+	 *            The current state.
+	 * @param action
+	 *            The action to be performed, which should be made by the active player for the current round.
+	 * @return The number of orders that failed during their execution.
+	 */
+	public int handleTrusted(HunterKillerState state, HunterKillerAction action) {
+		int failCount = 0;
+		Array<HunterKillerOrder> orders = action.getOrders();
+		OrderStatistics stats = state.getActivePlayer()
+										.getStats();
+
+		// STATS
+		stats.issued += orders.size;
+
+		for (int i = 0; i < orders.size; i++) {
+			HunterKillerOrder order = orders.get(i);
+			if (execute(state, order, null) != OrderFailure.NONE) {
+				failCount++;
+				order.setAccepted(false);
+			} else {
+				order.setAccepted(true);
+
+				// STATS
+				stats.success++;
+			}
+		}
+
+		// STATS
+		stats.failed += failCount;
+
+		state.endPlayerTurn();
+		return failCount;
+	}
+
+	/**
+	 * Handles a collection of packed orders (see {@link PackedOrder}) for the active player, in the same way as
+	 * {@link HunterKillerRules#handleTrusted(HunterKillerState, HunterKillerAction)}. The orders should be known to be
+	 * possible, for example because they were generated through
+	 * {@link MoveGenerator#addAllLegalOrders(HunterKillerState, Unit, IntArray)}.
+	 *
+	 * @param state
+	 *            The current state.
+	 * @param packedOrders
+	 *            The packed orders to execute, in order.
+	 * @return The number of orders that failed during their execution.
+	 */
+	public int handleTrusted(HunterKillerState state, IntArray packedOrders) {
+		int failCount = 0;
+		OrderStatistics stats = state.getActivePlayer()
+										.getStats();
+
+		// STATS
+		stats.issued += packedOrders.size;
+
+		for (int i = 0; i < packedOrders.size; i++) {
+			if (executeOrderTrusted(state, packedOrders.get(i)) != OrderFailure.NONE) {
+				failCount++;
+			} else {
+				// STATS
+				stats.success++;
+			}
+		}
+
+		// STATS
+		stats.failed += failCount;
+
+		state.endPlayerTurn();
+		return failCount;
+	}
+
 	/**
 	 * Performs the action on the current state.
 	 * 
@@ -168,6 +325,46 @@ public class HunterKillerRules
 	 *            StringBuilder containing any reasons for why the order could not be executed.
 	 */
 	public void executeOrder(HunterKillerState state, HunterKillerOrder order, StringBuilder failureReasons) {
+		execute(state, order, failureReasons);
+	}
+
+	/**
+	 * Executes an order on the provided state, without checking whether it is possible first and without building any
+	 * failure messages. This should only be used for orders that are known to be possible, for example because they
+	 * were checked through {@link HunterKillerRules#checkOrder(HunterKillerState, HunterKillerOrder)} or generated by
+	 * the {@link MoveGenerator}.
+	 * 
+	 * @param state
+	 *            The state of the game.
+	 * @param order
+	 *            The order to execute.
+	 * @return {@link OrderFailure#NONE} if the order was executed, otherwise the code of the reason why it failed.
+	 */
+	public int executeOrderTrusted(HunterKillerState state, HunterKillerOrder order) {
+		return execute(state, order, null);
+	}
+
+	/**
+	 * Executes a packed order on the provided state, see
+	 * {@link HunterKillerRules#executeOrderTrusted(HunterKillerState, HunterKillerOrder)} and {@link PackedOrder}.
+	 * 
+	 * @param state
+	 *            The state of the game.
+	 * @param packedOrder
+	 *            The packed order to execute.
+	 * @return {@link OrderFailure#NONE} if the order was executed, otherwise the code of the reason why it failed.
+	 */
+	public int executeOrderTrusted(HunterKillerState state, int packedOrder) {
+		return execute(state, decode(state, packedOrder), null);
+	}
+
+	/**
+	 * Executes an order on the provided state. See
+	 * {@link HunterKillerRules#executeOrder(HunterKillerState, HunterKillerOrder, StringBuilder)}.
+	 * 
+	 * @return {@link OrderFailure#NONE} if the order was executed, otherwise the code of the reason why it failed.
+	 */
+	private int execute(HunterKillerState state, HunterKillerOrder order, StringBuilder failureReasons) {
 		// Most orders need to access these things
 		Map map = state.getMap();
 		Player activePlayer = state.getActivePlayer();
@@ -180,7 +377,7 @@ public class HunterKillerRules
 			StructureOrderType type = structureOrder.getOrderType();
 			Structure structure = (Structure) orderObject;
 			MapLocation spawnLocation = structure.getSpawnLocation();
-			Direction spawnDirection = MapLocation.getDirectionTo(structure.getLocation(), spawnLocation);
+			Direction spawnDirection = MapLocation.getDirectionTo(structure.getLocation(), spawnLocation, state.getRandom());
 			int spawnCosts = -1;
 			Unit unit;
 
@@ -189,7 +386,7 @@ public class HunterKillerRules
 
 			case SPAWN_INFECTED:
 				unit = new Infected(activePlayer.getID(), spawnLocation, spawnDirection);
-				spawnCosts = HunterKillerConstants.INFECTED_SPAWN_COST;
+				spawnCosts = Unit.getSpawnCost(UnitType.Infected);
 
 				// STATS
 				stats.spawnInfected++;
@@ -197,7 +394,7 @@ public class HunterKillerRules
 
 			case SPAWN_MEDIC:
 				unit = new Medic(activePlayer.getID(), spawnLocation, spawnDirection);
-				spawnCosts = HunterKillerConstants.MEDIC_SPAWN_COST;
+				spawnCosts = Unit.getSpawnCost(UnitType.Medic);
 
 				// STATS
 				stats.spawnMedic++;
@@ -205,7 +402,7 @@ public class HunterKillerRules
 
 			case SPAWN_SOLDIER:
 				unit = new Soldier(activePlayer.getID(), spawnLocation, spawnDirection);
-				spawnCosts = HunterKillerConstants.SOLDIER_SPAWN_COST;
+				spawnCosts = Unit.getSpawnCost(UnitType.Soldier);
 
 				// STATS
 				stats.spawnSoldier++;
@@ -217,7 +414,7 @@ public class HunterKillerRules
 					failureReasons.append(StringExtensions.format(	"StructureOrder fail for ID %d: Unsupported order type '%s'.%n",
 																	structureOrder.objectID,
 																	type));
-				return;
+				return OrderFailure.UNSUPPORTED_ORDER;
 			}
 
 			// Charge the costs
@@ -259,12 +456,15 @@ public class HunterKillerRules
 				break;
 
 			case MOVE:
-				map.move(targetLocation, unit, failureReasons);
+				boolean moveSuccess = map.move(targetLocation, unit, failureReasons);
 				// Invalidate the unit's field-of-view
 				unit.invalidateFieldOfView();
 
 				// STATS
 				stats.move++;
+
+				if (!moveSuccess)
+					return OrderFailure.MOVE_NOT_POSSIBLE;
 				break;
 
 			case ATTACK:
@@ -371,7 +571,7 @@ public class HunterKillerRules
 						failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: Unsupported unit type '%s'.%n",
 																		unitOrder.objectID,
 																		unitType));
-					return;
+					return OrderFailure.UNSUPPORTED_ORDER;
 
 				}
 				break;
@@ -382,7 +582,7 @@ public class HunterKillerRules
 					failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: Unsupported order type '%s'.%n",
 																	unitOrder.objectID,
 																	type));
-				return;
+				return OrderFailure.UNSUPPORTED_ORDER;
 			}
 		} else {
 			// Getting here means we have come across a type that is not yet implemented
@@ -391,8 +591,9 @@ public class HunterKillerRules
 																order.objectID,
 																order.getClass()
 																		.getName()));
-			return;
+			return OrderFailure.UNSUPPORTED_ORDER;
 		}
+		return OrderFailure.NONE;
 	}
 
 	/**
@@ -407,6 +608,43 @@ public class HunterKillerRules
 	 * @return Whether or not the order can be successfully executed on the provided game state.
 	 */
 	public boolean isOrderPossible(HunterKillerState state, HunterKillerOrder order, StringBuilder failureReasons) {
+		return validateOrder(state, order, failureReasons) == OrderFailure.NONE;
+	}
+
+	/**
+	 * Determines if an order can be executed in the provided state, without building any failure messages.
+	 * 
+	 * @param state
+	 *            The state of the game.
+	 * @param order
+	 *            The order.
+	 * @return {@link OrderFailure#NONE} if the order can be executed, otherwise the code of the reason why it can't.
+	 */
+	public int checkOrder(HunterKillerState state, HunterKillerOrder order) {
+		return validateOrder(state, order, null);
+	}
+
+	/**
+	 * Determines if a packed order can be executed in the provided state, see
+	 * {@link HunterKillerRules#checkOrder(HunterKillerState, HunterKillerOrder)} and {@link PackedOrder}.
+	 * 
+	 * @param state
+	 *            The state of the game.
+	 * @param packedOrder
+	 *            The packed order.
+	 * @return {@link OrderFailure#NONE} if the order can be executed, otherwise the code of the reason why it can't.
+	 */
+	public int checkOrder(HunterKillerState state, int packedOrder) {
+		return validateOrder(state, decode(state, packedOrder), null);
+	}
+
+	/**
+	 * Determines if an order can be executed in the provided state. See
+	 * {@link HunterKillerRules#isOrderPossible(HunterKillerState, HunterKillerOrder, StringBuilder)}.
+	 * 
+	 * @return {@link OrderFailure#NONE} if the order can be executed, otherwise the code of the reason why it can't.
+	 */
+	private int validateOrder(HunterKillerState state, HunterKillerOrder order, StringBuilder failureReasons) {
 		// Most orders need to access these things
 		Map map = state.getMap();
 
@@ -415,7 +653,7 @@ public class HunterKillerRules
 		if (orderObject == null) {
 			if (failureReasons != null)
 				failureReasons.append(StringExtensions.format("Order fail: Could not find object with ID %d.%n", order.getObjectID()));
-			return false;
+			return OrderFailure.OBJECT_NOT_FOUND;
 		}
 
 		// Check if the object is being controlled by the currently active player
@@ -424,7 +662,7 @@ public class HunterKillerRules
 				failureReasons.append(StringExtensions.format(	"Order fail: Active player (%d) does not control object with ID %d.%n",
 																state.getCurrentPlayer(),
 																order.getObjectID()));
-			return false;
+			return OrderFailure.NOT_CONTROLLED;
 		}
 
 		// Check which type of order we are dealing with
@@ -438,7 +676,7 @@ public class HunterKillerRules
 																	structureOrder.objectID,
 																	orderObject.getClass()
 																				.getName()));
-				return false;
+				return OrderFailure.NOT_A_STRUCTURE;
 			}
 
 			Structure structure = (Structure) orderObject;
@@ -447,23 +685,23 @@ public class HunterKillerRules
 				if (failureReasons != null)
 					failureReasons.append(StringExtensions.format(	"StructureOrder fail for ID %d: Structure cannot spawn units.%n",
 																	structureOrder.objectID));
-				return false;
+				return OrderFailure.SPAWNING_NOT_ALLOWED;
 			}
 
 			MapLocation spawnLocation = structure.getSpawnLocation();
 			// Check if the spawn-location is traversable
 			if (!map.isTraversable(spawnLocation, failureReasons)) {
-				return false;
+				return OrderFailure.SPAWN_LOCATION_BLOCKED;
 			}
 
-			Direction spawnDirection = MapLocation.getDirectionTo(structure.getLocation(), spawnLocation);
+			Direction spawnDirection = MapLocation.getDirectionTo(structure.getLocation(), spawnLocation, state.getRandom());
 			// Check if a spawn direction can be determined
 			if (spawnDirection == null) {
 				if (failureReasons != null)
 					failureReasons.append(StringExtensions.format(	"StructureOrder fail for ID %d: Spawn location (%s) is not on a cardinal direction relative to the structure.%n",
 																	structureOrder.objectID,
 																	spawnLocation));
-				return false;
+				return OrderFailure.NO_SPAWN_DIRECTION;
 			}
 
 			StructureOrderType type = structureOrder.getOrderType();
@@ -478,16 +716,16 @@ public class HunterKillerRules
 						failureReasons.append(StringExtensions.format(	"StructureOrder fail for ID %d: Insufficient resources available for order of type '%s'.%n",
 																		structureOrder.objectID,
 																		type));
-					return false;
+					return OrderFailure.INSUFFICIENT_RESOURCES;
 				}
-				return true;
+				return OrderFailure.NONE;
 			default:
 				// Getting here means we have come across a type that is not yet implemented
 				if (failureReasons != null)
 					failureReasons.append(StringExtensions.format(	"StructureOrder fail for ID %d: Unsupported order type '%s'.%n",
 																	structureOrder.objectID,
 																	type));
-				return false;
+				return OrderFailure.UNSUPPORTED_ORDER;
 			}
 
 		} else if (order instanceof UnitOrder) {
@@ -500,14 +738,14 @@ public class HunterKillerRules
 																	unitOrder.objectID,
 																	orderObject.getClass()
 																				.getName()));
-				return false;
+				return OrderFailure.NOT_A_UNIT;
 			}
 
 			UnitOrderType type = unitOrder.getOrderType();
 
 			// Rotations don't need any other checks
 			if (type == UnitOrderType.ROTATE_CLOCKWISE || type == UnitOrderType.ROTATE_COUNTER_CLOCKWISE)
-				return true;
+				return OrderFailure.NONE;
 
 			MapLocation targetLocation = unitOrder.getTargetLocation();
 
@@ -515,12 +753,13 @@ public class HunterKillerRules
 			if (unitOrder.getTargetLocation() == null) {
 				if (failureReasons != null)
 					failureReasons.append(StringExtensions.format("UnitOrder fail for ID %d: No target location set.%n", unitOrder.objectID));
-				return false;
+				return OrderFailure.NO_TARGET;
 			}
 
 			if (type == UnitOrderType.MOVE) {
 				// Check if the ordered move is possible
-				return map.isMovePossible(orderObject.getLocation(), unitOrder, failureReasons);
+				return map.isMovePossible(orderObject.getLocation(), unitOrder, failureReasons) ? OrderFailure.NONE
+																							: OrderFailure.MOVE_NOT_POSSIBLE;
 			}
 
 			// Check if the target location is in the unit's field of view
@@ -531,7 +770,7 @@ public class HunterKillerRules
 					failureReasons.append(StringExtensions.format(	"UnitOrder (%d -> Attack %s) fail: Target location is not in unit's Field-of-View.%n",
 																	unit.getID(),
 																	targetLocation));
-				return false;
+				return OrderFailure.TARGET_NOT_IN_FIELD_OF_VIEW;
 			}
 
 			// Check if the target location is within the Unit's attack range
@@ -542,12 +781,12 @@ public class HunterKillerRules
 																	targetLocation,
 																	unit.getAttackRange(),
 																	MapLocation.getManhattanDist(unit.getLocation(), targetLocation)));
-				return false;
+				return OrderFailure.TARGET_OUT_OF_RANGE;
 			}
 
 			// Attacks don't need any other checks
 			if (type == UnitOrderType.ATTACK)
-				return true;
+				return OrderFailure.NONE;
 
 			if (type == UnitOrderType.ATTACK_SPECIAL) {
 				// Check if the Unit's special attack has cooled down
@@ -556,7 +795,7 @@ public class HunterKillerRules
 						failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: Special attack is still on cooldown (%d round(s) remaining).%n",
 																		unitOrder.objectID,
 																		unit.getSpecialAttackCooldown()));
-					return false;
+					return OrderFailure.SPECIAL_ATTACK_ON_COOLDOWN;
 				}
 
 				// Check specific things per unit type
@@ -567,7 +806,7 @@ public class HunterKillerRules
 					if (failureReasons != null)
 						failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: An Infected's special attack cannot be ordered.%n",
 																		unitOrder.objectID));
-					return false;
+					return OrderFailure.SPECIAL_ATTACK_NOT_ORDERABLE;
 
 				case Medic:
 					// The special attack of a medic heals a unit for an amount
@@ -575,9 +814,9 @@ public class HunterKillerRules
 						if (failureReasons != null)
 							failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: Target location does not contain a Unit to heal.%n",
 																			unitOrder.objectID));
-						return false;
+						return OrderFailure.NO_HEAL_TARGET;
 					}
-					return true;
+					return OrderFailure.NONE;
 
 				case Soldier:
 					// The special of a Soldier can't have a Wall as it's target
@@ -585,9 +824,9 @@ public class HunterKillerRules
 						if (failureReasons != null)
 							failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: A Soldier's special attack cannot target a Wall.%n",
 																			unitOrder.objectID));
-						return false;
+						return OrderFailure.TARGET_IS_WALL;
 					}
-					return true;
+					return OrderFailure.NONE;
 
 				default:
 					break;
@@ -600,7 +839,7 @@ public class HunterKillerRules
 				failureReasons.append(StringExtensions.format(	"UnitOrder fail for ID %d: Unsupported order type '%s'.%n",
 																unitOrder.objectID,
 																type));
-			return false;
+			return OrderFailure.UNSUPPORTED_ORDER;
 
 		} else {
 			// Getting here means we have come across a type that is not yet implemented
@@ -609,10 +848,17 @@ public class HunterKillerRules
 																order.objectID,
 																order.getClass()
 																		.getName()));
-			return false;
+			return OrderFailure.UNSUPPORTED_ORDER;
 		}
 	}
 
+	/**
+	 * Decodes a packed order into the orders that are reused by the current thread.
+	 */
+	private HunterKillerOrder decode(HunterKillerState state, int packedOrder) {
+		return PackedOrder.decode(state.getMap(), packedOrder, PACKED_UNIT_ORDER.get(), PACKED_STRUCTURE_ORDER.get());
+	}
+
 	/**
 	 * Awards a player an amount of points equal to the score it should receive for the type of Unit that was killed.
 	 * 
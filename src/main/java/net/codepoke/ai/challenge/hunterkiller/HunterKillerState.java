@@ -1,10 +1,8 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
-import java.util.HashSet;
-
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
+import lombok.Setter;
 import net.codepoke.ai.AIUtility;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
@@ -26,7 +24,6 @@ import com.badlogic.gdx.utils.IntArray;
  */
 @Getter
 @EqualsAndHashCode
-@NoArgsConstructor
 public class HunterKillerState
 		implements HiddenState, SequentialState {
 
@@ -52,10 +49,31 @@ public class HunterKillerState
 	 */
 	private Map map;
 
+	/**
+	 * The rules of this game.
+	 */
+	private Ruleset ruleset = Ruleset.DEFAULT;
+
+	/**
+	 * The random number generator that is used for the random decisions in this game. A copy of this state receives a
+	 * copy of the generator, which produces the same numbers but advances independently from it. Use
+	 * {@link HunterKillerState#setRandom(GameRandom)} to give a state a different generator (for example one created
+	 * through {@link GameRandom#split()}).
+	 */
+	@Setter
+	private transient GameRandom random;
+
 	// endregion
 
 	// region Constructor
 
+	/**
+	 * Constructs an empty state, for example to read a state into.
+	 */
+	public HunterKillerState() {
+		this.random = new GameRandom();
+	}
+
 	/**
 	 * Constructs a new state.
 	 * 
@@ -69,10 +87,30 @@ public class HunterKillerState
 	 *            The ID of the player that is currently active.
 	 */
 	public HunterKillerState(Map map, Player[] players, int currentRound, int currentPlayerID) {
+		this(map, players, currentRound, currentPlayerID, Ruleset.DEFAULT);
+	}
+
+	/**
+	 * Constructs a new state for a game with specific rules.
+	 * 
+	 * @param map
+	 *            The {@link Map} that is being played on.
+	 * @param players
+	 *            The players in the game.
+	 * @param currentRound
+	 *            The current round of the game.
+	 * @param currentPlayerID
+	 *            The ID of the player that is currently active.
+	 * @param ruleset
+	 *            The rules of the game.
+	 */
+	public HunterKillerState(Map map, Player[] players, int currentRound, int currentPlayerID, Ruleset ruleset) {
 		this.currentRound = currentRound;
 		this.activePlayerID = currentPlayerID;
 		this.players = players;
 		this.map = map;
+		this.ruleset = ruleset;
+		this.random = new GameRandom();
 	}
 
 	/**
@@ -84,7 +122,10 @@ public class HunterKillerState
 	public HunterKillerState(HunterKillerState otherState) {
 		this.currentRound = otherState.currentRound;
 		this.activePlayerID = otherState.activePlayerID;
-		// Get a deep copy of the map
+		// The ruleset can't be changed, so it can be shared
+		this.ruleset = otherState.ruleset;
+		this.random = otherState.random.copy();
+		// Get a copy of the map, this shares the static terrain with the original
 		this.map = otherState.map.copy();
 		// Make a deep copy of the players array
 		this.players = new Player[otherState.getNumberOfPlayers()];
@@ -174,14 +215,14 @@ public class HunterKillerState
 			// If the next round-threshold has been reached, make structures generate things
 			if (currentRound % HunterKillerConstants.RULES_STRUCTURE_GENERATION_FREQUENCY == 0) {
 				Array<GameObject> objects = map.getObjects();
-				for (int i = 0; i < objects.size; i++) {
-					if (objects.get(i) instanceof Structure) {
-						Structure structure = (Structure) objects.get(i);
-						if (structure.isGeneratesResource())
-							structure.awardResourcesToController(this);
-						if (structure.isGeneratesScore())
-							structure.awardScoreToController(this);
-					}
+				IntArray structureIDs = map.getRegistry()
+											.getStructureIDs();
+				for (int i = 0; i < structureIDs.size; i++) {
+					Structure structure = (Structure) objects.get(structureIDs.get(i));
+					if (structure.isGeneratesResource())
+						structure.awardResourcesToController(this);
+					if (structure.isGeneratesScore())
+						structure.awardScoreToController(this);
 				}
 			}
 		}
@@ -192,11 +233,36 @@ public class HunterKillerState
 
 	// endregion
 
+	// region Protected methods
+
+	/**
+	 * Sets the round and active player of this state. Used to roll back {@link HunterKillerState#endPlayerTurn()}.
+	 * 
+	 * @param currentRound
+	 *            The round number to set.
+	 * @param activePlayerID
+	 *            The ID of the player that should be active.
+	 */
+	protected void setTurn(int currentRound, int activePlayerID) {
+		this.currentRound = currentRound;
+		this.activePlayerID = activePlayerID;
+	}
+
+	// endregion
+
 	// region Overridden methods
 
+	/**
+	 * Returns the Zobrist hash of this state. This hash is kept up to date while the state changes, which makes it cheap
+	 * to retrieve. See {@link ZobristKeys}.
+	 */
 	@Override
 	public long hashKey() {
-		return hashCode();
+		long hash = map.getZobristHash() ^ ZobristKeys.key(currentRound, activePlayerID);
+		for (int i = 0; i < players.length; i++) {
+			hash ^= ZobristKeys.key(players[i]);
+		}
+		return hash;
 	}
 
 	/**
@@ -230,12 +296,12 @@ public class HunterKillerState
 	public void prepare(int activePlayerID) {
 		// We need to remove any units that belong to another player, and are not in the active player's FoV
 		GameObject[][] mapContent = map.getMapContent();
-		HashSet<MapLocation> playerFoV = players[activePlayerID].getCombinedFieldOfView(map);
+		FieldOfView playerFoV = players[activePlayerID].getCombinedFieldOfView(map);
 
 		// Go through each position on the map
 		for (int i = 0; i < mapContent.length; i++) {
 			// Check if this location lies outside of the player's field-of-view
-			if (!playerFoV.contains(map.toLocation(i))) {
+			if (!playerFoV.contains(i)) {
 				// Check if there is a unit there
 				if (mapContent[i][HunterKillerConstants.MAP_INTERNAL_UNIT_INDEX] != null) {
 					// Check if that unit belongs to another player
@@ -1,12 +1,10 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Random;
+import java.util.IdentityHashMap;
 
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import net.codepoke.ai.Generator;
 import net.codepoke.ai.challenge.hunterkiller.FourPatch.DataCreation;
 import net.codepoke.ai.challenge.hunterkiller.FourPatch.Sections;
@@ -23,12 +21,10 @@ import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Medic;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
 import net.codepoke.ai.network.MatchRequest;
 
-import com.badlogic.gdx.Files.FileType;
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
 
 /**
  * Class representing a {@link Generator} for a {@link Map}. Contains methods to generate a map from
@@ -40,87 +36,68 @@ import com.badlogic.gdx.utils.IntIntMap;
 public class HunterKillerStateFactory
 		implements Generator<HunterKillerState> {
 
-	private static final Random r = new Random();
-
-	private static final String executingLocation = Paths.get("")
-															.toAbsolutePath()
-															.toString();
-
 	/**
 	 * Array representing the minimum and maximum number of players that this game supports.
 	 */
 	private static final IntArray supportedPlayers = new IntArray(new int[] { 2, 4 });
 
+	/**
+	 * The maps that states are created from, initially all maps in the {@link MapRegistry} of this factory. A request
+	 * can only restrict this collection to the maps that meet its requirements.
+	 */
 	public Array<MapSetup> mapRotation = new Array<MapSetup>();
 
+	/**
+	 * The registry that the maps of this factory are taken from.
+	 */
+	@Getter
+	private MapRegistry registry;
+
+	/**
+	 * The random number generator that is used to create states. Every state that is created receives its own
+	 * generator, which is split from this one.
+	 */
+	@Getter
+	@Setter
+	private GameRandom random = new GameRandom();
+
+	/**
+	 * The initial states this factory has created, by map setup and by the layout of the players' sections (see
+	 * {@link HunterKillerStateFactory#getLayoutKey(IntArray)}). Constructing a map from a setup is expensive, so it is
+	 * only done once for each layout, after which new states are copies of these templates. The copies of a template
+	 * share its {@link FieldOfViewTable}, so a field-of-view computed in one game is reused by all others on the layout.
+	 */
+	private IdentityHashMap<MapSetup, IntMap<HunterKillerState>> templates = new IdentityHashMap<MapSetup, IntMap<HunterKillerState>>();
+
+	/**
+	 * Constructs a factory that creates states from a seed. Creating states in the same order from a factory with the
+	 * same seed results in the same states, that will make the same random decisions.
+	 * 
+	 * @param seed
+	 *            The seed for the random number generator of this factory.
+	 */
+	public HunterKillerStateFactory(long seed) {
+		this();
+		random = new GameRandom(seed);
+	}
+
+	/**
+	 * Constructs a factory that creates states from the maps in the default registry, see
+	 * {@link MapRegistry#getDefault()}.
+	 */
 	public HunterKillerStateFactory() {
-		// Load in all maps defined in the folder /maps/
-		File maps = new File(executingLocation + "/maps/");
-
-		// Check if any files can be found in the directory
-		if (maps.listFiles() == null) {
-			// Use a predefined basic map
-			String rawMapData = StringExtensions.format("..........%n..........%n..████████%n..█B______%n..█_______%n..█_______%n..█_______%n..█_______%n..█_______%n..█_______");
-			mapRotation.add(new MapSetup("basic", rawMapData, false));
-		} else {
+		this(MapRegistry.getDefault());
+	}
 
-			for (File mapFile : maps.listFiles()) {
-				try {
-					// Check if the file isn't a directory
-					if (mapFile.isDirectory())
-						continue;
-
-					// Check if we can use GDX to access files, or need to fall back on Java.NIO
-					String rawMapData = "";
-					String[] mapLines = new String[] {};
-					if (Gdx.files != null) {
-						FileHandle fileH = Gdx.files.getFileHandle(mapFile.getAbsolutePath(), FileType.Absolute);
-						rawMapData = fileH.readString()
-											.replace("\r\n", "\n");
-					} else {
-						Path mapFilePath = Paths.get(mapFile.getAbsolutePath());
-						rawMapData = new String(Files.readAllBytes(mapFilePath)).replace("\r\n", "\n");
-					}
-					mapLines = rawMapData.split(FourPatch.NEWLINE_SEPARATOR);
-
-					// Check if we have any lines of settings
-					if (Character.isDigit(mapLines[0].charAt(0))) {
-						// First line is the size/orientation
-						String[] optionsLine1 = mapLines[0].split(" ");
-						int qWidth = Integer.parseInt(optionsLine1[0]);
-						int qHeight = Integer.parseInt(optionsLine1[1]);
-						Direction spawnDirection = Direction.parse(optionsLine1[2]);
-
-						// Check if there is a second line of settings
-						if (Character.isDigit(mapLines[1].charAt(0))) {
-							// Second line is the amount of starting resources for players and the base
-							// resource-generation
-							String[] optionsLine2 = mapLines[1].split(" ");
-							int startingResources = Integer.parseInt(optionsLine2[0]);
-							int baseResourceGeneration = Integer.parseInt(optionsLine2[1]);
-							rawMapData = rawMapData.substring(rawMapData.indexOf(mapLines[2]));
-
-							mapRotation.add(new MapSetup(mapFile.getName(), rawMapData, qWidth, qHeight, spawnDirection, startingResources,
-															baseResourceGeneration));
-						} else {
-
-							rawMapData = rawMapData.substring(rawMapData.indexOf(mapLines[1]));
-							mapRotation.add(new MapSetup(mapFile.getName(), rawMapData, qWidth, qHeight, spawnDirection));
-						}
-					} else if (mapLines[0].startsWith("custom")) {
-						// Strip away the first line
-						String stripped = rawMapData.substring(rawMapData.indexOf(mapLines[1]));
-						mapRotation.add(new MapSetup(mapFile.getName(), stripped, true));
-					} else {
-						// Assume the whole map needs to be copied and we can use defaults.
-						mapRotation.add(new MapSetup(mapFile.getName(), rawMapData, false));
-					}
-				} catch (Exception e) {
-					System.err.println("Error during parsing of file: " + mapFile.getName());
-					e.printStackTrace();
-				}
-			}
-		}
+	/**
+	 * Constructs a factory that creates states from the maps in a registry.
+	 * 
+	 * @param registry
+	 *            The {@link MapRegistry} to take the maps from.
+	 */
+	public HunterKillerStateFactory(MapRegistry registry) {
+		this.registry = registry;
+		registry.getMaps(mapRotation);
 	}
 
 	// region Public methods
@@ -200,7 +177,7 @@ public class HunterKillerStateFactory
 			break;
 		case 3:
 			// In the case of 3 players, use a random one of the 2 semi-mirrored corners (index 2 and 6)
-			playerSections = new IntArray(new int[] { 0, r.nextBoolean() ? 2 : 6, 8 });
+			playerSections = new IntArray(new int[] { 0, random.nextBoolean() ? 2 : 6, 8 });
 			break;
 		case 2:
 		default:
@@ -212,20 +189,57 @@ public class HunterKillerStateFactory
 		// Check if we need to randomise the sections, so on re-creation the same player does not end up in the same
 		// section each time.
 		if (!options.contains("nonRandomSections")) {
-			playerSections.shuffle();
+			random.shuffle(playerSections);
 		}
 
-		// Load the players
+		// Find the template for this layout, or create it if this is the first time it is used
+		IntMap<HunterKillerState> setupTemplates = templates.get(premade);
+		if (setupTemplates == null) {
+			setupTemplates = new IntMap<HunterKillerState>();
+			templates.put(premade, setupTemplates);
+		}
+		int layoutKey = getLayoutKey(playerSections);
+		HunterKillerState template = setupTemplates.get(layoutKey);
+		if (template == null) {
+			template = createTemplate(premade, playerNames, playerSections);
+			setupTemplates.put(layoutKey, template);
+		}
+
+		// Copy the template for these players. This shares the static terrain and the initial fields-of-view of the
+		// template's units, which never change, and the template's table of fields-of-view, see FieldOfViewTable.
 		Player[] players = new Player[playerNames.length];
 		for (int i = 0; i < players.length; i++) {
-			players[i] = new Player(i, playerNames[i], playerSections.get(i), premade.startingResources);
+			players[i] = template.getPlayer(i)
+									.copy(playerNames[i]);
 		}
+		HunterKillerState state = new HunterKillerState(template.getMap()
+																.copy(), players, 1, 0, template.getRuleset());
+
+		// Give the initial state its own random number generator
+		state.setRandom(random.split());
+		return state;
+	}
+
+	// endregion
+
+	// region Private methods
 
-		// Set the resource generation of bases
-		HunterKillerConstants.setBASE_RESOURCE_GENERATION(premade.baseResourceGeneration);
+	/**
+	 * Constructs the initial state for a map setup with a specific layout of the players' sections. The state that is
+	 * returned is used as a template, and should not be changed.
+	 */
+	private HunterKillerState createTemplate(MapSetup premade, String[] playerNames, IntArray playerSections) {
+		// Determine the rules of this game
+		Ruleset ruleset = new Ruleset(premade);
+
+		// Load the players
+		Player[] players = new Player[playerNames.length];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new Player(i, playerNames[i], playerSections.get(i), ruleset.getStartingResources());
+		}
 
 		// Construct the map
-		Map map = constructMap(premade, new HunterKillerMapCreation(), players);
+		Map map = constructMap(premade, new HunterKillerMapCreation(ruleset), players);
 
 		// Make sure the map assigns the objects to the players
 		for (Player player : players) {
@@ -235,8 +249,19 @@ public class HunterKillerStateFactory
 		// Set the initial field of view for the Units that were created on the map
 		map.updateFieldOfView();
 
-		// Create the initial state
-		return new HunterKillerState(map, players, 1, 0);
+		return new HunterKillerState(map, players, 1, 0, ruleset);
+	}
+
+	/**
+	 * Returns a key that identifies a layout of the players' sections, which is the number of players followed by the
+	 * section of each player, 4 bits each.
+	 */
+	private static int getLayoutKey(IntArray playerSections) {
+		int key = playerSections.size;
+		for (int i = 0; i < playerSections.size; i++) {
+			key = (key << 4) | playerSections.get(i);
+		}
+		return key;
 	}
 
 	// endregion
@@ -270,28 +295,9 @@ public class HunterKillerStateFactory
 			if (hkRequest.options != null)
 				options = hkRequest.options;
 
-			// Check the maps to see if they fall within the request's restrictions
+			// Find the maps in the rotation that fall within the request's restrictions
 			Array<MapSetup> requestMaps = new Array<MapSetup>();
-			for (MapSetup setup : mapRotation) {
-				// This map setup does not comply to the request if the MapType is set, but the setup does not contain
-				// the MapType's file-flag.
-				if (hkRequest.mapType != null && !setup.name.contains(hkRequest.mapType.getFileFlag())) {
-					continue;
-				}
-				// This map setup does not comply to the request if the GameType is set, but the setup does not contain
-				// the GameType's file-flag.
-				if (hkRequest.gameType != null && !setup.name.contains(hkRequest.gameType.getFileFlag())) {
-					continue;
-				}
-				// This map setup does not comply to the request if the MapName is set, but the setup does not contain
-				// the MapName.
-				if (hkRequest.mapName != null && !setup.name.contains(hkRequest.mapName)) {
-					continue;
-				}
-
-				// This map setup passed the test, so add it.
-				requestMaps.add(setup);
-			}
+			registry.findMaps(hkRequest.mapType, hkRequest.gameType, hkRequest.mapName, mapRotation, requestMaps);
 
 			// If we found any maps that meet the requirements
 			if (requestMaps.size > 0) {
@@ -310,7 +316,7 @@ public class HunterKillerStateFactory
 		}
 
 		// Select a random premade map to create
-		MapSetup premade = maps.random();
+		MapSetup premade = random.random(maps);
 		// Generate the initial state from this premade map
 		return generateInitialStateFromPremade(premade, playerNames, options);
 	}
@@ -344,11 +350,25 @@ public class HunterKillerStateFactory
 		 * The direction the base on the patch should spawn it's unit in.
 		 */
 		private Direction patchBaseSpawnDirection;
+		/**
+		 * The rules of the game the map is created for.
+		 */
+		private Ruleset ruleset = Ruleset.DEFAULT;
 		/**
 		 * The amount of tiles/squares Units are spawned away from the Structure.
 		 */
 		private static final int SPAWN_DISTANCE_FROM_BASE = 1;
 
+		/**
+		 * Constructs a map creation for a game with specific rules.
+		 * 
+		 * @param ruleset
+		 *            The rules of the game.
+		 */
+		public HunterKillerMapCreation(Ruleset ruleset) {
+			this.ruleset = ruleset;
+		}
+
 		/**
 		 * Set up the temporary variables that need to be accessed when creating objects on the map.
 		 * 
@@ -432,17 +452,17 @@ public class HunterKillerStateFactory
 				map.place(mapPosition, wall);
 				break;
 			case OBJECTIVE:
-				Structure objective = new Structure(location, StructureType.Objective);
+				Structure objective = new Structure(location, StructureType.Objective, ruleset);
 				map.registerGameObject(objective);
 				map.place(mapPosition, objective);
 				break;
 			case STRONGHOLD:
-				Structure stronghold = new Structure(location, StructureType.Stronghold);
+				Structure stronghold = new Structure(location, StructureType.Stronghold, ruleset);
 				map.registerGameObject(stronghold);
 				map.place(mapPosition, stronghold);
 				break;
 			case OUTPOST:
-				Structure outpost = new Structure(location, StructureType.Outpost);
+				Structure outpost = new Structure(location, StructureType.Outpost, ruleset);
 				outpost.setSpawnLocation(location);
 				map.registerGameObject(outpost);
 				map.place(mapPosition, outpost);
@@ -512,7 +532,7 @@ public class HunterKillerStateFactory
 					}
 
 					// Now that we have defined our spawn location, we can create the base
-					Structure base = new Structure(location, StructureType.Base);
+					Structure base = new Structure(location, StructureType.Base, ruleset);
 					base.setControllingPlayerID(playerID);
 					base.setSpawnLocation(spawnLocation);
 					map.registerGameObject(base);
@@ -0,0 +1,434 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderStatistics;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Log that records the changes made to a {@link HunterKillerState} while an action is handled by
+ * {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction, HunterKillerUndoLog)}. The state can then be
+ * returned to the exact situation it was in before the action through
+ * {@link HunterKillerRules#undo(HunterKillerState, HunterKillerUndoLog)}, which allows a search to step back instead of
+ * copying the state for every node.
+ *
+ * While recording, the map tells this log about every change it makes (see {@link Map#recordChange(GameObject)}): the
+ * objects that are registered, unregistered, placed or removed, and the values of an object the first time it changes.
+ * Undoing plays these entries back in reverse through the map itself, which keeps the map's indices up to date without
+ * visiting any object that did not change. The players, the turn and the random generator of the state are recorded
+ * as a whole. A log can be reused for multiple actions, but only holds the record of the last one.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class HunterKillerUndoLog {
+
+	// region Constants
+
+	/**
+	 * The number of values recorded per entry. These are: the type of entry, followed by four values that depend on the
+	 * type (see {@link HunterKillerUndoLog#recordChange(GameObject)} for a changed object).
+	 */
+	private static final int ENTRY_STRIDE = 5;
+
+	/**
+	 * Entry for an object that was registered on the map. Records whether its ID was taken from the map's ID-buffer.
+	 */
+	private static final int ENTRY_REGISTER = 0;
+
+	/**
+	 * Entry for an object that was unregistered from the map. Records its index in the IDs of the command centers.
+	 */
+	private static final int ENTRY_UNREGISTER = 1;
+
+	/**
+	 * Entry for an object that was placed on the map. Records the position.
+	 */
+	private static final int ENTRY_PLACE = 2;
+
+	/**
+	 * Entry for an object that was removed from the map. Records the position.
+	 */
+	private static final int ENTRY_REMOVE = 3;
+
+	/**
+	 * Entry for the values of an object before it was first changed.
+	 */
+	private static final int ENTRY_CHANGE = 4;
+
+	/**
+	 * The number of values recorded per player. These are: resource, score, command center ID, unit count and structure
+	 * count.
+	 */
+	private static final int PLAYER_STRIDE = 5;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * Whether or not this log currently holds a record.
+	 */
+	private boolean recorded = false;
+
+	/**
+	 * The map this log is recording the changes of, or null if it is not recording.
+	 */
+	private Map recordingMap;
+
+	/**
+	 * The round number and active player before the action.
+	 */
+	private int currentRound, activePlayerID;
+
+	/**
+	 * The tick of the map before the action.
+	 */
+	private int currentTick;
+
+	/**
+	 * The state of the random generator before the action.
+	 */
+	private long randomState0, randomState1;
+
+	/**
+	 * The objects of the recorded entries, in the order they were recorded.
+	 */
+	private Array<GameObject> objects = new Array<GameObject>();
+
+	/**
+	 * The values of the recorded entries, {@link HunterKillerUndoLog#ENTRY_STRIDE} values per entry.
+	 */
+	private IntArray entryValues = new IntArray();
+
+	/**
+	 * The field-of-view collections of the recorded entries. Contains null for entries that are not a change to a
+	 * {@link Unit}.
+	 */
+	private Array<FieldOfView> fieldOfViews = new Array<FieldOfView>();
+
+	/**
+	 * The objects that have changed since the record was started.
+	 */
+	private Set<GameObject> changedObjects = Collections.newSetFromMap(new IdentityHashMap<GameObject, Boolean>());
+
+	/**
+	 * The recorded values of the players, {@link HunterKillerUndoLog#PLAYER_STRIDE} values per player.
+	 */
+	private IntArray playerValues = new IntArray();
+
+	/**
+	 * The IDs of the units, followed by the IDs of the structures, of each player.
+	 */
+	private IntArray playerObjectIDs = new IntArray();
+
+	/**
+	 * The order statistics of each player.
+	 */
+	private Array<OrderStatistics> playerStats = new Array<OrderStatistics>();
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Whether or not this log currently holds a record that can be undone.
+	 */
+	public boolean isRecorded() {
+		return recorded;
+	}
+
+	/**
+	 * Clears the record in this log.
+	 */
+	public void clear() {
+		stopRecording();
+		recorded = false;
+		objects.clear();
+		entryValues.clear();
+		fieldOfViews.clear();
+		changedObjects.clear();
+		playerValues.clear();
+		playerObjectIDs.clear();
+	}
+
+	/**
+	 * Starts recording the changes made to a state. Any previous record in this log is discarded. The recording continues
+	 * until {@link HunterKillerUndoLog#stopRecording()} is called.
+	 *
+	 * @param state
+	 *            The state to record.
+	 */
+	public void record(HunterKillerState state) {
+		clear();
+		Map map = state.getMap();
+
+		currentRound = state.getCurrentRound();
+		activePlayerID = state.getActivePlayerID();
+		currentTick = map.currentTick;
+		GameRandom random = state.getRandom();
+		randomState0 = random.getState(0);
+		randomState1 = random.getState(1);
+
+		// Record the players
+		Player[] players = state.getPlayers();
+		for (int i = 0; i < players.length; i++) {
+			Player player = players[i];
+			playerValues.add(player.getResource());
+			playerValues.add(player.getScore());
+			playerValues.add(player.getCommandCenterID());
+			playerValues.add(player.getUnitIDs().size);
+			playerValues.add(player.getStructureIDs().size);
+			playerObjectIDs.addAll(player.getUnitIDs());
+			playerObjectIDs.addAll(player.getStructureIDs());
+			// Re-use any statistics we created for an earlier record
+			if (playerStats.size <= i)
+				playerStats.add(new OrderStatistics());
+			playerStats.get(i)
+						.set(player.getStats());
+		}
+
+		// Let the map tell us about any changes from here on
+		recordingMap = map;
+		map.setUndoLog(this);
+		recorded = true;
+	}
+
+	/**
+	 * Stops recording changes. The record that has been made so far can still be restored.
+	 */
+	public void stopRecording() {
+		if (recordingMap != null)
+			recordingMap.setUndoLog(null);
+		recordingMap = null;
+	}
+
+	/**
+	 * Restores a state to the situation recorded in this log. The state needs to be the same instance that was recorded,
+	 * and no other actions should have been handled on it since. After restoring, this log is cleared.
+	 *
+	 * @param state
+	 *            The state to restore.
+	 */
+	public void restore(HunterKillerState state) {
+		if (!recorded)
+			throw new HunterKillerException("Unable to undo, the log does not contain a record.");
+		// Undoing the changes should not be recorded itself
+		stopRecording();
+
+		Map map = state.getMap();
+		// Undo the changes in the reverse order they were made in
+		for (int i = objects.size - 1; i >= 0; i--) {
+			GameObject object = objects.get(i);
+			int index = i * ENTRY_STRIDE;
+			switch (entryValues.get(index)) {
+			case ENTRY_REGISTER:
+				map.undoRegisterGameObject(object, entryValues.get(index + 1) == 1);
+				break;
+			case ENTRY_UNREGISTER:
+				map.undoUnregisterGameObject(object, entryValues.get(index + 1));
+				break;
+			case ENTRY_PLACE:
+				map.remove(entryValues.get(index + 1), object);
+				break;
+			case ENTRY_REMOVE:
+				map.place(entryValues.get(index + 1), object);
+				break;
+			case ENTRY_CHANGE:
+				restoreObject(map, object, index, fieldOfViews.get(i));
+				break;
+			default:
+				throw new HunterKillerException("Unable to undo, unknown entry in the log.");
+			}
+		}
+		map.currentTick = currentTick;
+
+		// Restore the players
+		Player[] players = state.getPlayers();
+		int objectIDIndex = 0;
+		for (int i = 0; i < players.length; i++) {
+			Player player = players[i];
+			int index = i * PLAYER_STRIDE;
+			player.setResource(playerValues.get(index));
+			player.setScore(playerValues.get(index + 1));
+			player.setCommandCenterID(playerValues.get(index + 2));
+			int unitCount = playerValues.get(index + 3);
+			int structureCount = playerValues.get(index + 4);
+			player.getUnitIDs()
+					.clear();
+			player.getUnitIDs()
+					.addAll(playerObjectIDs, objectIDIndex, unitCount);
+			objectIDIndex += unitCount;
+			player.getStructureIDs()
+					.clear();
+			player.getStructureIDs()
+					.addAll(playerObjectIDs, objectIDIndex, structureCount);
+			objectIDIndex += structureCount;
+			player.getStats()
+					.set(playerStats.get(i));
+		}
+
+		// Roll back the turn, and the random numbers drawn during it
+		state.setTurn(currentRound, activePlayerID);
+		state.getRandom()
+				.setState(randomState0, randomState1);
+
+		clear();
+	}
+
+	// endregion
+
+	// region Protected methods
+
+	/**
+	 * Records that an object has been registered on the map.
+	 *
+	 * @param object
+	 *            The object.
+	 * @param fromBuffer
+	 *            Whether or not the object's ID was taken from the map's ID-buffer.
+	 */
+	protected void recordRegister(GameObject object, boolean fromBuffer) {
+		addEntry(ENTRY_REGISTER, object, fromBuffer ? 1 : 0);
+	}
+
+	/**
+	 * Records that an object is about to be unregistered from the map.
+	 *
+	 * @param object
+	 *            The object.
+	 * @param commandCenterIndex
+	 *            The index of the object's ID in the IDs of the command centers, or -1 if it is not a command center.
+	 */
+	protected void recordUnregister(GameObject object, int commandCenterIndex) {
+		addEntry(ENTRY_UNREGISTER, object, commandCenterIndex);
+	}
+
+	/**
+	 * Records that an object is about to be placed on the map.
+	 *
+	 * @param object
+	 *            The object.
+	 * @param position
+	 *            The position it is placed at.
+	 */
+	protected void recordPlace(GameObject object, int position) {
+		addEntry(ENTRY_PLACE, object, position);
+	}
+
+	/**
+	 * Records that an object is about to be removed from the map.
+	 *
+	 * @param object
+	 *            The object.
+	 * @param position
+	 *            The position it is removed from.
+	 */
+	protected void recordRemove(GameObject object, int position) {
+		addEntry(ENTRY_REMOVE, object, position);
+	}
+
+	/**
+	 * Records the values of an object that is about to change, if it has not changed before during this record. Besides
+	 * the current HP, the following values are recorded:
+	 * <ul>
+	 * <li>{@link Unit}: orientation, special attack cooldown, field-of-view and whether that field-of-view is valid.</li>
+	 * <li>{@link Door}: open-timer.</li>
+	 * <li>{@link Structure}: the ID of the controlling player.</li>
+	 * </ul>
+	 *
+	 * @param object
+	 *            The object.
+	 */
+	protected void recordChange(GameObject object) {
+		// Only the values from before the first change are needed
+		if (!changedObjects.add(object))
+			return;
+
+		int index = addEntry(ENTRY_CHANGE, object, object.getHpCurrent());
+		if (object instanceof Unit) {
+			Unit unit = (Unit) object;
+			entryValues.set(index + 2, unit.getOrientation()
+											.ordinal());
+			entryValues.set(index + 3, unit.getSpecialAttackCooldown());
+			entryValues.set(index + 4, unit.isFieldOfViewValid() ? 1 : 0);
+			fieldOfViews.set(fieldOfViews.size - 1, unit.getFieldOfView());
+		} else if (object instanceof Door) {
+			entryValues.set(index + 2, ((Door) object).getOpenTimer());
+		} else if (object instanceof Structure) {
+			entryValues.set(index + 2, ((Structure) object).getControllingPlayerID());
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Adds an entry to this log, and returns the index of its first value.
+	 *
+	 * @param type
+	 *            The type of entry.
+	 * @param object
+	 *            The object the entry is about.
+	 * @param value
+	 *            The first value of the entry. The remaining values are set to 0.
+	 */
+	private int addEntry(int type, GameObject object, int value) {
+		int index = entryValues.size;
+		objects.add(object);
+		entryValues.add(type);
+		entryValues.add(value);
+		entryValues.add(0);
+		entryValues.add(0);
+		entryValues.add(0);
+		fieldOfViews.add(null);
+		return index;
+	}
+
+	/**
+	 * Restores the values of an object that were recorded through {@link HunterKillerUndoLog#recordChange(GameObject)}.
+	 * This goes through the object's setters, so the map it is on can keep track of the changes.
+	 *
+	 * @param map
+	 *            The map the object is on.
+	 * @param object
+	 *            The object.
+	 * @param index
+	 *            The index of the first value of the object's entry.
+	 * @param fieldOfView
+	 *            The recorded field-of-view of the object.
+	 */
+	private void restoreObject(Map map, GameObject object, int index, FieldOfView fieldOfView) {
+		object.setHpCurrent(entryValues.get(index + 1));
+		if (object instanceof Unit) {
+			Unit unit = (Unit) object;
+			unit.setOrientation(Direction.values[entryValues.get(index + 2)]);
+			unit.setSpecialAttackCooldown(entryValues.get(index + 3));
+			unit.updateFieldOfView(fieldOfView);
+			if (entryValues.get(index + 4) == 0)
+				unit.invalidateFieldOfView();
+		} else if (object instanceof Door) {
+			Door door = (Door) object;
+			boolean wasOpen = door.isOpen();
+			door.setOpenTimer(entryValues.get(index + 2));
+			// Opening or closing a door changes which positions block line-of-sight
+			if (door.isOpen() != wasOpen && map.isOnMap(door.getLocation()))
+				map.updateBlockingLOS(map.toPosition(door.getLocation()));
+		} else if (object instanceof Structure) {
+			((Structure) object).setControllingPlayerID(entryValues.get(index + 2));
+		}
+	}
+
+	// endregion
+
+}
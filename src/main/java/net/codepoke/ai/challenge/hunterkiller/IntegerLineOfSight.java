@@ -0,0 +1,330 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+
+/**
+ * Line-of-sight implementation that computes the same fields-of-view as {@link LineOfSight}, but without allocating
+ * any objects. The slopes of the shadowcasting algorithm are kept as pairs of integers, whether a location is within a
+ * viewer's angle is determined through integer arithmetic, and blocking locations are read directly from the blocker
+ * layer of a {@link Map} (see {@link Map#isBlockingLOS(int)}). The computed locations are added to a
+ * {@link FieldOfView} that is provided by the caller.
+ *
+ * For the angles used in the game (90 and 360 degrees), the angle check is exact. Any other angle falls back to the
+ * floating-point comparison that {@link LineOfSight} uses.
+ *
+ * Uses temporary variables, NOT MULTITHREADABLE.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class IntegerLineOfSight {
+
+	// region Constants
+
+	/**
+	 * The angle limits that are supported by the integer angle check.
+	 */
+	private static final int QUARTER_ANGLE = 90, FULL_ANGLE = 360;
+
+	/**
+	 * The tolerance used for the floating-point angle check, see {@link LineOfSight}.
+	 */
+	private static final float ANGLE_COMPARISON_TOLERANCE = 0.1f;
+
+	/**
+	 * Modes for checking whether a location is within the viewer's angle.
+	 */
+	private static final int ANGLE_ALL = 0, ANGLE_QUARTER = 1, ANGLE_GENERAL = 2;
+
+	/**
+	 * For each octant, the factors to go from octant coordinates (x, y) to a map offset (dx, dy): dx = [0] * x + [1] *
+	 * y, dy = [2] * x + [3] * y.
+	 */
+	private static final int[][] OCTANT_TRANSFORM = { { 1, 0, 0, -1 }, { 0, 1, -1, 0 }, { 0, -1, -1, 0 }, { -1, 0, 0, -1 },
+			{ -1, 0, 0, 1 }, { 0, -1, 1, 0 }, { 0, 1, 1, 0 }, { 1, 0, 0, 1 } };
+
+	/**
+	 * For each direction (by ordinal) and octant, the factors to go from octant coordinates (x, y) to the distance along
+	 * and across the facing direction: along = [0] * x + [1] * y, across = [2] * x + [3] * y. A location is within a
+	 * 90-degree angle if along >= |across|.
+	 */
+	private static final int[][][] ANGLE_MASKS = new int[Direction.values.length][8][4];
+
+	static {
+		for (Direction direction : Direction.values) {
+			int fx = 0, fy = 0;
+			switch (direction) {
+			case NORTH:
+				fy = -1;
+				break;
+			case EAST:
+				fx = 1;
+				break;
+			case SOUTH:
+				fy = 1;
+				break;
+			case WEST:
+				fx = -1;
+				break;
+			}
+			for (int octant = 0; octant < 8; octant++) {
+				int[] t = OCTANT_TRANSFORM[octant];
+				int[] mask = ANGLE_MASKS[direction.ordinal()][octant];
+				mask[0] = fx * t[0] + fy * t[2];
+				mask[1] = fx * t[1] + fy * t[3];
+				mask[2] = fx * t[2] - fy * t[0];
+				mask[3] = fx * t[3] - fy * t[1];
+			}
+		}
+	}
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * Whether to use Euclidean distances for the viewing range, instead of Manhattan distances.
+	 */
+	private boolean euclidean;
+
+	// Temporary variables, set for each computation
+	private int originX, originY, mapWidth, mapHeight, rangeLimit, angleMode;
+	private float facingAngle, halfAngleLimit;
+	private Map map;
+	private FieldOfView visible;
+	private int[] transform, mask;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param euclidean
+	 *            Whether to use Euclidean distances for the viewing range. If false, Manhattan distances are used.
+	 */
+	public IntegerLineOfSight(boolean euclidean) {
+		this.euclidean = euclidean;
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Computes the field-of-view from a location and adds the visible locations to a {@link FieldOfView}.
+	 *
+	 * @param map
+	 *            The {@link Map} to compute the field-of-view on.
+	 * @param origin
+	 *            The location to get the field-of-view for.
+	 * @param rangeLimit
+	 *            The viewing range.
+	 * @param direction
+	 *            The cardinal direction of the middle of the cone of vision.
+	 * @param angleLimit
+	 *            The limit in degrees of the cone of vision.
+	 * @param visible
+	 *            The field-of-view to add the visible locations to.
+	 */
+	public void compute(Map map, MapLocation origin, int rangeLimit, Direction direction, int angleLimit, FieldOfView visible) {
+		this.map = map;
+		this.visible = visible;
+		this.originX = origin.getX();
+		this.originY = origin.getY();
+		this.mapWidth = map.getMapWidth();
+		this.mapHeight = map.getMapHeight();
+		this.rangeLimit = rangeLimit;
+		this.facingAngle = direction.angle;
+		this.halfAngleLimit = angleLimit / 2f;
+
+		if (angleLimit >= FULL_ANGLE)
+			angleMode = ANGLE_ALL;
+		else if (angleLimit == QUARTER_ANGLE)
+			angleMode = ANGLE_QUARTER;
+		else
+			angleMode = ANGLE_GENERAL;
+
+		if (isOnMap(originX, originY))
+			visible.add(Map.toPosition(originX, originY, mapWidth));
+
+		for (int octant = 0; octant < 8; octant++) {
+			transform = OCTANT_TRANSFORM[octant];
+			mask = ANGLE_MASKS[direction.ordinal()][octant];
+			// Skip any octant that lies completely outside of the viewing angle
+			if (angleMode == ANGLE_QUARTER && !isWithinAngle(1, 1))
+				continue;
+			compute(1, 1, 1, 0, 1);
+		}
+
+		this.map = null;
+		this.visible = null;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Processes the columns of the current octant, starting at column x, between the slopes top (topY / topX) and
+	 * bottom (bottomY / bottomX). See {@link LineOfSight} for a detailed explanation of the algorithm.
+	 */
+	private void compute(int x, int topY, int topX, int bottomY, int bottomX) {
+		for (; x <= rangeLimit; x++) {
+			// Compute the Y coordinates of the top and bottom of the sector
+			int topCell;
+			if (topX == 1) {
+				topCell = x;
+			} else {
+				topCell = ((x * 2 - 1) * topY + topX) / (topX * 2);
+				if (blocksLight(x, topCell)) {
+					if (greaterOrEqual(topY, topX, topCell * 2 + 1, x * 2) && !blocksLight(x, topCell + 1))
+						topCell++;
+				} else {
+					int ax = x * 2;
+					if (blocksLight(x + 1, topCell + 1))
+						ax++;
+					if (greater(topY, topX, topCell * 2 + 1, ax))
+						topCell++;
+				}
+			}
+
+			int bottomCell;
+			if (bottomY == 0) {
+				bottomCell = 0;
+			} else {
+				bottomCell = ((x * 2 - 1) * bottomY + bottomX) / (bottomX * 2);
+				if (greaterOrEqual(bottomY, bottomX, bottomCell * 2 + 1, x * 2) && blocksLight(x, bottomCell)
+					&& !blocksLight(x, bottomCell + 1))
+					bottomCell++;
+			}
+
+			// Go through the tiles in the column
+			int wasOpaque = -1; // 0:false, 1:true, -1:not applicable
+			for (int y = topCell; y >= bottomCell; y--) {
+				if (!isInRange(x, y))
+					continue;
+
+				boolean isOpaque = blocksLight(x, y);
+				boolean isVisible = (y != topCell || greaterOrEqual(topY, topX, y, x))
+									&& (y != bottomCell || lessOrEqual(bottomY, bottomX, y, x));
+				if (isVisible)
+					setVisible(x, y);
+
+				// Adjust the top and bottom slopes on a transition between clear and opaque
+				if (x != rangeLimit) {
+					if (isOpaque) {
+						if (wasOpaque == 0) {
+							int nx = x * 2, ny = y * 2 + 1;
+							if (greater(topY, topX, ny, nx)) {
+								if (y == bottomCell) {
+									bottomY = ny;
+									bottomX = nx;
+									break;
+								} else {
+									compute(x + 1, topY, topX, ny, nx);
+								}
+							} else if (y == bottomCell) {
+								return;
+							}
+						}
+						wasOpaque = 1;
+					} else {
+						if (wasOpaque > 0) {
+							int nx = x * 2, ny = y * 2 + 1;
+							if (greaterOrEqual(bottomY, bottomX, ny, nx))
+								return;
+							topY = ny;
+							topX = nx;
+						}
+						wasOpaque = 0;
+					}
+				}
+			}
+
+			// If the column didn't end in a clear tile, this sector is done
+			if (wasOpaque != 0)
+				break;
+		}
+	}
+
+	/**
+	 * Whether or not the location at octant coordinates (x, y) blocks light. Locations that are outside of the map or
+	 * the viewing angle block light.
+	 */
+	private boolean blocksLight(int x, int y) {
+		if (!isWithinAngle(x, y))
+			return true;
+		int nx = originX + transform[0] * x + transform[1] * y;
+		int ny = originY + transform[2] * x + transform[3] * y;
+		if (!isOnMap(nx, ny))
+			return true;
+		return map.isBlockingLOS(Map.toPosition(nx, ny, mapWidth));
+	}
+
+	/**
+	 * Marks the location at octant coordinates (x, y) as visible, if it is on the map and within the viewing angle.
+	 */
+	private void setVisible(int x, int y) {
+		if (!isWithinAngle(x, y))
+			return;
+		int nx = originX + transform[0] * x + transform[1] * y;
+		int ny = originY + transform[2] * x + transform[3] * y;
+		if (isOnMap(nx, ny))
+			visible.add(Map.toPosition(nx, ny, mapWidth));
+	}
+
+	/**
+	 * Whether or not the location at octant coordinates (x, y) lies within the viewing angle.
+	 */
+	private boolean isWithinAngle(int x, int y) {
+		switch (angleMode) {
+		case ANGLE_ALL:
+			return true;
+		case ANGLE_QUARTER:
+			return mask[0] * x + mask[1] * y >= Math.abs(mask[2] * x + mask[3] * y);
+		default:
+			int dx = transform[0] * x + transform[1] * y;
+			int dy = transform[2] * x + transform[3] * y;
+			float angle = (float) Math.atan2(dy, dx) * (float) (180 / Math.PI);
+			if (angle < 0)
+				angle += 360;
+			float delta = Math.abs(facingAngle - angle);
+			return !(delta > (halfAngleLimit + ANGLE_COMPARISON_TOLERANCE) && delta < 360 - (halfAngleLimit + ANGLE_COMPARISON_TOLERANCE));
+		}
+	}
+
+	/**
+	 * Whether or not the location at octant coordinates (x, y) lies within the viewing range.
+	 */
+	private boolean isInRange(int x, int y) {
+		if (rangeLimit < 0)
+			return true;
+		if (euclidean)
+			return x * x + y * y < (rangeLimit + 1) * (rangeLimit + 1);
+		return x + y <= rangeLimit;
+	}
+
+	private boolean isOnMap(int x, int y) {
+		return x >= 0 && x < mapWidth && y >= 0 && y < mapHeight;
+	}
+
+	/** Whether slope sY / sX is greater than y / x. */
+	private static boolean greater(int sY, int sX, int y, int x) {
+		return sY * x > sX * y;
+	}
+
+	/** Whether slope sY / sX is greater than or equal to y / x. */
+	private static boolean greaterOrEqual(int sY, int sX, int y, int x) {
+		return sY * x >= sX * y;
+	}
+
+	/** Whether slope sY / sX is less than or equal to y / x. */
+	private static boolean lessOrEqual(int sY, int sX, int y, int x) {
+		return sY * x <= sX * y;
+	}
+
+	// endregion
+
+}
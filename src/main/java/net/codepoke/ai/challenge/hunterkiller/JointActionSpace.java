@@ -0,0 +1,445 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * The space of all {@link HunterKillerAction}s the active player can make in a state, without creating them. An action
+ * is a combination of one choice per object the player controls, where each choice is one of the object's legal orders
+ * (see {@link MoveGenerator}), or optionally no order at all. Only the legal orders of each object are stored, so the
+ * memory used does not depend on the number of combinations. Combinations can be:
+ * <ul>
+ * <li>Iterated over, see {@link JointActionSpace#iterator()}.</li>
+ * <li>Looked up by their index, see {@link JointActionSpace#getOrders(long, IntArray)}.</li>
+ * <li>Sampled uniformly, see {@link JointActionSpace#sampleOrders(GameRandom, IntArray)}.</li>
+ * </ul>
+ * Combinations are indexed as a number with one digit per object, where the first object is the most significant digit.
+ * The choices of each object can be ordered through an {@link OrderPriority}, so that lower indices contain the more
+ * promising orders.
+ *
+ * Every combination contains at most one order per object, like {@link HunterKillerAction#addOrder(net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder)}
+ * requires. Note that the orders of a combination are only legal on their own, orders for different objects can still
+ * conflict with each other, for example when two units move to the same location.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class JointActionSpace
+		implements Iterable<HunterKillerAction> {
+
+	// region Constants
+
+	/**
+	 * The value that indicates that an object receives no order.
+	 */
+	public static final int NO_ORDER = -1;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The ID of the player that can make the actions.
+	 */
+	private int actingPlayerID;
+
+	/**
+	 * The round number of the state the actions are for.
+	 */
+	private int currentRound;
+
+	/**
+	 * The map of the state, used to decode the packed orders into {@link HunterKillerAction}s.
+	 */
+	private Map map;
+
+	/**
+	 * The choices of all objects as packed orders (see {@link PackedOrder}), or {@link JointActionSpace#NO_ORDER}. The
+	 * choices of an object are stored between the object's offset and the next object's offset.
+	 */
+	private IntArray choices = new IntArray();
+
+	/**
+	 * The index of the first choice of each object, followed by the total number of choices.
+	 */
+	private IntArray offsets = new IntArray();
+
+	/**
+	 * The IDs of the objects, in the order of their digits.
+	 */
+	private IntArray objectIDs = new IntArray();
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs the space of all actions of the active player, where each object can also receive no order.
+	 *
+	 * {@link JointActionSpace#JointActionSpace(HunterKillerState, boolean, boolean, OrderPriority)}
+	 */
+	public JointActionSpace(HunterKillerState state) {
+		this(state, true, false, null);
+	}
+
+	/**
+	 * Constructs the space of all actions of the active player in a state.
+	 *
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param includeNoOrder
+	 *            Whether or not giving an object no order is one of its choices. If so, it is the object's last choice.
+	 *            If not, objects that have no legal orders are left out.
+	 * @param meaningfulTargetsOnly
+	 *            Whether or not to only include attack orders that target something worth attacking, see
+	 *            {@link MoveGenerator#addAllLegalAttackOrders(HunterKillerState, Unit, boolean, boolean, IntArray)}.
+	 * @param priority
+	 *            The priority to order the choices of each object by, or null to keep the order of the
+	 *            {@link MoveGenerator}.
+	 */
+	public JointActionSpace(HunterKillerState state, boolean includeNoOrder, boolean meaningfulTargetsOnly, OrderPriority priority) {
+		this.actingPlayerID = state.getCurrentPlayer();
+		this.currentRound = state.getCurrentRound();
+		this.map = state.getMap();
+
+		Player player = state.getActivePlayer();
+		List<Structure> structures = player.getStructures(map);
+		for (int i = 0; i < structures.size(); i++) {
+			Structure structure = structures.get(i);
+			int start = choices.size;
+			MoveGenerator.addAllLegalOrders(state, structure, choices);
+			addObject(state, structure.getID(), start, includeNoOrder, priority);
+		}
+		List<Unit> units = player.getUnits(map);
+		for (int i = 0; i < units.size(); i++) {
+			Unit unit = units.get(i);
+			int start = choices.size;
+			MoveGenerator.addAllLegalMoveOrders(state, unit, choices);
+			MoveGenerator.addAllLegalAttackOrders(state, unit, false, meaningfulTargetsOnly, choices);
+			MoveGenerator.addAllLegalRotationOrders(state, unit, choices);
+			addObject(state, unit.getID(), start, includeNoOrder, priority);
+		}
+		offsets.add(choices.size);
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the number of actions in this space, or {@link Long#MAX_VALUE} if there are more than that.
+	 */
+	public long size() {
+		long size = 1;
+		for (int i = 0; i < getObjectCount(); i++) {
+			int count = getChoiceCount(i);
+			if (size > Long.MAX_VALUE / count)
+				return Long.MAX_VALUE;
+			size *= count;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of objects that have choices.
+	 */
+	public int getObjectCount() {
+		return objectIDs.size;
+	}
+
+	/**
+	 * Returns the ID of an object.
+	 *
+	 * @param object
+	 *            The index of the object.
+	 */
+	public int getObjectID(int object) {
+		return objectIDs.get(object);
+	}
+
+	/**
+	 * Returns the number of choices of an object.
+	 *
+	 * @param object
+	 *            The index of the object.
+	 */
+	public int getChoiceCount(int object) {
+		return offsets.get(object + 1) - offsets.get(object);
+	}
+
+	/**
+	 * Returns a choice of an object, as a packed order or {@link JointActionSpace#NO_ORDER}.
+	 *
+	 * @param object
+	 *            The index of the object.
+	 * @param choice
+	 *            The index of the choice.
+	 */
+	public int getChoice(int object, int choice) {
+		return choices.get(offsets.get(object) + choice);
+	}
+
+	/**
+	 * Writes the packed orders of the action with an index to a collection, see {@link PackedOrder}. The collection is
+	 * cleared first.
+	 *
+	 * @param index
+	 *            The index of the action, smaller than {@link JointActionSpace#size()}.
+	 * @param packedOrders
+	 *            The collection to write the orders to.
+	 */
+	public void getOrders(long index, IntArray packedOrders) {
+		if (index < 0 || index >= size())
+			throw new HunterKillerException("Action index out of range: " + index);
+		packedOrders.clear();
+		packedOrders.ensureCapacity(getObjectCount());
+		packedOrders.size = getObjectCount();
+		// The last object is the least significant digit
+		for (int i = getObjectCount() - 1; i >= 0; i--) {
+			int count = getChoiceCount(i);
+			packedOrders.set(i, getChoice(i, (int) (index % count)));
+			index /= count;
+		}
+		removeNoOrders(packedOrders);
+	}
+
+	/**
+	 * Returns the action with an index.
+	 *
+	 * {@link JointActionSpace#getOrders(long, IntArray)}
+	 */
+	public HunterKillerAction getAction(long index) {
+		IntArray packedOrders = new IntArray(getObjectCount());
+		getOrders(index, packedOrders);
+		return createAction(packedOrders);
+	}
+
+	/**
+	 * Writes the packed orders of a random action to a collection, where every action is equally likely. The
+	 * collection is cleared first.
+	 *
+	 * @param random
+	 *            The random number generator to use.
+	 * @param packedOrders
+	 *            The collection to write the orders to.
+	 */
+	public void sampleOrders(GameRandom random, IntArray packedOrders) {
+		packedOrders.clear();
+		for (int i = 0; i < getObjectCount(); i++) {
+			int choice = getChoice(i, random.nextInt(getChoiceCount(i)));
+			if (choice != NO_ORDER)
+				packedOrders.add(choice);
+		}
+	}
+
+	/**
+	 * Returns a random action, where every action is equally likely.
+	 *
+	 * {@link JointActionSpace#sampleOrders(GameRandom, IntArray)}
+	 */
+	public HunterKillerAction sampleAction(GameRandom random) {
+		IntArray packedOrders = new IntArray(getObjectCount());
+		sampleOrders(random, packedOrders);
+		return createAction(packedOrders);
+	}
+
+	/**
+	 * Returns an iterator over all actions in this space, in the order of their indices. The actions are created as
+	 * they are requested, see {@link JointActionIterator#nextOrders(IntArray)} to go through the actions without
+	 * creating them.
+	 */
+	@Override
+	public JointActionIterator iterator() {
+		return new JointActionIterator();
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Adds an object whose choices have been added to the collection of choices, starting at an index.
+	 */
+	private void addObject(HunterKillerState state, int objectID, int start, boolean includeNoOrder, OrderPriority priority) {
+		if (priority != null)
+			sort(state, start, choices.size, priority);
+		if (includeNoOrder)
+			choices.add(NO_ORDER);
+		// Objects without any choices are left out
+		if (choices.size == start)
+			return;
+		offsets.add(start);
+		objectIDs.add(objectID);
+	}
+
+	/**
+	 * Sorts a range of choices by descending priority. The ranges are small, so this uses an insertion sort, which
+	 * keeps choices with the same priority in their original order.
+	 */
+	private void sort(HunterKillerState state, int from, int to, OrderPriority priority) {
+		float[] priorities = new float[to - from];
+		for (int i = from; i < to; i++) {
+			priorities[i - from] = priority.getPriority(state, choices.get(i));
+		}
+		for (int i = from + 1; i < to; i++) {
+			int choice = choices.get(i);
+			float value = priorities[i - from];
+			int j = i - 1;
+			while (j >= from && priorities[j - from] < value) {
+				choices.set(j + 1, choices.get(j));
+				priorities[j + 1 - from] = priorities[j - from];
+				j--;
+			}
+			choices.set(j + 1, choice);
+			priorities[j + 1 - from] = value;
+		}
+	}
+
+	/**
+	 * Removes the {@link JointActionSpace#NO_ORDER} values from a collection of choices.
+	 */
+	private static void removeNoOrders(IntArray packedOrders) {
+		int kept = 0;
+		for (int i = 0; i < packedOrders.size; i++) {
+			if (packedOrders.get(i) != NO_ORDER)
+				packedOrders.set(kept++, packedOrders.get(i));
+		}
+		packedOrders.size = kept;
+	}
+
+	/**
+	 * Creates an action from a collection of packed orders.
+	 */
+	private HunterKillerAction createAction(IntArray packedOrders) {
+		HunterKillerAction action = new HunterKillerAction(actingPlayerID, currentRound);
+		for (int i = 0; i < packedOrders.size; i++) {
+			action.addOrder(PackedOrder.decode(map, packedOrders.get(i)));
+		}
+		return action;
+	}
+
+	// endregion
+
+	// region Inner classes
+
+	/**
+	 * Determines the priority of an order, used to order the choices of each object. Choices with a higher priority
+	 * come first.
+	 *
+	 * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+	 *
+	 */
+	public interface OrderPriority {
+
+		/**
+		 * Returns the priority of an order.
+		 *
+		 * @param state
+		 *            The state the order is for.
+		 * @param packedOrder
+		 *            The order, see {@link PackedOrder}.
+		 */
+		float getPriority(HunterKillerState state, int packedOrder);
+
+	}
+
+	/**
+	 * Iterator over the actions of a {@link JointActionSpace}, in the order of their indices. It keeps track of the
+	 * current choice of each object, so it can also go through spaces with more actions than fit in an index.
+	 *
+	 * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+	 *
+	 */
+	public class JointActionIterator
+			implements Iterator<HunterKillerAction> {
+
+		/**
+		 * The current choice of each object, or null if the iterator has not started yet.
+		 */
+		private int[] digits;
+
+		/**
+		 * Whether or not all actions have been visited.
+		 */
+		private boolean done;
+
+		private IntArray packedOrders = new IntArray();
+
+		@Override
+		public boolean hasNext() {
+			if (done)
+				return false;
+			if (digits == null)
+				return true;
+			// There is a next action if any object has a choice left
+			for (int i = 0; i < digits.length; i++) {
+				if (digits[i] < getChoiceCount(i) - 1)
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		public HunterKillerAction next() {
+			if (!nextOrders(packedOrders))
+				throw new NoSuchElementException();
+			return createAction(packedOrders);
+		}
+
+		/**
+		 * Writes the packed orders of the next action to a collection, without creating any objects. The collection is
+		 * cleared first.
+		 *
+		 * @param packedOrders
+		 *            The collection to write the orders to.
+		 * @return Whether or not there was a next action.
+		 */
+		public boolean nextOrders(IntArray packedOrders) {
+			if (!advance())
+				return false;
+			packedOrders.clear();
+			for (int i = 0; i < digits.length; i++) {
+				int choice = getChoice(i, digits[i]);
+				if (choice != NO_ORDER)
+					packedOrders.add(choice);
+			}
+			return true;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Moves to the next combination of choices.
+		 */
+		private boolean advance() {
+			if (done)
+				return false;
+			if (digits == null) {
+				digits = new int[getObjectCount()];
+				return true;
+			}
+			// Increase the last digit, and carry over to the previous digits
+			for (int i = digits.length - 1; i >= 0; i--) {
+				if (++digits[i] < getChoiceCount(i))
+					return true;
+				digits[i] = 0;
+			}
+			done = true;
+			return false;
+		}
+
+	}
+
+	// endregion
+
+}
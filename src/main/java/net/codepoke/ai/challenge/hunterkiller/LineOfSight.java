@@ -1,11 +1,10 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
-import java.util.HashMap;
-import java.util.HashSet;
-
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 
 import com.badlogic.gdx.math.MathUtils;
@@ -38,12 +37,13 @@ public class LineOfSight {
 
 	// Temporary variable, NOT MULTITHREADABLE
 	private Vector2 tmpAngleCalc = new Vector2();
-	private static ThreadLocal<HashMap<CacheEntry, HashSet<MapLocation>>> fovCache = new ThreadLocal<HashMap<CacheEntry, HashSet<MapLocation>>>() {
-		@Override
-		protected HashMap<CacheEntry, HashSet<MapLocation>> initialValue() {
-			return new HashMap<LineOfSight.CacheEntry, HashSet<MapLocation>>();
-		}
-	};
+
+	/**
+	 * The table of previously computed fields-of-view, see {@link FieldOfViewTable}.
+	 */
+	@Getter
+	@Setter
+	private FieldOfViewTable fieldOfViewTable = new FieldOfViewTable();
 
 	/**
 	 * Construct a new instance of the LineOfSight class. This class contains a method to compute the
@@ -580,29 +580,10 @@ public class LineOfSight {
 		_setVisible.resetLocations();
 	}
 
-	public HashSet<MapLocation> getVisibleLocations(CacheEntry entry) {
-		HashMap<CacheEntry, HashSet<MapLocation>> fov = fovCache.get();
-
-		// Check if we have a cache entry already
-		if (!fov.containsKey(entry)) {
-			fov.put(entry, _setVisible.getVisibleLocations());
-		}
-
-		// Return the visible locations
+	public FieldOfView getVisibleLocations() {
 		return _setVisible.getVisibleLocations();
 	}
 
-	public boolean haveCached(CacheEntry entry) {
-		// Check if we have a cache entry already
-		return fovCache.get()
-						.containsKey(entry);
-	}
-
-	public HashSet<MapLocation> getFromCache(CacheEntry entry) {
-		return fovCache.get()
-						.get(entry);
-	}
-
 	public GetDistanceFunction getDistanceType() {
 		return _getDistance;
 	}
@@ -650,13 +631,14 @@ public class LineOfSight {
 
 		public void resetLocations();
 
-		public HashSet<MapLocation> getVisibleLocations();
+		public FieldOfView getVisibleLocations();
 	}
 
 	// endregion
 
 	// region CODEPOKE classes
 
+	@Getter
 	@EqualsAndHashCode
 	@AllArgsConstructor
 	public class CacheEntry {
@@ -1,9 +1,9 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,6 +12,7 @@ import net.codepoke.ai.challenge.hunterkiller.LineOfSight.CacheEntry;
 import net.codepoke.ai.challenge.hunterkiller.LineOfSight.GetDistanceFunction;
 import net.codepoke.ai.challenge.hunterkiller.LineOfSight.SetVisibleFunction;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.enums.LineOfSightType;
 import net.codepoke.ai.challenge.hunterkiller.enums.StructureType;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
@@ -27,8 +28,6 @@ import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
 import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
 
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.BinaryHeap;
-import com.badlogic.gdx.utils.BinaryHeap.Node;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.Json.Serializable;
@@ -72,15 +71,41 @@ public class Map
 	/**
 	 * This is the internal representation. See {@link Map} for details.
 	 */
-	@Setter
 	private GameObject[][] mapContent;
 
 	/**
 	 * Collection of objects present on this map, indexed by ID.
 	 */
-	@Setter
 	private Array<GameObject> objects;
 
+	/**
+	 * Index of the objects on this map that can change during a game, by type.
+	 */
+	private transient ObjectRegistry registry = new ObjectRegistry();
+
+	/**
+	 * The IDs of the objects that are being ticked, see {@link Map#tick(HunterKillerState)}.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient IntArray tickIDs = new IntArray();
+
+	/**
+	 * Schedule of the objects on this map that have a running timer, see {@link Map#timer()}.
+	 */
+	private transient TimerSchedule timers = new TimerSchedule();
+
+	/**
+	 * Compact representation of the units placed on this map, see {@link UnitTable}.
+	 */
+	private transient UnitTable unitTable = new UnitTable();
+
+	/**
+	 * The location of each position on this map, only created when it is used. {@link MapLocation}s are immutable, so
+	 * these can be handed out by {@link Map#toLocation(int)} and shared between copies of this map.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient MapLocation[] locations;
+
 	/**
 	 * A temporary storage for IDs that are currently not being owned by an object.
 	 */
@@ -98,6 +123,47 @@ public class Map
 	 */
 	private transient LineOfSight lineOfSight;
 
+	/**
+	 * Which line-of-sight implementation is used to compute fields-of-view on this map.
+	 */
+	private transient LineOfSightType lineOfSightType = LineOfSightType.SHADOWCASTING;
+
+	/**
+	 * The integer line-of-sight implementation, only created when it is used. See
+	 * {@link Map#setLineOfSightType(LineOfSightType)}.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient IntegerLineOfSight integerLineOfSight;
+
+	/**
+	 * The positions on this map that contain a feature that blocks line-of-sight, one bit per position.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient long[] blockers;
+
+	/**
+	 * The distance fields towards the structures on this map.
+	 */
+	private transient DistanceFields distanceFields = new DistanceFields();
+
+	/**
+	 * Index of the units that can see each position on this map.
+	 */
+	private transient VisibilityIndex visibilityIndex = new VisibilityIndex();
+
+	/**
+	 * The Zobrist hash of the objects placed on this map. This is kept up to date by
+	 * {@link Map#place(int, GameObject)}, {@link Map#remove(int, GameObject)} and the objects themselves. See
+	 * {@link ZobristKeys}.
+	 */
+	private transient long zobristHash;
+
+	/**
+	 * The log that is recording the changes made to this map, or null if no changes are being recorded. See
+	 * {@link HunterKillerUndoLog}.
+	 */
+	private transient HunterKillerUndoLog undoLog;
+
 	// endregion
 
 	// region Constructor
@@ -123,6 +189,7 @@ public class Map
 		currentTick = 1;
 		// Map will have (width * height) positions
 		mapContent = new GameObject[width * height][HunterKillerConstants.MAP_INTERNAL_LAYERS];
+		blockers = new long[((width * height) + 63) >>> 6];
 		// Create new collections for our ID->Object lookup and ID buffer
 		objects = new Array<GameObject>(true, width * height, GameObject.class);
 		idBuffer = new IntArray();
@@ -199,7 +266,16 @@ public class Map
 	 * @return {@link MapLocation} corresponding to the positional index.
 	 */
 	public MapLocation toLocation(int position) {
-		return toLocation(position, mapWidth);
+		// Positions that are not on this map don't have a shared location
+		if (position < 0 || position >= mapWidth * mapHeight)
+			return toLocation(position, mapWidth);
+		if (locations == null) {
+			locations = new MapLocation[mapWidth * mapHeight];
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = toLocation(i, mapWidth);
+			}
+		}
+		return locations[position];
 	}
 
 	/**
@@ -640,42 +716,119 @@ public class Map
 	}
 
 	/**
-	 * Returns a collection of locations that are in the Unit's field-of-view.
+	 * Returns the locations that are in the Unit's field-of-view.
 	 * 
 	 * @param unit
 	 *            The Unit.
 	 */
-	public HashSet<MapLocation> getFieldOfView(Unit unit) {
+	public FieldOfView getFieldOfView(Unit unit) {
 		// Check if the unit's field-of-view is still valid, if so, return the unit's current field-of-view
 		if (unit.isFieldOfViewValid())
 			return unit.getFieldOfView();
 
-		// Check if the lineOfSight object has the field-of-view cached for this combination
+		// Check if the field-of-view has been computed before for this combination, and the current state of the Doors
+		// and Structures around it
 		CacheEntry entry = lineOfSight.new CacheEntry(unit.getLocation(), unit.getFieldOfViewRange(), unit.getOrientation(),
 														unit.getFieldOfViewAngle());
+		FieldOfViewTable table = lineOfSight.getFieldOfViewTable();
+		FieldOfView fieldOfView = table.get(this, entry);
+		if (fieldOfView != null)
+			return fieldOfView;
+
+		if (lineOfSightType == LineOfSightType.INTEGER_SHADOWCASTING) {
+			fieldOfView = new FieldOfView(mapWidth, mapHeight);
+			integerLineOfSight.compute(	this, unit.getLocation(), unit.getFieldOfViewRange(), unit.getOrientation(),
+										unit.getFieldOfViewAngle(), fieldOfView);
+		} else {
+			// Reset any previously computed locations
+			lineOfSight.resetVisibleLocations();
+			// Ask the line-of-sight implementation to compute the field-of-view
+			lineOfSight.compute(unit.getLocation(), unit.getFieldOfViewRange(), unit.getOrientation(), unit.getFieldOfViewAngle());
+			fieldOfView = lineOfSight.getVisibleLocations();
+		}
+		// Store the computed locations, so they can be looked up next time
+		table.put(this, entry, fieldOfView);
+		return fieldOfView;
+	}
 
-		// Note: Field-of-View caching for improved simulation performance. Cannot be used on maps with Doors.
-		// HashSet<MapLocation> locations = lineOfSight.getFromCache(entry);
-		// if (locations != null)
-		// return locations;
-
-		// Reset any previously computed locations
-		lineOfSight.resetVisibleLocations();
-		// Ask the line-of-sight implementation to compute the field-of-view
-		lineOfSight.compute(unit.getLocation(), unit.getFieldOfViewRange(), unit.getOrientation(), unit.getFieldOfViewAngle());
-		// Return the list of computed locations
-		return lineOfSight.getVisibleLocations(entry);
+	/**
+	 * Returns the locations that are in the Structure's field-of-view.
+	 * 
+	 * @param structure
+	 *            The {@link Structure}.
+	 */
+	public FieldOfView getFieldOfView(Structure structure) {
+		FieldOfView fieldOfView = new FieldOfView(mapWidth, mapHeight);
+		addFieldOfView(structure, fieldOfView);
+		return fieldOfView;
 	}
 
 	/**
-	 * Returns a collection of locations that are in the Structure's field-of-view.
+	 * Adds the locations that are in the Structure's field-of-view to an existing field-of-view.
 	 * 
 	 * @param structure
 	 *            The {@link Structure}.
+	 * @param fieldOfView
+	 *            The {@link FieldOfView} to add the locations to.
+	 */
+	public void addFieldOfView(Structure structure, FieldOfView fieldOfView) {
+		// Add the area directly around the structure
+		MapLocation location = structure.getLocation();
+		for (int x = location.getX() - 1; x <= location.getX() + 1; x++) {
+			for (int y = location.getY() - 1; y <= location.getY() + 1; y++) {
+				if (isXonMap(x) && isYonMap(y))
+					fieldOfView.add(toPosition(x, y));
+			}
+		}
+	}
+
+	/**
+	 * Sets which line-of-sight implementation is used to compute fields-of-view on this map. Both implementations
+	 * compute the same fields-of-view.
+	 * 
+	 * @param lineOfSightType
+	 *            The {@link LineOfSightType} to use.
+	 */
+	public void setLineOfSightType(LineOfSightType lineOfSightType) {
+		this.lineOfSightType = lineOfSightType;
+		if (lineOfSightType == LineOfSightType.INTEGER_SHADOWCASTING && integerLineOfSight == null)
+			integerLineOfSight = new IntegerLineOfSight(lineOfSight.getDistanceType() instanceof GetEuclidianDistance);
+	}
+
+	/**
+	 * Whether or not the feature at a position blocks line-of-sight.
+	 * 
+	 * @param position
+	 *            The position on the map.
+	 */
+	public boolean isBlockingLOS(int position) {
+		return (blockers[position >>> 6] & (1L << position)) != 0;
+	}
+
+	/**
+	 * Updates whether or not a position blocks line-of-sight, to match the feature that is currently at that position.
+	 * This is called by the map when features are placed or removed, and by {@link Door}s when they open or close.
+	 * 
+	 * @param position
+	 *            The position on the map.
+	 */
+	public void updateBlockingLOS(int position) {
+		MapFeature feature = (MapFeature) mapContent[position][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX];
+		if (feature != null && feature.isBlockingLOS())
+			blockers[position >>> 6] |= 1L << position;
+		else
+			blockers[position >>> 6] &= ~(1L << position);
+	}
+
+	/**
+	 * Updates the distance fields of this map when the walkability of a position has changed, to match the feature
+	 * that is currently at that position. This is called by the map when features are placed or removed.
+	 * 
+	 * @param position
+	 *            The position on the map.
 	 */
-	public HashSet<MapLocation> getFieldOfView(Structure structure) {
-		// Return the area directly around the structure
-		return new HashSet<MapLocation>(getAreaAround(structure.getLocation(), true));
+	public void updateWalkability(int position) {
+		distanceFields.update(this, position);
 	}
 
 	/**
@@ -754,12 +907,19 @@ public class Map
 	 *            The second location.
 	 */
 	public int getDistance(MapLocation loc1, MapLocation loc2) {
+		return getDistance(loc1.getX(), loc1.getY(), loc2.getX(), loc2.getY());
+	}
+
+	/**
+	 * {@link Map#getDistance(MapLocation, MapLocation)}
+	 */
+	public int getDistance(int x1, int y1, int x2, int y2) {
 		// Check what distance function we are using
 		GetDistanceFunction function = lineOfSight.getDistanceType();
 		if (function instanceof GetManhattanDistance) {
-			return MapLocation.getManhattanDist(loc1, loc2);
+			return MapLocation.getManhattanDist(x1, y1, x2, y2);
 		} else if (function instanceof GetEuclidianDistance) {
-			return (int) Math.ceil(MapLocation.getEuclideanDist(loc1, loc2));
+			return (int) Math.ceil(MapLocation.getEuclideanDist(x1, y1, x2, y2));
 		}
 		return Integer.MAX_VALUE;
 	}
@@ -772,8 +932,9 @@ public class Map
 	 */
 	public void registerGameObject(GameObject object) {
 		int objectID = -1;
+		boolean fromBuffer = idBuffer.size > 0;
 		// Check the ID-buffer has any available IDs
-		if (idBuffer.size > 0) {
+		if (fromBuffer) {
 			objectID = idBuffer.pop();
 		} else {
 			// Return a new ID
@@ -787,11 +948,16 @@ public class Map
 
 		// Set the object into our object collection
 		objects.set(objectID, object);
+		registry.add(object);
+		timers.update(object);
 
 		// Check if the object is a command center
 		if (object instanceof Structure && ((Structure) object).isCommandCenter()) {
 			commandCenterObjectIDs.add(objectID);
 		}
+
+		if (undoLog != null)
+			undoLog.recordRegister(object, fromBuffer);
 	}
 
 	/**
@@ -803,8 +969,12 @@ public class Map
 	 *            The object that can be unregistered.
 	 */
 	public void unregisterGameObject(GameObject object) {
+		if (undoLog != null)
+			undoLog.recordUnregister(object, commandCenterObjectIDs.indexOf(object.getID()));
 		// Set the space in our object collection to null
 		objects.set(object.getID(), null);
+		registry.remove(object);
+		timers.remove(object);
 		// Add this ID to the buffer
 		idBuffer.add(object.getID());
 		// Remove the object from the map content
@@ -821,17 +991,16 @@ public class Map
 	 */
 	public void updateFieldOfView() {
 		// Check all units
-		for (GameObject object : objects) {
-			if (object != null && object instanceof Unit) {
-				Unit unit = (Unit) object;
-				// If the unit's field-of-view is still valid, we do not have to update
-				if (unit.isFieldOfViewValid())
-					continue;
-				// Get the field-of-view collection for the unit
-				HashSet<MapLocation> fieldOfView = getFieldOfView(unit);
-				// Tell the unit to update it's field-of-view
-				unit.updateFieldOfView(fieldOfView);
-			}
+		IntArray unitIDs = registry.getUnitIDs();
+		for (int i = 0; i < unitIDs.size; i++) {
+			Unit unit = (Unit) objects.get(unitIDs.get(i));
+			// If the unit's field-of-view is still valid, we do not have to update
+			if (unit.isFieldOfViewValid())
+				continue;
+			// Get the field-of-view collection for the unit
+			FieldOfView fieldOfView = getFieldOfView(unit);
+			// Tell the unit to update it's field-of-view
+			unit.updateFieldOfView(fieldOfView);
 		}
 	}
 
@@ -842,20 +1011,8 @@ public class Map
 	 *            The location that triggered an invalidation of current Field-of-View.
 	 */
 	public void invalidateFieldOfViewFor(MapLocation location) {
-		// Check all units
-		for (GameObject object : objects) {
-			if (object != null && object instanceof Unit) {
-				Unit unit = (Unit) object;
-				// If the unit's field-of-view is already invalid, we do not have to invalidate
-				if (!unit.isFieldOfViewValid())
-					continue;
-				// Get the field-of-view collection for the unit
-				HashSet<MapLocation> fieldOfView = getFieldOfView(unit);
-				// Check if the collection contains the specified location
-				if (fieldOfView.contains(location))
-					unit.invalidateFieldOfView();
-			}
-		}
+		// Only check the units that can see the location
+		visibilityIndex.invalidateFieldOfViewFor(this, toPosition(location));
 	}
 
 	/**
@@ -901,9 +1058,32 @@ public class Map
 			System.out.println("WARNING: Unable to place object on map, space occupied");
 			return false;
 		}
+		if (undoLog != null)
+			undoLog.recordPlace(object, position);
 		// Place the object
 		object.setLocation(toLocation(position));
 		mapContent[position][layer] = object;
+		// A new feature can change the layout of the map, which makes any previously computed field-of-view unreliable
+		if (layer == HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX) {
+			updateBlockingLOS(position);
+			updateWalkability(position);
+			// A feature outside of the changeable positions means our layout differs from the maps we share a table with
+			if (!lineOfSight.getFieldOfViewTable()
+							.fitsLayout(position))
+				lineOfSight.setFieldOfViewTable(new FieldOfViewTable());
+		}
+		// Static terrain never changes, so it doesn't need to tell us when it does
+		if (!isStaticTerrain(object))
+			object.setMap(this);
+		updateHash(object);
+		updateTimer(object);
+		if (object instanceof Unit) {
+			Unit unit = (Unit) object;
+			updateUnitTable(unit);
+			// A unit that already has a field-of-view should be found by the visibility index
+			if (unit.isFieldOfViewValid())
+				visibilityIndex.update(unit);
+		}
 		return true;
 	}
 
@@ -937,16 +1117,71 @@ public class Map
 			System.out.println("WARNING: Unable to remove object from map, no matching object found");
 			return false;
 		}
+		if (undoLog != null)
+			undoLog.recordRemove(object, position);
 		// Remove the object
+		updateHash(object);
+		if (object instanceof Unit) {
+			visibilityIndex.remove((Unit) object);
+			unitTable.remove(object.getID());
+		}
+		object.setMap(null);
 		object.setLocation(HunterKillerConstants.GAMEOBJECT_NOT_PLACED);
 		mapContent[position][layer] = null;
+		if (layer == HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX) {
+			updateBlockingLOS(position);
+			updateWalkability(position);
+		}
 		return true;
 	}
 
 	/**
-	 * Creates a deep copy of this map.
+	 * Sets the collection of objects present on this map, and rebuilds the index of objects by type and the unit table.
+	 *
+	 * @param objects
+	 *            The objects to set, indexed by ID.
+	 */
+	public void setObjects(Array<GameObject> objects) {
+		this.objects = objects;
+		registry.rebuild(objects);
+		unitTable.rebuild(this);
+	}
+
+	/**
+	 * Sets the internal representation of this map. See {@link Map} for details.
+	 * 
+	 * @param mapContent
+	 *            The content to set.
+	 */
+	public void setMapContent(GameObject[][] mapContent) {
+		this.mapContent = mapContent;
+		blockers = new long[(mapContent.length + 63) >>> 6];
+		for (int i = 0; i < mapContent.length; i++) {
+			updateBlockingLOS(i);
+		}
+		// Any previously computed field-of-view or distance field could be for a different layout
+		lineOfSight.setFieldOfViewTable(new FieldOfViewTable());
+		distanceFields.reset();
+	}
+
+	/**
+	 * Creates a copy of this map that shares its static terrain with this map.
+	 * 
+	 * {@link Map#copy(boolean)}
 	 */
 	public Map copy() {
+		return copy(true);
+	}
+
+	/**
+	 * Creates a copy of this map. All objects that can change during a game ({@link Door}s, {@link Structure}s and
+	 * {@link Unit}s) are deep copied. The immutable terrain ({@link Floor}, {@link Wall} and {@link Space}) is only
+	 * copied when requested, otherwise the same instances are shared between this map and the copy.
+	 * 
+	 * @param shareTerrain
+	 *            Whether or not the static terrain should be shared with the copy, instead of deep copied.
+	 */
+	public Map copy(boolean shareTerrain) {
 		// Create a new map
 		Map newMap = new Map(this.name, this.mapWidth, this.mapHeight);
 		newMap.currentTick = this.currentTick;
@@ -954,20 +1189,126 @@ public class Map
 		// Deep copy the map content & objects
 		Array<GameObject> newObjects = new Array<GameObject>(true, this.objects.size, GameObject.class);
 		newObjects.size = this.objects.size; // Force size so OoB checks don't crash when we directly set the content
-		GameObject[][] newContent = copyMapContent(newObjects);
+		GameObject[][] newContent = copyMapContent(newObjects, shareTerrain);
 
 		// Set some things
-		newMap.setMapContent(newContent);
-		newMap.setObjects(newObjects);
+		newMap.mapContent = newContent;
+		System.arraycopy(this.blockers, 0, newMap.blockers, 0, this.blockers.length);
+		newMap.objects = newObjects;
+		newMap.registry = registry.copy();
+		newMap.timers = timers.copy();
+		newMap.unitTable = unitTable.copy();
+		newMap.locations = this.locations;
 		newMap.setIdBuffer(new IntArray(idBuffer));
 		newMap.setCommandCenterObjectIDs(new IntArray(commandCenterObjectIDs));
+		newMap.zobristHash = this.zobristHash;
+		// The copy has the same layout, so it can use the fields-of-view computed on us, and the other way around
+		newMap.lineOfSight.setFieldOfViewTable(this.lineOfSight.getFieldOfViewTable()
+																.share(this));
+		newMap.setLineOfSightType(this.lineOfSightType);
+		newMap.distanceFields = this.distanceFields.copy();
+		// Tell the copied objects which map they are on
+		for (int i = 0; i < newObjects.size; i++) {
+			GameObject object = newObjects.get(i);
+			if (object != null && !isStaticTerrain(object))
+				object.setMap(newMap);
+		}
 		// Return the created map
 		return newMap;
 	}
 
+	/**
+	 * Creates an empty map with the same name, size and line-of-sight type as this map. The new map shares the
+	 * locations this map uses for {@link Map#toLocation(int)}, so filling it does not create them again.
+	 */
+	public Map copyLayout() {
+		Map newMap = new Map(this.name, this.mapWidth, this.mapHeight);
+		// Make sure we have the locations, so every map with our layout can share them
+		toLocation(0);
+		newMap.locations = this.locations;
+		newMap.setLineOfSightType(this.lineOfSightType);
+		return newMap;
+	}
+
+	/**
+	 * Whether or not an object is part of the static terrain of the map. Static terrain is never altered during a game,
+	 * which means it can safely be shared between copies of a map.
+	 * 
+	 * @param object
+	 *            The object to check.
+	 */
+	public static boolean isStaticTerrain(GameObject object) {
+		// Floors, Walls and Space never change, unless they can be destroyed
+		return (object instanceof Floor || object instanceof Wall || object instanceof Space) && !((MapFeature) object).isDestructible();
+	}
+
+	/**
+	 * Updates the hash of this map for a change in an object that is placed on it, by toggling the object's key. This
+	 * method is called once before and once after the object changes.
+	 * 
+	 * @param object
+	 *            The object that changes.
+	 */
+	public void updateHash(GameObject object) {
+		recordChange(object);
+		zobristHash ^= ZobristKeys.key(object, toPosition(object.getLocation()));
+	}
+
+	/**
+	 * Sets the row of a unit in the unit table of this map to the unit's current state, see {@link UnitTable}. This
+	 * method is called when a unit is placed.
+	 * 
+	 * @param unit
+	 *            The unit that changed.
+	 */
+	public void updateUnitTable(Unit unit) {
+		unitTable.update(this, unit);
+	}
+
+	/**
+	 * Tells the log that is recording the changes made to this map, if any, that an object is about to change. This
+	 * method is called by {@link Map#updateHash(GameObject)}, and by {@link Unit}s when their field-of-view changes.
+	 * 
+	 * @param object
+	 *            The object that is about to change.
+	 */
+	public void recordChange(GameObject object) {
+		if (undoLog != null)
+			undoLog.recordChange(object);
+	}
+
+	/**
+	 * Adds an object to the schedule of running timers if its timer has been started, see {@link TimerSchedule}. This
+	 * method is called by {@link Door}s and {@link Unit}s when their timer changes.
+	 * 
+	 * @param object
+	 *            The object whose timer changed.
+	 */
+	public void updateTimer(GameObject object) {
+		// Only registered objects are scheduled
+		if (object.getID() >= 0 && getObject(object.getID()) == object)
+			timers.update(object);
+	}
+
+	/**
+	 * Calculates the hash of this map from scratch, by going through all positions on the map. The result should be
+	 * equal to {@link Map#getZobristHash()}, unless the content of the map was set without using
+	 * {@link Map#place(int, GameObject)}.
+	 */
+	public long calculateZobristHash() {
+		long hash = 0;
+		for (int i = 0; i < mapContent.length; i++) {
+			for (int j = 0; j < HunterKillerConstants.MAP_INTERNAL_LAYERS; j++) {
+				if (mapContent[i][j] != null)
+					hash ^= ZobristKeys.key(mapContent[i][j], i);
+			}
+		}
+		return hash;
+	}
+
 	/**
 	 * Returns an ordered {@link Array} containing the locations that form a path from one location to another. This
-	 * method uses the A* algorithm.
+	 * method uses the A* algorithm. If there is no path, the returned collection is empty.
 	 * 
 	 * @param from
 	 *            The location that is the starting point for the search.
@@ -975,48 +1316,8 @@ public class Map
 	 *            The location that is the target of the search.
 	 */
 	public Array<MapLocation> findPath(MapLocation from, MapLocation to) {
-		BinaryHeap<PathNode> open = new BinaryHeap<PathNode>(mapWidth * mapHeight, false);
-		PathNode[] nodes = new PathNode[mapWidth * mapHeight];
 		IntArray path = new IntArray();
-		// Using positions is more convenient with indexing in the 'nodes' array
-		int rootPosition = toPosition(from);
-		int targetPosition = toPosition(to);
-
-		// Start the search at the root node
-		PathNode root = new PathNode(0);
-		root.position = rootPosition;
-		nodes[rootPosition] = root;
-		root.parent = null;
-		root.pathCost = 0;
-
-		open.add(root, 0);
-
-		while (open.size > 0) {
-			PathNode node = open.pop();
-			if (node.position == targetPosition) {
-				// If we have reached the target, go back and add all parent nodes to the path.
-				while (node != root) {
-					path.add(node.position);
-					node = node.parent;
-				}
-				break;
-			}
-			node.closed = true;
-
-			MapLocation nodeLocation = toLocation(node.position);
-			for (Direction move : Direction.values()) {
-				// Check if this move is possible. Note: this causes searches that have a location that cannot be
-				// traversed to not yield a solution.
-				if (!isMovePossible(nodeLocation, move))
-					continue;
-
-				MapLocation moveLocation = getLocationInDirection(nodeLocation, move, 1);
-				addNode(nodes, open, node, moveLocation, 1, to);
-			}
-
-		}
-
-		path.reverse();
+		findPath(toPosition(from), toPosition(to), path);
 
 		// Translate the positions back into MapLocation before returning the path
 		Array<MapLocation> pathLocations = new Array<MapLocation>(true, path.size);
@@ -1027,6 +1328,64 @@ public class Map
 		return pathLocations;
 	}
 
+	/**
+	 * Writes the positions that form a path from one position to another into a collection. This method uses the A*
+	 * algorithm, see {@link PathFinder}.
+	 * 
+	 * @param from
+	 *            The position that is the starting point for the search.
+	 * @param to
+	 *            The position that is the target of the search.
+	 * @param path
+	 *            Collection that the positions on the path are written to, in order. The starting position is not
+	 *            included. This collection is cleared first.
+	 * @return The length of the path, or -1 if there is no path.
+	 */
+	public int findPath(int from, int to, IntArray path) {
+		return getPathFinder().findPath(this, from, to, path);
+	}
+
+	/**
+	 * Returns the length of the path from one position to another, or -1 if there is no path. See
+	 * {@link Map#findPath(int, int, IntArray)}.
+	 * 
+	 * @param from
+	 *            The position that is the starting point for the search.
+	 * @param to
+	 *            The position that is the target of the search.
+	 */
+	public int getPathLength(int from, int to) {
+		return getPathFinder().getPathLength(this, from, to);
+	}
+
+	/**
+	 * Returns the number of moves it takes to get from a position to a {@link Structure}, over walkable terrain and
+	 * ignoring any units. Returns {@link DistanceFields#UNREACHABLE} if the structure can't be reached from the
+	 * position, or does not exist. See {@link DistanceFields}.
+	 * 
+	 * @param structureID
+	 *            The ID of the structure.
+	 * @param position
+	 *            The position to get the distance from.
+	 */
+	public int distanceTo(int structureID, int position) {
+		return distanceFields.distanceTo(this, structureID, position);
+	}
+
+	/**
+	 * Returns the position adjacent to a position that is one move closer to a {@link Structure}, over walkable terrain
+	 * and ignoring any units. Returns -1 if the structure can't be reached from the position, or if the position is
+	 * the structure's location. See {@link DistanceFields#nextStepToward(Map, int, int)}.
+	 * 
+	 * @param structureID
+	 *            The ID of the structure.
+	 * @param position
+	 *            The position to take a step from.
+	 */
+	public int nextStepToward(int structureID, int position) {
+		return distanceFields.nextStepToward(this, structureID, position);
+	}
+
 	// endregion
 
 	// region Overridden methods
@@ -1115,11 +1474,14 @@ public class Map
 		mapHeight = (raw = raw.next).asInt();
 		currentTick = (raw = raw.next).asInt();
 		objects = json.readValue(Array.class, GameObject.class, (raw = raw.next));
+		registry.rebuild(objects);
 		idBuffer = json.readValue(IntArray.class, (raw = raw.next));
 		commandCenterObjectIDs = json.readValue(IntArray.class, (raw = raw.next));
 
 		// Map will have (width * height) positions
 		mapContent = new GameObject[mapWidth * mapHeight][HunterKillerConstants.MAP_INTERNAL_LAYERS];
+		blockers = new long[((mapWidth * mapHeight) + 63) >>> 6];
+		zobristHash = 0;
 
 		for (int i = 0; i < objects.size; i++) {
 			GameObject obj = objects.get(i);
@@ -1135,6 +1497,61 @@ public class Map
 
 	// region Protected methods
 
+	/**
+	 * Sets the log that records the changes made to this map, see {@link HunterKillerUndoLog}.
+	 * 
+	 * @param undoLog
+	 *            The log, or null to stop recording.
+	 */
+	protected void setUndoLog(HunterKillerUndoLog undoLog) {
+		this.undoLog = undoLog;
+	}
+
+	/**
+	 * Reverts {@link Map#registerGameObject(GameObject)} for the object that was registered last. The object should not
+	 * be placed on the map.
+	 * 
+	 * @param object
+	 *            The object to revert the registration of.
+	 * @param fromBuffer
+	 *            Whether or not the object's ID was taken from the ID-buffer when it was registered.
+	 */
+	protected void undoRegisterGameObject(GameObject object, boolean fromBuffer) {
+		int objectID = object.getID();
+		if (object instanceof Structure && ((Structure) object).isCommandCenter()) {
+			commandCenterObjectIDs.removeValue(objectID);
+		}
+		timers.remove(object);
+		registry.remove(object);
+		objects.set(objectID, null);
+		// Give the ID back to where it came from
+		if (fromBuffer)
+			idBuffer.add(objectID);
+		else
+			objects.setSize(objectID);
+	}
+
+	/**
+	 * Reverts {@link Map#unregisterGameObject(GameObject)} for the object that was unregistered last. The object should
+	 * already have been placed back on the map.
+	 * 
+	 * @param object
+	 *            The object to register again.
+	 * @param commandCenterIndex
+	 *            The index the object's ID had in the IDs of the command centers, or -1 if it is not a command center.
+	 */
+	protected void undoUnregisterGameObject(GameObject object, int commandCenterIndex) {
+		int objectID = object.getID();
+		if (commandCenterIndex >= 0) {
+			commandCenterObjectIDs.insert(commandCenterIndex, objectID);
+		}
+		// The ID was added to the buffer last
+		idBuffer.pop();
+		objects.set(objectID, object);
+		registry.add(object);
+		timers.update(object);
+	}
+
 	/**
 	 * Ticks the map forward, this means that we should check the {@link GameObject}s on the map to
 	 * see if any should be removed. This method also updates the field-of-view of any surviving {@link Unit}s.
@@ -1144,10 +1561,13 @@ public class Map
 	 */
 	protected void tick(HunterKillerState state) {
 		currentTick++;
-		// Check our object collection for 'dead' objects
-		for (int i = 0; i < objects.size; i++) {
-			GameObject object = objects.get(i);
-			// Check if there is anything there
+		// Check the objects that can change for 'dead' objects, static terrain never needs to be removed. Ticking can
+		// unregister objects, so go through a snapshot of their IDs.
+		tickIDs.clear();
+		tickIDs.addAll(registry.getDynamicIDs());
+		for (int i = 0; i < tickIDs.size; i++) {
+			GameObject object = objects.get(tickIDs.get(i));
+			// Check if there is still anything there
 			if (object != null) {
 				// If the '.tick' method returns true, that indicates that the object should be removed
 				if (object.tick(state)) {
@@ -1200,30 +1620,28 @@ public class Map
 	 * start of a new round.
 	 */
 	protected void timer() {
-		// Check all our objects
-		for (GameObject object : objects) {
-			// Check if there is anything there
-			if (object != null) {
-				// Check if it's a Door
-				if (object instanceof Door) {
-					// Reduce the timer if the door is open
-					Door door = (Door) object;
-					if (door.isOpen())
-						door.reduceTimer(this);
-				}
-				// Check if it's a Unit
-				else if (object instanceof Unit) {
-					// Reduce the unit's cooldown
-					((Unit) object).reduceCooldown();
-				}
-			}
-		}
+		// Only the objects that have a running timer need to be visited
+		timers.process(this);
 	}
 
 	/**
 	 * Creates a deep copy of this map's content.
+	 * 
+	 * {@link Map#copyMapContent(Array, boolean)}
 	 */
 	protected GameObject[][] copyMapContent(Array<GameObject> objects) {
+		return copyMapContent(objects, false);
+	}
+
+	/**
+	 * Creates a copy of this map's content.
+	 * 
+	 * @param objects
+	 *            The collection to place the copied objects in, indexed by ID.
+	 * @param shareTerrain
+	 *            Whether or not static terrain should be shared instead of copied. See {@link Map#isStaticTerrain(GameObject)}.
+	 */
+	protected GameObject[][] copyMapContent(Array<GameObject> objects, boolean shareTerrain) {
 		int positions = this.mapWidth * this.mapHeight;
 		// Create a new content array
 		GameObject[][] newContent = new GameObject[positions][HunterKillerConstants.MAP_INTERNAL_LAYERS];
@@ -1232,7 +1650,8 @@ public class Map
 				GameObject object = this.mapContent[i][j];
 				// Check if there is anything on this position
 				if (object != null) {
-					GameObject copy = object.copy();
+					// Static terrain can never change, so the copy can reference the same instance
+					GameObject copy = shareTerrain && isStaticTerrain(object) ? object : object.copy();
 					objects.set(copy.getID(), copy);
 					newContent[i][j] = copy;
 				}
@@ -1253,27 +1672,24 @@ public class Map
 	public void assignObjectsToPlayer(Player player) {
 		IntArray structureIDs = player.getStructureIDs();
 		IntArray unitIDs = player.getUnitIDs();
-		// Check for Structures and Units
-		for (GameObject object : objects) {
-			// Check if there is anything there
-			if (object != null) {
-				// Check if it's a structure
-				if (object instanceof Structure) {
-					Structure structure = (Structure) object;
-					// Check if it's a base and is controlled by this player
-					if (structure.getType() == StructureType.Base && structure.getControllingPlayerID() == player.getID()
-						&& !structureIDs.contains(structure.getID())) {
-						player.assignCommandCenter(structure);
-						player.addStructure(structure.getID());
-					}
-					// Other types are capturable and not controlled by any player at the start of the game
-				}
-				// Check if it's a unit and belongs to this player
-				else if (object instanceof Unit && ((Unit) object).getControllingPlayerID() == player.getID()
-							&& !unitIDs.contains(object.getID())) {
-					player.addUnit(object.getID());
-				}
+		// Check for Structures
+		IntArray registeredStructureIDs = registry.getStructureIDs();
+		for (int i = 0; i < registeredStructureIDs.size; i++) {
+			Structure structure = (Structure) objects.get(registeredStructureIDs.get(i));
+			// Check if it's a base and is controlled by this player
+			if (structure.getType() == StructureType.Base && structure.getControllingPlayerID() == player.getID()
+				&& !structureIDs.contains(structure.getID())) {
+				player.assignCommandCenter(structure);
+				player.addStructure(structure.getID());
 			}
+			// Other types are capturable and not controlled by any player at the start of the game
+		}
+		// Check for Units that belong to this player
+		IntArray registeredUnitIDs = registry.getUnitIDs();
+		for (int i = 0; i < registeredUnitIDs.size; i++) {
+			Unit unit = (Unit) objects.get(registeredUnitIDs.get(i));
+			if (unit.getControllingPlayerID() == player.getID() && !unitIDs.contains(unit.getID()))
+				player.addUnit(unit.getID());
 		}
 	}
 
@@ -1309,56 +1725,10 @@ public class Map
 	// region Private methods
 
 	/**
-	 * Adds a node to the set of searched nodes and checks if this node is part of a path that costs less than the
-	 * current lowest cost.
-	 * 
-	 * @param constructed
-	 *            The collection of nodes that have been visited so far.
-	 * @param open
-	 *            The collection of nodes that still have potential to improve the path.
-	 * @param parent
-	 *            The node that applying a move to resulted in the current location.
-	 * @param location
-	 *            The location that a node should be constructed for.
-	 * @param cost
-	 *            The cost of the move.
-	 * @param target
-	 *            The target location of the search.
-	 */
-	private void addNode(PathNode[] constructed, BinaryHeap<PathNode> open, PathNode parent, MapLocation location, int cost,
-			MapLocation target) {
-		// Get the position of the current location
-		int locationPosition = toPosition(location);
-
-		// Walls block expansion of the search.
-		MapFeature feature = getFeatureAtLocation(location);
-		if (feature instanceof Wall && !((Wall) feature).isDestructible())
-			return;
-
-		int pathCost = parent.pathCost + cost;
-		float score = pathCost + MapLocation.getManhattanDist(target, location);
-
-		PathNode node = constructed[locationPosition];
-		// Check if this location has already had a node created.
-		if (node != null) {
-			// Check if that node isn't closed and new the cost is lower.
-			if (!node.closed && pathCost < node.pathCost) {
-				// Update the existing node.
-				open.setValue(node, score);
-				node.parent = parent;
-				node.pathCost = pathCost;
-			}
-		} else {
-			// Create a new node
-			node = new PathNode(0);
-			node.position = locationPosition;
-			node.parent = parent;
-			node.pathCost = pathCost;
-
-			constructed[locationPosition] = node;
-
-			open.add(node, score);
-		}
+	 * Returns the path finder of the current thread, see {@link PathFinder#get(Map)}.
+	 */
+	private PathFinder getPathFinder() {
+		return PathFinder.get(this);
 	}
 
 	/**
@@ -1387,17 +1757,6 @@ public class Map
 
 	// region Inner classes
 
-	private class PathNode
-			extends Node {
-		int position, pathCost;
-		boolean closed;
-		PathNode parent;
-
-		public PathNode(float value) {
-			super(value);
-		}
-	}
-
 	@NoArgsConstructor
 	public class BlocksLight
 			implements BlocksLightFunction {
@@ -1446,24 +1805,25 @@ public class Map
 	public class SetVisible
 			implements SetVisibleFunction {
 
-		private HashSet<MapLocation> visibleLocations;
+		private FieldOfView visibleLocations;
 
 		public SetVisible() {
-			this.visibleLocations = new HashSet<MapLocation>();
+			this.visibleLocations = new FieldOfView(mapWidth, mapHeight);
 		}
 
 		@Override
 		public void func(int x, int y) {
 			// Ignore any coordinates that are not on the map
 			if (isXonMap(x) && isYonMap(y))
-				this.visibleLocations.add(new MapLocation(x, y));
+				this.visibleLocations.add(toPosition(x, y));
 		}
 
 		public void resetLocations() {
-			this.visibleLocations = new HashSet<MapLocation>();
+			// Note: units keep a reference to the previously computed field-of-view, so we can't clear it
+			this.visibleLocations = new FieldOfView(mapWidth, mapHeight);
 		}
 
-		public HashSet<MapLocation> getVisibleLocations() {
+		public FieldOfView getVisibleLocations() {
 			return visibleLocations;
 		}
 	}
@@ -30,7 +30,7 @@ public class MapLocation {
 	private int y;
 
 	/**
-	 * A random number generator.
+	 * A random number generator, only used by {@link MapLocation#getDirectionTo(MapLocation, MapLocation)}.
 	 */
 	private static Random r = new Random();
 
@@ -120,12 +120,32 @@ public class MapLocation {
 	 *            The location that is the viewpoint.
 	 * @param target
 	 *            The location to get the direction to.
+	 * @deprecated The random direction of this method is not reproducible, since it does not come from the random
+	 *             number generator of a game. Use {@link MapLocation#getDirectionTo(MapLocation, MapLocation, Random)}
+	 *             with the generator of the state instead, see {@link HunterKillerState#getRandom()}.
 	 */
+	@Deprecated
 	public static Direction getDirectionTo(MapLocation origin, MapLocation target) {
+		return getDirectionTo(origin, target, r);
+	}
+
+	/**
+	 * Returns the {@link Direction} that the target location is in, relative to the origin. Note:
+	 * This method currently only checks in cardinal directions. Also: it will return a random cardinal direction when
+	 * the origin and target are the same location.
+	 * 
+	 * @param origin
+	 *            The location that is the viewpoint.
+	 * @param target
+	 *            The location to get the direction to.
+	 * @param random
+	 *            The random number generator to use when the origin and target are the same location.
+	 */
+	public static Direction getDirectionTo(MapLocation origin, MapLocation target, Random random) {
 		// Check that the points are not the same
 		if (origin.equals(target)) {
 			// Return a random direction
-			return Direction.values()[r.nextInt(Direction.values().length)];
+			return Direction.values[random.nextInt(Direction.values.length)];
 		}
 
 		// Get the differences in coordinates
@@ -0,0 +1,388 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.enums.GameMode;
+import net.codepoke.ai.challenge.hunterkiller.enums.MapType;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Collection of the {@link MapSetup}s that games can be played on. Loading and parsing the map files is only done once,
+ * after which the maps are indexed by the {@link MapType} and {@link GameMode} flags in their names, so that finding the
+ * maps for a {@link HunterKillerMatchRequest} does not require going through the names of all maps.
+ *
+ * A registry cannot be changed after it has been created, which means it can be shared between threads. This also
+ * holds for the {@link MapSetup}s it contains, they should not be changed by anyone using a registry. The registry that
+ * is used by default is loaded the first time it is requested, see {@link MapRegistry#getDefault()}.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class MapRegistry {
+
+	// region Constants
+
+	/**
+	 * The name of the folder that contains the map files, relative to the location the game is executed from.
+	 */
+	public static final String MAPS_FOLDER = "maps";
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The maps in this registry, in the order they were loaded.
+	 */
+	private final MapSetup[] maps;
+
+	/**
+	 * The maps in this registry, by their name.
+	 */
+	private final HashMap<String, MapSetup> mapsByName = new HashMap<String, MapSetup>();
+
+	/**
+	 * The index of each map in this registry, by the map itself.
+	 */
+	private final IdentityHashMap<MapSetup, Integer> indices = new IdentityHashMap<MapSetup, Integer>();
+
+	/**
+	 * The indices of the maps that contain the file-flag of each {@link MapType}, indexed by the ordinal of the type.
+	 */
+	private final BitSet[] mapTypeIndex;
+
+	/**
+	 * The indices of the maps that contain the file-flag of each {@link GameMode}, indexed by the ordinal of the mode.
+	 */
+	private final BitSet[] gameModeIndex;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a registry for a collection of maps.
+	 *
+	 * @param maps
+	 *            The {@link MapSetup}s, which are indexed by the flags in their names.
+	 */
+	public MapRegistry(Array<MapSetup> maps) {
+		this.maps = maps.toArray(MapSetup.class);
+		mapTypeIndex = createIndex(MapType.values().length);
+		gameModeIndex = createIndex(GameMode.values().length);
+		for (int i = 0; i < this.maps.length; i++) {
+			// If a map was added several times, its first index is used
+			if (!indices.containsKey(this.maps[i]))
+				indices.put(this.maps[i], i);
+			String name = this.maps[i].name;
+			if (name == null)
+				continue;
+			// If several maps have the same name, the first one is found by name
+			if (!mapsByName.containsKey(name))
+				mapsByName.put(name, this.maps[i]);
+			for (MapType type : MapType.values()) {
+				if (name.contains(type.getFileFlag()))
+					mapTypeIndex[type.ordinal()].set(i);
+			}
+			for (GameMode mode : GameMode.values()) {
+				if (name.contains(mode.getFileFlag()))
+					gameModeIndex[mode.ordinal()].set(i);
+			}
+		}
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the registry that is shared by everything in this process. The first time this is called, the maps are
+	 * loaded from the {@link MapRegistry#MAPS_FOLDER} in the location the game is executed from. If that folder does
+	 * not contain any maps, the registry only contains a basic map.
+	 */
+	public static MapRegistry getDefault() {
+		return DefaultRegistry.INSTANCE;
+	}
+
+	/**
+	 * Loads a registry from the map files in a folder. Files that cannot be read or parsed are reported and skipped.
+	 *
+	 * @param folder
+	 *            The folder that contains the map files. Sub-folders are ignored.
+	 * @return A {@link MapRegistry} with the maps in the folder, sorted by the names of their files. This is empty if
+	 *         the folder does not exist.
+	 */
+	public static MapRegistry fromFolder(File folder) {
+		Array<MapSetup> setups = new Array<MapSetup>();
+		File[] mapFiles = folder.listFiles();
+		if (mapFiles != null) {
+			// Sort the files by name, so the map rotation has the same order on every system
+			Arrays.sort(mapFiles);
+			for (File mapFile : mapFiles) {
+				// Check if the file isn't a directory
+				if (mapFile.isDirectory())
+					continue;
+				try {
+					// Check if we can use GDX to access files, or need to fall back on Java.NIO
+					String rawMapData;
+					if (Gdx.files != null) {
+						FileHandle fileH = Gdx.files.getFileHandle(mapFile.getAbsolutePath(), FileType.Absolute);
+						rawMapData = fileH.readString();
+					} else {
+						rawMapData = new String(Files.readAllBytes(mapFile.toPath()));
+					}
+					setups.add(parse(mapFile.getName(), rawMapData));
+				} catch (Exception e) {
+					System.err.println("Error during parsing of file: " + mapFile.getName());
+					e.printStackTrace();
+				}
+			}
+		}
+		return new MapRegistry(setups);
+	}
+
+	/**
+	 * Parses the content of a map file. A map file optionally starts with one or two lines of settings, or with a line
+	 * indicating that the map is custom, followed by the data of the map.
+	 *
+	 * @param fileName
+	 *            The name of the file, which becomes the name of the map.
+	 * @param rawMapData
+	 *            The content of the file.
+	 * @return The {@link MapSetup} that was parsed.
+	 * @throws HunterKillerException
+	 *             If the file does not contain a valid map.
+	 */
+	public static MapSetup parse(String fileName, String rawMapData) {
+		rawMapData = rawMapData.replace("\r\n", "\n");
+		String[] mapLines = rawMapData.split(FourPatch.NEWLINE_SEPARATOR);
+		if (mapLines.length == 0 || mapLines[0].isEmpty())
+			throw new HunterKillerException("Map file is empty: " + fileName);
+
+		MapSetup setup;
+		// Check if we have any lines of settings
+		if (Character.isDigit(mapLines[0].charAt(0))) {
+			// First line is the size/orientation
+			String[] optionsLine1 = mapLines[0].split(" ");
+			int qWidth = Integer.parseInt(optionsLine1[0]);
+			int qHeight = Integer.parseInt(optionsLine1[1]);
+			Direction spawnDirection = Direction.parse(optionsLine1[2]);
+			if (qWidth <= 0 || qHeight <= 0)
+				throw new HunterKillerException(StringExtensions.format("Invalid quadrant size %dx%d in map file: %s", qWidth, qHeight, fileName));
+
+			// Check if there is a second line of settings
+			if (Character.isDigit(mapLines[1].charAt(0))) {
+				// Second line is the amount of starting resources for players and the base resource-generation
+				String[] optionsLine2 = mapLines[1].split(" ");
+				int startingResources = Integer.parseInt(optionsLine2[0]);
+				int baseResourceGeneration = Integer.parseInt(optionsLine2[1]);
+				rawMapData = rawMapData.substring(rawMapData.indexOf(mapLines[2]));
+
+				setup = new MapSetup(fileName, rawMapData, qWidth, qHeight, spawnDirection, startingResources, baseResourceGeneration);
+			} else {
+				rawMapData = rawMapData.substring(rawMapData.indexOf(mapLines[1]));
+				setup = new MapSetup(fileName, rawMapData, qWidth, qHeight, spawnDirection);
+			}
+		} else if (mapLines[0].startsWith("custom")) {
+			// Strip away the first line
+			String stripped = rawMapData.substring(rawMapData.indexOf(mapLines[1]));
+			setup = new MapSetup(fileName, stripped, true);
+		} else {
+			// Assume the whole map needs to be copied and we can use defaults.
+			setup = new MapSetup(fileName, rawMapData, false);
+		}
+		return setup;
+	}
+
+	/**
+	 * Returns the number of maps in this registry.
+	 */
+	public int size() {
+		return maps.length;
+	}
+
+	/**
+	 * Returns a map from this registry.
+	 *
+	 * @param index
+	 *            The index of the map, in the order the maps were loaded.
+	 */
+	public MapSetup get(int index) {
+		return maps[index];
+	}
+
+	/**
+	 * Returns the map with a specific name, or null if there is none.
+	 *
+	 * @param name
+	 *            The name of the map, which is the name of the file it was loaded from.
+	 */
+	public MapSetup get(String name) {
+		return mapsByName.get(name);
+	}
+
+	/**
+	 * Adds all maps of this registry to a collection, in the order they were loaded.
+	 *
+	 * @param result
+	 *            The collection to add the maps to.
+	 */
+	public void getMaps(Array<MapSetup> result) {
+		result.addAll(maps);
+	}
+
+	/**
+	 * Adds the maps that meet a number of requirements to a collection, in the order they were loaded.
+	 *
+	 * @param mapType
+	 *            The {@link MapType} whose file-flag the name of a map should contain, or null for any type.
+	 * @param gameMode
+	 *            The {@link GameMode} whose file-flag the name of a map should contain, or null for any mode.
+	 * @param mapName
+	 *            Text that the name of a map should contain, or null for any name.
+	 * @param result
+	 *            The collection to add the maps to.
+	 */
+	public void findMaps(MapType mapType, GameMode gameMode, String mapName, Array<MapSetup> result) {
+		BitSet found = findIndices(mapType, gameMode, mapName);
+		for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+			result.add(maps[i]);
+		}
+	}
+
+	/**
+	 * Adds the maps from a collection that meet a number of requirements to another collection. The maps of this
+	 * registry are found through its indexes and then filtered by the collection, so they are added in the order they
+	 * were loaded, as often as they occur in the collection. Maps in the collection that are not in this registry are
+	 * checked for the flags by name, and added after those.
+	 *
+	 * @param mapType
+	 *            The {@link MapType} whose file-flag the name of a map should contain, or null for any type.
+	 * @param gameMode
+	 *            The {@link GameMode} whose file-flag the name of a map should contain, or null for any mode.
+	 * @param mapName
+	 *            Text that the name of a map should contain, or null for any name.
+	 * @param candidates
+	 *            The maps to choose from.
+	 * @param result
+	 *            The collection to add the maps to.
+	 */
+	public void findMaps(MapType mapType, GameMode gameMode, String mapName, Array<MapSetup> candidates, Array<MapSetup> result) {
+		// Count how often each map of this registry is a candidate, and set aside the candidates from elsewhere
+		int[] occurrences = new int[maps.length];
+		Array<MapSetup> others = null;
+		for (int i = 0; i < candidates.size; i++) {
+			MapSetup setup = candidates.get(i);
+			Integer index = indices.get(setup);
+			if (index != null) {
+				occurrences[index]++;
+			} else if (meetsRequirements(setup, mapType, gameMode, mapName)) {
+				if (others == null)
+					others = new Array<MapSetup>();
+				others.add(setup);
+			}
+		}
+
+		BitSet found = findIndices(mapType, gameMode, mapName);
+		for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+			for (int j = 0; j < occurrences[i]; j++) {
+				result.add(maps[i]);
+			}
+		}
+		if (others != null)
+			result.addAll(others);
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Creates an empty index for a number of flags.
+	 */
+	private static BitSet[] createIndex(int flagCount) {
+		BitSet[] index = new BitSet[flagCount];
+		for (int i = 0; i < flagCount; i++) {
+			index[i] = new BitSet();
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the indices of the maps in this registry that meet a number of requirements, see
+	 * {@link MapRegistry#findMaps(MapType, GameMode, String, Array)}. Only the maps that have the requested flags are
+	 * checked for their name.
+	 */
+	private BitSet findIndices(MapType mapType, GameMode gameMode, String mapName) {
+		BitSet found = new BitSet(maps.length);
+		found.set(0, maps.length);
+		if (mapType != null)
+			found.and(mapTypeIndex[mapType.ordinal()]);
+		if (gameMode != null)
+			found.and(gameModeIndex[gameMode.ordinal()]);
+		if (mapName != null) {
+			for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+				if (maps[i].name == null || !maps[i].name.contains(mapName))
+					found.clear(i);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns whether a map that is not in this registry meets a number of requirements, by checking its name for the
+	 * flags. A map without a name has no flags, so it only meets a request without requirements.
+	 */
+	private static boolean meetsRequirements(MapSetup setup, MapType mapType, GameMode gameMode, String mapName) {
+		if (setup.name == null)
+			return mapType == null && gameMode == null && mapName == null;
+		return (mapType == null || setup.name.contains(mapType.getFileFlag()))
+				&& (gameMode == null || setup.name.contains(gameMode.getFileFlag()))
+				&& (mapName == null || setup.name.contains(mapName));
+	}
+
+	/**
+	 * Loads the registry that is used by default, see {@link MapRegistry#getDefault()}.
+	 */
+	private static MapRegistry loadDefault() {
+		MapRegistry registry = fromFolder(Paths.get(MAPS_FOLDER)
+												.toAbsolutePath()
+												.toFile());
+		if (registry.size() == 0) {
+			// Use a predefined basic map
+			String rawMapData = StringExtensions.format("..........%n..........%n..████████%n..█B______%n..█_______%n..█_______%n..█_______%n..█_______%n..█_______%n..█_______");
+			Array<MapSetup> basic = new Array<MapSetup>();
+			basic.add(new MapSetup("basic", rawMapData, false));
+			registry = new MapRegistry(basic);
+		}
+		return registry;
+	}
+
+	// endregion
+
+	// region Internal classes
+
+	/**
+	 * Holds the default registry, so that it is only loaded when it is first requested. The class loader guarantees
+	 * that this happens once, even when several threads request it at the same time.
+	 */
+	private static class DefaultRegistry {
+
+		private static final MapRegistry INSTANCE = loadDefault();
+
+	}
+
+	// endregion
+
+}
@@ -1,7 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 
@@ -9,7 +8,6 @@ import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.StructureOrderType;
 import net.codepoke.ai.challenge.hunterkiller.enums.UnitOrderType;
 import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
-import net.codepoke.ai.challenge.hunterkiller.gameobjects.Controlled;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Wall;
@@ -18,10 +16,12 @@ import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Medic;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
 import net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.StructureOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
 
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * This class generates legal {@link HunterKillerOrder}s.
@@ -33,11 +33,16 @@ public class MoveGenerator {
 
 	/**
 	 * Simple Random to avoid alloc'ing
+	 * 
+	 * @deprecated Random orders are drawn from the random number generator of the state, so that a game can be
+	 *             reproduced from its seed. See {@link HunterKillerState#getRandom()}. This generator is no longer used.
 	 */
+	@Deprecated
 	public static Random RNG = new Random();
 
 	/**
-	 * Arrays used to ad-hoc shuffle to create RNG.
+	 * Arrays used to ad-hoc shuffle to create RNG, using the random number generator of the state (see
+	 * {@link HunterKillerState#getRandom()}).
 	 */
 	private static ThreadLocal<Array<UnitType>> UNIT_TYPES = new ThreadLocal<Array<UnitType>>() {
 		@Override
@@ -51,6 +56,36 @@ public class MoveGenerator {
 			return Array.with(Direction.values);
 		}
 	};
+	private static ThreadLocal<IntArray> POSITIONS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
+	private static ThreadLocal<IntArray> TARGETS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
+	private static ThreadLocal<IntArray> SPECIAL_TARGETS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
+	private static ThreadLocal<IntArray> UNIT_IDS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
+	private static ThreadLocal<IntArray> PACKED_ORDERS = new ThreadLocal<IntArray>() {
+		@Override
+		protected IntArray initialValue() {
+			return new IntArray();
+		}
+	};
 	private static ThreadLocal<Array<UnitOrderType>> UNIT_ORDER_TYPES = new ThreadLocal<Array<UnitOrderType>>() {
 		@Override
 		protected Array<UnitOrderType> initialValue() {
@@ -98,8 +133,7 @@ public class MoveGenerator {
 	 */
 	public static StructureOrder getRandomOrder(HunterKillerState state, Structure structure) {
 
-		Array<UnitType> types = UNIT_TYPES.get();
-		types.shuffle();
+		Array<UnitType> types = shuffle(UNIT_TYPES, UnitType.values, state);
 
 		// Check for each unit type if the structure can spawn it
 		for (UnitType type : types) {
@@ -116,8 +150,7 @@ public class MoveGenerator {
 	 */
 	public static UnitOrder getRandomOrder(HunterKillerState state, Unit unit) {
 
-		Array<UnitOrderType> types = UNIT_ORDER_TYPES.get();
-		types.shuffle();
+		Array<UnitOrderType> types = shuffle(UNIT_ORDER_TYPES, UnitOrderType.values, state);
 
 		for (UnitOrderType type : types) {
 
@@ -221,8 +254,7 @@ public class MoveGenerator {
 		Map map = state.getMap();
 		MapLocation unitLocation = unit.getLocation();
 
-		Array<Direction> directions = DIRECTIONS.get();
-		directions.shuffle();
+		Array<Direction> directions = shuffle(DIRECTIONS, Direction.values, state);
 
 		// Check what movement options we have
 		for (Direction direction : directions) {
@@ -273,16 +305,46 @@ public class MoveGenerator {
 	 *            Whether or not to use the Player's Field-of-View, instead of the Unit's.
 	 */
 	public static List<UnitOrder> getAllLegalAttackOrders(HunterKillerState state, Unit unit, boolean usePlayersFoV) {
+		return getAllLegalAttackOrders(state, unit, usePlayersFoV, false);
+	}
+
+	/**
+	 * Returns a collection of {@link UnitOrder}s containing all legal orders, from the Unit's Field-of-View, in the
+	 * attack category. See {@link UnitOrderType} for a list of possible orders.
+	 * 
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param unit
+	 *            The {@link Unit} to receive legal orders for.
+	 * @param usePlayersFoV
+	 *            Whether or not to use the Player's Field-of-View, instead of the Unit's.
+	 * @param meaningfulTargetsOnly
+	 *            Whether or not to only include orders that target something worth attacking, instead of every
+	 *            location in range. See
+	 *            {@link MoveGenerator#addAllLegalAttackOrders(HunterKillerState, Unit, boolean, boolean, IntArray)}.
+	 */
+	public static List<UnitOrder> getAllLegalAttackOrders(HunterKillerState state, Unit unit, boolean usePlayersFoV,
+			boolean meaningfulTargetsOnly) {
 		// Create a list to write to
 		List<UnitOrder> orders = new ArrayList<UnitOrder>();
 
+		if (meaningfulTargetsOnly) {
+			IntArray packedOrders = PACKED_ORDERS.get();
+			packedOrders.clear();
+			addAllLegalAttackOrders(state, unit, usePlayersFoV, true, packedOrders);
+			for (int i = 0; i < packedOrders.size; i++) {
+				orders.add((UnitOrder) PackedOrder.decode(state.getMap(), packedOrders.get(i)));
+			}
+			return orders;
+		}
+
 		// Get the map we are currently on
 		Map map = state.getMap();
 		// And the unit's location
 		MapLocation unitLocation = unit.getLocation();
 
 		// Create a field-of-view set
-		HashSet<MapLocation> fov = null;
+		FieldOfView fov = null;
 
 		// Determine which field-of-view we'll be using
 		if (usePlayersFoV) {
@@ -306,10 +368,13 @@ public class MoveGenerator {
 			// Get the unit's attack range
 			int attackRange = Unit.getAttackRange(unit.getType());
 
-			// Go through the field-of-view
-			for (MapLocation location : fov) {
+			int unitX = unitLocation.getX(), unitY = unitLocation.getY(), mapWidth = map.getMapWidth();
+
+			// Go through the visible positions in the field-of-view
+			for (int position = fov.nextPosition(0); position >= 0; position = fov.nextPosition(position + 1)) {
 				// Check if this location is within the unit's attack range
-				if (map.getDistance(unitLocation, location) <= attackRange) {
+				if (map.getDistance(unitX, unitY, position % mapWidth, position / mapWidth) <= attackRange) {
+					MapLocation location = map.toLocation(position);
 					// Check if the special for this unit is available
 					if (unit.getSpecialAttackCooldown() <= 0) {
 						// A Soldier's special can't target Walls
@@ -352,7 +417,7 @@ public class MoveGenerator {
 		MapLocation unitLocation = unit.getLocation();
 
 		// Create a field-of-view set
-		HashSet<MapLocation> fov = null;
+		FieldOfView fov = null;
 
 		// Determine which field-of-view we'll be using
 		if (usePlayersFoV) {
@@ -364,8 +429,7 @@ public class MoveGenerator {
 
 		if (unit instanceof Infected) {
 
-			Array<Direction> directions = DIRECTIONS.get();
-			directions.shuffle();
+			Array<Direction> directions = shuffle(DIRECTIONS, Direction.values, state);
 
 			// Since we know an infected can only do a melee attack (range = 1)
 			for (Direction direction : directions) {
@@ -395,72 +459,327 @@ public class MoveGenerator {
 			}
 
 		} else {
-			// Get the unit's attack range
-			int attackRange = Unit.getAttackRange(unit.getType());
+			// Pick one of the positions that contains something worth attacking
+			IntArray positions = POSITIONS.get();
+			collectTargetPositions(state, unit, fov, useSpecial, positions);
+			if (positions.size > 0)
+				return unit.attack(map.toLocation(positions.get(state.getRandom()
+																	.nextInt(positions.size))), useSpecial);
+		}
 
-			// TODO: Optimize
-			Array<MapLocation> locations = new Array<MapLocation>();
+		return null;
+	}
 
-			for (MapLocation location : fov) {
-				locations.add(location);
-			}
+	/**
+	 * Adds all legal orders for a structure in the current state to a collection of packed orders (see
+	 * {@link PackedOrder}). These are the same orders, in the same order, as the ones returned by
+	 * {@link MoveGenerator#getAllLegalOrders(HunterKillerState, Structure)}, but no objects are created.
+	 * 
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param structure
+	 *            The {@link Structure} to add legal orders for.
+	 * @param orders
+	 *            The collection to add the packed orders to.
+	 * @return The number of orders that were added.
+	 */
+	public static int addAllLegalOrders(HunterKillerState state, Structure structure, IntArray orders) {
+		int size = orders.size;
 
-			locations.shuffle();
+		// Check if the structure can spawn anything
+		if (!structure.canSpawnAUnit(state))
+			return 0;
 
-			// Go through the field-of-view
-			for (MapLocation location : locations) {
+		// Check for each unit type if the structure can spawn it
+		for (UnitType type : UnitType.values) {
+			if (structure.canSpawn(state, type))
+				orders.add(PackedOrder.structureOrder(structure.getID(), Structure.getSpawnOrderType(type)));
+		}
 
-				// Check if this location is within the unit's attack range
-				if (map.getDistance(unitLocation, location) > attackRange)
-					continue;
+		return orders.size - size;
+	}
+
+	/**
+	 * Adds all legal orders for a unit in the current state to a collection of packed orders.
+	 * 
+	 * {@link MoveGenerator#addAllLegalOrders(HunterKillerState, Unit, boolean, boolean, boolean, IntArray)}
+	 */
+	public static int addAllLegalOrders(HunterKillerState state, Unit unit, IntArray orders) {
+		return addAllLegalOrders(state, unit, true, true, true, orders);
+	}
 
-				Controlled target = map.getUnitAtLocation(location);
-				MapFeature feature = null;
+	/**
+	 * Adds all legal orders for a unit in the current state to a collection of packed orders (see {@link PackedOrder}
+	 * ). These are the same orders, in the same order, as the ones returned by
+	 * {@link MoveGenerator#getAllLegalOrders(HunterKillerState, Unit, boolean, boolean, boolean)}, but no objects are
+	 * created.
+	 * 
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param unit
+	 *            The {@link Unit} to add legal orders for.
+	 * @param includeRotation
+	 *            Whether or not to include orders in the rotation category.
+	 * @param includeMovement
+	 *            Whether or not to include orders in the movement category.
+	 * @param includeAttack
+	 *            Whether or not to include orders in the attack category.
+	 * @param orders
+	 *            The collection to add the packed orders to.
+	 * @return The number of orders that were added.
+	 */
+	public static int addAllLegalOrders(HunterKillerState state, Unit unit, boolean includeRotation, boolean includeMovement,
+			boolean includeAttack, IntArray orders) {
+		int size = orders.size;
 
-				if (target == null) {
-					feature = map.getFeatureAtLocation(location);
-					if (feature instanceof Controlled)
-						target = (Controlled) feature;
-				}
+		if (includeMovement)
+			addAllLegalMoveOrders(state, unit, orders);
+		if (includeAttack)
+			addAllLegalAttackOrders(state, unit, false, orders);
+		if (includeRotation)
+			addAllLegalRotationOrders(state, unit, orders);
 
-				// If we don't target anything, continue
-				if (target == null)
-					continue;
-				// If we target a friendly feature, continue
-				if (target instanceof MapFeature && target.getControllingPlayerID() == unit.getControllingPlayerID())
-					continue;
+		return orders.size - size;
+	}
 
-				if (useSpecial) {
+	/**
+	 * Adds all legal orders in the movement category to a collection of packed orders.
+	 * 
+	 * {@link MoveGenerator#getAllLegalMoveOrders(HunterKillerState, Unit)}
+	 */
+	public static int addAllLegalMoveOrders(HunterKillerState state, Unit unit, IntArray orders) {
+		int size = orders.size;
 
-					// Soldiers can't grenade walls
-					if (unit instanceof Soldier && feature instanceof Wall)
-						continue;
+		// Get the map we are currently on, and the unit's location
+		Map map = state.getMap();
+		MapLocation unitLocation = unit.getLocation();
+		int unitPosition = map.toPosition(unitLocation);
 
-					// Do not target friendlies if we aren't a medic.
-					if (!(unit instanceof Medic) && target.getControllingPlayerID() == unit.getControllingPlayerID())
-						continue;
+		// Check what movement options we have
+		for (Direction direction : Direction.values) {
+			if (map.getMaxTravelDistance(unitLocation, direction) < 1)
+				continue;
+			int targetPosition = map.getPositionInDirection(unitPosition, direction, 1);
+			if (targetPosition >= 0 && map.isTraversable(map.toLocation(targetPosition)))
+				orders.add(PackedOrder.unitOrder(unit.getID(), UnitOrderType.MOVE, targetPosition));
+		}
 
-					// Do not heal enemies
-					if (unit instanceof Medic && target.getControllingPlayerID() != unit.getControllingPlayerID())
-						continue;
+		return orders.size - size;
+	}
 
-					// Do not heal non-damaged units
-					if (unit instanceof Medic && target instanceof Unit && !((Unit) target).isDamaged())
-						continue;
+	/**
+	 * Adds all legal orders in the rotation category to a collection of packed orders.
+	 * 
+	 * {@link MoveGenerator#getAllLegalRotationOrders(HunterKillerState, Unit)}
+	 */
+	public static int addAllLegalRotationOrders(HunterKillerState state, Unit unit, IntArray orders) {
+		// Can always rotate east or west
+		orders.add(PackedOrder.unitOrder(unit.getID(), UnitOrderType.ROTATE_CLOCKWISE, 0));
+		orders.add(PackedOrder.unitOrder(unit.getID(), UnitOrderType.ROTATE_COUNTER_CLOCKWISE, 0));
+		return 2;
+	}
 
-					return unit.attack(location, true);
-				} else {
+	/**
+	 * Adds all legal orders in the attack category to a collection of packed orders.
+	 * 
+	 * {@link MoveGenerator#getAllLegalAttackOrders(HunterKillerState, Unit, boolean)}
+	 */
+	public static int addAllLegalAttackOrders(HunterKillerState state, Unit unit, boolean usePlayersFoV, IntArray orders) {
+		return addAllLegalAttackOrders(state, unit, usePlayersFoV, false, orders);
+	}
 
-					// Don't target friendlies
-					if (target.getControllingPlayerID() == unit.getControllingPlayerID())
+	/**
+	 * Adds all legal orders in the attack category to a collection of packed orders. When only meaningful targets are
+	 * requested, the orders are limited to the locations that contain something worth attacking (see
+	 * {@link MoveGenerator#collectTargetPositions(HunterKillerState, Unit, FieldOfView, boolean, IntArray)}), instead
+	 * of every location in range and view. These are found through the {@link UnitTable} of the map, and are added in
+	 * the same order as they would be when all orders are generated.
+	 * 
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param unit
+	 *            The {@link Unit} to add legal orders for.
+	 * @param usePlayersFoV
+	 *            Whether or not to use the Player's Field-of-View, instead of the Unit's.
+	 * @param meaningfulTargetsOnly
+	 *            Whether or not to only include orders that target something worth attacking.
+	 * @param orders
+	 *            The collection to add the packed orders to.
+	 * @return The number of orders that were added.
+	 */
+	public static int addAllLegalAttackOrders(HunterKillerState state, Unit unit, boolean usePlayersFoV, boolean meaningfulTargetsOnly,
+			IntArray orders) {
+		int size = orders.size;
+
+		// Get the map we are currently on, and the unit's location
+		Map map = state.getMap();
+		MapLocation unitLocation = unit.getLocation();
+		int unitPosition = map.toPosition(unitLocation);
+		int unitID = unit.getID();
+
+		if (meaningfulTargetsOnly) {
+			// Determine which field-of-view we'll be using
+			FieldOfView fov = usePlayersFoV ? state.getPlayer(unit.getControllingPlayerID())
+													.getCombinedFieldOfView(map) : unit.getFieldOfView();
+
+			IntArray targets = TARGETS.get();
+			collectTargetPositions(state, unit, fov, false, targets);
+			IntArray specialTargets = SPECIAL_TARGETS.get();
+			specialTargets.clear();
+			if (unit.getSpecialAttackCooldown() <= 0)
+				collectTargetPositions(state, unit, fov, true, specialTargets);
+
+			if (unit instanceof Infected) {
+				// Go through the adjacent locations in the same order as when all orders are generated
+				for (Direction direction : Direction.values) {
+					if (map.getMaxTravelDistance(unitLocation, direction) < 1)
 						continue;
+					int targetPosition = map.getPositionInDirection(unitPosition, direction, 1);
+					if (targetPosition >= 0 && targets.contains(targetPosition))
+						orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK, targetPosition));
+				}
+				return orders.size - size;
+			}
 
-					return unit.attack(location, false);
+			// Both collections are sorted, so merge them to get the positions in order
+			int target = 0, specialTarget = 0;
+			while (target < targets.size || specialTarget < specialTargets.size) {
+				int attackPosition = target < targets.size ? targets.get(target) : Integer.MAX_VALUE;
+				int specialPosition = specialTarget < specialTargets.size ? specialTargets.get(specialTarget) : Integer.MAX_VALUE;
+				int position = Math.min(attackPosition, specialPosition);
+				if (specialPosition == position) {
+					orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK_SPECIAL, position));
+					specialTarget++;
+				}
+				if (attackPosition == position) {
+					orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK, position));
+					target++;
 				}
 			}
+		} else if (unit instanceof Infected) {
+			// Since we know an infected can only do a melee attack (range = 1)
+			for (Direction direction : Direction.values) {
+				if (map.getMaxTravelDistance(unitLocation, direction) < 1)
+					continue;
+				int targetPosition = map.getPositionInDirection(unitPosition, direction, 1);
+				if (targetPosition >= 0)
+					orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK, targetPosition));
+			}
+			// Also add the unit's own location as a possibility
+			orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK, unitPosition));
+		} else {
+			// Determine which field-of-view we'll be using
+			FieldOfView fov = usePlayersFoV ? state.getPlayer(unit.getControllingPlayerID())
+													.getCombinedFieldOfView(map) : unit.getFieldOfView();
+
+			int attackRange = Unit.getAttackRange(unit.getType());
+			int unitX = unitLocation.getX(), unitY = unitLocation.getY(), mapWidth = map.getMapWidth();
+			boolean specialAvailable = unit.getSpecialAttackCooldown() <= 0;
+
+			// Go through the visible positions in the field-of-view
+			for (int position = fov.nextPosition(0); position >= 0; position = fov.nextPosition(position + 1)) {
+				if (map.getDistance(unitX, unitY, position % mapWidth, position / mapWidth) > attackRange)
+					continue;
+				if (specialAvailable) {
+					// A Soldier's special can't target Walls
+					if (unit instanceof Soldier && map.getFeatureAtLocation(map.toLocation(position)) instanceof Wall)
+						continue;
+					orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK_SPECIAL, position));
+				}
+				orders.add(PackedOrder.unitOrder(unitID, UnitOrderType.ATTACK, position));
+			}
 		}
 
-		return null;
+		return orders.size - size;
+	}
+
+	/**
+	 * Fills a collection with the positions that contain something worth attacking for a unit, in ascending order. For
+	 * a regular attack and a Soldier's special attack, these are the positions of enemy units and of structures that
+	 * are not controlled by the unit's player. For a Medic's special attack, these are the positions of damaged allied
+	 * units. An Infected's special attack can't be ordered, so it has no targets. Only positions within the unit's
+	 * attack range and the field-of-view are included.
+	 * 
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param unit
+	 *            The {@link Unit} that attacks.
+	 * @param fov
+	 *            The {@link FieldOfView} the targets should be in.
+	 * @param special
+	 *            Whether to find the targets for the unit's special attack, or for its regular attack.
+	 * @param positions
+	 *            The collection to fill, which is cleared first.
+	 */
+	private static void collectTargetPositions(HunterKillerState state, Unit unit, FieldOfView fov, boolean special, IntArray positions) {
+		positions.clear();
+		if (special && unit instanceof Infected)
+			return;
+
+		Map map = state.getMap();
+		UnitTable table = map.getUnitTable();
+		int playerID = unit.getControllingPlayerID();
+		int unitPosition = map.toPosition(unit.getLocation());
+		int attackRange = Unit.getAttackRange(unit.getType());
+		boolean heal = special && unit instanceof Medic;
+
+		// Find the units in range through the spatial index
+		IntArray unitIDs = UNIT_IDS.get();
+		unitIDs.clear();
+		table.collectUnits(map, unitPosition, attackRange, playerID, heal, unitIDs);
+		for (int i = 0; i < unitIDs.size; i++) {
+			int position = table.getPosition(unitIDs.get(i));
+			if (!fov.contains(position))
+				continue;
+			if (heal && !map.getObject(unitIDs.get(i))
+							.isDamaged())
+				continue;
+			positions.add(position);
+		}
+
+		// Medics can't heal structures, but anything else can attack the ones that aren't ours
+		if (!heal) {
+			IntArray structureIDs = map.getRegistry()
+										.getStructureIDs();
+			int mapWidth = map.getMapWidth(), unitX = unitPosition % mapWidth, unitY = unitPosition / mapWidth;
+			for (int i = 0; i < structureIDs.size; i++) {
+				Structure structure = (Structure) map.getObject(structureIDs.get(i));
+				if (structure.getControllingPlayerID() == playerID || !map.isOnMap(structure.getLocation()))
+					continue;
+				int position = map.toPosition(structure.getLocation());
+				if (map.getDistance(unitX, unitY, position % mapWidth, position / mapWidth) <= attackRange && fov.contains(position))
+					positions.add(position);
+			}
+		}
+
+		// The spatial index doesn't return units in any particular order
+		positions.sort();
+		int kept = 0;
+		for (int i = 0; i < positions.size; i++) {
+			if (kept == 0 || positions.get(kept - 1) != positions.get(i))
+				positions.set(kept++, positions.get(i));
+		}
+		positions.size = kept;
+	}
+
+	/**
+	 * Returns a shuffled array of values. The array is reset to the order of the values before shuffling, so the
+	 * outcome only depends on the random number generator of the state (see {@link HunterKillerState#getRandom()}).
+	 * 
+	 * @param local
+	 *            The array to shuffle, for the current thread.
+	 * @param values
+	 *            The values that the array should contain.
+	 * @param state
+	 *            The current {@link HunterKillerState} of the game.
+	 */
+	private static <T> Array<T> shuffle(ThreadLocal<Array<T>> local, T[] values, HunterKillerState state) {
+		Array<T> array = local.get();
+		array.clear();
+		array.addAll(values);
+		state.getRandom()
+				.shuffle(array);
+		return array;
 	}
 
 }
@@ -0,0 +1,174 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import lombok.Getter;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Index of the IDs of the objects on a {@link Map} that can change during a game, split up by type. Most of the objects
+ * on a map are static terrain (see {@link Map#isStaticTerrain(GameObject)}), so going through these collections is a
+ * lot cheaper than going through all objects on the map. The map keeps this index up to date when objects are
+ * registered or unregistered.
+ *
+ * Each collection is sorted by ID, so going through it visits the objects in the same order as going through the map's
+ * collection of objects.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@Getter
+public class ObjectRegistry {
+
+	// region Properties
+
+	/**
+	 * The IDs of all objects that are not static terrain.
+	 */
+	private IntArray dynamicIDs = new IntArray();
+
+	/**
+	 * The IDs of all {@link Unit}s.
+	 */
+	private IntArray unitIDs = new IntArray();
+
+	/**
+	 * The IDs of all {@link Structure}s.
+	 */
+	private IntArray structureIDs = new IntArray();
+
+	/**
+	 * The IDs of all {@link Door}s.
+	 */
+	private IntArray doorIDs = new IntArray();
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Adds an object to the index.
+	 *
+	 * @param object
+	 *            The object, which needs to have been assigned its ID.
+	 */
+	public void add(GameObject object) {
+		if (Map.isStaticTerrain(object))
+			return;
+		int id = object.getID();
+		insert(dynamicIDs, id);
+		if (object instanceof Unit)
+			insert(unitIDs, id);
+		else if (object instanceof Structure)
+			insert(structureIDs, id);
+		else if (object instanceof Door)
+			insert(doorIDs, id);
+	}
+
+	/**
+	 * Removes an object from the index.
+	 *
+	 * @param object
+	 *            The object.
+	 */
+	public void remove(GameObject object) {
+		if (Map.isStaticTerrain(object))
+			return;
+		int id = object.getID();
+		remove(dynamicIDs, id);
+		if (object instanceof Unit)
+			remove(unitIDs, id);
+		else if (object instanceof Structure)
+			remove(structureIDs, id);
+		else if (object instanceof Door)
+			remove(doorIDs, id);
+	}
+
+	/**
+	 * Rebuilds the index from a collection of objects.
+	 *
+	 * @param objects
+	 *            The collection of objects, indexed by ID.
+	 */
+	public void rebuild(Array<GameObject> objects) {
+		dynamicIDs.clear();
+		unitIDs.clear();
+		structureIDs.clear();
+		doorIDs.clear();
+		// Going through the objects by ID means we can simply append
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object == null || Map.isStaticTerrain(object))
+				continue;
+			dynamicIDs.add(i);
+			if (object instanceof Unit)
+				unitIDs.add(i);
+			else if (object instanceof Structure)
+				structureIDs.add(i);
+			else if (object instanceof Door)
+				doorIDs.add(i);
+		}
+	}
+
+	/**
+	 * Returns a copy of this index.
+	 */
+	public ObjectRegistry copy() {
+		ObjectRegistry copy = new ObjectRegistry();
+		copy.dynamicIDs.addAll(dynamicIDs);
+		copy.unitIDs.addAll(unitIDs);
+		copy.structureIDs.addAll(structureIDs);
+		copy.doorIDs.addAll(doorIDs);
+		return copy;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Inserts an ID into a sorted collection, if it is not already in there.
+	 */
+	private static void insert(IntArray ids, int id) {
+		// IDs are usually handed out in increasing order, so check the end first
+		if (ids.size == 0 || ids.peek() < id) {
+			ids.add(id);
+			return;
+		}
+		int index = search(ids, id);
+		if (index < ids.size && ids.get(index) == id)
+			return;
+		ids.insert(index, id);
+	}
+
+	/**
+	 * Removes an ID from a sorted collection, if it is in there.
+	 */
+	private static void remove(IntArray ids, int id) {
+		int index = search(ids, id);
+		if (index < ids.size && ids.get(index) == id)
+			ids.removeIndex(index);
+	}
+
+	/**
+	 * Returns the index of the first ID in a sorted collection that is not smaller than an ID.
+	 */
+	private static int search(IntArray ids, int id) {
+		int low = 0, high = ids.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (ids.get(middle) < id)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,348 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Arrays;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.MapFeature;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * A* search over the positions of a {@link Map} (see {@link Map#toPosition(int, int)}). An instance reuses its open
+ * list and node data across searches, on any map that has no more positions than it can hold. Instead of clearing the
+ * node data before each search, every search uses a new generation number, and node data is only considered valid if
+ * it was stamped with the current generation. The work done by a search therefore depends on the number of nodes it
+ * visits, not on the size of the map.
+ *
+ * Each thread has a single instance, which grows to the largest map it has been used on (see
+ * {@link PathFinder#get(Map)}). Copies of a map therefore don't allocate anything to search for paths.
+ *
+ * The open list is a binary heap of positions that orders nodes in the same way as the
+ * {@link com.badlogic.gdx.utils.BinaryHeap BinaryHeap} used previously, so searches return the same paths.
+ *
+ * Uses temporary variables, NOT MULTITHREADABLE.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class PathFinder {
+
+	// region Constants
+
+	/**
+	 * The path finder of each thread.
+	 */
+	private static ThreadLocal<PathFinder> PATH_FINDERS = new ThreadLocal<PathFinder>() {
+		@Override
+		protected PathFinder initialValue() {
+			return new PathFinder(0);
+		}
+	};
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The width of the map of the current search.
+	 */
+	private int mapWidth;
+
+	/**
+	 * The height of the map of the current search.
+	 */
+	private int mapHeight;
+
+	/**
+	 * The generation of the current search.
+	 */
+	private int generation = 0;
+
+	/**
+	 * The generation in which a node was created for a position.
+	 */
+	private int[] created;
+
+	/**
+	 * The generation in which a node was closed for a position.
+	 */
+	private int[] closed;
+
+	/**
+	 * The position of the parent of the node for a position.
+	 */
+	private int[] parents;
+
+	/**
+	 * The cost of the path to a position.
+	 */
+	private int[] pathCosts;
+
+	/**
+	 * The score of a position, which is the cost of the path to it plus the estimated distance to the target.
+	 */
+	private int[] scores;
+
+	/**
+	 * The open list, a binary heap of positions ordered by their score.
+	 */
+	private int[] heap;
+
+	/**
+	 * The index in the heap of each position that is in it.
+	 */
+	private int[] heapIndices;
+
+	/**
+	 * The number of positions in the heap.
+	 */
+	private int heapSize;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a path finder for maps with up to a number of positions.
+	 *
+	 * @param capacity
+	 *            The number of positions.
+	 */
+	public PathFinder(int capacity) {
+		created = new int[capacity];
+		closed = new int[capacity];
+		parents = new int[capacity];
+		pathCosts = new int[capacity];
+		scores = new int[capacity];
+		heap = new int[capacity];
+		heapIndices = new int[capacity];
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the path finder of the current thread, making sure that it can be used on a map.
+	 *
+	 * @param map
+	 *            The {@link Map} that will be searched.
+	 */
+	public static PathFinder get(Map map) {
+		PathFinder pathFinder = PATH_FINDERS.get();
+		int positions = map.getMapWidth() * map.getMapHeight();
+		if (pathFinder.created.length < positions) {
+			pathFinder = new PathFinder(positions);
+			PATH_FINDERS.set(pathFinder);
+		}
+		return pathFinder;
+	}
+
+	/**
+	 * Returns the length of the path from one position to another, or -1 if there is no such path. See
+	 * {@link PathFinder#findPath(Map, int, int, IntArray)}.
+	 *
+	 * @param map
+	 *            The {@link Map} to search on.
+	 * @param from
+	 *            The position that is the starting point for the search.
+	 * @param to
+	 *            The position that is the target of the search.
+	 */
+	public int getPathLength(Map map, int from, int to) {
+		return search(map, from, to) ? pathCosts[to] : -1;
+	}
+
+	/**
+	 * Finds a path from one position to another. A path can only go through locations that are traversable (see
+	 * {@link Map#isTraversable(MapLocation)}), which means that no path will be found to a location that is occupied
+	 * by a unit.
+	 *
+	 * @param map
+	 *            The {@link Map} to search on.
+	 * @param from
+	 *            The position that is the starting point for the search.
+	 * @param to
+	 *            The position that is the target of the search.
+	 * @param path
+	 *            Collection that the positions on the path are written to, in order. The starting position is not
+	 *            included. This collection is cleared first.
+	 * @return The length of the path, or -1 if there is no path.
+	 */
+	public int findPath(Map map, int from, int to, IntArray path) {
+		path.clear();
+		if (!search(map, from, to))
+			return -1;
+
+		int length = pathCosts[to];
+		path.setSize(length);
+		// Go back from the target to the root, filling in the path from the end
+		for (int position = to, i = length - 1; i >= 0; position = parents[position], i--) {
+			path.set(i, position);
+		}
+		return length;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Runs the A* search between two positions.
+	 *
+	 * @return Whether or not the target was reached.
+	 */
+	private boolean search(Map map, int from, int to) {
+		mapWidth = map.getMapWidth();
+		mapHeight = map.getMapHeight();
+		if (mapWidth * mapHeight > created.length)
+			throw new HunterKillerException(StringExtensions.format("PathFinder for %d positions can't be used on a map of %dx%d.",
+																	created.length,
+																	mapWidth,
+																	mapHeight));
+		startGeneration();
+		GameObject[][] content = map.getMapContent();
+		int targetX = to % mapWidth, targetY = to / mapWidth;
+
+		// Start the search at the root node
+		created[from] = generation;
+		parents[from] = -1;
+		pathCosts[from] = 0;
+		push(from, 0);
+
+		while (heapSize > 0) {
+			int position = pop();
+			if (position == to)
+				return true;
+			closed[position] = generation;
+
+			int x = position % mapWidth, y = position / mapWidth;
+			// Expand in the same order as Direction.values(): north, east, south, west
+			if (y > 0)
+				expand(content, position, position - mapWidth, targetX, targetY);
+			if (x < mapWidth - 1)
+				expand(content, position, position + 1, targetX, targetY);
+			if (y < mapHeight - 1)
+				expand(content, position, position + mapWidth, targetX, targetY);
+			if (x > 0)
+				expand(content, position, position - 1, targetX, targetY);
+		}
+		return false;
+	}
+
+	/**
+	 * Adds or updates the node for a position that is reached from its parent.
+	 */
+	private void expand(GameObject[][] content, int parent, int position, int targetX, int targetY) {
+		// Check if the position is traversable, note that this causes searches that have a target that cannot be
+		// traversed to not yield a solution.
+		GameObject[] objects = content[position];
+		if (objects[HunterKillerConstants.MAP_INTERNAL_UNIT_INDEX] != null
+			|| !((MapFeature) objects[HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX]).isWalkable())
+			return;
+
+		int pathCost = pathCosts[parent] + 1;
+		int score = pathCost + Math.abs(targetX - position % mapWidth) + Math.abs(targetY - position / mapWidth);
+
+		// Check if this position has already had a node created
+		if (created[position] == generation) {
+			// Check if that node isn't closed and the new cost is lower
+			if (closed[position] != generation && pathCost < pathCosts[position]) {
+				parents[position] = parent;
+				pathCosts[position] = pathCost;
+				int oldScore = scores[position];
+				scores[position] = score;
+				if (score < oldScore)
+					up(heapIndices[position]);
+				else
+					down(heapIndices[position]);
+			}
+		} else {
+			created[position] = generation;
+			parents[position] = parent;
+			pathCosts[position] = pathCost;
+			push(position, score);
+		}
+	}
+
+	/**
+	 * Starts a new generation, which invalidates the node data of all previous searches.
+	 */
+	private void startGeneration() {
+		heapSize = 0;
+		if (generation == Integer.MAX_VALUE) {
+			// Once the generations run out, start over with clean node data
+			Arrays.fill(created, 0);
+			Arrays.fill(closed, 0);
+			generation = 0;
+		}
+		generation++;
+	}
+
+	private void push(int position, int score) {
+		scores[position] = score;
+		heap[heapSize] = position;
+		heapIndices[position] = heapSize;
+		up(heapSize++);
+	}
+
+	private int pop() {
+		int popped = heap[0];
+		heap[0] = heap[--heapSize];
+		if (heapSize > 0)
+			down(0);
+		return popped;
+	}
+
+	private void up(int index) {
+		int position = heap[index];
+		int score = scores[position];
+		while (index > 0) {
+			int parentIndex = (index - 1) >> 1;
+			int parent = heap[parentIndex];
+			if (score >= scores[parent])
+				break;
+			heap[index] = parent;
+			heapIndices[parent] = index;
+			index = parentIndex;
+		}
+		heap[index] = position;
+		heapIndices[position] = index;
+	}
+
+	private void down(int index) {
+		int position = heap[index];
+		int score = scores[position];
+		while (true) {
+			int leftIndex = 1 + (index << 1);
+			if (leftIndex >= heapSize)
+				break;
+			int rightIndex = leftIndex + 1;
+			int left = heap[leftIndex];
+			int leftScore = scores[left];
+			int right = rightIndex < heapSize ? heap[rightIndex] : -1;
+			int rightScore = right >= 0 ? scores[right] : Integer.MAX_VALUE;
+			// Move the smaller child up, ties go to the right child
+			int child, childIndex, childScore;
+			if (leftScore < rightScore) {
+				child = left;
+				childIndex = leftIndex;
+				childScore = leftScore;
+			} else {
+				child = right;
+				childIndex = rightIndex;
+				childScore = rightScore;
+			}
+			if (childScore >= score)
+				break;
+			heap[index] = child;
+			heapIndices[child] = index;
+			index = childIndex;
+		}
+		heap[index] = position;
+		heapIndices[position] = index;
+	}
+
+	// endregion
+
+}
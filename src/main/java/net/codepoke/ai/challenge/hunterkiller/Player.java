@@ -1,7 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 import lombok.Getter;
@@ -119,7 +118,17 @@ public class Player
 	 * Returns a deep copy of this player.
 	 */
 	public Player copy() {
-		Player newPlayer = new Player(this.getID(), this.getName(), this.getMapSection());
+		return copy(this.name);
+	}
+
+	/**
+	 * Returns a deep copy of this player, under a different name.
+	 * 
+	 * @param name
+	 *            The name of the copy.
+	 */
+	public Player copy(String name) {
+		Player newPlayer = new Player(this.getID(), name, this.getMapSection());
 
 		// Copy the command center's ID
 		newPlayer.commandCenterID = this.commandCenterID;
@@ -142,12 +151,12 @@ public class Player
 	 * @param map
 	 *            The {@link Map} to get the field-of-view from.
 	 */
-	public HashSet<MapLocation> getCombinedFieldOfView(Map map) {
-		HashSet<MapLocation> fieldOfViewSet = new HashSet<MapLocation>();
+	public FieldOfView getCombinedFieldOfView(Map map) {
+		FieldOfView fieldOfViewSet = new FieldOfView(map.getMapWidth(), map.getMapHeight());
 		// Start with the Structure field of view
 		for (int i = 0; i < structureIDs.size; i++) {
 			Structure struct = (Structure) map.getObject(structureIDs.get(i));
-			fieldOfViewSet.addAll(map.getFieldOfView(struct));
+			map.addFieldOfView(struct, fieldOfViewSet);
 		}
 		// Go through our units
 		for (int i = 0; i < unitIDs.size; i++) {
@@ -327,7 +336,7 @@ public class Player
 
 	// endregion
 
-	// region Private methods
+	// region Protected methods
 
 	/**
 	 * Set this player's score
@@ -335,10 +344,21 @@ public class Player
 	 * @param score
 	 *            The score to set.
 	 */
-	private void setScore(int score) {
+	protected void setScore(int score) {
 		this.score = score;
 	}
 
+	/**
+	 * Set the ID of this player's command center, without checking if that structure exists. Used when restoring a
+	 * player, see {@link BinaryCodec}.
+	 * 
+	 * @param commandCenterID
+	 *            The ID to set.
+	 */
+	protected void setCommandCenterID(int commandCenterID) {
+		this.commandCenterID = commandCenterID;
+	}
+
 	// endregion
 
 }
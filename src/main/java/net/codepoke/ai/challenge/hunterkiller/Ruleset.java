@@ -0,0 +1,82 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The rules of a single game that can differ between games. These are the amount of resources that players start with
+ * and the amount that their bases generate, which are the only rules a {@link MapSetup} defines (see
+ * {@link Ruleset#Ruleset(MapSetup)}). All other rules, such as the statistics of the units (see
+ * {@link net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.UnitStats UnitStats}) and the length of a game, are
+ * the same for every game and are found in {@link HunterKillerConstants}. The ruleset is held by the
+ * {@link HunterKillerState}, which means that games with different economies can be played at the same time.
+ *
+ * A ruleset can't be changed once it has been created, so it can safely be shared between copies of a state.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class Ruleset {
+
+	// region Constants
+
+	/**
+	 * The ruleset that only uses the values in {@link HunterKillerConstants}.
+	 */
+	public static final Ruleset DEFAULT = new Ruleset();
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The amount of resources players start the game with.
+	 */
+	private int startingResources;
+
+	/**
+	 * The amount of resources the players' bases generate each time.
+	 */
+	private int baseResourceGeneration;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a ruleset that only uses the values in {@link HunterKillerConstants}.
+	 */
+	public Ruleset() {
+		this(HunterKillerConstants.PLAYER_STARTING_RESOURCE, HunterKillerConstants.BASE_RESOURCE_GENERATION);
+	}
+
+	/**
+	 * Constructs a ruleset for a game that is created from a {@link MapSetup}.
+	 *
+	 * @param setup
+	 *            The setup the game is created from.
+	 */
+	public Ruleset(MapSetup setup) {
+		this(setup.startingResources, setup.baseResourceGeneration);
+	}
+
+	/**
+	 * Constructs a ruleset with specific economic values.
+	 *
+	 * @param startingResources
+	 *            The amount of resources players start the game with.
+	 * @param baseResourceGeneration
+	 *            The amount of resources the players' bases generate each time.
+	 */
+	public Ruleset(int startingResources, int baseResourceGeneration) {
+		this.startingResources = startingResources;
+		this.baseResourceGeneration = baseResourceGeneration;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,144 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.nio.ByteBuffer;
+
+import lombok.Getter;
+
+/**
+ * Stream of the states of a game, where most records only contain the changes since the previous record. Sending a
+ * complete state every turn is wasteful, since a turn usually only changes a few units and player values. Instead, the
+ * writing side of a stream writes a complete state (a keyframe) every {@link StateDeltaStream#getKeyframeInterval()}
+ * records, and a delta (see {@link BinaryCodec#writeDelta(HunterKillerState, HunterKillerState, ByteBuffer)}) for all
+ * records in between. The reading side of a stream keeps the state up to date by applying each delta to it.
+ *
+ * A stream is used for either writing or reading, both sides keep track of the state the reading side has. Use
+ * {@link StateDeltaStream#reset()} to make sure the next record is a keyframe, for example when a new client connects.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class StateDeltaStream {
+
+	// region Constants
+
+	/**
+	 * The default number of records between keyframes.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 20;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The codec used to write and read the records.
+	 */
+	@Getter
+	private BinaryCodec codec;
+
+	/**
+	 * The number of records between keyframes, a value of 1 means every record is a keyframe.
+	 */
+	@Getter
+	private int keyframeInterval;
+
+	/**
+	 * The state the reading side has after the last record, or null if there has not been a keyframe yet.
+	 */
+	@Getter
+	private HunterKillerState state;
+
+	/**
+	 * The number of records since the last keyframe, including the keyframe itself.
+	 */
+	private int recordsSinceKeyframe;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a stream with the default interval between keyframes.
+	 *
+	 * {@link StateDeltaStream#StateDeltaStream(BinaryCodec, int)}
+	 */
+	public StateDeltaStream(BinaryCodec codec) {
+		this(codec, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Constructs a stream.
+	 *
+	 * @param codec
+	 *            The {@link BinaryCodec} for the map that the game is played on.
+	 * @param keyframeInterval
+	 *            The number of records between keyframes.
+	 */
+	public StateDeltaStream(BinaryCodec codec, int keyframeInterval) {
+		if (keyframeInterval < 1)
+			throw new HunterKillerException("The interval between keyframes needs to be at least 1, was " + keyframeInterval);
+		this.codec = codec;
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Writes the next record of the stream for a state. This is a keyframe if the interval between keyframes has
+	 * passed, or if there has not been one yet.
+	 *
+	 * @param current
+	 *            The current {@link HunterKillerState} of the game.
+	 * @param buffer
+	 *            The buffer to write to.
+	 * @return Whether or not a keyframe was written.
+	 */
+	public boolean write(HunterKillerState current, ByteBuffer buffer) {
+		int start = buffer.position();
+		boolean keyframe = state == null || recordsSinceKeyframe >= keyframeInterval;
+		if (keyframe)
+			codec.write(current, buffer);
+		else
+			codec.writeDelta(state, current, buffer);
+
+		// Keep track of what the reading side will have, by reading back what we just wrote
+		ByteBuffer record = buffer.duplicate();
+		record.limit(record.position());
+		record.position(start);
+		read(record);
+		return keyframe;
+	}
+
+	/**
+	 * Reads the next record of the stream. A keyframe replaces the current state, a delta is applied to it.
+	 *
+	 * @param buffer
+	 *            The buffer to read from.
+	 * @return The state after reading the record. Note that for a delta, this is the same instance as before.
+	 */
+	public HunterKillerState read(ByteBuffer buffer) {
+		if (BinaryCodec.isDelta(buffer)) {
+			if (state == null)
+				throw new HunterKillerException("Cannot apply a delta before the first keyframe of the stream");
+			codec.applyDelta(state, buffer);
+			recordsSinceKeyframe++;
+		} else {
+			state = codec.readState(buffer);
+			recordsSinceKeyframe = 1;
+		}
+		return state;
+	}
+
+	/**
+	 * Forgets the current state, so that the next record that is written is a keyframe.
+	 */
+	public void reset() {
+		state = null;
+		recordsSinceKeyframe = 0;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,154 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Schedule of the objects on a {@link Map} that have a running timer: {@link Door}s that are open, and {@link Unit}s
+ * whose special attack is on cooldown. At the start of each round only these objects have their timers reduced (see
+ * {@link Map#timer()}), closed doors and units that are ready to use their special attack are not visited at all. An
+ * object is dropped from the schedule once its timer has run out, and is added again when its timer is started (see
+ * {@link Map#updateTimer(GameObject)}).
+ *
+ * The schedule is a flat collection rather than a timer wheel that buckets objects by the round their timer expires.
+ * The remaining open-time of a door and cooldown of a unit are part of the state: they are exposed to the rules and
+ * players, and are included in the hash of the map. Every running timer therefore has to be reduced each round, which
+ * means all scheduled objects are visited anyway, and that same pass finds the timers that have run out. Adding and
+ * removing an object does not go through the collection, the position of each object is kept by its ID.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class TimerSchedule {
+
+	// region Properties
+
+	/**
+	 * The IDs of the objects that have a running timer.
+	 */
+	private IntArray scheduledIDs = new IntArray();
+
+	/**
+	 * The position of each scheduled object in {@link TimerSchedule#scheduledIDs}, by its ID.
+	 */
+	private IntIntMap positions = new IntIntMap();
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Adds an object to the schedule if it has a running timer and is not scheduled yet.
+	 *
+	 * @param object
+	 *            The object.
+	 */
+	public void update(GameObject object) {
+		if (hasRunningTimer(object) && !positions.containsKey(object.getID())) {
+			positions.put(object.getID(), scheduledIDs.size);
+			scheduledIDs.add(object.getID());
+		}
+	}
+
+	/**
+	 * Removes an object from the schedule.
+	 *
+	 * @param object
+	 *            The object.
+	 */
+	public void remove(GameObject object) {
+		int position = positions.remove(object.getID(), -1);
+		if (position < 0)
+			return;
+		// Move the last object into the position that was freed up
+		int lastID = scheduledIDs.pop();
+		if (position < scheduledIDs.size) {
+			scheduledIDs.set(position, lastID);
+			positions.put(lastID, position);
+		}
+	}
+
+	/**
+	 * Reduces the timers of all scheduled objects by one round, and drops the objects whose timers have run out.
+	 *
+	 * @param map
+	 *            The {@link Map} the scheduled objects are on.
+	 */
+	public void process(Map map) {
+		int kept = 0;
+		for (int i = 0; i < scheduledIDs.size; i++) {
+			int id = scheduledIDs.get(i);
+			GameObject object = map.getObject(id);
+			if (object instanceof Door) {
+				Door door = (Door) object;
+				if (door.isOpen())
+					door.reduceTimer(map);
+			} else if (object instanceof Unit) {
+				((Unit) object).reduceCooldown();
+			}
+			// Note that a door that could not close because a unit is standing in it remains scheduled
+			if (hasRunningTimer(object)) {
+				positions.put(id, kept);
+				scheduledIDs.set(kept++, id);
+			} else {
+				positions.remove(id, -1);
+			}
+		}
+		scheduledIDs.size = kept;
+	}
+
+	/**
+	 * Rebuilds the schedule from the objects on a map.
+	 *
+	 * @param map
+	 *            The {@link Map} to rebuild the schedule for.
+	 */
+	public void rebuild(Map map) {
+		scheduledIDs.clear();
+		positions.clear();
+		IntArray dynamicIDs = map.getRegistry()
+									.getDynamicIDs();
+		for (int i = 0; i < dynamicIDs.size; i++) {
+			update(map.getObject(dynamicIDs.get(i)));
+		}
+	}
+
+	/**
+	 * Returns a copy of this schedule.
+	 */
+	public TimerSchedule copy() {
+		TimerSchedule copy = new TimerSchedule();
+		copy.scheduledIDs.addAll(scheduledIDs);
+		copy.positions.putAll(positions);
+		return copy;
+	}
+
+	/**
+	 * Returns the number of objects that have a running timer.
+	 */
+	public int size() {
+		return scheduledIDs.size;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Whether or not an object has a timer that still needs to be reduced.
+	 */
+	private static boolean hasRunningTimer(GameObject object) {
+		if (object instanceof Door)
+			return ((Door) object).isOpen();
+		if (object instanceof Unit)
+			return ((Unit) object).getSpecialAttackCooldown() > 0;
+		return false;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,161 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Arrays;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Spatial index of the {@link Unit}s on a {@link Map}, per player. The map is divided into square buckets of
+ * {@link UnitGrid#BUCKET_SIZE} by {@link UnitGrid#BUCKET_SIZE} locations, and each bucket holds the IDs of the units of
+ * each player that are on it. Finding the units near a location then only requires going through a few buckets,
+ * instead of all units on the map. This index is kept up to date by the {@link UnitTable} of the map, see
+ * {@link UnitTable#collectUnits(Map, int, int, int, boolean, IntArray)} for querying it.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class UnitGrid {
+
+	// region Constants
+
+	/**
+	 * The number of bits to shift a coordinate by to get the coordinate of its bucket.
+	 */
+	private static final int BUCKET_SHIFT = 2;
+
+	/**
+	 * The width and height of a bucket, in locations.
+	 */
+	public static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The width of the map this grid is for, or 0 if it has not been set yet.
+	 */
+	private int mapWidth;
+
+	/**
+	 * The number of buckets in a row and in a column of the grid.
+	 */
+	private int columns, rows;
+
+	/**
+	 * The IDs of the units in each bucket, indexed by player ID times the number of buckets plus the index of the
+	 * bucket. A bucket is only created when a unit is added to it.
+	 */
+	private IntArray[] buckets = new IntArray[0];
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Sets the size of the map this grid is for, if it has not been set yet.
+	 *
+	 * @param map
+	 *            The {@link Map}.
+	 */
+	public void setDimensions(Map map) {
+		if (mapWidth > 0)
+			return;
+		mapWidth = map.getMapWidth();
+		columns = ((mapWidth - 1) >> BUCKET_SHIFT) + 1;
+		rows = ((map.getMapHeight() - 1) >> BUCKET_SHIFT) + 1;
+	}
+
+	/**
+	 * Adds a unit to the bucket of a position.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 * @param position
+	 *            The position of the unit.
+	 * @param playerID
+	 *            The ID of the player controlling the unit.
+	 */
+	public void add(int unitID, int position, int playerID) {
+		// Make room for the buckets of the player, if this is its first unit
+		int requiredLength = (playerID + 1) * columns * rows;
+		if (buckets.length < requiredLength)
+			buckets = Arrays.copyOf(buckets, requiredLength);
+		int index = getIndex(position, playerID);
+		if (buckets[index] == null)
+			buckets[index] = new IntArray(BUCKET_SIZE);
+		buckets[index].add(unitID);
+	}
+
+	/**
+	 * Removes a unit from the bucket of a position.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 * @param position
+	 *            The position the unit was added for.
+	 * @param playerID
+	 *            The ID of the player the unit was added for.
+	 */
+	public void remove(int unitID, int position, int playerID) {
+		int index = getIndex(position, playerID);
+		if (index < buckets.length && buckets[index] != null)
+			buckets[index].removeValue(unitID);
+	}
+
+	/**
+	 * Adds the IDs of a player's units that are in the buckets around a position to a collection. This includes all
+	 * units within a distance of the position, but can also include units that are further away.
+	 *
+	 * @param position
+	 *            The position to look around.
+	 * @param distance
+	 *            The distance to look in each direction.
+	 * @param playerID
+	 *            The ID of the player.
+	 * @param unitIDs
+	 *            The collection to add the IDs to.
+	 */
+	public void collectCandidates(int position, int distance, int playerID, IntArray unitIDs) {
+		int bucketCount = columns * rows;
+		if (mapWidth == 0 || playerID < 0 || (playerID + 1) * bucketCount > buckets.length)
+			return;
+		int x = position % mapWidth, y = position / mapWidth;
+		int minColumn = Math.max(0, (x - distance) >> BUCKET_SHIFT), maxColumn = Math.min(columns - 1, (x + distance) >> BUCKET_SHIFT);
+		int minRow = Math.max(0, (y - distance) >> BUCKET_SHIFT), maxRow = Math.min(rows - 1, (y + distance) >> BUCKET_SHIFT);
+		int offset = playerID * bucketCount;
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				IntArray bucket = buckets[offset + row * columns + column];
+				if (bucket != null)
+					unitIDs.addAll(bucket);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of players this grid has buckets for.
+	 */
+	public int getPlayerCount() {
+		int bucketCount = columns * rows;
+		return bucketCount > 0 ? buckets.length / bucketCount : 0;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Returns the index of the bucket of a player that contains a position.
+	 */
+	private int getIndex(int position, int playerID) {
+		int column = (position % mapWidth) >> BUCKET_SHIFT;
+		int row = (position / mapWidth) >> BUCKET_SHIFT;
+		return playerID * columns * rows + row * columns + column;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,340 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import java.util.Arrays;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Compact representation of the {@link Unit}s that are placed on a {@link Map}. The position and owner of the units are
+ * kept in parallel arrays of primitives. Each unit has a row in these arrays, and the rows are kept together at the
+ * start of the arrays, so their length only depends on the number of units and not on the number of objects on the
+ * map. Going through units in this form touches a few arrays instead of a unit object each, and copying it only takes a
+ * few {@link System#arraycopy(Object, int, Object, int, int)} calls of the size of the number of units.
+ *
+ * The {@link Unit} objects remain the actual state of the game, this table is kept up to date by the map whenever a
+ * unit is placed or removed (see {@link Map#updateUnitTable(Unit)}). A copy of the table shares the arrays
+ * with the original until either of them changes, so copying a map whose units are not touched costs nothing here. The
+ * table also keeps a {@link UnitGrid} of the positions of the units, which is used to find the units of a player near a
+ * position (see {@link UnitTable#collectUnits(Map, int, int, int, boolean, IntArray)}). A copy of the table only
+ * creates its grid when it is used.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class UnitTable {
+
+	// region Constants
+
+	/**
+	 * The initial number of units the table can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The row of each unit in the table, indexed by the ID of the unit.
+	 */
+	private IntIntMap rows;
+
+	/**
+	 * The number of units in the table, these occupy the first rows.
+	 */
+	private int size;
+
+	/**
+	 * The ID of each unit.
+	 */
+	private int[] ids;
+
+	/**
+	 * The position of each unit on the map.
+	 */
+	private int[] positions;
+
+	/**
+	 * The ID of the player controlling each unit.
+	 */
+	private int[] owners;
+
+	/**
+	 * Spatial index of the units in this table, or null if it has not been created yet.
+	 */
+	private UnitGrid grid;
+
+	/**
+	 * Whether or not the rows and arrays are shared with a copy of this table, or the table it was copied from. A shared
+	 * table first takes its own copy of these before it changes them.
+	 */
+	private boolean shared;
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs an empty table.
+	 */
+	public UnitTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructs a table that shares the rows and arrays of another table, see {@link UnitTable#copy()}.
+	 */
+	private UnitTable(UnitTable original) {
+		rows = original.rows;
+		size = original.size;
+		ids = original.ids;
+		positions = original.positions;
+		owners = original.owners;
+		shared = true;
+	}
+
+	private UnitTable(int capacity) {
+		rows = new IntIntMap(capacity);
+		ids = new int[capacity];
+		positions = new int[capacity];
+		owners = new int[capacity];
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Whether or not there is a unit with an ID on the map.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 */
+	public boolean contains(int unitID) {
+		return rows.containsKey(unitID);
+	}
+
+	/**
+	 * Returns the number of units in this table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the position of a unit on the map.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 */
+	public int getPosition(int unitID) {
+		return positions[getRow(unitID)];
+	}
+
+	/**
+	 * Returns the ID of the player controlling a unit.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 */
+	public int getControllingPlayerID(int unitID) {
+		return owners[getRow(unitID)];
+	}
+
+	/**
+	 * Adds the IDs of the units within a distance of a position to a collection, either of a specific player or of all
+	 * other players. The distance is determined through {@link Map#getDistance(int, int, int, int)}. Note that the IDs
+	 * are not added in any particular order.
+	 *
+	 * @param map
+	 *            The {@link Map} the units are on.
+	 * @param position
+	 *            The position to look around.
+	 * @param distance
+	 *            The maximum distance of a unit to the position.
+	 * @param playerID
+	 *            The ID of the player.
+	 * @param allies
+	 *            Whether to collect the units of the player, or the units of all other players.
+	 * @param unitIDs
+	 *            The collection to add the IDs to.
+	 */
+	public void collectUnits(Map map, int position, int distance, int playerID, boolean allies, IntArray unitIDs) {
+		UnitGrid grid = getGrid(map);
+		int start = unitIDs.size;
+		if (allies) {
+			grid.collectCandidates(position, distance, playerID, unitIDs);
+		} else {
+			for (int player = 0; player < grid.getPlayerCount(); player++) {
+				if (player != playerID)
+					grid.collectCandidates(position, distance, player, unitIDs);
+			}
+		}
+
+		// The grid also returns units in nearby buckets, so remove the ones that are too far away
+		int mapWidth = map.getMapWidth(), x = position % mapWidth, y = position / mapWidth;
+		int kept = start;
+		for (int i = start; i < unitIDs.size; i++) {
+			int unitID = unitIDs.get(i);
+			int unitPosition = getPosition(unitID);
+			if (map.getDistance(x, y, unitPosition % mapWidth, unitPosition / mapWidth) <= distance)
+				unitIDs.set(kept++, unitID);
+		}
+		unitIDs.size = kept;
+	}
+
+	/**
+	 * Sets the row of a unit to its current state, adding a row if the unit is not in the table yet.
+	 *
+	 * @param map
+	 *            The {@link Map} the unit is placed on.
+	 * @param unit
+	 *            The unit.
+	 */
+	public void update(Map map, Unit unit) {
+		int id = unit.getID();
+		if (id < 0)
+			return;
+		unshare();
+		int position = map.toPosition(unit.getLocation());
+		int owner = unit.getControllingPlayerID();
+		int row = rows.get(id, -1);
+		if (row < 0) {
+			row = size++;
+			ensureCapacity(size);
+			rows.put(id, row);
+			ids[row] = id;
+			if (grid != null)
+				grid.add(id, position, owner);
+		} else if (grid != null && (positions[row] != position || owners[row] != owner)) {
+			// Only move the unit in the grid if it actually moved
+			grid.remove(id, positions[row], owners[row]);
+			grid.add(id, position, owner);
+		}
+		positions[row] = position;
+		owners[row] = owner;
+	}
+
+	/**
+	 * Removes the row of a unit, for example because it was removed from the map. The last row takes its place, so the
+	 * rows stay together.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 */
+	public void remove(int unitID) {
+		if (!rows.containsKey(unitID))
+			return;
+		unshare();
+		int row = rows.remove(unitID, -1);
+		if (grid != null)
+			grid.remove(unitID, positions[row], owners[row]);
+		int last = --size;
+		if (row != last) {
+			ids[row] = ids[last];
+			positions[row] = positions[last];
+			owners[row] = owners[last];
+			rows.put(ids[row], row);
+		}
+	}
+
+	/**
+	 * Rebuilds this table from the units that are placed on a map.
+	 *
+	 * @param map
+	 *            The {@link Map} to rebuild the table for.
+	 */
+	public void rebuild(Map map) {
+		// The arrays are overwritten, so they can't be shared with another table either
+		unshare();
+		rows.clear();
+		size = 0;
+		grid = null;
+		IntArray unitIDs = map.getRegistry()
+								.getUnitIDs();
+		for (int i = 0; i < unitIDs.size; i++) {
+			Unit unit = (Unit) map.getObject(unitIDs.get(i));
+			if (map.isOnMap(unit.getLocation()))
+				update(map, unit);
+		}
+	}
+
+	/**
+	 * Returns a copy of this table. The copy shares the rows and arrays of this table until either of them changes.
+	 */
+	public UnitTable copy() {
+		UnitTable copy = new UnitTable(this);
+		shared = true;
+		return copy;
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Returns the row of a unit.
+	 *
+	 * @param unitID
+	 *            The ID of the unit.
+	 * @throws HunterKillerException
+	 *             If there is no unit with the ID in this table.
+	 */
+	private int getRow(int unitID) {
+		int row = rows.get(unitID, -1);
+		if (row < 0)
+			throw new HunterKillerException("No unit with ID " + unitID + " in the unit table.");
+		return row;
+	}
+
+	/**
+	 * Returns the spatial index of the units in this table, creating it from the rows if it does not exist yet.
+	 *
+	 * @param map
+	 *            The {@link Map} the units are on.
+	 */
+	private UnitGrid getGrid(Map map) {
+		if (grid == null) {
+			grid = new UnitGrid();
+			grid.setDimensions(map);
+			for (int row = 0; row < size; row++) {
+				grid.add(ids[row], positions[row], owners[row]);
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Makes sure this table has its own rows and arrays, so that changing them does not affect the tables it shares them
+	 * with.
+	 */
+	private void unshare() {
+		if (!shared)
+			return;
+		IntIntMap ownRows = new IntIntMap(Math.max(size, INITIAL_CAPACITY));
+		ownRows.putAll(rows);
+		rows = ownRows;
+		ids = Arrays.copyOf(ids, ids.length);
+		positions = Arrays.copyOf(positions, ids.length);
+		owners = Arrays.copyOf(owners, ids.length);
+		shared = false;
+	}
+
+	/**
+	 * Makes sure the table can hold a number of units.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity <= ids.length)
+			return;
+		int newCapacity = Math.max(capacity, ids.length * 2);
+		ids = Arrays.copyOf(ids, newCapacity);
+		positions = Arrays.copyOf(positions, newCapacity);
+		owners = Arrays.copyOf(owners, newCapacity);
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,196 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Index that keeps track of which {@link Unit}s can see each position on a {@link Map}. This allows the map to find the
+ * units that are affected by a change in the terrain (for example a
+ * {@link net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door Door} that opens), without going through all
+ * objects on the map.
+ *
+ * The index is built the first time it is needed, see {@link VisibilityIndex#isBuilt()}. After that, it is kept up to
+ * date by the map when units are placed or removed, and by units when their field-of-view is updated. Note that units
+ * whose field-of-view has become invalid remain in the index until their field-of-view is updated again.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class VisibilityIndex {
+
+	// region Properties
+
+	/**
+	 * The IDs of the units that can see a position, indexed by position. Contains null for positions that have never
+	 * been seen.
+	 */
+	private IntArray[] viewers;
+
+	/**
+	 * The field-of-view each unit was added to the index with, indexed by unit ID.
+	 */
+	private Array<FieldOfView> indexedViews = new Array<FieldOfView>();
+
+	/**
+	 * Whether or not this index has been built.
+	 */
+	private boolean built = false;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Whether or not this index has been built. An index that has not been built does not keep track of any changes.
+	 */
+	public boolean isBuilt() {
+		return built;
+	}
+
+	/**
+	 * (Re)builds this index from all units on a map that have a valid field-of-view.
+	 *
+	 * @param map
+	 *            The {@link Map} to build the index for.
+	 */
+	public void build(Map map) {
+		int positions = map.getMapWidth() * map.getMapHeight();
+		if (viewers == null || viewers.length != positions) {
+			viewers = new IntArray[positions];
+		} else {
+			for (int i = 0; i < viewers.length; i++) {
+				if (viewers[i] != null)
+					viewers[i].clear();
+			}
+		}
+		indexedViews.clear();
+		built = true;
+
+		Array<GameObject> objects = map.getObjects();
+		IntArray unitIDs = map.getRegistry()
+								.getUnitIDs();
+		for (int i = 0; i < unitIDs.size; i++) {
+			Unit unit = (Unit) objects.get(unitIDs.get(i));
+			if (unit.isFieldOfViewValid())
+				update(unit);
+		}
+	}
+
+	/**
+	 * Marks this index as not built. It will stop keeping track of changes until it is built again.
+	 */
+	public void reset() {
+		built = false;
+		indexedViews.clear();
+	}
+
+	/**
+	 * Updates the positions a unit can see to its current field-of-view. Only the positions that differ from the
+	 * field-of-view the unit was previously added with are changed.
+	 *
+	 * @param unit
+	 *            The {@link Unit} to update.
+	 */
+	public void update(Unit unit) {
+		if (!built)
+			return;
+
+		int id = unit.getID();
+		FieldOfView previous = getIndexedView(id);
+		FieldOfView current = unit.getFieldOfView();
+		// A unit that has never been on a map has no positions in its field-of-view
+		if (current == null || current.isEmpty())
+			current = null;
+		if (previous == current)
+			return;
+
+		// Remove the positions the unit can no longer see
+		if (previous != null) {
+			for (int position = previous.nextPosition(0); position >= 0; position = previous.nextPosition(position + 1)) {
+				if (current == null || !current.contains(position))
+					viewers[position].removeValue(id);
+			}
+		}
+		// Add the positions the unit can now see
+		if (current != null) {
+			for (int position = current.nextPosition(0); position >= 0; position = current.nextPosition(position + 1)) {
+				if (previous == null || !previous.contains(position)) {
+					if (viewers[position] == null)
+						viewers[position] = new IntArray(false, 4);
+					viewers[position].add(id);
+				}
+			}
+		}
+
+		if (indexedViews.size <= id)
+			indexedViews.setSize(id + 1);
+		indexedViews.set(id, current);
+	}
+
+	/**
+	 * Removes a unit from this index.
+	 *
+	 * @param unit
+	 *            The {@link Unit} to remove.
+	 */
+	public void remove(Unit unit) {
+		if (!built)
+			return;
+
+		int id = unit.getID();
+		FieldOfView previous = getIndexedView(id);
+		if (previous == null)
+			return;
+		for (int position = previous.nextPosition(0); position >= 0; position = previous.nextPosition(position + 1)) {
+			viewers[position].removeValue(id);
+		}
+		indexedViews.set(id, null);
+	}
+
+	/**
+	 * Invalidates the field-of-view of all units on a map that can currently see a specific position.
+	 *
+	 * @param map
+	 *            The {@link Map} the units are on.
+	 * @param position
+	 *            The position.
+	 */
+	public void invalidateFieldOfViewFor(Map map, int position) {
+		if (!built)
+			build(map);
+
+		IntArray ids = viewers[position];
+		if (ids == null)
+			return;
+		for (int i = 0; i < ids.size; i++) {
+			GameObject object = map.getObject(ids.get(i));
+			if (!(object instanceof Unit))
+				continue;
+			Unit unit = (Unit) object;
+			// Units whose field-of-view is already invalid can be skipped
+			if (unit.isFieldOfViewValid() && unit.getFieldOfView()
+													.contains(position))
+				unit.invalidateFieldOfView();
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Returns the field-of-view a unit was added to the index with, or null if it is not in the index.
+	 *
+	 * @param id
+	 *            The ID of the unit.
+	 */
+	private FieldOfView getIndexedView(int id) {
+		return id < indexedViews.size ? indexedViews.get(id) : null;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,119 @@
+package net.codepoke.ai.challenge.hunterkiller;
+
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Floor;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Space;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Wall;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+/**
+ * Provides the 64-bit keys that make up the Zobrist hash of a {@link HunterKillerState}. Instead of looking up random
+ * numbers in tables, each key is created by mixing the values it represents. This has the same properties as a table
+ * of random numbers, but has no upper bound on values such as HP or resources.
+ *
+ * The hash of a state is the XOR of the keys of all objects placed on its {@link Map}, the keys of its {@link Player}s
+ * and the key of the current turn. Because XOR is its own inverse, the hash can be updated by XOR-ing an object's key
+ * before and after it changes. See {@link Map#updateHash(GameObject)}.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class ZobristKeys {
+
+	// region Constants
+
+	/** Identifiers for the different kinds of objects, so that equal values on different kinds don't collide. */
+	private static final int KIND_FLOOR = 1, KIND_WALL = 2, KIND_SPACE = 3, KIND_DOOR = 4, KIND_STRUCTURE = 5, KIND_UNIT = 6,
+			KIND_PLAYER = 7, KIND_TURN = 8;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the key for an object that is placed on a specific position.
+	 *
+	 * @param object
+	 *            The object.
+	 * @param position
+	 *            The position the object is placed on.
+	 */
+	public static long key(GameObject object, int position) {
+		long hash = mix(position + 1);
+		hash = mix(hash ^ object.getID());
+		hash = mix(hash ^ object.getHpCurrent());
+
+		if (object instanceof Unit) {
+			Unit unit = (Unit) object;
+			hash = mix(hash ^ KIND_UNIT);
+			hash = mix(hash ^ unit.getType()
+									.ordinal());
+			hash = mix(hash ^ unit.getControllingPlayerID());
+			hash = mix(hash ^ unit.getOrientation()
+									.ordinal());
+			return mix(hash ^ unit.getSpecialAttackCooldown());
+		} else if (object instanceof Door) {
+			hash = mix(hash ^ KIND_DOOR);
+			return mix(hash ^ ((Door) object).getOpenTimer());
+		} else if (object instanceof Structure) {
+			Structure structure = (Structure) object;
+			hash = mix(hash ^ KIND_STRUCTURE);
+			hash = mix(hash ^ structure.getType()
+										.ordinal());
+			return mix(hash ^ structure.getControllingPlayerID());
+		} else if (object instanceof Wall) {
+			return mix(hash ^ KIND_WALL);
+		} else if (object instanceof Space) {
+			return mix(hash ^ KIND_SPACE);
+		} else if (object instanceof Floor) {
+			return mix(hash ^ KIND_FLOOR);
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the key for a player's resources and score.
+	 *
+	 * @param player
+	 *            The player.
+	 */
+	public static long key(Player player) {
+		long hash = mix(KIND_PLAYER);
+		hash = mix(hash ^ player.getID());
+		hash = mix(hash ^ player.getResource());
+		return mix(hash ^ player.getScore());
+	}
+
+	/**
+	 * Returns the key for a turn.
+	 *
+	 * @param currentRound
+	 *            The round number.
+	 * @param activePlayerID
+	 *            The ID of the active player.
+	 */
+	public static long key(int currentRound, int activePlayerID) {
+		long hash = mix(KIND_TURN);
+		hash = mix(hash ^ currentRound);
+		return mix(hash ^ activePlayerID);
+	}
+
+	/**
+	 * Scrambles the bits of a value, using the finalizer of the SplitMix64 generator. Small differences in the input
+	 * result in completely different outputs. Also used by {@link GameRandom#split()} to seed new generators.
+	 *
+	 * @param value
+	 *            The value to scramble.
+	 */
+	public static long mix(long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// endregion
+
+}
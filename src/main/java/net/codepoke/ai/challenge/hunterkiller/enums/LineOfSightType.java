@@ -0,0 +1,21 @@
+package net.codepoke.ai.challenge.hunterkiller.enums;
+
+/**
+ * Represents the implementations that can be used to compute fields-of-view on a
+ * {@link net.codepoke.ai.challenge.hunterkiller.Map Map}. Both implementations compute the same fields-of-view.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public enum LineOfSightType {
+	/**
+	 * The original shadowcasting implementation, see {@link net.codepoke.ai.challenge.hunterkiller.LineOfSight
+	 * LineOfSight}.
+	 */
+	SHADOWCASTING,
+	/**
+	 * Shadowcasting that uses integer arithmetic and does not allocate, see
+	 * {@link net.codepoke.ai.challenge.hunterkiller.IntegerLineOfSight IntegerLineOfSight}.
+	 */
+	INTEGER_SHADOWCASTING;
+}
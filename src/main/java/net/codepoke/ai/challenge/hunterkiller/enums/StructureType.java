@@ -21,4 +21,6 @@ public enum StructureType {
 	Outpost,
 	Stronghold,
 	Objective;
+
+	public static final StructureType[] values = values();
 }
@@ -1,11 +1,13 @@
 package net.codepoke.ai.challenge.hunterkiller.gameobjects;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.Map;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 
 /**
@@ -43,9 +45,15 @@ public abstract class GameObject {
 	/**
 	 * The amount of health points this object currently has.
 	 */
-	@Setter
 	private int hpCurrent = hpMax;
 
+	/**
+	 * The map this object is currently placed on, if any. Used to keep the hash of that map up to date when this object
+	 * changes.
+	 */
+	@Getter(AccessLevel.NONE)
+	private transient Map map;
+
 	// endregion
 
 	// region Constructor
@@ -117,6 +125,29 @@ public abstract class GameObject {
 		this.location = new MapLocation(location.getX(), location.getY());
 	}
 
+	/**
+	 * Set the map this object is placed on. Note: this method is called by the {@link Map} when placing or removing the
+	 * object and can safely be ignored.
+	 * 
+	 * @param map
+	 *            The map the object is placed on, or null if it is not on a map.
+	 */
+	public void setMap(Map map) {
+		this.map = map;
+	}
+
+	/**
+	 * Set this object's current health points.
+	 * 
+	 * @param hpCurrent
+	 *            The amount of health points.
+	 */
+	public void setHpCurrent(int hpCurrent) {
+		toggleHash();
+		this.hpCurrent = hpCurrent;
+		toggleHash();
+	}
+
 	/**
 	 * Reduce this object's health points.
 	 * 
@@ -124,7 +155,7 @@ public abstract class GameObject {
 	 *            The amount to reduce by.
 	 */
 	public void reduceHP(int amount) {
-		this.hpCurrent -= amount;
+		setHpCurrent(this.hpCurrent - amount);
 	}
 
 	/**
@@ -135,9 +166,9 @@ public abstract class GameObject {
 	 */
 	public void increaseHP(int amount) {
 		if (this.hpCurrent + amount > this.hpMax) {
-			this.hpCurrent = hpMax;
+			setHpCurrent(hpMax);
 		} else {
-			this.hpCurrent += amount;
+			setHpCurrent(this.hpCurrent + amount);
 		}
 	}
 
@@ -150,4 +181,44 @@ public abstract class GameObject {
 
 	// endregion
 
+	// region Protected methods
+
+	/**
+	 * Toggles this object's key in the hash of the map it is placed on. This should be called once before and once after
+	 * changing any value that is part of the hash, see {@link net.codepoke.ai.challenge.hunterkiller.ZobristKeys
+	 * ZobristKeys}.
+	 */
+	protected void toggleHash() {
+		if (map != null)
+			map.updateHash(this);
+	}
+
+	/**
+	 * Tells the map this object is placed on that the object's timer has changed, see
+	 * {@link Map#updateTimer(GameObject)}. This should be called after changing the value of a timer that is reduced
+	 * each round.
+	 */
+	protected void updateTimer() {
+		if (map != null)
+			map.updateTimer(this);
+	}
+
+	/**
+	 * Tells the map this object is placed on that the object is about to change, see
+	 * {@link Map#recordChange(GameObject)}. This should be called before changing a value that is not part of the hash.
+	 */
+	protected void recordChange() {
+		if (map != null)
+			map.recordChange(this);
+	}
+
+	/**
+	 * Returns the map this object is currently placed on, or null if it is not on a map.
+	 */
+	protected Map getPlacedMap() {
+		return map;
+	}
+
+	// endregion
+
 }
@@ -75,8 +75,8 @@ public class Door
 	 *            The {@link Map} this Door is on.
 	 */
 	public void open(Map map) {
-		openTimer = HunterKillerConstants.DOOR_OPEN_ROUNDS;
-		isBlockingLOS = false;
+		setOpenTimer(HunterKillerConstants.DOOR_OPEN_ROUNDS);
+		updateBlockingLOS(map);
 		// Invalidate field-of-view of nearby units
 		map.invalidateFieldOfViewFor(getLocation());
 	}
@@ -94,12 +94,11 @@ public class Door
 		Unit unit = map.getUnitAtLocation(getLocation());
 		if (unit != null) {
 			// If there is a Unit, don't close
-			openTimer = 1;
-			isBlockingLOS = false;
+			setOpenTimer(1);
 			return false;
 		} else {
-			openTimer = 0;
-			isBlockingLOS = true;
+			setOpenTimer(0);
+			updateBlockingLOS(map);
 			return true;
 		}
 	}
@@ -113,8 +112,11 @@ public class Door
 	 */
 	public void reduceTimer(Map map) {
 		// Don't reduce if already at 0
-		if (openTimer > 0)
+		if (openTimer > 0) {
+			toggleHash();
 			openTimer--;
+			toggleHash();
+		}
 		// Check if the door should be closed now
 		if (openTimer <= 0 && !isBlockingLOS) {
 			// Try to close it.
@@ -126,6 +128,21 @@ public class Door
 		}
 	}
 
+	/**
+	 * Sets the timer that indicates how many rounds this Door will remain open for. The Door is open while this timer is
+	 * larger than 0.
+	 * 
+	 * @param timeToClose
+	 *            Amount of rounds before the Door closes.
+	 */
+	public void setOpenTimer(int timeToClose) {
+		toggleHash();
+		openTimer = timeToClose;
+		isBlockingLOS = timeToClose <= 0;
+		toggleHash();
+		updateTimer();
+	}
+
 	// endregion
 
 	// region Overridden methods
@@ -144,4 +161,19 @@ public class Door
 
 	// endregion
 
+	// region Private methods
+
+	/**
+	 * Tells the map whether or not this Door currently blocks line-of-sight.
+	 * 
+	 * @param map
+	 *            The {@link Map} this Door is on.
+	 */
+	private void updateBlockingLOS(Map map) {
+		if (map.isOnMap(getLocation()))
+			map.updateBlockingLOS(map.toPosition(getLocation()));
+	}
+
+	// endregion
+
 }
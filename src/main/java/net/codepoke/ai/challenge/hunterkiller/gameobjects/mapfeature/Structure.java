@@ -8,6 +8,7 @@ import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.Player;
+import net.codepoke.ai.challenge.hunterkiller.Ruleset;
 import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
 import net.codepoke.ai.challenge.hunterkiller.enums.StructureOrderType;
 import net.codepoke.ai.challenge.hunterkiller.enums.StructureType;
@@ -99,6 +100,20 @@ public class Structure
 	 *            The type of structure to create.
 	 */
 	public Structure(MapLocation location, StructureType type) {
+		this(location, type, Ruleset.DEFAULT);
+	}
+
+	/**
+	 * Creates a structure for a game with specific rules.
+	 * 
+	 * @param location
+	 *            The location on the map where this structure will be placed.
+	 * @param type
+	 *            The type of structure to create.
+	 * @param ruleset
+	 *            The rules of the game.
+	 */
+	public Structure(MapLocation location, StructureType type, Ruleset ruleset) {
 		super(location, HunterKillerConstants.STRUCTURE_MAX_HP, HunterKillerConstants.STRUCTURE_MAX_HP,
 				HunterKillerConstants.STRUCTURE_DESTRUCTIBLE, HunterKillerConstants.STRUCTURE_BLOCKING_LOS,
 				HunterKillerConstants.STRUCTURE_WALKABLE);
@@ -109,7 +124,7 @@ public class Structure
 			isCapturable = HunterKillerConstants.BASE_CAPTURABLE;
 			setWalkable(HunterKillerConstants.BASE_WALKABLE);
 			isCommandCenter = HunterKillerConstants.BASE_IS_COMMAND_CENTER;
-			resourceGeneration = HunterKillerConstants.BASE_RESOURCE_GENERATION;
+			resourceGeneration = ruleset.getBaseResourceGeneration();
 			break;
 		case Objective:
 			setDestructible(HunterKillerConstants.OBJECTIVE_DESTRUCTIBLE);
@@ -160,6 +175,18 @@ public class Structure
 
 	// region Public methods
 
+	/**
+	 * Set the ID of the player controlling this structure.
+	 * 
+	 * @param controllingPlayerID
+	 *            The ID of the player, or {@link HunterKillerConstants#STRUCTURE_NO_CONTROL} if nobody controls it.
+	 */
+	public void setControllingPlayerID(int controllingPlayerID) {
+		toggleHash();
+		this.controllingPlayerID = controllingPlayerID;
+		toggleHash();
+	}
+
 	/**
 	 * Whether or not this structure's spawn location is traversable.
 	 * 
@@ -237,13 +264,24 @@ public class Structure
 	 *            The type of unit to spawn.
 	 */
 	public StructureOrder spawn(UnitType unitType) {
+		StructureOrderType orderType = getSpawnOrderType(unitType);
+		return orderType != null ? new StructureOrder(this, orderType) : null;
+	}
+
+	/**
+	 * Returns the type of order that spawns a type of unit.
+	 * 
+	 * @param unitType
+	 *            The type of unit to spawn.
+	 */
+	public static StructureOrderType getSpawnOrderType(UnitType unitType) {
 		switch (unitType) {
 		case Infected:
-			return new StructureOrder(this, StructureOrderType.SPAWN_INFECTED);
+			return StructureOrderType.SPAWN_INFECTED;
 		case Medic:
-			return new StructureOrder(this, StructureOrderType.SPAWN_MEDIC);
+			return StructureOrderType.SPAWN_MEDIC;
 		case Soldier:
-			return new StructureOrder(this, StructureOrderType.SPAWN_SOLDIER);
+			return StructureOrderType.SPAWN_SOLDIER;
 		default:
 			System.err.println(StringExtensions.format("WARNING: Unsupported unit type: %s", unitType));
 			return null;
@@ -304,7 +342,7 @@ public class Structure
 					}
 					// Set the new player as controller
 					Player player = state.getPlayer(unit.getControllingPlayerID());
-					controllingPlayerID = player.getID();
+					setControllingPlayerID(player.getID());
 					player.addStructure(this.getID());
 				}
 			}
@@ -1,7 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller.gameobjects.unit;
 
 import lombok.NoArgsConstructor;
-import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.TileType;
@@ -17,6 +16,15 @@ import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
 public class Infected
 		extends Unit {
 
+	// region Constants
+
+	/**
+	 * The statistics of this type of unit.
+	 */
+	private static final UnitStats STATS = UnitStats.get(UnitType.Infected);
+
+	// endregion
+
 	// region Constructor
 
 	/**
@@ -26,10 +34,8 @@ public class Infected
 	 * {@link Infected#Infected(int, MapLocation, int, int, Direction, int, int, int, int, int, int, int)}
 	 */
 	public Infected(int spawningPlayerID, MapLocation mapLocation, Direction facing) {
-		this(spawningPlayerID, mapLocation, HunterKillerConstants.INFECTED_MAX_HP, HunterKillerConstants.INFECTED_MAX_HP, facing,
-				HunterKillerConstants.INFECTED_FOV_RANGE, HunterKillerConstants.INFECTED_FOV_ANGLE,
-				HunterKillerConstants.INFECTED_ATTACK_RANGE, HunterKillerConstants.INFECTED_ATTACK_DAMAGE, 0,
-				HunterKillerConstants.INFECTED_SPAWN_COST, HunterKillerConstants.INFECTED_SCORE);
+		this(spawningPlayerID, mapLocation, STATS.getMaxHP(), STATS.getMaxHP(), facing, STATS.getFieldOfViewRange(),
+				STATS.getFieldOfViewAngle(), STATS.getAttackRange(), STATS.getAttackDamage(), 0, STATS.getSpawnCost(), STATS.getScore());
 	}
 
 	/**
@@ -86,7 +92,7 @@ public class Infected
 	 */
 	@Override
 	public void startCooldown() {
-		this.setSpecialAttackCooldown(HunterKillerConstants.INFECTED_COOLDOWN);
+		this.setSpecialAttackCooldown(STATS.getCooldown());
 	}
 
 	@Override
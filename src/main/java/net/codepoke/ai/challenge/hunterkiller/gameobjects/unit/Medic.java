@@ -1,7 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller.gameobjects.unit;
 
 import lombok.NoArgsConstructor;
-import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.TileType;
@@ -17,6 +16,15 @@ import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
 public class Medic
 		extends Unit {
 
+	// region Constants
+
+	/**
+	 * The statistics of this type of unit.
+	 */
+	private static final UnitStats STATS = UnitStats.get(UnitType.Medic);
+
+	// endregion
+
 	// region Constructor
 
 	/**
@@ -26,9 +34,8 @@ public class Medic
 	 * {@link Medic#Medic(int, MapLocation, int, int, Direction, int, int, int, int, int, int, int)}
 	 */
 	public Medic(int spawningPlayerID, MapLocation mapLocation, Direction facing) {
-		this(spawningPlayerID, mapLocation, HunterKillerConstants.MEDIC_MAX_HP, HunterKillerConstants.MEDIC_MAX_HP, facing,
-				HunterKillerConstants.MEDIC_FOV_RANGE, HunterKillerConstants.MEDIC_FOV_ANGLE, HunterKillerConstants.MEDIC_ATTACK_RANGE,
-				HunterKillerConstants.MEDIC_ATTACK_DAMAGE, 0, HunterKillerConstants.MEDIC_SPAWN_COST, HunterKillerConstants.MEDIC_SCORE);
+		this(spawningPlayerID, mapLocation, STATS.getMaxHP(), STATS.getMaxHP(), facing, STATS.getFieldOfViewRange(),
+				STATS.getFieldOfViewAngle(), STATS.getAttackRange(), STATS.getAttackDamage(), 0, STATS.getSpawnCost(), STATS.getScore());
 	}
 
 	/**
@@ -84,7 +91,7 @@ public class Medic
 	 */
 	@Override
 	public void startCooldown() {
-		this.setSpecialAttackCooldown(HunterKillerConstants.MEDIC_COOLDOWN);
+		this.setSpecialAttackCooldown(STATS.getCooldown());
 	}
 
 	@Override
@@ -1,7 +1,6 @@
 package net.codepoke.ai.challenge.hunterkiller.gameobjects.unit;
 
 import lombok.NoArgsConstructor;
-import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.TileType;
@@ -17,6 +16,15 @@ import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
 public class Soldier
 		extends Unit {
 
+	// region Constants
+
+	/**
+	 * The statistics of this type of unit.
+	 */
+	private static final UnitStats STATS = UnitStats.get(UnitType.Soldier);
+
+	// endregion
+
 	// region Constructor
 
 	/**
@@ -26,10 +34,8 @@ public class Soldier
 	 * {@link Soldier#Soldier(int, MapLocation, int, int, Direction, int, int, int, int, int, int, int)}
 	 */
 	public Soldier(int spawningPlayerID, MapLocation mapLocation, Direction facing) {
-		this(spawningPlayerID, mapLocation, HunterKillerConstants.SOLDIER_MAX_HP, HunterKillerConstants.SOLDIER_MAX_HP, facing,
-				HunterKillerConstants.SOLDIER_FOV_RANGE, HunterKillerConstants.SOLDIER_FOV_ANGLE,
-				HunterKillerConstants.SOLDIER_ATTACK_RANGE, HunterKillerConstants.SOLDIER_ATTACK_DAMAGE, 0,
-				HunterKillerConstants.SOLDIER_SPAWN_COST, HunterKillerConstants.SOLDIER_SCORE);
+		this(spawningPlayerID, mapLocation, STATS.getMaxHP(), STATS.getMaxHP(), facing, STATS.getFieldOfViewRange(),
+				STATS.getFieldOfViewAngle(), STATS.getAttackRange(), STATS.getAttackDamage(), 0, STATS.getSpawnCost(), STATS.getScore());
 	}
 
 	/**
@@ -85,7 +91,7 @@ public class Soldier
 	 */
 	@Override
 	public void startCooldown() {
-		this.setSpecialAttackCooldown(HunterKillerConstants.SOLDIER_COOLDOWN);
+		this.setSpecialAttackCooldown(STATS.getCooldown());
 	}
 
 	@Override
@@ -1,11 +1,9 @@
 package net.codepoke.ai.challenge.hunterkiller.gameobjects.unit;
 
-import java.util.HashSet;
-
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
+import net.codepoke.ai.challenge.hunterkiller.FieldOfView;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
 import net.codepoke.ai.challenge.hunterkiller.Map;
@@ -47,48 +45,25 @@ public abstract class Unit
 	/**
 	 * The Direction the Unit is facing.
 	 */
-	@Setter
 	private Direction orientation = HunterKillerConstants.UNIT_DEFAULT_ORIENTATION;
 
-	/**
-	 * The range (in squares) of the Unit's Field of View.
-	 */
-	private int fieldOfViewRange = HunterKillerConstants.UNIT_DEFAULT_FOV_RANGE;
-
-	/**
-	 * The angle (in degrees) of the Unit's Field of View.
-	 */
-	private int fieldOfViewAngle = HunterKillerConstants.UNIT_DEFAULT_FOV_ANGLE;
-
-	/**
-	 * The range (in squares) of the Unit's attacks.
-	 */
-	private int attackRange = HunterKillerConstants.UNIT_DEFAULT_ATTACK_RANGE;
-
-	/**
-	 * The damage the Unit's attacks inflict.
-	 */
-	private int attackDamage = HunterKillerConstants.UNIT_DEFAULT_ATTACK_DAMAGE;
-
 	/**
 	 * The remaining cool down time (in ticks) of the Unit's special attack.
 	 */
 	private int specialAttackCooldown = HunterKillerConstants.UNIT_DEFAULT_SPECIAL_COOLDOWN;
 
 	/**
-	 * The cost to spawn an instance of this Unit.
+	 * The statistics of this Unit that never change, such as its ranges, damage and cost. Units with the standard
+	 * statistics of their type all share the instance from {@link UnitStats#get(UnitType)}, see
+	 * {@link UnitStats#get(UnitType, int, int, int, int, int, int)}. These are not serialized, a Unit that is read
+	 * gets the standard statistics of its type, see {@link Unit#getStats()}.
 	 */
-	private int spawnCost = HunterKillerConstants.UNIT_DEFAULT_SPAWN_COST;
-
-	/**
-	 * The score this Unit is worth when defeated by the opposing team.
-	 */
-	private int scoreWorth = HunterKillerConstants.UNIT_DEFAULT_SCORE;
+	private transient UnitStats stats;
 
 	/**
 	 * The current field-of-view of this Unit.
 	 */
-	private HashSet<MapLocation> fieldOfView;
+	private FieldOfView fieldOfView;
 
 	/**
 	 * Whether or not this Unit's field-of-view is currently valid. An invalid field-of-view implies that it should be
@@ -157,21 +132,17 @@ public abstract class Unit
 		controllingPlayerID = spawningPlayerID;
 		type = unitType;
 		orientation = facing;
-		fieldOfViewRange = fovRange;
-		fieldOfViewAngle = fovAngle;
-		attackRange = attckRange;
-		attackDamage = attckDmg;
 		specialAttackCooldown = cooldown;
-		spawnCost = cost;
-		scoreWorth = score;
+		stats = UnitStats.get(unitType, fovRange, fovAngle, attckRange, attckDmg, cost, score);
 
-		fieldOfView = new HashSet<MapLocation>();
+		// Start with an empty field-of-view, it will be set once the unit is placed on a map
+		fieldOfView = new FieldOfView(0, 0);
 		fieldOfViewValid = false;
 	}
 
 	// endregion
 
-	// region Protected methods
+	// region Public methods
 
 	/**
 	 * Set the currently remaining cooldown of this Unit's special attack.
@@ -179,13 +150,24 @@ public abstract class Unit
 	 * @param cooldownRemaining
 	 *            The remaining cooldown.
 	 */
-	protected void setSpecialAttackCooldown(int cooldownRemaining) {
+	public void setSpecialAttackCooldown(int cooldownRemaining) {
+		toggleHash();
 		this.specialAttackCooldown = cooldownRemaining;
+		toggleHash();
+		updateTimer();
 	}
 
-	// endregion
-
-	// region Public methods
+	/**
+	 * Set the Direction this Unit is facing.
+	 * 
+	 * @param orientation
+	 *            The new orientation.
+	 */
+	public void setOrientation(Direction orientation) {
+		toggleHash();
+		this.orientation = orientation;
+		toggleHash();
+	}
 
 	public abstract void startCooldown();
 
@@ -197,7 +179,7 @@ public abstract class Unit
 	public void reduceCooldown() {
 		// Don't reduce anything if already at 0
 		if (specialAttackCooldown > 0)
-			specialAttackCooldown--;
+			setSpecialAttackCooldown(specialAttackCooldown - 1);
 	}
 
 	/**
@@ -215,11 +197,17 @@ public abstract class Unit
 	 * Update the unit's internal field-of-view.
 	 * 
 	 * @param fieldOfView
-	 *            The collection of {@link MapLocation}s that are currently in the unit's field-of-view
+	 *            The {@link FieldOfView} containing the locations that are currently in the unit's field-of-view
 	 */
-	public void updateFieldOfView(HashSet<MapLocation> fieldOfView) {
+	public void updateFieldOfView(FieldOfView fieldOfView) {
+		recordChange();
 		this.fieldOfView = fieldOfView;
 		fieldOfViewValid = true;
+		// Let the map we are on know which locations we can see
+		Map map = getPlacedMap();
+		if (map != null)
+			map.getVisibilityIndex()
+				.update(this);
 	}
 
 	/**
@@ -227,9 +215,62 @@ public abstract class Unit
 	 * accessed.
 	 */
 	public void invalidateFieldOfView() {
+		recordChange();
 		fieldOfViewValid = false;
 	}
 
+	/**
+	 * Returns the statistics of this Unit that never change. A Unit that was read from JSON does not have these yet, so
+	 * it takes the standard statistics of its type.
+	 */
+	public UnitStats getStats() {
+		if (stats == null)
+			stats = UnitStats.get(type);
+		return stats;
+	}
+
+	/**
+	 * Returns the range (in squares) of this Unit's Field of View.
+	 */
+	public int getFieldOfViewRange() {
+		return getStats().getFieldOfViewRange();
+	}
+
+	/**
+	 * Returns the angle (in degrees) of this Unit's Field of View.
+	 */
+	public int getFieldOfViewAngle() {
+		return getStats().getFieldOfViewAngle();
+	}
+
+	/**
+	 * Returns the range (in squares) of this Unit's attacks.
+	 */
+	public int getAttackRange() {
+		return getStats().getAttackRange();
+	}
+
+	/**
+	 * Returns the damage this Unit's attacks inflict.
+	 */
+	public int getAttackDamage() {
+		return getStats().getAttackDamage();
+	}
+
+	/**
+	 * Returns the cost to spawn this Unit.
+	 */
+	public int getSpawnCost() {
+		return getStats().getSpawnCost();
+	}
+
+	/**
+	 * Returns the score this Unit is worth when defeated by the opposing team.
+	 */
+	public int getScoreWorth() {
+		return getStats().getScore();
+	}
+
 	/**
 	 * Returns the attack range for a Unit.
 	 * 
@@ -237,16 +278,8 @@ public abstract class Unit
 	 *            The type of Unit.
 	 */
 	public static int getAttackRange(UnitType unitType) {
-		switch (unitType) {
-		case Infected:
-			return HunterKillerConstants.INFECTED_ATTACK_RANGE;
-		case Medic:
-			return HunterKillerConstants.MEDIC_ATTACK_RANGE;
-		case Soldier:
-			return HunterKillerConstants.SOLDIER_ATTACK_RANGE;
-		default:
-			return 0;
-		}
+		return UnitStats.get(unitType)
+						.getAttackRange();
 	}
 
 	/**
@@ -256,16 +289,8 @@ public abstract class Unit
 	 *            The type of Unit.
 	 */
 	public static int getSpawnCost(UnitType unitType) {
-		switch (unitType) {
-		case Infected:
-			return HunterKillerConstants.INFECTED_SPAWN_COST;
-		case Medic:
-			return HunterKillerConstants.MEDIC_SPAWN_COST;
-		case Soldier:
-			return HunterKillerConstants.SOLDIER_SPAWN_COST;
-		default:
-			return 0;
-		}
+		return UnitStats.get(unitType)
+						.getSpawnCost();
 	}
 
 	/**
@@ -0,0 +1,167 @@
+package net.codepoke.ai.challenge.hunterkiller.gameobjects.unit;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
+
+/**
+ * The constant statistics of a {@link UnitType}, such as its health, range and cost. These values are the same for
+ * every unit of a type, so they are kept in a table indexed by type instead of being looked up through a switch on the
+ * type. See {@link UnitStats#get(UnitType)}. Every {@link Unit} refers to the statistics of its type, so they are not
+ * stored on, or copied with, each unit.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class UnitStats {
+
+	// region Constants
+
+	/**
+	 * The statistics of each type of unit, indexed by the ordinal of the type.
+	 */
+	private static final UnitStats[] TABLE = new UnitStats[UnitType.values.length];
+
+	static {
+		TABLE[UnitType.Soldier.ordinal()] = new UnitStats(UnitType.Soldier, HunterKillerConstants.SOLDIER_MAX_HP,
+															HunterKillerConstants.SOLDIER_FOV_RANGE,
+															HunterKillerConstants.SOLDIER_FOV_ANGLE,
+															HunterKillerConstants.SOLDIER_ATTACK_RANGE,
+															HunterKillerConstants.SOLDIER_ATTACK_DAMAGE,
+															HunterKillerConstants.SOLDIER_COOLDOWN,
+															HunterKillerConstants.SOLDIER_SPAWN_COST,
+															HunterKillerConstants.SOLDIER_SCORE);
+		TABLE[UnitType.Medic.ordinal()] = new UnitStats(UnitType.Medic, HunterKillerConstants.MEDIC_MAX_HP,
+														HunterKillerConstants.MEDIC_FOV_RANGE, HunterKillerConstants.MEDIC_FOV_ANGLE,
+														HunterKillerConstants.MEDIC_ATTACK_RANGE,
+														HunterKillerConstants.MEDIC_ATTACK_DAMAGE, HunterKillerConstants.MEDIC_COOLDOWN,
+														HunterKillerConstants.MEDIC_SPAWN_COST, HunterKillerConstants.MEDIC_SCORE);
+		TABLE[UnitType.Infected.ordinal()] = new UnitStats(UnitType.Infected, HunterKillerConstants.INFECTED_MAX_HP,
+															HunterKillerConstants.INFECTED_FOV_RANGE,
+															HunterKillerConstants.INFECTED_FOV_ANGLE,
+															HunterKillerConstants.INFECTED_ATTACK_RANGE,
+															HunterKillerConstants.INFECTED_ATTACK_DAMAGE,
+															HunterKillerConstants.INFECTED_COOLDOWN,
+															HunterKillerConstants.INFECTED_SPAWN_COST,
+															HunterKillerConstants.INFECTED_SCORE);
+	}
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The type of unit these statistics are for.
+	 */
+	private UnitType type;
+
+	/**
+	 * The maximum number of health points.
+	 */
+	private int maxHP;
+
+	/**
+	 * The range (in squares) of the field-of-view.
+	 */
+	private int fieldOfViewRange;
+
+	/**
+	 * The angle (in degrees) of the field-of-view.
+	 */
+	private int fieldOfViewAngle;
+
+	/**
+	 * The range (in squares) of attacks.
+	 */
+	private int attackRange;
+
+	/**
+	 * The damage attacks inflict.
+	 */
+	private int attackDamage;
+
+	/**
+	 * The number of rounds the special attack is on cooldown after it has been used.
+	 */
+	private int cooldown;
+
+	/**
+	 * The cost to spawn a unit.
+	 */
+	private int spawnCost;
+
+	/**
+	 * The score a unit is worth when defeated by the opposing team.
+	 */
+	private int score;
+
+	// endregion
+
+	// region Constructor
+
+	private UnitStats(UnitType type, int maxHP, int fieldOfViewRange, int fieldOfViewAngle, int attackRange, int attackDamage,
+			int cooldown, int spawnCost, int score) {
+		this.type = type;
+		this.maxHP = maxHP;
+		this.fieldOfViewRange = fieldOfViewRange;
+		this.fieldOfViewAngle = fieldOfViewAngle;
+		this.attackRange = attackRange;
+		this.attackDamage = attackDamage;
+		this.cooldown = cooldown;
+		this.spawnCost = spawnCost;
+		this.score = score;
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the statistics of a type of unit.
+	 *
+	 * @param unitType
+	 *            The type of unit.
+	 */
+	public static UnitStats get(UnitType unitType) {
+		return TABLE[unitType.ordinal()];
+	}
+
+	/**
+	 * Returns the statistics of a unit of a type. If these are the statistics of the type, the shared instance from
+	 * {@link UnitStats#get(UnitType)} is returned, otherwise new statistics are created for the unit.
+	 *
+	 * @param unitType
+	 *            The type of unit.
+	 * @param fieldOfViewRange
+	 *            The range (in squares) of the unit's field-of-view.
+	 * @param fieldOfViewAngle
+	 *            The angle (in degrees) of the unit's field-of-view.
+	 * @param attackRange
+	 *            The range (in squares) of the unit's attacks.
+	 * @param attackDamage
+	 *            The damage the unit's attacks inflict.
+	 * @param spawnCost
+	 *            The cost to spawn the unit.
+	 * @param score
+	 *            The score the unit is worth when defeated.
+	 */
+	public static UnitStats get(UnitType unitType, int fieldOfViewRange, int fieldOfViewAngle, int attackRange, int attackDamage,
+			int spawnCost, int score) {
+		UnitStats stats = get(unitType);
+		if (stats.fieldOfViewRange == fieldOfViewRange && stats.fieldOfViewAngle == fieldOfViewAngle
+			&& stats.attackRange == attackRange && stats.attackDamage == attackDamage && stats.spawnCost == spawnCost
+			&& stats.score == score)
+			return stats;
+		return new UnitStats(unitType, stats.maxHP, fieldOfViewRange, fieldOfViewAngle, attackRange, attackDamage, stats.cooldown,
+								spawnCost, score);
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,28 @@
+package net.codepoke.ai.challenge.hunterkiller.listeners;
+
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+
+/**
+ * Represents the ability to listen to the actions that are handled by {@link HunterKillerRules}, see
+ * {@link HunterKillerRules#setActionListener(ActionListener)}.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public interface ActionListener {
+
+	/**
+	 * An action is about to be performed. This is called after the action has been checked to be for the active player
+	 * and the current round, but before any of its orders are checked or executed. The orders can therefore still be
+	 * impossible, for example because their target location is missing or not on the map.
+	 * 
+	 * @param state
+	 *            The state the action is performed on, which should not be changed by the listener.
+	 * @param action
+	 *            The action that is performed.
+	 */
+	void actionPerforming(HunterKillerState state, HunterKillerAction action);
+
+}
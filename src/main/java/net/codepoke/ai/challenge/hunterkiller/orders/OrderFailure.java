@@ -0,0 +1,103 @@
+package net.codepoke.ai.challenge.hunterkiller.orders;
+
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
+
+/**
+ * Numeric codes for the reasons an order can fail, as returned by
+ * {@link HunterKillerRules#checkOrder(net.codepoke.ai.challenge.hunterkiller.HunterKillerState, HunterKillerOrder)}
+ * and
+ * {@link HunterKillerRules#executeOrderTrusted(net.codepoke.ai.challenge.hunterkiller.HunterKillerState, HunterKillerOrder)}
+ * . These codes are used instead of descriptive failure messages wherever building those messages would cost too
+ * much, for example during simulations.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public final class OrderFailure {
+
+	// region Constants
+
+	/** The order did not fail. */
+	public static final int NONE = 0;
+
+	/** The object the order is for could not be found. */
+	public static final int OBJECT_NOT_FOUND = 1;
+
+	/** The object the order is for is not controlled by the active player. */
+	public static final int NOT_CONTROLLED = 2;
+
+	/** The object a structure order is for is not a structure. */
+	public static final int NOT_A_STRUCTURE = 3;
+
+	/** The structure cannot spawn units. */
+	public static final int SPAWNING_NOT_ALLOWED = 4;
+
+	/** The spawn location of the structure is not traversable. */
+	public static final int SPAWN_LOCATION_BLOCKED = 5;
+
+	/** The spawn location is not in a cardinal direction relative to the structure. */
+	public static final int NO_SPAWN_DIRECTION = 6;
+
+	/** The player does not have enough resources for the order. */
+	public static final int INSUFFICIENT_RESOURCES = 7;
+
+	/** The object a unit order is for is not a unit. */
+	public static final int NOT_A_UNIT = 8;
+
+	/** The order does not have a target location. */
+	public static final int NO_TARGET = 9;
+
+	/** The move is not possible. */
+	public static final int MOVE_NOT_POSSIBLE = 10;
+
+	/** The target location is not in the unit's field-of-view. */
+	public static final int TARGET_NOT_IN_FIELD_OF_VIEW = 11;
+
+	/** The target location is outside of the unit's attack range. */
+	public static final int TARGET_OUT_OF_RANGE = 12;
+
+	/** The unit's special attack is still on cooldown. */
+	public static final int SPECIAL_ATTACK_ON_COOLDOWN = 13;
+
+	/** The unit's special attack cannot be ordered. */
+	public static final int SPECIAL_ATTACK_NOT_ORDERABLE = 14;
+
+	/** The target location does not contain a unit to heal. */
+	public static final int NO_HEAL_TARGET = 15;
+
+	/** The target location contains a wall, which can't be targeted. */
+	public static final int TARGET_IS_WALL = 16;
+
+	/** The type of the order is not supported. */
+	public static final int UNSUPPORTED_ORDER = 17;
+
+	/** Names of the codes, indexed by code. */
+	private static final String[] NAMES = { "NONE", "OBJECT_NOT_FOUND", "NOT_CONTROLLED", "NOT_A_STRUCTURE", "SPAWNING_NOT_ALLOWED",
+			"SPAWN_LOCATION_BLOCKED", "NO_SPAWN_DIRECTION", "INSUFFICIENT_RESOURCES", "NOT_A_UNIT", "NO_TARGET", "MOVE_NOT_POSSIBLE",
+			"TARGET_NOT_IN_FIELD_OF_VIEW", "TARGET_OUT_OF_RANGE", "SPECIAL_ATTACK_ON_COOLDOWN", "SPECIAL_ATTACK_NOT_ORDERABLE",
+			"NO_HEAL_TARGET", "TARGET_IS_WALL", "UNSUPPORTED_ORDER" };
+
+	// endregion
+
+	// region Constructor
+
+	private OrderFailure() {
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the name of a failure code, for logging purposes.
+	 *
+	 * @param code
+	 *            The failure code.
+	 */
+	public static String getName(int code) {
+		return code >= 0 && code < NAMES.length ? NAMES[code] : "UNKNOWN(" + code + ")";
+	}
+
+	// endregion
+
+}
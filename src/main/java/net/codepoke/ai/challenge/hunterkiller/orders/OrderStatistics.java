@@ -53,6 +53,30 @@ public class OrderStatistics {
 		attackAlly = 0;
 	}
 
+	/**
+	 * Sets all statistics to the values of another instance.
+	 * 
+	 * @param other
+	 *            The statistics to copy the values from.
+	 */
+	public void set(OrderStatistics other) {
+		issued = other.issued;
+		success = other.success;
+		failed = other.failed;
+		spawnSoldier = other.spawnSoldier;
+		spawnMedic = other.spawnMedic;
+		spawnInfected = other.spawnInfected;
+		move = other.move;
+		rotateClockwise = other.rotateClockwise;
+		rotateCounter = other.rotateCounter;
+		attack = other.attack;
+		heal = other.heal;
+		grenade = other.grenade;
+		attackUnit = other.attackUnit;
+		attackStructure = other.attackStructure;
+		attackAlly = other.attackAlly;
+	}
+
 	@Override
 	public String toString() {
 		return issued + "\t" + success + "\t" + failed + "\t" + spawnSoldier + "\t" + spawnMedic + "\t" + spawnInfected + "\t" + move
@@ -0,0 +1,203 @@
+package net.codepoke.ai.challenge.hunterkiller.orders;
+
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
+import net.codepoke.ai.challenge.hunterkiller.Map;
+import net.codepoke.ai.challenge.hunterkiller.MapLocation;
+import net.codepoke.ai.challenge.hunterkiller.enums.StructureOrderType;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitOrderType;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+
+/**
+ * Encodes {@link HunterKillerOrder}s as a single int, so collections of orders can be kept in primitive arrays without
+ * creating any objects. A packed order consists of (from most to least significant bits):
+ * <ul>
+ * <li>The kind of order (3 bits), either the ordinal of a {@link UnitOrderType}, or {@link PackedOrder#STRUCTURE_KIND}
+ * plus the ordinal of a {@link StructureOrderType}.</li>
+ * <li>The ID of the object the order is for (15 bits).</li>
+ * <li>The position of the target location of the order (14 bits), or 0 if the order has no target location.</li>
+ * </ul>
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public final class PackedOrder {
+
+	// region Constants
+
+	/** The kind of the first structure order, unit orders come before it. */
+	public static final int STRUCTURE_KIND = UnitOrderType.values.length;
+
+	/** The largest object ID that can be encoded. */
+	public static final int MAX_OBJECT_ID = (1 << 15) - 1;
+
+	/** The largest target position that can be encoded. */
+	public static final int MAX_POSITION = (1 << 14) - 1;
+
+	private static final int KIND_SHIFT = 29;
+	private static final int OBJECT_SHIFT = 14;
+
+	// endregion
+
+	// region Constructor
+
+	private PackedOrder() {
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns a packed order for a unit.
+	 *
+	 * @param unitID
+	 *            The ID of the unit the order is for.
+	 * @param type
+	 *            The type of order.
+	 * @param targetPosition
+	 *            The position of the target location of the order, ignored for types that have no location.
+	 */
+	public static int unitOrder(int unitID, UnitOrderType type, int targetPosition) {
+		return pack(type.ordinal(), unitID, type.hasLocation ? targetPosition : 0);
+	}
+
+	/**
+	 * Returns a packed order for a structure.
+	 *
+	 * @param structureID
+	 *            The ID of the structure the order is for.
+	 * @param type
+	 *            The type of order.
+	 */
+	public static int structureOrder(int structureID, StructureOrderType type) {
+		return pack(STRUCTURE_KIND + type.ordinal(), structureID, 0);
+	}
+
+	/**
+	 * Returns the packed form of an order.
+	 *
+	 * @param map
+	 *            The {@link Map} the order is for, used to convert the target location to a position.
+	 * @param order
+	 *            The order to encode.
+	 */
+	public static int encode(Map map, HunterKillerOrder order) {
+		if (order instanceof StructureOrder)
+			return structureOrder(order.getObjectID(), ((StructureOrder) order).getOrderType());
+		if (order instanceof UnitOrder) {
+			UnitOrder unitOrder = (UnitOrder) order;
+			MapLocation target = unitOrder.getTargetLocation();
+			if (unitOrder.getOrderType().hasLocation && target == null)
+				throw new HunterKillerException("Cannot encode unit order without target location: " + unitOrder);
+			return unitOrder(order.getObjectID(), unitOrder.getOrderType(), target != null ? map.toPosition(target) : 0);
+		}
+		throw new HunterKillerException("Cannot encode order of type " + order.getClass()
+																				.getName());
+	}
+
+	/**
+	 * Returns a new {@link HunterKillerOrder} for a packed order.
+	 *
+	 * @param map
+	 *            The {@link Map} the order is for.
+	 * @param packedOrder
+	 *            The packed order.
+	 */
+	public static HunterKillerOrder decode(Map map, int packedOrder) {
+		return decode(map, packedOrder, new UnitOrder(), new StructureOrder());
+	}
+
+	/**
+	 * Decodes a packed order into one of two existing orders, so that no objects are created. Note that the target
+	 * location of a unit order is taken from {@link Map#toLocation(int)}.
+	 *
+	 * @param map
+	 *            The {@link Map} the order is for.
+	 * @param packedOrder
+	 *            The packed order.
+	 * @param unitOrder
+	 *            The order to overwrite if the packed order is for a unit.
+	 * @param structureOrder
+	 *            The order to overwrite if the packed order is for a structure.
+	 * @return The order that was overwritten.
+	 */
+	public static HunterKillerOrder decode(Map map, int packedOrder, UnitOrder unitOrder, StructureOrder structureOrder) {
+		int objectID = getObjectID(packedOrder);
+		if (isStructureOrder(packedOrder)) {
+			structureOrder.objectID = objectID;
+			structureOrder.setAccepted(false);
+			structureOrder.setOrderType(getStructureOrderType(packedOrder));
+			return structureOrder;
+		}
+
+		UnitOrderType type = getUnitOrderType(packedOrder);
+		GameObject object = map.getObject(objectID);
+		unitOrder.objectID = objectID;
+		unitOrder.setAccepted(false);
+		unitOrder.setOrderType(type);
+		unitOrder.setUnitType(object instanceof Unit ? ((Unit) object).getType() : null);
+		unitOrder.setTargetLocation(type.hasLocation ? map.toLocation(getTargetPosition(packedOrder)) : null);
+		return unitOrder;
+	}
+
+	/**
+	 * Returns the ID of the object a packed order is for.
+	 */
+	public static int getObjectID(int packedOrder) {
+		return (packedOrder >>> OBJECT_SHIFT) & MAX_OBJECT_ID;
+	}
+
+	/**
+	 * Returns the position of the target location of a packed order, or 0 if it has none.
+	 */
+	public static int getTargetPosition(int packedOrder) {
+		return packedOrder & MAX_POSITION;
+	}
+
+	/**
+	 * Returns the kind of a packed order, see {@link PackedOrder}.
+	 */
+	public static int getKind(int packedOrder) {
+		return packedOrder >>> KIND_SHIFT;
+	}
+
+	/**
+	 * Whether or not a packed order is for a structure.
+	 */
+	public static boolean isStructureOrder(int packedOrder) {
+		return getKind(packedOrder) >= STRUCTURE_KIND;
+	}
+
+	/**
+	 * Returns the type of a packed unit order.
+	 */
+	public static UnitOrderType getUnitOrderType(int packedOrder) {
+		return UnitOrderType.values[getKind(packedOrder)];
+	}
+
+	/**
+	 * Returns the type of a packed structure order.
+	 */
+	public static StructureOrderType getStructureOrderType(int packedOrder) {
+		return StructureOrderType.values[getKind(packedOrder) - STRUCTURE_KIND];
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Packs the parts of an order into an int.
+	 */
+	private static int pack(int kind, int objectID, int position) {
+		if (objectID < 0 || objectID > MAX_OBJECT_ID)
+			throw new HunterKillerException("Object ID out of range for a packed order: " + objectID);
+		if (position < 0 || position > MAX_POSITION)
+			throw new HunterKillerException("Target position out of range for a packed order: " + position);
+		return (kind << KIND_SHIFT) | (objectID << OBJECT_SHIFT) | position;
+	}
+
+	// endregion
+
+}
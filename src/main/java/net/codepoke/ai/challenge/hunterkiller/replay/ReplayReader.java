@@ -0,0 +1,254 @@
+package net.codepoke.ai.challenge.hunterkiller.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import lombok.Getter;
+import net.codepoke.ai.challenge.hunterkiller.BinaryCodec;
+import net.codepoke.ai.challenge.hunterkiller.GameRandom;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Reads a replay that was written by a {@link ReplayWriter}. The file is memory-mapped, and when it is opened only the
+ * headers of its records are read to create an index of the keyframes and actions. A state of the game is then
+ * reconstructed by reading the nearest keyframe before it, and re-applying the actions that follow that keyframe.
+ *
+ * An incomplete record at the end of the file, for example because the game was interrupted while it was being
+ * written, is ignored.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class ReplayReader
+		implements Closeable {
+
+	// region Properties
+
+	/**
+	 * The codec for the map of the game, created from the terrain that was stored in the replay.
+	 */
+	@Getter
+	private BinaryCodec codec;
+
+	/**
+	 * The channel to the file, or null if this reader has been closed.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The content of the file.
+	 */
+	private MappedByteBuffer data;
+
+	/**
+	 * The rules that are used to re-apply actions.
+	 */
+	private HunterKillerRules rules = new HunterKillerRules();
+
+	/**
+	 * The offsets of the content of the keyframes in the file, and the number of actions that were performed before
+	 * each keyframe.
+	 */
+	private IntArray keyframeOffsets = new IntArray(), keyframeActions = new IntArray();
+
+	/**
+	 * The offsets of the content of the actions in the file, and the round each action was performed in.
+	 */
+	private IntArray actionOffsets = new IntArray(), actionRounds = new IntArray();
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a reader for a replay file.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @throws IOException
+	 *             If the file could not be opened or mapped.
+	 */
+	@SuppressWarnings("resource")
+	public ReplayReader(File file) throws IOException {
+		channel = new FileInputStream(file).getChannel();
+		try {
+			data = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			index();
+		} catch (IOException e) {
+			close();
+			throw e;
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the number of actions in the replay.
+	 */
+	public int getActionCount() {
+		return actionOffsets.size;
+	}
+
+	/**
+	 * Returns the number of keyframes in the replay, including the initial state.
+	 */
+	public int getKeyframeCount() {
+		return keyframeOffsets.size;
+	}
+
+	/**
+	 * Reads an action from the replay.
+	 *
+	 * @param index
+	 *            The index of the action, starting at 0 for the first action of the game.
+	 * @return A new {@link HunterKillerAction}.
+	 */
+	public HunterKillerAction getAction(int index) {
+		ByteBuffer record = getRecord(actionOffsets, index);
+		// Skip the state of the random generator
+		record.position(record.position() + 16);
+		return codec.readAction(record);
+	}
+
+	/**
+	 * Reconstructs the state of the game just before an action was performed.
+	 *
+	 * @param actionIndex
+	 *            The index of the action, or the number of actions in the replay for the last state.
+	 * @return A new {@link HunterKillerState}.
+	 */
+	public HunterKillerState getStateBeforeAction(int actionIndex) {
+		if (actionIndex < 0 || actionIndex > actionOffsets.size)
+			throw new HunterKillerException(StringExtensions.format("Action index %d is outside of the replay, which has %d actions",
+																	actionIndex,
+																	actionOffsets.size));
+		// Find the last keyframe at or before the action
+		int low = 0, high = keyframeActions.size - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (keyframeActions.get(middle) <= actionIndex)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		HunterKillerState state = codec.readState(getRecord(keyframeOffsets, low));
+
+		for (int i = keyframeActions.get(low); i < actionIndex; i++) {
+			ByteBuffer record = getRecord(actionOffsets, i);
+			state.setRandom(new GameRandom(record.getLong(), record.getLong()));
+			rules.handle(state, codec.readAction(record));
+		}
+		return state;
+	}
+
+	/**
+	 * Reconstructs the state of the game at the start of a round, before any action was performed in it. If the
+	 * replay ends before the round, the last state of the replay is returned.
+	 *
+	 * @param round
+	 *            The round.
+	 * @return A new {@link HunterKillerState}.
+	 */
+	public HunterKillerState getStateAtRound(int round) {
+		// Find the first action that was performed in or after the round
+		int low = 0, high = actionRounds.size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (actionRounds.get(middle) < round)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return getStateBeforeAction(low);
+	}
+
+	/**
+	 * Closes the file of the replay.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Reads the header of the file and the headers of all records, and creates the codec from the terrain record.
+	 */
+	private void index() {
+		if (data.limit() < 5 || data.getInt(0) != ReplayWriter.MAGIC)
+			throw new HunterKillerException("File is not a replay");
+		int version = data.get(4);
+		if (version != ReplayWriter.FORMAT_VERSION)
+			throw new HunterKillerException(StringExtensions.format("Unsupported replay version %d, expected %d",
+																	version,
+																	ReplayWriter.FORMAT_VERSION));
+
+		int offset = 5;
+		while (offset + ReplayWriter.RECORD_HEADER_SIZE <= data.limit()) {
+			int length = data.getInt(offset);
+			int end = offset + 4 + length;
+			// Stop at an incomplete record
+			if (length < ReplayWriter.RECORD_HEADER_SIZE - 4 || end > data.limit())
+				break;
+			int type = data.get(offset + 4);
+			int round = data.getInt(offset + 5);
+			int content = offset + ReplayWriter.RECORD_HEADER_SIZE;
+
+			if (type == ReplayWriter.RECORD_TERRAIN) {
+				ByteBuffer record = data.duplicate();
+				record.limit(end);
+				record.position(content);
+				codec = BinaryCodec.readTerrain(record);
+			} else if (type == ReplayWriter.RECORD_KEYFRAME) {
+				keyframeOffsets.add(content);
+				keyframeActions.add(actionOffsets.size);
+			} else if (type == ReplayWriter.RECORD_ACTION) {
+				actionOffsets.add(content);
+				actionRounds.add(round);
+			} else {
+				throw new HunterKillerException("Unknown type of replay record " + type);
+			}
+			offset = end;
+		}
+
+		if (codec == null || keyframeOffsets.size == 0 || keyframeActions.get(0) != 0)
+			throw new HunterKillerException("Replay does not start with the terrain and the initial state");
+	}
+
+	/**
+	 * Returns a view of the content of a record, positioned at its start.
+	 */
+	private ByteBuffer getRecord(IntArray offsets, int index) {
+		if (channel == null)
+			throw new HunterKillerException("Cannot read from a replay that has been closed");
+		ByteBuffer record = data.duplicate();
+		record.position(offsets.get(index));
+		return record;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,230 @@
+package net.codepoke.ai.challenge.hunterkiller.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.Getter;
+import net.codepoke.ai.challenge.hunterkiller.BinaryCodec;
+import net.codepoke.ai.challenge.hunterkiller.GameRandom;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.listeners.ActionListener;
+
+/**
+ * Writes the replay of a game to a file, so that any state of the game can be reconstructed afterwards through a
+ * {@link ReplayReader}. Set a writer as the {@link ActionListener} of the {@link HunterKillerRules} that play the game,
+ * and {@link ReplayWriter#close()} it when the game is over. Note that those rules should not also be used by bots to
+ * simulate the game, since the writer would record those actions as well. The game itself should be played through
+ * {@link HunterKillerRules#handle(HunterKillerState, HunterKillerAction)}, actions that are handled through
+ * {@link HunterKillerRules#handleTrusted(HunterKillerState, HunterKillerAction)} are not recorded.
+ *
+ * Actions are recorded before their orders are checked, so they are written exactly as the player sent them. Orders
+ * that turn out to be impossible fail in the same way when the action is re-applied.
+ *
+ * The file is append-only: it starts with the static terrain of the map and the initial state, after which a record is
+ * added for every action that is performed. The terrain includes the name of the map, a map without a name is read back
+ * without a name as well. Every {@link ReplayWriter#getKeyframeInterval()} actions, a complete state
+ * is added as a keyframe, so that a reader never has to re-apply more than that number of actions. Each record is
+ * written to the file as soon as it is created, so the file of a game that was interrupted can still be read up to its
+ * last complete record.
+ *
+ * The rules use the random generator of a state, for example for the orientation of spawned units. To make sure that
+ * re-applying an action has the same outcome, each action is stored together with the state of the generator at the
+ * time it was performed.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class ReplayWriter
+		implements ActionListener, Closeable {
+
+	// region Constants
+
+	/**
+	 * The default number of actions between keyframes.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 20;
+
+	/**
+	 * The bytes a replay file starts with, followed by the {@link ReplayWriter#FORMAT_VERSION}.
+	 */
+	static final int MAGIC = 0x484B5250;
+
+	/**
+	 * The version of the replay format, this should be increased whenever the format changes.
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Identifiers for the types of records in a replay. Each record starts with its length, its type and the round it
+	 * was created in.
+	 */
+	static final int RECORD_TERRAIN = 1, RECORD_KEYFRAME = 2, RECORD_ACTION = 3;
+
+	/**
+	 * The number of bytes of the length, type and round at the start of each record.
+	 */
+	static final int RECORD_HEADER_SIZE = 9;
+
+	// endregion
+
+	// region Properties
+
+	/**
+	 * The codec that writes the records.
+	 */
+	@Getter
+	private BinaryCodec codec;
+
+	/**
+	 * The number of actions between keyframes.
+	 */
+	@Getter
+	private int keyframeInterval;
+
+	/**
+	 * The number of actions that have been written.
+	 */
+	@Getter
+	private int actionCount;
+
+	/**
+	 * The channel to the file, or null if this writer has been closed.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Buffer that a record is created in before it is written to the file, this grows if a record does not fit.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 14);
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a writer with the default interval between keyframes.
+	 *
+	 * {@link ReplayWriter#ReplayWriter(File, HunterKillerState, int)}
+	 */
+	public ReplayWriter(File file, HunterKillerState initialState) throws IOException {
+		this(file, initialState, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Constructs a writer and writes the start of the replay, including the initial state of the game.
+	 *
+	 * @param file
+	 *            The file to write the replay to. If the file already exists, it is overwritten.
+	 * @param initialState
+	 *            The {@link HunterKillerState} the game starts from.
+	 * @param keyframeInterval
+	 *            The number of actions between keyframes.
+	 * @throws IOException
+	 *             If the file could not be opened or written to.
+	 */
+	@SuppressWarnings("resource")
+	public ReplayWriter(File file, HunterKillerState initialState, int keyframeInterval) throws IOException {
+		if (keyframeInterval < 1)
+			throw new HunterKillerException("The interval between keyframes needs to be at least 1, was " + keyframeInterval);
+		this.keyframeInterval = keyframeInterval;
+		this.codec = new BinaryCodec(initialState.getMap());
+		this.channel = new FileOutputStream(file).getChannel();
+
+		try {
+			buffer.clear();
+			buffer.putInt(MAGIC);
+			buffer.put((byte) FORMAT_VERSION);
+			buffer.flip();
+			writeBuffer();
+			writeRecord(RECORD_TERRAIN, null, null);
+			writeRecord(RECORD_KEYFRAME, initialState, null);
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// endregion
+
+	// region Public methods
+
+	@Override
+	public void actionPerforming(HunterKillerState state, HunterKillerAction action) {
+		try {
+			if (actionCount > 0 && actionCount % keyframeInterval == 0)
+				writeRecord(RECORD_KEYFRAME, state, null);
+			writeRecord(RECORD_ACTION, state, action);
+			actionCount++;
+		} catch (IOException e) {
+			throw new HunterKillerException("Could not write to replay: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Closes the file of the replay, after which no more actions can be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Creates a record in our buffer, growing the buffer if the record does not fit, and writes it to the file.
+	 */
+	private void writeRecord(int type, HunterKillerState state, HunterKillerAction action) throws IOException {
+		if (channel == null)
+			throw new HunterKillerException("Cannot write to a replay that has been closed");
+		while (true) {
+			try {
+				buffer.clear();
+				// The length is filled in once the record is complete
+				buffer.putInt(0);
+				buffer.put((byte) type);
+				buffer.putInt(state != null ? state.getCurrentRound() : 0);
+				if (type == RECORD_TERRAIN) {
+					codec.writeTerrain(buffer);
+				} else if (type == RECORD_KEYFRAME) {
+					codec.write(state, buffer);
+				} else {
+					GameRandom random = state.getRandom();
+					buffer.putLong(random.getState(0));
+					buffer.putLong(random.getState(1));
+					codec.write(action, buffer);
+				}
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		buffer.putInt(0, buffer.position() - 4);
+		buffer.flip();
+		writeBuffer();
+	}
+
+	/**
+	 * Writes the remaining content of our buffer to the file.
+	 */
+	private void writeBuffer() throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// endregion
+
+}
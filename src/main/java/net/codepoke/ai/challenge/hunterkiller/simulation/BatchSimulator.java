@@ -0,0 +1,243 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.codepoke.ai.GameRules.Result;
+import net.codepoke.ai.GameRules.Result.Ranking;
+import net.codepoke.ai.challenge.hunterkiller.GameRandom;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerMatchRequest;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory;
+import net.codepoke.ai.challenge.hunterkiller.Player;
+import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderStatistics;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Plays batches of games between bots without any user interface, spread over multiple threads. The games in a batch
+ * are created from the maps that match a {@link HunterKillerMatchRequest}, and every game is created from its own seed
+ * (the seed of the batch plus the index of the game). This means that a game in a batch can be reproduced on its own,
+ * and that a batch gives the same results regardless of the number of threads it is played on, as long as the bots are
+ * deterministic.
+ *
+ * Each thread has its own {@link HunterKillerStateFactory}, {@link HunterKillerRules} and bots, which it reuses for all
+ * games it plays. The results of the games are passed to a {@link GameResultListener} as soon as they are completed.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class BatchSimulator {
+
+	// region Properties
+
+	/**
+	 * The factories that create the bots, one for each player in a game.
+	 */
+	private BotFactory[] bots;
+
+	/**
+	 * The request that determines which maps the games can be played on, or null if any map can be used.
+	 */
+	@Getter
+	@Setter
+	private HunterKillerMatchRequest request;
+
+	/**
+	 * The number of threads the games are played on.
+	 */
+	@Getter
+	@Setter
+	private int threads = Runtime.getRuntime()
+									.availableProcessors();
+
+	/**
+	 * The seed the games are created from.
+	 */
+	@Getter
+	@Setter
+	private long seed = System.nanoTime();
+
+	// endregion
+
+	// region Constructor
+
+	/**
+	 * Constructs a simulator for games between bots.
+	 *
+	 * @param bots
+	 *            The factories that create the bots, one for each player in a game. The index of a factory is the ID of
+	 *            the player its bots play as.
+	 */
+	public BatchSimulator(BotFactory... bots) {
+		this.bots = bots;
+	}
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Plays a batch of games. This method returns once all games have been played.
+	 *
+	 * @param games
+	 *            The number of games to play.
+	 * @param listener
+	 *            The listener that is notified of each completed game, or null if none is required.
+	 * @return A summary of the batch.
+	 */
+	public BatchSummary run(final int games, final GameResultListener listener) {
+		final AtomicInteger nextGame = new AtomicInteger();
+		int threadCount = Math.max(1, Math.min(threads, games));
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		List<Future<int[]>> workers = new ArrayList<Future<int[]>>(threadCount);
+
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < threadCount; i++) {
+				workers.add(executor.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() throws Exception {
+						return new Worker().run(nextGame, games, listener);
+					}
+				}));
+			}
+
+			// Add up the totals of each worker
+			int errors = 0;
+			long rounds = 0;
+			for (Future<int[]> worker : workers) {
+				int[] totals = worker.get();
+				errors += totals[0];
+				rounds += totals[1];
+			}
+			return new BatchSummary(games, errors, rounds, System.nanoTime() - start);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new HunterKillerException("Batch simulation was interrupted.");
+		} catch (ExecutionException e) {
+			throw new HunterKillerException(StringExtensions.format("Batch simulation failed: %s", e.getCause()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the seed that a game in a batch is created from.
+	 *
+	 * @param gameIndex
+	 *            The index of the game within the batch.
+	 */
+	public long getGameSeed(int gameIndex) {
+		return seed + gameIndex;
+	}
+
+	// endregion
+
+	// region Private classes
+
+	/**
+	 * Plays games on a single thread, reusing its factory, rules and bots for every game.
+	 */
+	private class Worker {
+
+		private HunterKillerStateFactory factory = new HunterKillerStateFactory();
+
+		private HunterKillerRules rules = new HunterKillerRules();
+
+		private SimulationBot[] players = new SimulationBot[bots.length];
+
+		private String[] playerNames = new String[bots.length];
+
+		public Worker() {
+			for (int i = 0; i < bots.length; i++) {
+				players[i] = bots[i].create(i);
+				playerNames[i] = StringExtensions.format("Player %d", i);
+			}
+		}
+
+		/**
+		 * Plays games until there are none left in the batch.
+		 *
+		 * @return The number of games that ended in an error and the number of rounds played.
+		 */
+		public int[] run(AtomicInteger nextGame, int games, GameResultListener listener) {
+			int[] totals = new int[2];
+			int gameIndex;
+			while ((gameIndex = nextGame.getAndIncrement()) < games) {
+				if (Thread.currentThread()
+							.isInterrupted())
+					break;
+				GameResult result = play(gameIndex);
+				if (!result.isCompleted())
+					totals[0]++;
+				totals[1] += result.getRounds();
+				if (listener != null)
+					listener.gameCompleted(result);
+			}
+			return totals;
+		}
+
+		/**
+		 * Plays a single game of the batch.
+		 */
+		private GameResult play(int gameIndex) {
+			long gameSeed = getGameSeed(gameIndex);
+			HunterKillerState state = null;
+			try {
+				factory.setRandom(new GameRandom(gameSeed));
+				state = factory.generateInitialState(playerNames, request);
+
+				Result result = null;
+				while (!state.isDone()) {
+					int activePlayer = state.getActivePlayerID();
+					// Give the bot a copy of the state that only contains what its player can see
+					HunterKillerState botState = state.copy();
+					botState.prepare(activePlayer);
+					HunterKillerAction action = players[activePlayer].handle(botState);
+					if (action == null || action.getActingPlayerID() != activePlayer
+						|| action.getCurrentRound() != state.getCurrentRound())
+						action = state.createNullMove();
+					result = rules.handle(state, action);
+				}
+				return createResult(gameIndex, gameSeed, state, result != null ? result.getRanking() : null, null);
+			} catch (Exception e) {
+				return createResult(gameIndex, gameSeed, state, null, e);
+			}
+		}
+
+		private GameResult createResult(int gameIndex, long gameSeed, HunterKillerState state,
+				Array<Ranking> ranking, Throwable error) {
+			if (state == null)
+				return new GameResult(gameIndex, gameSeed, null, 0, null, new int[0], new OrderStatistics[0], error);
+
+			Player[] statePlayers = state.getPlayers();
+			int[] scores = new int[statePlayers.length];
+			OrderStatistics[] statistics = new OrderStatistics[statePlayers.length];
+			for (int i = 0; i < statePlayers.length; i++) {
+				scores[i] = statePlayers[i].getScore();
+				statistics[i] = new OrderStatistics();
+				statistics[i].set(statePlayers[i].getStats());
+			}
+			return new GameResult(gameIndex, gameSeed, state.getMap().name, state.getCurrentRound(), ranking, scores,
+									statistics, error);
+		}
+
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,60 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Summary of a batch of games that was played by a {@link BatchSimulator}.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class BatchSummary {
+
+	// region Properties
+
+	/**
+	 * The number of games that were played, including those that ended in an error.
+	 */
+	private int games;
+
+	/**
+	 * The number of games that ended in an error.
+	 */
+	private int errors;
+
+	/**
+	 * The total number of rounds played over all games.
+	 */
+	private long rounds;
+
+	/**
+	 * The time it took to play the batch, in nanoseconds.
+	 */
+	private long elapsedNanos;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Returns the number of games played per second.
+	 */
+	public double getGamesPerSecond() {
+		return elapsedNanos > 0 ? games / (elapsedNanos / 1e9) : 0;
+	}
+
+	/**
+	 * Returns the number of rounds played per second.
+	 */
+	public double getRoundsPerSecond() {
+		return elapsedNanos > 0 ? rounds / (elapsedNanos / 1e9) : 0;
+	}
+
+	// endregion
+
+}
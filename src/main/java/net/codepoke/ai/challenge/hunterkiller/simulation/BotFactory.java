@@ -0,0 +1,21 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+/**
+ * Represents the ability to create {@link SimulationBot}s for a {@link BatchSimulator}. The simulator creates a bot
+ * for each of the threads it runs games on, and uses that bot for all games on that thread. This means that a bot is
+ * never used by more than one thread at a time, but it should not rely on being used for a single game.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public interface BotFactory {
+
+	/**
+	 * Creates a bot.
+	 * 
+	 * @param playerID
+	 *            The ID of the player the bot will be playing as.
+	 */
+	SimulationBot create(int playerID);
+
+}
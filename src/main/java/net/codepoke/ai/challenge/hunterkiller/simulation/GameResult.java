@@ -0,0 +1,75 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.codepoke.ai.GameRules.Result.Ranking;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderStatistics;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The result of a single game that was played by a {@link BatchSimulator}.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class GameResult {
+
+	// region Properties
+
+	/**
+	 * The index of the game within the batch.
+	 */
+	private int gameIndex;
+
+	/**
+	 * The seed the game was created from. Creating a game from this seed with the same bots reproduces it.
+	 */
+	private long seed;
+
+	/**
+	 * The name of the map the game was played on, or null if the game could not be created.
+	 */
+	private String mapName;
+
+	/**
+	 * The number of rounds that were played.
+	 */
+	private int rounds;
+
+	/**
+	 * The final ranking of the players, or null if the game did not complete.
+	 */
+	private Array<Ranking> ranking;
+
+	/**
+	 * The score of each player at the end of the game, indexed by player ID.
+	 */
+	private int[] scores;
+
+	/**
+	 * The statistics on the orders of each player, indexed by player ID.
+	 */
+	private OrderStatistics[] statistics;
+
+	/**
+	 * The error that stopped the game, or null if the game completed.
+	 */
+	private Throwable error;
+
+	// endregion
+
+	// region Public methods
+
+	/**
+	 * Whether or not the game was played until the end.
+	 */
+	public boolean isCompleted() {
+		return error == null;
+	}
+
+	// endregion
+
+}
@@ -0,0 +1,20 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+/**
+ * Represents the ability to listen to the games that are completed by a {@link BatchSimulator}. Note that games are
+ * completed on multiple threads at the same time, so an implementation needs to be thread-safe.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public interface GameResultListener {
+
+	/**
+	 * A game has been completed.
+	 * 
+	 * @param result
+	 *            The result of the game.
+	 */
+	void gameCompleted(GameResult result);
+
+}
@@ -0,0 +1,24 @@
+package net.codepoke.ai.challenge.hunterkiller.simulation;
+
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+
+/**
+ * Represents a bot that can play games in a {@link BatchSimulator}.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public interface SimulationBot {
+
+	/**
+	 * Returns the action the bot wants to perform in a state. The state is a copy that has been prepared for the bot's
+	 * player (see {@link HunterKillerState#prepare(int)}), so the bot is free to alter it.
+	 * 
+	 * @param state
+	 *            The current state of the game.
+	 * @return The action to perform, or null to do nothing this turn.
+	 */
+	HunterKillerAction handle(HunterKillerState state);
+
+}
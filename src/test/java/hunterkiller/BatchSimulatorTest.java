@@ -0,0 +1,127 @@
+package hunterkiller;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.Map;
+import net.codepoke.ai.challenge.hunterkiller.MoveGenerator;
+import net.codepoke.ai.challenge.hunterkiller.Player;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder;
+import net.codepoke.ai.challenge.hunterkiller.simulation.BatchSimulator;
+import net.codepoke.ai.challenge.hunterkiller.simulation.BatchSummary;
+import net.codepoke.ai.challenge.hunterkiller.simulation.BotFactory;
+import net.codepoke.ai.challenge.hunterkiller.simulation.GameResult;
+import net.codepoke.ai.challenge.hunterkiller.simulation.GameResultListener;
+import net.codepoke.ai.challenge.hunterkiller.simulation.SimulationBot;
+
+import org.junit.Test;
+
+/**
+ * This class tests the playing of games through a {@link BatchSimulator}.
+ * 
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class BatchSimulatorTest
+		extends HunterKillerTest {
+
+	// region Constants
+
+	private static final int GAMES = 6;
+
+	private static final long SEED = 1234;
+
+	// endregion
+
+	// region Tests
+
+	/**
+	 * Tests that a batch plays all of its games to completion, and that the same seed results in the same games,
+	 * regardless of the number of threads the batch is played on.
+	 */
+	@Test
+	public void testBatch() {
+		GameResult[] first = runBatch(2);
+		GameResult[] second = runBatch(1);
+
+		for (int i = 0; i < GAMES; i++) {
+			assertNotNull(first[i]);
+			assertNull(first[i].getError());
+			assertNotNull(first[i].getRanking());
+			assertEquals(first[i].getMapName(), second[i].getMapName());
+			assertEquals(first[i].getRounds(), second[i].getRounds());
+			assertArrayEquals(first[i].getScores(), second[i].getScores());
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Runs a batch of games between two random bots and returns the results, indexed by game.
+	 */
+	private GameResult[] runBatch(int threads) {
+		BotFactory randomBot = new BotFactory() {
+			@Override
+			public SimulationBot create(int playerID) {
+				return new RandomBot();
+			}
+		};
+		BatchSimulator simulator = new BatchSimulator(randomBot, randomBot);
+		simulator.setThreads(threads);
+		simulator.setSeed(SEED);
+
+		final GameResult[] results = new GameResult[GAMES];
+		BatchSummary summary = simulator.run(GAMES, new GameResultListener() {
+			@Override
+			public synchronized void gameCompleted(GameResult result) {
+				results[result.getGameIndex()] = result;
+			}
+		});
+
+		assertEquals(GAMES, summary.getGames());
+		assertEquals(0, summary.getErrors());
+		assertTrue(summary.getRounds() > 0);
+		return results;
+	}
+
+	// endregion
+
+	// region Private classes
+
+	/**
+	 * Bot that issues a random order for each of its structures and units.
+	 */
+	private static class RandomBot
+			implements SimulationBot {
+
+		@Override
+		public HunterKillerAction handle(HunterKillerState state) {
+			Map map = state.getMap();
+			Player player = state.getActivePlayer();
+			HunterKillerAction action = new HunterKillerAction(state);
+			for (Structure structure : player.getStructures(map)) {
+				HunterKillerOrder order = MoveGenerator.getRandomOrder(state, structure);
+				if (order != null)
+					action.addOrder(order);
+			}
+			for (Unit unit : player.getUnits(map)) {
+				HunterKillerOrder order = MoveGenerator.getRandomOrder(state, unit);
+				if (order != null)
+					action.addOrder(order);
+			}
+			return action;
+		}
+
+	}
+
+	// endregion
+
+}
@@ -1,21 +1,49 @@
 package hunterkiller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import net.codepoke.ai.GameRules.Result;
+import net.codepoke.ai.challenge.hunterkiller.BinaryCodec;
+import net.codepoke.ai.challenge.hunterkiller.FieldOfView;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerUndoLog;
+import net.codepoke.ai.challenge.hunterkiller.Map;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.MapSetup;
+import net.codepoke.ai.challenge.hunterkiller.MoveGenerator;
 import net.codepoke.ai.challenge.hunterkiller.Player;
+import net.codepoke.ai.challenge.hunterkiller.StateDeltaStream;
 import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+import net.codepoke.ai.challenge.hunterkiller.UnitTable;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.UnitOrderType;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitType;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.UnitStats;
+import net.codepoke.ai.challenge.hunterkiller.orders.HunterKillerOrder;
+import net.codepoke.ai.challenge.hunterkiller.orders.OrderFailure;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
 import net.codepoke.ai.challenge.hunterkiller.orders.UnitOrder;
+import net.codepoke.ai.challenge.hunterkiller.replay.ReplayReader;
+import net.codepoke.ai.challenge.hunterkiller.replay.ReplayWriter;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -23,12 +51,25 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.Json;
+
 /**
  * This class tests the rules of the HunterKiller game, that are not already tackled by tests in other classes.
  * Currently tests:
  * <ul>
  * <li>Death of a Unit and subsequent removal.</li>
  * <li>Scoring points by killing a Unit.</li>
+ * <li>Undoing handled actions through an undo log.</li>
+ * <li>Giving copies of a state their own random number generator.</li>
+ * <li>Handling trusted actions without validation, and the failure codes of orders.</li>
+ * <li>Generating and handling packed orders.</li>
+ * <li>Generating attack orders for meaningful targets only.</li>
+ * <li>Reusing an action for several turns.</li>
+ * <li>Writing and reading states and actions in a binary format.</li>
+ * <li>Keeping a state up to date through a stream of deltas.</li>
+ * <li>Reconstructing states from a replay file.</li>
  * </ul>
  * 
  * @author Anton Valkenberg (anton.valkenberg@gmail.com)
@@ -41,6 +82,8 @@ public class HunterKillerRulesTest
 
 	private static final MapSetup testMapAttack = new MapSetup(StringExtensions.format("BS"));
 
+	private static final MapSetup testMapSquad = new MapSetup(StringExtensions.format("BSM"));
+
 	// endregion
 
 	// region Properties
@@ -141,6 +184,995 @@ public class HunterKillerRulesTest
 		assertEquals(HunterKillerConstants.SOLDIER_SCORE, (post_ActivePlayerScore - pre_ActivePlayerScore));
 	}
 
+	/**
+	 * Tests that an action only accepts one order per object, and that it can be reused for the next turn after it has
+	 * been handled.
+	 */
+	@Test
+	public void testActionReuse() {
+		Unit unit = state.getMap()
+							.getUnitAtLocation(new MapLocation(1, 0));
+		HunterKillerAction action = new HunterKillerAction(state);
+
+		assertTrue(action.addOrder(unit.rotate(true)));
+		assertFalse(action.addOrder(unit.rotate(false)));
+		assertTrue(action.hasOrderForObject(unit.getID()));
+		assertTrue(action.removeOrderForObject(unit));
+		assertFalse(action.hasOrderForObject(unit.getID()));
+		assertTrue(action.addOrder(unit.rotate(false)));
+		assertEquals(1, action.getOrders().size);
+
+		gameRules.handle(state, action);
+
+		// Reuse the action for the other player's turn
+		action.reset(state);
+		assertEquals(state.getCurrentPlayer(), action.getActingPlayerID());
+		assertEquals(0, action.getOrders().size);
+		assertFalse(action.hasOrderForObject(unit.getID()));
+		Unit otherUnit = state.getMap()
+								.getUnitAtLocation(new MapLocation(2, 1));
+		assertTrue(action.addOrder(otherUnit.rotate(true)));
+		Result result = gameRules.handle(state, action);
+		assertEquals(0, result.getExplanation()
+								.length());
+	}
+
+	/**
+	 * Tests that games created from the same seed make the same random decisions, by playing random actions in two
+	 * games that were created from factories with the same seed. One of the games is also simulated on copies, which
+	 * should not affect its random decisions.
+	 */
+	@Test
+	public void testSeededGame() {
+		HunterKillerState stateA = new HunterKillerStateFactory(42).generateInitialState(playerNames, null);
+		HunterKillerState stateB = new HunterKillerStateFactory(42).generateInitialState(playerNames, null);
+		assertEquals(describe(stateA), describe(stateB));
+
+		for (int i = 0; i < 100 && !stateA.isDone(); i++) {
+			HunterKillerState simulation = stateB.copy();
+			gameRules.handle(simulation, createRandomAction(simulation));
+
+			gameRules.handle(stateA, createRandomAction(stateA));
+			gameRules.handle(stateB, createRandomAction(stateB));
+			assertEquals(describe(stateA), describe(stateB));
+		}
+	}
+
+	/**
+	 * Tests that a copy of a state receives its own copy of the random number generator. The copy makes the same
+	 * random decisions as the original, without advancing the original's generator.
+	 */
+	@Test
+	public void testRandomCopy() {
+		state = new HunterKillerStateFactory(42).generateInitialStateFromPremade(testMapAttack, playerNames, "nonRandomSections");
+		HunterKillerState sameSeed = new HunterKillerStateFactory(42).generateInitialStateFromPremade(testMapAttack, playerNames,
+																										"nonRandomSections");
+		HunterKillerState copy = state.copy();
+		assertNotSame(state.getRandom(), copy.getRandom());
+
+		// Drawing from the copy first does not change what the original draws
+		long first = copy.getRandom()
+							.nextLong();
+		long second = copy.getRandom()
+							.nextLong();
+		assertEquals(first, state.getRandom()
+									.nextLong());
+		assertEquals(second, state.getRandom()
+									.nextLong());
+
+		// A state created by a factory with the same seed draws the same numbers
+		assertEquals(first, sameSeed.getRandom()
+									.nextLong());
+		assertEquals(second, sameSeed.getRandom()
+										.nextLong());
+	}
+
+	/**
+	 * Tests handling actions through {@link HunterKillerRules#handleTrusted(HunterKillerState, HunterKillerAction)}.
+	 * This method plays random actions that only contain possible orders, and tests that handling them through the
+	 * trusted path has the same result as handling them normally.
+	 */
+	@Test
+	public void testTrustedExecution() {
+		HunterKillerState stateA = new HunterKillerStateFactory(7).generateInitialState(playerNames, null);
+		HunterKillerState stateB = stateA.copy();
+
+		for (int i = 0; i < 200 && !stateA.isDone(); i++) {
+			// Create an action of orders that are possible in sequence, by executing them on a scratch copy
+			HunterKillerState scratch = stateA.copy();
+			HunterKillerAction random = createRandomAction(scratch);
+			HunterKillerAction action = new HunterKillerAction(stateA);
+			for (HunterKillerOrder order : random.getOrders()) {
+				boolean possible = gameRules.isOrderPossible(scratch, order, null);
+				assertEquals(possible, gameRules.checkOrder(scratch, order) == OrderFailure.NONE);
+				if (possible)
+					gameRules.addOrderIfPossible(action, scratch, order, null, null);
+			}
+
+			gameRules.handle(stateA, action);
+			assertEquals(0, gameRules.handleTrusted(stateB, action));
+			assertEquals(describe(stateA), describe(stateB));
+			assertEquals(stateA.hashKey(), stateB.hashKey());
+		}
+	}
+
+	/**
+	 * Tests the failure codes that the rules return for orders that are not possible, and that a possible order is
+	 * executed through the trusted path. The unit is only given sight of the locations to its east:
+	 * 
+	 * <pre>
+	 * B S . .
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testOrderFailures() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		Unit enemy = map.getUnitAtLocation(new MapLocation(2, 1));
+		setFieldOfView(map, unit, 1, 2, 3);
+
+		assertEquals(OrderFailure.NOT_CONTROLLED, gameRules.checkOrder(state, new UnitOrder(enemy, UnitOrderType.MOVE, new MapLocation(2, 0))));
+		assertEquals(OrderFailure.NO_TARGET, gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.MOVE, null)));
+		// The base is not walkable, and neither is a location that is not adjacent
+		assertEquals(OrderFailure.MOVE_NOT_POSSIBLE, gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(0, 0))));
+		assertEquals(OrderFailure.MOVE_NOT_POSSIBLE, gameRules.checkOrder(state, PackedOrder.unitOrder(unit.getID(), UnitOrderType.MOVE, 3)));
+		assertEquals(OrderFailure.TARGET_NOT_IN_FIELD_OF_VIEW,
+						gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.ATTACK, new MapLocation(2, 1))));
+		assertEquals(OrderFailure.NONE, gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.ATTACK, new MapLocation(3, 0))));
+		unit.setSpecialAttackCooldown(1);
+		assertEquals(OrderFailure.SPECIAL_ATTACK_ON_COOLDOWN,
+						gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.ATTACK_SPECIAL, new MapLocation(3, 0))));
+		unit.setSpecialAttackCooldown(0);
+		assertEquals(OrderFailure.NONE, gameRules.checkOrder(state, new UnitOrder(unit, UnitOrderType.ATTACK_SPECIAL, new MapLocation(3, 0))));
+
+		// A possible move is executed without failures, and ends the player's turn
+		HunterKillerAction action = new HunterKillerAction(state);
+		action.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(2, 0)));
+		assertEquals(0, gameRules.handleTrusted(state, action));
+		assertSame(unit, map.getUnitAtLocation(new MapLocation(2, 0)));
+		assertTrue(map.getUnitAtLocation(new MapLocation(1, 0)) == null);
+		assertEquals(enemy.getControllingPlayerID(), state.getActivePlayerID());
+	}
+
+	/**
+	 * Tests that the packed orders generated by the {@link MoveGenerator} match its regular orders, and that handling
+	 * them has the same outcome as handling the regular orders.
+	 */
+	@Test
+	public void testPackedOrders() {
+		HunterKillerState stateA = new HunterKillerStateFactory(13).generateInitialState(playerNames, null);
+		HunterKillerState stateB = stateA.copy();
+		IntArray packed = new IntArray();
+
+		for (int i = 0; i < 200 && !stateA.isDone(); i++) {
+			Map map = stateA.getMap();
+			Player player = stateA.getActivePlayer();
+			for (Structure structure : player.getStructures(map)) {
+				packed.clear();
+				MoveGenerator.addAllLegalOrders(stateA, structure, packed);
+				assertPackedOrders(stateA, MoveGenerator.getAllLegalOrders(stateA, structure), packed);
+			}
+			for (Unit unit : player.getUnits(map)) {
+				packed.clear();
+				MoveGenerator.addAllLegalOrders(stateA, unit, packed);
+				assertPackedOrders(stateA, MoveGenerator.getAllLegalOrders(stateA, unit), packed);
+			}
+
+			// Handle the same possible orders in both forms
+			HunterKillerState scratch = stateA.copy();
+			HunterKillerAction random = createRandomAction(scratch);
+			HunterKillerAction action = new HunterKillerAction(stateA);
+			packed.clear();
+			for (HunterKillerOrder order : random.getOrders()) {
+				if (gameRules.addOrderIfPossible(action, scratch, order, null, null))
+					packed.add(PackedOrder.encode(map, order));
+			}
+
+			gameRules.handle(stateA, action);
+			assertEquals(0, gameRules.handleTrusted(stateB, packed));
+			assertEquals(describe(stateA), describe(stateB));
+		}
+	}
+
+	/**
+	 * Tests the packed orders that are generated for the unit on the small map, and handling one of them:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testPackedMoveOrders() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		IntArray packed = new IntArray();
+
+		// North is off the map and west is the base, so the unit can only move east and south
+		assertEquals(2, MoveGenerator.addAllLegalMoveOrders(state, unit, packed));
+		assertEquals(PackedOrder.unitOrder(unit.getID(), UnitOrderType.MOVE, 2), packed.get(0));
+		assertEquals(PackedOrder.unitOrder(unit.getID(), UnitOrderType.MOVE, 5), packed.get(1));
+		assertEquals(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(2, 0)), PackedOrder.decode(map, packed.get(0)));
+
+		// Orders are added after the ones that are already in the buffer
+		int[] items = packed.items;
+		assertEquals(2, MoveGenerator.addAllLegalRotationOrders(state, unit, packed));
+		assertEquals(4, packed.size);
+		assertEquals(PackedOrder.unitOrder(unit.getID(), UnitOrderType.ROTATE_CLOCKWISE, 0), packed.get(2));
+		assertEquals(PackedOrder.unitOrder(unit.getID(), UnitOrderType.ROTATE_COUNTER_CLOCKWISE, 0), packed.get(3));
+
+		// A cleared buffer is filled again without allocating
+		packed.clear();
+		MoveGenerator.addAllLegalMoveOrders(state, unit, packed);
+		assertSame(items, packed.items);
+
+		// Handle the move east
+		packed.removeIndex(1);
+		assertEquals(0, gameRules.handleTrusted(state, packed));
+		assertSame(unit, map.getUnitAtLocation(new MapLocation(2, 0)));
+	}
+
+	/**
+	 * Tests that generating attack orders for meaningful targets only results in the orders from the complete
+	 * generation that target an enemy, or a damaged ally for a Medic's heal.
+	 */
+	@Test
+	public void testMeaningfulAttackOrders() {
+		state = new HunterKillerStateFactory(8).generateInitialState(playerNames, null);
+		IntArray all = new IntArray();
+		IntArray meaningful = new IntArray();
+		IntArray expected = new IntArray();
+
+		for (int i = 0; i < 1000 && !state.isDone(); i++) {
+			Map map = state.getMap();
+			for (Unit unit : state.getActivePlayer()
+									.getUnits(map)) {
+				all.clear();
+				meaningful.clear();
+				expected.clear();
+				MoveGenerator.addAllLegalAttackOrders(state, unit, false, all);
+				MoveGenerator.addAllLegalAttackOrders(state, unit, false, true, meaningful);
+				for (int j = 0; j < all.size; j++) {
+					if (isMeaningfulAttack(map, unit, all.get(j)))
+						expected.add(all.get(j));
+				}
+				assertEquals(expected, meaningful);
+				for (int j = 0; j < meaningful.size; j++) {
+					assertEquals(OrderFailure.NONE, gameRules.checkOrder(state, meaningful.get(j)));
+				}
+			}
+			gameRules.handle(state, createRandomAction(state));
+		}
+	}
+
+	/**
+	 * Tests the attack orders for meaningful targets on a map with a soldier and a medic for each player. Only enemies
+	 * in range and view are attacked, and the medic only heals its ally once that is damaged:
+	 * 
+	 * <pre>
+	 * B S M _ _ _
+	 * _ _ _ M S B
+	 * </pre>
+	 */
+	@Test
+	public void testMeaningfulAttackTargets() {
+		state = new HunterKillerStateFactory().generateInitialStateFromPremade(testMapSquad, playerNames, "nonRandomSections");
+		Map map = state.getMap();
+		Unit soldier = map.getUnitAtLocation(new MapLocation(1, 0));
+		Unit medic = map.getUnitAtLocation(new MapLocation(2, 0));
+		IntArray orders = new IntArray();
+
+		// The soldier sees everything but the enemy soldier, and the enemy base is out of its range
+		setFieldOfView(map, soldier, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 11);
+		MoveGenerator.addAllLegalAttackOrders(state, soldier, false, true, orders);
+		assertEquals(new IntArray(new int[] { PackedOrder.unitOrder(soldier.getID(), UnitOrderType.ATTACK_SPECIAL, 9),
+												PackedOrder.unitOrder(soldier.getID(), UnitOrderType.ATTACK, 9) }), orders);
+
+		// Without its special attack, the soldier can only attack
+		soldier.setSpecialAttackCooldown(1);
+		orders.clear();
+		MoveGenerator.addAllLegalAttackOrders(state, soldier, false, true, orders);
+		assertEquals(new IntArray(new int[] { PackedOrder.unitOrder(soldier.getID(), UnitOrderType.ATTACK, 9) }), orders);
+
+		// The medic sees everything, and can reach all enemies
+		setFieldOfView(map, medic, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+		orders.clear();
+		MoveGenerator.addAllLegalAttackOrders(state, medic, false, true, orders);
+		assertEquals(new IntArray(new int[] { PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 9),
+												PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 10),
+												PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 11) }), orders);
+
+		// Once the soldier is damaged, the medic can heal it
+		soldier.reduceHP(1);
+		orders.clear();
+		MoveGenerator.addAllLegalAttackOrders(state, medic, false, true, orders);
+		assertEquals(new IntArray(new int[] { PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK_SPECIAL, 1),
+												PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 9),
+												PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 10),
+												PackedOrder.unitOrder(medic.getID(), UnitOrderType.ATTACK, 11) }), orders);
+		for (int i = 0; i < orders.size; i++) {
+			assertEquals(OrderFailure.NONE, gameRules.checkOrder(state, orders.get(i)));
+		}
+	}
+
+	/**
+	 * Tests that the {@link UnitTable} of a map matches the units on it, while playing random actions that are
+	 * alternately undone, and on copies of the state. The copies share the rows of the table they were copied from, so
+	 * they are checked again after the original has changed.
+	 */
+	@Test
+	public void testUnitTable() {
+		state = new HunterKillerStateFactory(11).generateInitialState(playerNames, null);
+		HunterKillerUndoLog undoLog = new HunterKillerUndoLog();
+		HunterKillerState previousCopy = state.copy();
+
+		for (int i = 0; i < 200 && !state.isDone(); i++) {
+			HunterKillerAction action = createRandomAction(state);
+			if (i % 2 == 0) {
+				gameRules.handle(state, action, undoLog);
+				assertUnitTable(state.getMap());
+				gameRules.undo(state, undoLog);
+				assertUnitTable(state.getMap());
+			}
+			gameRules.handle(state, action);
+			assertUnitTable(state.getMap());
+			assertUnitTable(previousCopy.getMap());
+			previousCopy = state.copy();
+			assertUnitTable(previousCopy.getMap());
+		}
+	}
+
+	/**
+	 * Tests that the {@link UnitTable} follows a move and a death on the small map, while a copy of the state that was
+	 * made before these changes keeps its rows as they were:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testUnitTableChanges() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		Unit enemy = map.getUnitAtLocation(new MapLocation(2, 1));
+		UnitTable table = map.getUnitTable();
+		assertEquals(2, table.size());
+		assertEquals(1, table.getPosition(unit.getID()));
+		assertEquals(6, table.getPosition(enemy.getID()));
+		assertEquals(enemy.getControllingPlayerID(), table.getControllingPlayerID(enemy.getID()));
+		HunterKillerState before = state.copy();
+
+		// Move the unit east, so it ends up right above the enemy
+		HunterKillerAction move = new HunterKillerAction(state);
+		move.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(2, 0)));
+		gameRules.handle(state, move);
+		assertEquals(2, map.getUnitTable()
+							.getPosition(unit.getID()));
+
+		// Have the enemy kill the unit
+		unit.reduceHP(unit.getHpCurrent() - HunterKillerConstants.SOLDIER_ATTACK_DAMAGE);
+		setFieldOfView(map, enemy, 2, 6);
+		HunterKillerAction attack = new HunterKillerAction(state);
+		attack.addOrder(new UnitOrder(enemy, UnitOrderType.ATTACK, new MapLocation(2, 0)));
+		gameRules.handle(state, attack);
+		assertFalse(map.getUnitTable()
+						.contains(unit.getID()));
+		assertEquals(1, map.getUnitTable()
+							.size());
+		assertEquals(6, map.getUnitTable()
+							.getPosition(enemy.getID()));
+
+		// The copy still has both units as they started
+		UnitTable beforeTable = before.getMap()
+										.getUnitTable();
+		assertEquals(2, beforeTable.size());
+		assertEquals(1, beforeTable.getPosition(unit.getID()));
+		assertUnitTable(before.getMap());
+	}
+
+	/**
+	 * Tests that setting the objects of a copied map rebuilds the {@link UnitTable} of the copy, without changing the
+	 * table of the original it shared its rows with, on the small map:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testUnitTableRebuild() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		HunterKillerState copy = state.copy();
+		Map copyMap = copy.getMap();
+		copyMap.setObjects(copyMap.getObjects());
+		assertUnitTable(copyMap);
+
+		// Move the unit east on the copy, the original should not see this
+		HunterKillerAction move = new HunterKillerAction(copy);
+		move.addOrder(new UnitOrder((Unit) copyMap.getObject(unit.getID()), UnitOrderType.MOVE, new MapLocation(2, 0)));
+		gameRules.handle(copy, move);
+		assertEquals(2, copyMap.getUnitTable()
+								.getPosition(unit.getID()));
+		assertEquals(1, map.getUnitTable()
+							.getPosition(unit.getID()));
+		assertUnitTable(copyMap);
+		assertUnitTable(map);
+	}
+
+	/**
+	 * Tests that the units of a map keep their flat JSON form, and get the statistics of their type back when the map is
+	 * read, on the small map:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testUnitJson() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		Json json = new Json();
+		String text = json.toJson(map);
+		assertFalse(text.contains("stats"));
+
+		Map read = json.fromJson(Map.class, text);
+		Unit readUnit = read.getUnitAtLocation(new MapLocation(1, 0));
+		assertEquals(unit.getID(), readUnit.getID());
+		assertSame(UnitStats.get(UnitType.Soldier), readUnit.getStats());
+		assertEquals(unit.getAttackRange(), readUnit.getAttackRange());
+		assertEquals(unit.getFieldOfViewRange(), readUnit.getFieldOfViewRange());
+		assertEquals(unit.getScoreWorth(), readUnit.getScoreWorth());
+	}
+
+	/**
+	 * Tests undoing actions through {@link HunterKillerRules#undo(HunterKillerState, HunterKillerUndoLog)}. This method
+	 * plays random actions on a premade map and tests the following things:
+	 * <ul>
+	 * <li>That handling an action with an undo log has the same result as handling it without one.</li>
+	 * <li>That undoing an action returns the state to the exact situation it was in before the action.</li>
+	 * </ul>
+	 */
+	@Test
+	public void testUndo() {
+		state = new HunterKillerStateFactory().generateInitialState(playerNames, null);
+		HunterKillerUndoLog undoLog = new HunterKillerUndoLog();
+
+		for (int i = 0; i < 300 && !state.isDone(); i++) {
+			HunterKillerAction action = createRandomAction(state);
+			String before = describe(state);
+			long beforeHash = state.hashKey();
+
+			// Handle the action on a copy, without recording anything
+			HunterKillerState copy = state.copy();
+			gameRules.handle(copy, action);
+			String expected = describe(copy);
+
+			// Handle the same action with an undo log, and make sure the outcome is the same
+			gameRules.handle(state, action, undoLog);
+			assertEquals(expected, describe(state));
+			assertEquals(copy.hashKey(), state.hashKey());
+			assertEquals(state.getMap()
+								.calculateZobristHash(), state.getMap()
+																.getZobristHash());
+
+			// Undo the action and make sure nothing changed
+			gameRules.undo(state, undoLog);
+			assertEquals(before, describe(state));
+			assertEquals(beforeHash, state.hashKey());
+
+			// Continue the game
+			gameRules.handle(state, action);
+			assertEquals(expected, describe(state));
+		}
+	}
+
+	/**
+	 * Tests writing states and actions through a {@link BinaryCodec}, by playing random actions and making sure that
+	 * reading back what was written results in the same state and action. Also tests that states can't be read by a
+	 * codec for a different map.
+	 */
+	@Test
+	public void testBinaryCodec() {
+		state = new HunterKillerStateFactory(21).generateInitialState(playerNames, null);
+		BinaryCodec codec = new BinaryCodec(state.getMap());
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		for (int i = 0; i < 200 && !state.isDone(); i++) {
+			buffer.clear();
+			codec.write(state, buffer);
+			buffer.flip();
+			HunterKillerState read = codec.readState(buffer);
+			assertFalse(buffer.hasRemaining());
+			assertEquals(describe(state), describe(read));
+			assertEquals(state.hashKey(), read.hashKey());
+			assertEquals(state.getMap()
+								.getObjects(), read.getMap()
+													.getObjects());
+			assertUnitTable(read.getMap());
+
+			HunterKillerAction action = createRandomAction(state);
+			buffer.clear();
+			codec.write(action, buffer);
+			buffer.flip();
+			assertEquals(action, codec.readAction(buffer));
+
+			gameRules.handle(state, action);
+		}
+
+		// A codec for a different map refuses the state
+		BinaryCodec otherCodec = new BinaryCodec(new HunterKillerStateFactory(22).generateInitialState(playerNames, null)
+																					.getMap());
+		buffer.clear();
+		codec.write(state, buffer);
+		buffer.flip();
+		try {
+			otherCodec.readState(buffer);
+			fail("Expected the state to be refused");
+		} catch (HunterKillerException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Tests writing the state of the small map through a {@link BinaryCodec} after changing its units, and writing an
+	 * action with an attack order. Also tests the number of bytes the codec's variable-length integers take up:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testBinaryCodecChanges() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		Unit enemy = map.getUnitAtLocation(new MapLocation(2, 1));
+		unit.setOrientation(Direction.EAST);
+		unit.setSpecialAttackCooldown(7);
+		enemy.reduceHP(2);
+		BinaryCodec codec = new BinaryCodec(map);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+		codec.write(state, buffer);
+		buffer.flip();
+		Map readMap = codec.readState(buffer)
+							.getMap();
+		Unit readUnit = readMap.getUnitAtLocation(new MapLocation(1, 0));
+		assertEquals(unit.getID(), readUnit.getID());
+		assertEquals(Direction.EAST, readUnit.getOrientation());
+		assertEquals(7, readUnit.getSpecialAttackCooldown());
+		Unit readEnemy = readMap.getUnitAtLocation(new MapLocation(2, 1));
+		assertEquals(enemy.getID(), readEnemy.getID());
+		assertEquals(HunterKillerConstants.SOLDIER_MAX_HP - 2, readEnemy.getHpCurrent());
+		assertEquals(Direction.NORTH, readEnemy.getOrientation());
+
+		// The map has no name, which is kept when its terrain is written on its own
+		assertTrue(map.name == null);
+		buffer.clear();
+		codec.writeTerrain(buffer);
+		buffer.flip();
+		BinaryCodec terrainCodec = BinaryCodec.readTerrain(buffer);
+		buffer.clear();
+		codec.write(state, buffer);
+		buffer.flip();
+		HunterKillerState terrainRead = terrainCodec.readState(buffer);
+		assertTrue(terrainRead.getMap().name == null);
+		assertEquals(state.hashKey(), terrainRead.hashKey());
+
+		HunterKillerAction action = new HunterKillerAction(state);
+		action.addOrder(new UnitOrder(unit, UnitOrderType.ATTACK, new MapLocation(2, 1)));
+		buffer.clear();
+		codec.write(action, buffer);
+		buffer.flip();
+		HunterKillerAction readAction = codec.readAction(buffer);
+		assertEquals(action, readAction);
+		UnitOrder readOrder = (UnitOrder) readAction.getOrders()
+													.first();
+		assertEquals(unit.getID(), readOrder.getObjectID());
+		assertEquals(UnitOrderType.ATTACK, readOrder.getOrderType());
+		assertEquals(new MapLocation(2, 1), readOrder.getTargetLocation());
+
+		// Small values take up a single byte, regardless of their sign when written as signed
+		buffer.clear();
+		BinaryCodec.writeVarInt(buffer, 127);
+		assertEquals(1, buffer.position());
+		BinaryCodec.writeVarInt(buffer, 128);
+		assertEquals(3, buffer.position());
+		BinaryCodec.writeSignedVarInt(buffer, -1);
+		assertEquals(4, buffer.position());
+		buffer.flip();
+		assertEquals(127, BinaryCodec.readVarInt(buffer));
+		assertEquals(128, BinaryCodec.readVarInt(buffer));
+		assertEquals(-1, BinaryCodec.readSignedVarInt(buffer));
+	}
+
+	/**
+	 * Tests keeping a state up to date through a {@link StateDeltaStream}, by playing random actions and making sure
+	 * that the reading side of the stream has the same state as the game after each record. Also tests that the
+	 * deltas are smaller than the keyframes.
+	 */
+	@Test
+	public void testStateDeltaStream() {
+		state = new HunterKillerStateFactory(23).generateInitialState(playerNames, null);
+		BinaryCodec codec = new BinaryCodec(state.getMap());
+		StateDeltaStream writer = new StateDeltaStream(codec, 10);
+		StateDeltaStream reader = new StateDeltaStream(codec, 10);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		int keyframes = 0, keyframeBytes = 0, deltas = 0, deltaBytes = 0;
+
+		for (int i = 0; i < 200 && !state.isDone(); i++) {
+			buffer.clear();
+			boolean keyframe = writer.write(state, buffer);
+			assertEquals(i % 10 == 0, keyframe);
+			if (keyframe) {
+				keyframes++;
+				keyframeBytes += buffer.position();
+			} else {
+				deltas++;
+				deltaBytes += buffer.position();
+			}
+			buffer.flip();
+			HunterKillerState read = reader.read(buffer);
+			assertFalse(buffer.hasRemaining());
+			assertEquals(describe(state), describe(read));
+			assertEquals(state.hashKey(), read.hashKey());
+			assertEquals(state.getMap()
+								.getObjects(), read.getMap()
+													.getObjects());
+			assertUnitTable(read.getMap());
+
+			gameRules.handle(state, createRandomAction(state));
+		}
+		assertTrue(deltaBytes / deltas < keyframeBytes / keyframes / 4);
+	}
+
+	/**
+	 * Tests the records of a {@link StateDeltaStream} with a keyframe every other record on the small map. The move of
+	 * a unit is sent as a delta that is smaller than a keyframe, and can only be read after a keyframe:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testStateDeltaRecords() {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		BinaryCodec codec = new BinaryCodec(map);
+		StateDeltaStream writer = new StateDeltaStream(codec, 2);
+		StateDeltaStream reader = new StateDeltaStream(codec, 2);
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+		// The first record is a keyframe
+		assertTrue(writer.write(state, buffer));
+		int keyframeSize = buffer.position();
+		buffer.flip();
+		assertFalse(BinaryCodec.isDelta(buffer));
+		reader.read(buffer);
+
+		// The move is sent as a delta
+		HunterKillerAction move = new HunterKillerAction(state);
+		move.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(2, 0)));
+		gameRules.handle(state, move);
+		buffer.clear();
+		assertFalse(writer.write(state, buffer));
+		assertTrue(buffer.position() < keyframeSize);
+		buffer.flip();
+		assertTrue(BinaryCodec.isDelta(buffer));
+
+		// A reader that has not seen the keyframe can't apply the delta
+		try {
+			new StateDeltaStream(codec, 2).read(buffer.duplicate());
+			fail("Expected the delta to be refused");
+		} catch (HunterKillerException e) {
+			// Expected
+		}
+
+		HunterKillerState read = reader.read(buffer);
+		assertEquals(unit.getID(), read.getMap()
+										.getUnitAtLocation(new MapLocation(2, 0))
+										.getID());
+		assertTrue(read.getMap()
+						.getUnitAtLocation(new MapLocation(1, 0)) == null);
+		assertEquals(state.getActivePlayerID(), read.getActivePlayerID());
+		assertEquals(state.hashKey(), read.hashKey());
+		// The map has no name, which the records keep
+		assertTrue(read.getMap().name == null);
+
+		// The interval has passed, so the next record is a keyframe again
+		buffer.clear();
+		assertTrue(writer.write(state, buffer));
+	}
+
+	/**
+	 * Tests that a replay reconstructs the states of a game, including states that are between keyframes.
+	 */
+	@Test
+	public void testReplay() throws IOException {
+		state = new HunterKillerStateFactory(24).generateInitialState(playerNames, null);
+		File file = File.createTempFile("hunterkiller", ".replay");
+		file.deleteOnExit();
+		Array<String> descriptions = new Array<String>();
+		Array<Long> hashKeys = new Array<Long>();
+		IntArray rounds = new IntArray();
+
+		ReplayWriter writer = new ReplayWriter(file, state, 10);
+		gameRules.setActionListener(writer);
+		try {
+			while (!state.isDone()) {
+				descriptions.add(describe(state));
+				hashKeys.add(state.hashKey());
+				rounds.add(state.getCurrentRound());
+				// Actions for the wrong round are not recorded
+				gameRules.handle(state, new HunterKillerAction(state.getCurrentPlayer(), state.getCurrentRound() + 1));
+				// Orders that are not possible are recorded as they are, and fail in the same way during the replay
+				HunterKillerAction action = createRandomAction(state);
+				List<Unit> units = state.getActivePlayer()
+										.getUnits(state.getMap());
+				if (!units.isEmpty()) {
+					Unit unit = units.get(0);
+					action.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, null));
+					action.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(state.getMap()
+																									.getMapWidth(), 0)));
+					UnitOrder unknownObject = new UnitOrder(unit, UnitOrderType.ATTACK, unit.getLocation());
+					unknownObject.objectID = PackedOrder.MAX_OBJECT_ID + 1;
+					action.addOrder(unknownObject);
+				}
+				gameRules.handle(state, action);
+			}
+		} finally {
+			gameRules.setActionListener(null);
+			writer.close();
+		}
+		descriptions.add(describe(state));
+		hashKeys.add(state.hashKey());
+
+		ReplayReader reader = new ReplayReader(file);
+		try {
+			assertEquals(rounds.size, reader.getActionCount());
+			assertEquals((rounds.size - 1) / 10 + 1, reader.getKeyframeCount());
+			for (int i = 0; i < descriptions.size; i++) {
+				HunterKillerState read = reader.getStateBeforeAction(i);
+				assertEquals(descriptions.get(i), describe(read));
+				assertEquals(hashKeys.get(i), (Long) read.hashKey());
+			}
+			// The state at the start of a round is the state before the first player's action in it
+			int round = rounds.get(rounds.size / 2);
+			assertEquals(descriptions.get(rounds.indexOf(round)), describe(reader.getStateAtRound(round)));
+			assertEquals(descriptions.peek(), describe(reader.getStateAtRound(rounds.peek() + 1)));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Tests a replay of three actions on the small map, with a keyframe every other action. The unit moves east, the
+	 * enemy rotates, and the unit moves back west:
+	 * 
+	 * <pre>
+	 * B S _ _
+	 * _ _ S B
+	 * </pre>
+	 */
+	@Test
+	public void testReplayActions() throws IOException {
+		Map map = state.getMap();
+		Unit unit = map.getUnitAtLocation(new MapLocation(1, 0));
+		Unit enemy = map.getUnitAtLocation(new MapLocation(2, 1));
+		File file = File.createTempFile("hunterkiller", ".replay");
+		file.deleteOnExit();
+
+		ReplayWriter writer = new ReplayWriter(file, state, 2);
+		gameRules.setActionListener(writer);
+		int secondRound;
+		try {
+			HunterKillerAction action = new HunterKillerAction(state);
+			action.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(2, 0)));
+			gameRules.handle(state, action);
+			action = new HunterKillerAction(state);
+			action.addOrder(enemy.rotate(true));
+			gameRules.handle(state, action);
+			secondRound = state.getCurrentRound();
+			action = new HunterKillerAction(state);
+			action.addOrder(new UnitOrder(unit, UnitOrderType.MOVE, new MapLocation(1, 0)));
+			gameRules.handle(state, action);
+		} finally {
+			gameRules.setActionListener(null);
+			writer.close();
+		}
+
+		ReplayReader reader = new ReplayReader(file);
+		try {
+			assertEquals(3, reader.getActionCount());
+			assertEquals(2, reader.getKeyframeCount());
+			UnitOrder firstOrder = (UnitOrder) reader.getAction(0)
+														.getOrders()
+														.first();
+			assertEquals(unit.getID(), firstOrder.getObjectID());
+			assertEquals(new MapLocation(2, 0), firstOrder.getTargetLocation());
+
+			// Before the first action, from the initial keyframe, the map has no name in the file either
+			HunterKillerState read = reader.getStateBeforeAction(0);
+			assertTrue(map.name == null);
+			assertTrue(read.getMap().name == null);
+			assertEquals(unit.getID(), read.getMap()
+											.getUnitAtLocation(new MapLocation(1, 0))
+											.getID());
+			// Between keyframes, by handling the first action
+			read = reader.getStateBeforeAction(1);
+			assertEquals(unit.getID(), read.getMap()
+											.getUnitAtLocation(new MapLocation(2, 0))
+											.getID());
+			assertEquals(Direction.NORTH, read.getMap()
+												.getUnitAtLocation(new MapLocation(2, 1))
+												.getOrientation());
+			// From the second keyframe, which is also the start of the second round
+			read = reader.getStateAtRound(secondRound);
+			assertEquals(secondRound, read.getCurrentRound());
+			assertEquals(Direction.EAST, read.getMap()
+												.getUnitAtLocation(new MapLocation(2, 1))
+												.getOrientation());
+			// After the last action
+			read = reader.getStateBeforeAction(3);
+			assertEquals(unit.getID(), read.getMap()
+											.getUnitAtLocation(new MapLocation(1, 0))
+											.getID());
+			assertEquals(state.hashKey(), read.hashKey());
+		} finally {
+			reader.close();
+		}
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Creates an action that contains a random order for each structure and unit of the active player.
+	 */
+	private HunterKillerAction createRandomAction(HunterKillerState state) {
+		Map map = state.getMap();
+		Player player = state.getActivePlayer();
+		HunterKillerAction action = new HunterKillerAction(state);
+		for (Structure structure : player.getStructures(map)) {
+			HunterKillerOrder order = MoveGenerator.getRandomOrder(state, structure);
+			if (order != null)
+				action.addOrder(order);
+		}
+		for (Unit unit : player.getUnits(map)) {
+			HunterKillerOrder order = MoveGenerator.getRandomOrder(state, unit);
+			if (order != null)
+				action.addOrder(order);
+		}
+		return action;
+	}
+
+	/**
+	 * Gives a unit a field-of-view that contains specific positions, so that a scenario does not depend on the shape of
+	 * the field-of-view the map would compute for it.
+	 */
+	private void setFieldOfView(Map map, Unit unit, int... positions) {
+		FieldOfView fieldOfView = new FieldOfView(map.getMapWidth(), map.getMapHeight());
+		for (int position : positions) {
+			fieldOfView.add(position);
+		}
+		unit.updateFieldOfView(fieldOfView);
+	}
+
+	/**
+	 * Asserts that a collection of packed orders contains the same orders as a list of regular orders, and that the
+	 * rules judge them the same.
+	 */
+	private void assertPackedOrders(HunterKillerState state, List<? extends HunterKillerOrder> orders, IntArray packed) {
+		Map map = state.getMap();
+		assertEquals(orders.size(), packed.size);
+		for (int i = 0; i < packed.size; i++) {
+			HunterKillerOrder order = orders.get(i);
+			assertEquals(order, PackedOrder.decode(map, packed.get(i)));
+			assertEquals(packed.get(i), PackedOrder.encode(map, order));
+			assertEquals(gameRules.checkOrder(state, order), gameRules.checkOrder(state, packed.get(i)));
+		}
+	}
+
+	/**
+	 * Whether or not a packed attack order targets an enemy unit or structure, or a damaged ally for a Medic's heal,
+	 * within the unit's field-of-view.
+	 */
+	private boolean isMeaningfulAttack(Map map, Unit unit, int packedOrder) {
+		int position = PackedOrder.getTargetPosition(packedOrder);
+		if (!unit.getFieldOfView()
+					.contains(position))
+			return false;
+		MapLocation location = map.toLocation(position);
+		Unit target = map.getUnitAtLocation(location);
+		boolean ally = target != null && target.getControllingPlayerID() == unit.getControllingPlayerID();
+		if (PackedOrder.getUnitOrderType(packedOrder) == UnitOrderType.ATTACK_SPECIAL && unit.getType() == UnitType.Medic)
+			return ally && target.isDamaged();
+		if (target != null)
+			return !ally;
+		return map.getFeatureAtLocation(location) instanceof Structure
+				&& ((Structure) map.getFeatureAtLocation(location)).getControllingPlayerID() != unit.getControllingPlayerID();
+	}
+
+	/**
+	 * Asserts that the unit table of a map matches the units that are placed on it.
+	 */
+	private void assertUnitTable(Map map) {
+		UnitTable table = map.getUnitTable();
+		Array<GameObject> objects = map.getObjects();
+		int unitCount = 0;
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object instanceof Unit && map.isOnMap(object.getLocation())) {
+				Unit unit = (Unit) object;
+				unitCount++;
+				assertTrue(table.contains(i));
+				assertEquals(map.toPosition(unit.getLocation()), table.getPosition(i));
+				assertEquals(unit.getControllingPlayerID(), table.getControllingPlayerID(i));
+				// Units with the standard statistics of their type share them
+				assertSame(UnitStats.get(unit.getType()), unit.getStats());
+			} else {
+				assertFalse(table.contains(i));
+			}
+		}
+		// The table only holds rows for the units
+		assertEquals(unitCount, table.size());
+	}
+
+	/**
+	 * Returns a description of everything in a state that can change during a game.
+	 */
+	private String describe(HunterKillerState state) {
+		Map map = state.getMap();
+		StringBuilder builder = new StringBuilder();
+		builder.append(StringExtensions.format("R%d P%d T%d%n", state.getCurrentRound(), state.getActivePlayerID(), map.currentTick));
+		builder.append(map.toString());
+		builder.append(map.getIdBuffer())
+				.append(map.getCommandCenterObjectIDs())
+				.append("\n");
+		Array<GameObject> objects = map.getObjects();
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object == null) {
+				builder.append("-\n");
+				continue;
+			}
+			builder.append(StringExtensions.format(	"%d %s %d %s",
+													object.getID(),
+													object.getClass()
+															.getSimpleName(),
+													object.getHpCurrent(),
+													object.getLocation()));
+			if (object instanceof Unit) {
+				Unit unit = (Unit) object;
+				builder.append(StringExtensions.format(	" %s %d %b %d",
+														unit.getOrientation(),
+														unit.getSpecialAttackCooldown(),
+														unit.isFieldOfViewValid(),
+														unit.getFieldOfView()
+															.hashCode()));
+			} else if (object instanceof Door) {
+				builder.append(" " + ((Door) object).getOpenTimer());
+			} else if (object instanceof Structure) {
+				builder.append(" " + ((Structure) object).getControllingPlayerID());
+			}
+			builder.append("\n");
+		}
+		for (Player player : state.getPlayers()) {
+			builder.append(StringExtensions.format(	"%d %d %s %s%n",
+													player.getResource(),
+													player.getScore(),
+													player.getUnitIDs(),
+													player.getStructureIDs()));
+		}
+		return builder.toString();
+	}
+
 	// endregion
 
 }
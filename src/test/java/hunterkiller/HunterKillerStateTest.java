@@ -1,14 +1,33 @@
 package hunterkiller;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerException;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerMatchRequest;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory;
 import net.codepoke.ai.challenge.hunterkiller.Map;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
+import net.codepoke.ai.challenge.hunterkiller.MapRegistry;
 import net.codepoke.ai.challenge.hunterkiller.MapSetup;
+import net.codepoke.ai.challenge.hunterkiller.Ruleset;
 import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.enums.GameMode;
+import net.codepoke.ai.challenge.hunterkiller.enums.MapType;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Floor;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -22,6 +41,10 @@ import com.badlogic.gdx.utils.Array;
  * This class tests the HunterKillerState. Current tests:
  * <ul>
  * <li>Correct removal of information in {@link HunterKillerState#prepare(int)}.</li>
+ * <li>Sharing of static terrain in {@link HunterKillerState#copy()}.</li>
+ * <li>Incremental updates of {@link HunterKillerState#hashKey()}.</li>
+ * <li>Finding maps through a shared {@link MapRegistry}.</li>
+ * <li>Creating initial states from templates.</li>
  * </ul>
  * 
  * @author Anton Valkenberg (anton.valkenberg@gmail.com)
@@ -121,6 +144,247 @@ public class HunterKillerStateTest
 		assertTrue(post_Objects.get(oppoSoldierID) == null);
 	}
 
+	/**
+	 * Tests the {@link HunterKillerState#copy() copy} method. This method tests the following:
+	 * <ul>
+	 * <li>That static terrain is shared between the original and the copy.</li>
+	 * <li>That Structures and Units are copied, and changes to them do not affect the original.</li>
+	 * </ul>
+	 */
+	@Test
+	public void testCopySharesTerrain() {
+		Map map = state.getMap();
+		HunterKillerState copiedState = state.copy();
+		Map copiedMap = copiedState.getMap();
+
+		// The Floor next to the top-left base should be the same instance in both maps
+		MapLocation floorLocation = new MapLocation(1, 0);
+		assertTrue(map.getFeatureAtLocation(floorLocation) instanceof Floor);
+		assertSame(map.getFeatureAtLocation(floorLocation), copiedMap.getFeatureAtLocation(floorLocation));
+		assertSame(map.getObject(map.getFeatureAtLocation(floorLocation)
+									.getID()), copiedMap.getObject(map.getFeatureAtLocation(floorLocation)
+																		.getID()));
+
+		// The base and the units should be separate instances
+		MapLocation baseLocation = new MapLocation(0, 0);
+		Structure base = (Structure) map.getFeatureAtLocation(baseLocation);
+		Structure copiedBase = (Structure) copiedMap.getFeatureAtLocation(baseLocation);
+		assertNotSame(base, copiedBase);
+		MapLocation soldierLocation = new MapLocation(0, 1);
+		assertNotSame(map.getUnitAtLocation(soldierLocation), copiedMap.getUnitAtLocation(soldierLocation));
+
+		// Damaging the copied base should not affect the original
+		long originalHash = state.hashKey();
+		copiedBase.reduceHP(1);
+		assertEquals(base.getHpMax(), base.getHpCurrent());
+		assertEquals(base.getHpMax() - 1, copiedBase.getHpCurrent());
+		assertEquals(originalHash, state.hashKey());
+		assertFalse(originalHash == copiedState.hashKey());
+	}
+
+	/**
+	 * Tests the {@link HunterKillerState#hashKey() hashKey} method. This method tests the following:
+	 * <ul>
+	 * <li>That a copied state has the same hash.</li>
+	 * <li>That changes to a unit's HP, orientation and location change the hash.</li>
+	 * <li>That reverting those changes restores the hash.</li>
+	 * <li>That the incrementally updated hash is equal to a hash calculated from scratch.</li>
+	 * </ul>
+	 */
+	@Test
+	public void testHashKey() {
+		Map map = state.getMap();
+		long initialHash = state.hashKey();
+		assertEquals(initialHash, state.copy()
+										.hashKey());
+		assertEquals(map.calculateZobristHash(), map.getZobristHash());
+
+		// Damage the soldier below the top-left base
+		Unit soldier = map.getUnitAtLocation(new MapLocation(0, 1));
+		soldier.reduceHP(1);
+		assertFalse(initialHash == state.hashKey());
+		soldier.increaseHP(1);
+		assertEquals(initialHash, state.hashKey());
+
+		// Rotate the soldier
+		Direction orientation = soldier.getOrientation();
+		soldier.setOrientation(Direction.rotate(orientation, Direction.Rotation.CLOCKWISE));
+		assertFalse(initialHash == state.hashKey());
+		soldier.setOrientation(orientation);
+		assertEquals(initialHash, state.hashKey());
+
+		// Move the soldier and back
+		MapLocation target = new MapLocation(1, 1);
+		map.move(target, soldier, null);
+		assertFalse(initialHash == state.hashKey());
+		assertEquals(map.calculateZobristHash(), map.getZobristHash());
+		map.move(new MapLocation(0, 1), soldier, null);
+		assertEquals(initialHash, state.hashKey());
+
+		// Changing a player's resources should also change the hash
+		state.getActivePlayer()
+				.awardResource(1);
+		assertFalse(initialHash == state.hashKey());
+	}
+
+	/**
+	 * Tests that games created from map setups with different economies each keep their own rules.
+	 */
+	@Test
+	public void testRuleset() {
+		String[] playerNames = new String[] { "A", "B" };
+		MapSetup poorSetup = new MapSetup("poor", testMap.mapData, testMap.quadrantAWidth, testMap.quadrantAHeight, Direction.SOUTH, 1, 2);
+		MapSetup richSetup = new MapSetup("rich", testMap.mapData, testMap.quadrantAWidth, testMap.quadrantAHeight, Direction.SOUTH, 100, 50);
+		HunterKillerState poorState = new HunterKillerStateFactory().generateInitialStateFromPremade(poorSetup, playerNames, null);
+		HunterKillerState richState = new HunterKillerStateFactory().generateInitialStateFromPremade(richSetup, playerNames, null);
+
+		// Creating the second game should not have changed the rules of the first
+		assertEquals(new Ruleset(poorSetup), poorState.getRuleset());
+		assertEquals(1, poorState.getPlayer(0)
+									.getResource());
+		assertEquals(2, getCommandCenter(poorState).getResourceGeneration());
+		assertEquals(100, richState.getPlayer(0)
+									.getResource());
+		assertEquals(50, getCommandCenter(richState).getResourceGeneration());
+
+		// Copies share the same rules
+		assertSame(poorState.getRuleset(), poorState.copy()
+													.getRuleset());
+	}
+
+	/**
+	 * Tests that factories share the default map registry, and that the registry finds the same maps as checking the
+	 * flags in their names.
+	 */
+	@Test
+	public void testMapRegistry() {
+		MapRegistry registry = MapRegistry.getDefault();
+		assertSame(registry, new HunterKillerStateFactory().getRegistry());
+		assertSame(registry.get(0), new HunterKillerStateFactory(1).mapRotation.first());
+
+		Array<MapSetup> all = new Array<MapSetup>();
+		registry.getMaps(all);
+		for (int i = 0; i < all.size; i++) {
+			assertSame(all.get(i), registry.get(all.get(i).name));
+		}
+
+		Array<MapSetup> found = new Array<MapSetup>();
+		for (MapType type : MapType.values()) {
+			for (GameMode mode : GameMode.values()) {
+				Array<MapSetup> expected = new Array<MapSetup>();
+				for (MapSetup setup : all) {
+					if (setup.name.contains(type.getFileFlag()) && setup.name.contains(mode.getFileFlag()))
+						expected.add(setup);
+				}
+				found.clear();
+				registry.findMaps(type, mode, null, found);
+				assertEquals(expected, found);
+			}
+		}
+
+		// A request is satisfied by the maps in the factory's registry only
+		MapRegistry testMaps = MapRegistry.fromFolder(new File(MapRegistry.MAPS_FOLDER, "test_maps"));
+		assertNotNull(testMaps.get("performance.txt"));
+		HunterKillerMatchRequest request = new HunterKillerMatchRequest();
+		request.mapType = MapType.Narrow;
+		HunterKillerState narrowState = new HunterKillerStateFactory(testMaps).generateInitialState(playerNames, request);
+		assertEquals("performance_narrow.txt", narrowState.getMap().name);
+
+		// A request is satisfied by the maps in the factory's rotation only, also if they are not in its registry
+		HunterKillerStateFactory factory = new HunterKillerStateFactory(testMaps);
+		factory.mapRotation.clear();
+		factory.mapRotation.add(testMaps.get("performance.txt"));
+		try {
+			factory.generateInitialState(playerNames, request);
+			fail("The rotation does not contain a narrow map.");
+		} catch (HunterKillerException e) {
+			// Expected
+		}
+		factory.mapRotation.add(new MapSetup("custom_narrow.txt", testMap.mapData, false));
+		assertEquals("custom_narrow.txt", factory.generateInitialState(playerNames, request)
+													.getMap().name);
+
+		// Maps of the registry are found through its indexes, as often as they occur in the rotation
+		factory.mapRotation.add(testMaps.get("performance_narrow.txt"));
+		factory.mapRotation.add(testMaps.get("performance_narrow.txt"));
+		found.clear();
+		testMaps.findMaps(MapType.Narrow, null, null, factory.mapRotation, found);
+		assertEquals(3, found.size);
+		assertSame(testMaps.get("performance_narrow.txt"), found.get(0));
+		assertSame(found.get(0), found.get(1));
+		assertEquals("custom_narrow.txt", found.get(2).name);
+
+		// The quadrant size of a map file is checked before the map is created
+		try {
+			MapRegistry.parse("invalid.txt", StringExtensions.format("0 4 N%nB_%n__"));
+			fail("A map file with an empty quadrant should not be parsed.");
+		} catch (HunterKillerException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Tests that a factory creates the same initial state from its template for a map as when it constructs the map,
+	 * and that changes to a created state do not affect the template.
+	 */
+	@Test
+	public void testTemplates() {
+		HunterKillerStateFactory factory = new HunterKillerStateFactory();
+		HunterKillerState first = factory.generateInitialStateFromPremade(testMap, playerNames, "nonRandomSections");
+		MapLocation soldierLocation = new MapLocation(0, 1);
+		first.getMap()
+				.getUnitAtLocation(soldierLocation)
+				.reduceHP(1);
+		first.getPlayer(0)
+				.awardResource(1);
+
+		String[] otherNames = new String[] { "C", "D" };
+		HunterKillerState stamped = factory.generateInitialStateFromPremade(testMap, otherNames, "nonRandomSections");
+		HunterKillerState constructed = new HunterKillerStateFactory().generateInitialStateFromPremade(testMap, otherNames, "nonRandomSections");
+		Map stampedMap = stamped.getMap();
+		Map constructedMap = constructed.getMap();
+		assertEquals(constructedMap.toString(), stampedMap.toString());
+		assertEquals(constructedMap.getObjects(), stampedMap.getObjects());
+		assertEquals(constructed.hashKey(), stamped.hashKey());
+		for (int i = 0; i < playerNames.length; i++) {
+			assertEquals(otherNames[i], stamped.getPlayer(i)
+												.getName());
+			assertEquals(constructed.getPlayer(i)
+									.getResource(), stamped.getPlayer(i)
+															.getResource());
+			// Unordered arrays are never equal, so compare their content
+			assertEquals(constructed.getPlayer(i)
+									.getUnitIDs()
+									.toString(), stamped.getPlayer(i)
+														.getUnitIDs()
+														.toString());
+		}
+		Unit soldier = stampedMap.getUnitAtLocation(soldierLocation);
+		assertEquals(soldier.getHpMax(), soldier.getHpCurrent());
+		assertEquals(constructedMap.getUnitAtLocation(soldierLocation)
+									.getFieldOfView(), soldier.getFieldOfView());
+
+		// States created from the same template share its static terrain
+		MapLocation floorLocation = new MapLocation(1, 0);
+		assertSame(first.getMap()
+						.getFeatureAtLocation(floorLocation), stampedMap.getFeatureAtLocation(floorLocation));
+		// And the fields-of-view computed on any of them, since they have the same layout
+		assertSame(first.getMap()
+							.getLineOfSight()
+							.getFieldOfViewTable(), stampedMap.getLineOfSight()
+																.getFieldOfViewTable());
+	}
+
+	// endregion
+
+	// region Private methods
+
+	private Structure getCommandCenter(HunterKillerState state) {
+		return (Structure) state.getMap()
+								.getObject(state.getPlayer(0)
+												.getCommandCenterID());
+	}
+
 	// endregion
 
 }
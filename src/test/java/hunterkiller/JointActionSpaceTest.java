@@ -0,0 +1,140 @@
+package hunterkiller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.codepoke.ai.challenge.hunterkiller.GameRandom;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory;
+import net.codepoke.ai.challenge.hunterkiller.JointActionSpace;
+import net.codepoke.ai.challenge.hunterkiller.JointActionSpace.JointActionIterator;
+import net.codepoke.ai.challenge.hunterkiller.JointActionSpace.OrderPriority;
+import net.codepoke.ai.challenge.hunterkiller.MapSetup;
+import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+import net.codepoke.ai.challenge.hunterkiller.enums.UnitOrderType;
+import net.codepoke.ai.challenge.hunterkiller.orders.PackedOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * This class tests the enumeration and sampling of actions through a {@link JointActionSpace}.
+ *
+ * @author Anton Valkenberg (anton.valkenberg@gmail.com)
+ *
+ */
+public class JointActionSpaceTest
+		extends HunterKillerTest {
+
+	// region Constants
+
+	private static final MapSetup testMap = new MapSetup(StringExtensions.format("B__M%nS___%n___I"));
+
+	// endregion
+
+	// region Properties
+
+	private HunterKillerState state;
+
+	private String[] playerNames = new String[] { "A", "B" };
+
+	// endregion
+
+	// region Setup methods
+
+	@Before
+	public void setUp() throws Exception {
+		state = new HunterKillerStateFactory().generateInitialStateFromPremade(testMap, playerNames, "nonRandomSections");
+	}
+
+	// endregion
+
+	// region Tests
+
+	/**
+	 * Tests that iterating over a space visits every action once, in the order of their indices, and that every action
+	 * has at most one order per object.
+	 */
+	@Test
+	public void testIteration() {
+		JointActionSpace space = new JointActionSpace(state);
+		long size = space.size();
+		assertTrue(size > 1);
+
+		IntArray iterated = new IntArray();
+		IntArray indexed = new IntArray();
+		Set<IntArray> seen = new HashSet<IntArray>();
+		JointActionIterator iterator = space.iterator();
+		long count = 0;
+		while (iterator.nextOrders(iterated)) {
+			space.getOrders(count, indexed);
+			assertEquals(indexed, iterated);
+			assertTrue(seen.add(new IntArray(iterated)));
+
+			Set<Integer> objects = new HashSet<Integer>();
+			for (int i = 0; i < iterated.size; i++) {
+				assertTrue(objects.add(PackedOrder.getObjectID(iterated.get(i))));
+			}
+			count++;
+		}
+		assertEquals(size, count);
+		assertFalse(iterator.hasNext());
+
+		// The actions that are created contain the same orders
+		HunterKillerAction action = space.getAction(size - 1);
+		space.getOrders(size - 1, indexed);
+		assertEquals(indexed.size, action.getOrders().size);
+	}
+
+	/**
+	 * Tests that sampling only returns actions that are in the space.
+	 */
+	@Test
+	public void testSampling() {
+		JointActionSpace space = new JointActionSpace(state, false, false, null);
+		GameRandom random = new GameRandom(5);
+		IntArray sampled = new IntArray();
+
+		for (int i = 0; i < 100; i++) {
+			space.sampleOrders(random, sampled);
+			// Without the option of no order, every object receives an order
+			assertEquals(space.getObjectCount(), sampled.size);
+			for (int j = 0; j < sampled.size; j++) {
+				int objectID = PackedOrder.getObjectID(sampled.get(j));
+				assertEquals(space.getObjectID(j), objectID);
+			}
+		}
+	}
+
+	/**
+	 * Tests that the choices of each object are ordered by their priority.
+	 */
+	@Test
+	public void testPriority() {
+		JointActionSpace space = new JointActionSpace(state, false, false, new OrderPriority() {
+			@Override
+			public float getPriority(HunterKillerState state, int packedOrder) {
+				// Prefer rotating over anything else
+				return !PackedOrder.isStructureOrder(packedOrder)
+						&& PackedOrder.getUnitOrderType(packedOrder) == UnitOrderType.ROTATE_COUNTER_CLOCKWISE ? 1 : 0;
+			}
+		});
+
+		IntArray first = new IntArray();
+		space.getOrders(0, first);
+		for (int i = 0; i < first.size; i++) {
+			if (!PackedOrder.isStructureOrder(first.get(i)))
+				assertEquals(UnitOrderType.ROTATE_COUNTER_CLOCKWISE, PackedOrder.getUnitOrderType(first.get(i)));
+		}
+	}
+
+	// endregion
+
+}
@@ -1,16 +1,24 @@
 package hunterkiller;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
-import java.util.HashSet;
-
+import net.codepoke.ai.challenge.hunterkiller.FieldOfView;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerState;
+import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory;
 import net.codepoke.ai.challenge.hunterkiller.Map;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
+import net.codepoke.ai.challenge.hunterkiller.enums.LineOfSightType;
+import net.codepoke.ai.challenge.hunterkiller.enums.StructureType;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Door;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Floor;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Space;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Wall;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Infected;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
@@ -92,11 +100,16 @@ public class LineOfSightTest
 		// Create a new soldier at [1,1] facing NORTH
 		MapLocation testLocation = new MapLocation(1, 1);
 		Soldier soldier = new Soldier(0, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.NORTH);
+		// A unit that has not been placed yet sees nothing, and positions outside its field-of-view are not visible
+		assertFalse(soldier.getFieldOfView()
+							.contains(0));
+		assertFalse(soldier.getFieldOfView()
+							.contains(-1));
 		testMap.registerGameObject(soldier);
 		testMap.place(testLocation, soldier);
 
 		// Get the field-of-view for the north-facing soldier
-		HashSet<MapLocation> northFOV = testMap.getFieldOfView(soldier);
+		FieldOfView northFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// . . . #
 		// # U # #
@@ -111,7 +124,7 @@ public class LineOfSightTest
 		// Face the soldier east
 		soldier.setOrientation(Direction.EAST);
 		// Get the field-of-view for the east-facing soldier
-		HashSet<MapLocation> eastFOV = testMap.getFieldOfView(soldier);
+		FieldOfView eastFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # . .
 		// # U . .
@@ -129,7 +142,7 @@ public class LineOfSightTest
 		// Face the soldier south
 		soldier.setOrientation(Direction.SOUTH);
 		// Get the field-of-view for the south-facing soldier
-		HashSet<MapLocation> southFOV = testMap.getFieldOfView(soldier);
+		FieldOfView southFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # # #
 		// # U # #
@@ -147,7 +160,7 @@ public class LineOfSightTest
 		// Face the soldier west
 		soldier.setOrientation(Direction.WEST);
 		// Get the field-of-view for the west-facing soldier
-		HashSet<MapLocation> westFOV = testMap.getFieldOfView(soldier);
+		FieldOfView westFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// . # # #
 		// . U # #
@@ -167,7 +180,7 @@ public class LineOfSightTest
 		testMap.registerGameObject(infected);
 		testMap.place(new MapLocation(1, 2), infected);
 		// Get the field-of-view for the infected
-		HashSet<MapLocation> infectedFOV = testMap.getFieldOfView(infected);
+		FieldOfView infectedFOV = testMap.getFieldOfView(infected);
 		// Check that the FOV looks like:
 		// . . . .
 		// . . . .
@@ -234,7 +247,7 @@ public class LineOfSightTest
 		testMap.place(testLocation, soldier);
 
 		// Get the field-of-view for the north-facing soldier
-		HashSet<MapLocation> northFOV = testMap.getFieldOfView(soldier);
+		FieldOfView northFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// . . . #
 		// # U # #
@@ -249,7 +262,7 @@ public class LineOfSightTest
 		// Face the soldier east
 		soldier.setOrientation(Direction.EAST);
 		// Get the field-of-view for the east-facing soldier
-		HashSet<MapLocation> eastFOV = testMap.getFieldOfView(soldier);
+		FieldOfView eastFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # . #
 		// # U . #
@@ -264,7 +277,7 @@ public class LineOfSightTest
 		// Face the soldier south
 		soldier.setOrientation(Direction.SOUTH);
 		// Get the field-of-view for the south-facing soldier
-		HashSet<MapLocation> southFOV = testMap.getFieldOfView(soldier);
+		FieldOfView southFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # # #
 		// # U # #
@@ -282,7 +295,7 @@ public class LineOfSightTest
 		// Face the soldier west
 		soldier.setOrientation(Direction.WEST);
 		// Get the field-of-view for the west-facing soldier
-		HashSet<MapLocation> westFOV = testMap.getFieldOfView(soldier);
+		FieldOfView westFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// . # # #
 		// . U # #
@@ -302,7 +315,7 @@ public class LineOfSightTest
 		testMap.registerGameObject(infected);
 		testMap.place(new MapLocation(1, 2), infected);
 		// Get the field-of-view for the infected
-		HashSet<MapLocation> infectedFOV = testMap.getFieldOfView(infected);
+		FieldOfView infectedFOV = testMap.getFieldOfView(infected);
 		// Check that the FOV looks like:
 		// . . . #
 		// . . . #
@@ -365,7 +378,7 @@ public class LineOfSightTest
 		testMap.place(testLocation, soldier);
 
 		// Get the field-of-view for the east-facing soldier
-		HashSet<MapLocation> eastFOV = testMap.getFieldOfView(soldier);
+		FieldOfView eastFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// U . . .
 		// # . . #
@@ -382,7 +395,7 @@ public class LineOfSightTest
 		// Face the soldier south
 		soldier.setOrientation(Direction.SOUTH);
 		// Get the field-of-view for the south-facing soldier
-		HashSet<MapLocation> southFOV = testMap.getFieldOfView(soldier);
+		FieldOfView southFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// U # # #
 		// . . # #
@@ -402,7 +415,7 @@ public class LineOfSightTest
 		testMap.registerGameObject(infected);
 		testMap.place(testLocation, infected);
 		// Get the field-of-view for the infected
-		HashSet<MapLocation> infectedFOV = testMap.getFieldOfView(infected);
+		FieldOfView infectedFOV = testMap.getFieldOfView(infected);
 		// Check that the FOV looks like:
 		// U . . .
 		// . . . .
@@ -463,7 +476,7 @@ public class LineOfSightTest
 		testMap.place(testLocation, soldier);
 
 		// Get the field-of-view for the west-facing soldier
-		HashSet<MapLocation> westFOV = testMap.getFieldOfView(soldier);
+		FieldOfView westFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # # #
 		// # # # #
@@ -479,7 +492,7 @@ public class LineOfSightTest
 		// Face the soldier north
 		soldier.setOrientation(Direction.NORTH);
 		// Get the field-of-view for the north-facing soldier
-		HashSet<MapLocation> northFOV = testMap.getFieldOfView(soldier);
+		FieldOfView northFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # # #
 		// # # . .
@@ -500,7 +513,7 @@ public class LineOfSightTest
 		testMap.registerGameObject(infected);
 		testMap.place(testLocation, infected);
 		// Get the field-of-view for the infected
-		HashSet<MapLocation> infectedFOV = testMap.getFieldOfView(infected);
+		FieldOfView infectedFOV = testMap.getFieldOfView(infected);
 		// Check that the FOV looks like:
 		// # # # #
 		// # . . .
@@ -564,7 +577,7 @@ public class LineOfSightTest
 		testMap.place(testLocation, soldier);
 
 		// Get the field-of-view for the north-facing soldier
-		HashSet<MapLocation> northFOV = testMap.getFieldOfView(soldier);
+		FieldOfView northFOV = testMap.getFieldOfView(soldier);
 		// Check that the FOV looks like:
 		// # # # #
 		// # . . .
@@ -578,6 +591,7 @@ public class LineOfSightTest
 		assertTrue(northFOV.contains(new MapLocation(2, 2)));
 		assertTrue(northFOV.contains(new MapLocation(3, 2)));
 		assertTrue(northFOV.contains(new MapLocation(2, 3)));
+		FieldOfView closedDoorFOV = northFOV;
 
 		// Open the Door
 		Door door = (Door) testMap.getFeatureAtLocation(new MapLocation(2, 1));
@@ -620,6 +634,187 @@ public class LineOfSightTest
 		assertTrue(northFOV.contains(new MapLocation(2, 2)));
 		assertTrue(northFOV.contains(new MapLocation(3, 2)));
 		assertTrue(northFOV.contains(new MapLocation(2, 3)));
+		// The field-of-view for a closed Door should have been looked up, instead of computed again
+		assertTrue(northFOV == closedDoorFOV);
+	}
+
+	/**
+	 * Tests the bitset representation of a field-of-view, on a map that is large enough to span multiple words.
+	 */
+	@Test
+	public void testFieldOfView() {
+		FieldOfView fov = new FieldOfView(10, 10);
+		assertTrue(fov.isEmpty());
+
+		fov.add(new MapLocation(3, 0));
+		fov.add(new MapLocation(9, 9));
+		// Locations that are not on the map should be ignored
+		fov.add(new MapLocation(10, 0));
+		fov.add(new MapLocation(-1, 5));
+		assertTrue(fov.size() == 2);
+		assertTrue(fov.contains(new MapLocation(3, 0)));
+		assertTrue(fov.contains(99));
+		assertTrue(!fov.contains(new MapLocation(10, 0)));
+		assertTrue(!fov.contains(new MapLocation(0, 1)));
+
+		// Combine with another field-of-view, in a different word
+		FieldOfView other = new FieldOfView(10, 10);
+		other.add(new MapLocation(4, 6));
+		other.add(new MapLocation(3, 0));
+		fov.addAll(other);
+		assertTrue(fov.size() == 3);
+
+		// Check that iterating visits the positions in order
+		assertTrue(fov.nextPosition(0) == 3);
+		assertTrue(fov.nextPosition(4) == 64);
+		assertTrue(fov.nextPosition(65) == 99);
+		assertTrue(fov.nextPosition(100) == -1);
+		int count = 0;
+		for (MapLocation location : fov) {
+			assertTrue(fov.contains(location));
+			count++;
+		}
+		assertTrue(count == 3);
+
+		// A copy should be equal, but independent
+		FieldOfView copy = fov.copy();
+		assertTrue(copy.equals(fov));
+		copy.clear();
+		assertTrue(copy.isEmpty());
+		assertTrue(fov.size() == 3);
+	}
+
+	/**
+	 * Tests that the integer shadowcasting implementation computes the same fields-of-view as the original
+	 * implementation, for all locations and orientations on a number of generated maps, with and without opened Doors.
+	 * Both the angles used in the game and some other angles are checked.
+	 */
+	@Test
+	public void testIntegerLineOfSight() {
+		String[] playerNames = new String[] { "A", "B" };
+		int[][] viewers = { { HunterKillerConstants.SOLDIER_FOV_RANGE, HunterKillerConstants.SOLDIER_FOV_ANGLE },
+							{ HunterKillerConstants.INFECTED_FOV_RANGE, HunterKillerConstants.INFECTED_FOV_ANGLE }, { 4, 45 },
+							{ 5, 180 } };
+
+		for (int i = 0; i < 5; i++) {
+			HunterKillerState state = new HunterKillerStateFactory().generateInitialState(playerNames, null);
+			Map map = state.getMap();
+
+			for (int doorState = 0; doorState < 2; doorState++) {
+				// Open all Doors on the second pass
+				if (doorState == 1) {
+					for (GameObject object : map.getObjects()) {
+						if (object instanceof Door)
+							((Door) object).open(map);
+					}
+				}
+
+				for (int x = 0; x < map.getMapWidth(); x++) {
+					for (int y = 0; y < map.getMapHeight(); y++) {
+						for (Direction direction : Direction.values) {
+							for (int[] viewer : viewers) {
+								Soldier unit = new Soldier(0, new MapLocation(x, y), 1, 1, direction, viewer[0], viewer[1], 0, 0, 0,
+															0, 0);
+
+								map.setLineOfSightType(LineOfSightType.SHADOWCASTING);
+								map.getLineOfSight()
+									.getFieldOfViewTable()
+									.clear();
+								FieldOfView expected = map.getFieldOfView(unit);
+
+								map.setLineOfSightType(LineOfSightType.INTEGER_SHADOWCASTING);
+								map.getLineOfSight()
+									.getFieldOfViewTable()
+									.clear();
+								FieldOfView actual = map.getFieldOfView(unit);
+
+								assertTrue(expected != actual);
+								assertEquals(expected, actual);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that the table of fields-of-view keeps the views before and after a Structure is destroyed apart, on a map
+	 * and on a copy of it that shares the table:
+	 * 
+	 * <pre>
+	 *    U - S - - -
+	 * </pre>
+	 * 
+	 * Note that in this diagram, 'U' stands for the viewer, 'S' for an Objective and '-' for Floor tiles.
+	 */
+	@Test
+	public void testFieldOfViewTable() {
+		Map map = new Map("FoV_table_test", 6, 1);
+		GameObject[][] mapContent = new GameObject[6][HunterKillerConstants.MAP_INTERNAL_LAYERS];
+		for (int i = 0; i < mapContent.length; i++) {
+			GameObject feature = i == 2 ? new Structure(map.toLocation(i), StructureType.Objective) : new Floor(map.toLocation(i));
+			map.registerGameObject(feature);
+			mapContent[i][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX] = feature;
+		}
+		map.setMapContent(mapContent);
+		Soldier viewer = new Soldier(0, new MapLocation(0, 0), 1, 1, Direction.EAST, 5, 180, 0, 0, 0, 0, 0);
+
+		// Destroy the Structure on a copy, the copy can now see the whole map
+		Map copy = map.copy();
+		Structure structure = (Structure) copy.getMapContent()[2][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX];
+		copy.unregisterGameObject(structure);
+		Space space = new Space(copy.toLocation(2));
+		copy.registerGameObject(space);
+		copy.place(2, space);
+		assertEquals(6, copy.getFieldOfView(viewer)
+							.size());
+		// The original can not see past the Structure
+		FieldOfView originalView = map.getFieldOfView(viewer);
+		assertEquals(3, originalView.size());
+		assertSame(map.getLineOfSight()
+						.getFieldOfViewTable(), copy.getLineOfSight()
+													.getFieldOfViewTable());
+
+		// Put the Structure back, and destroy it again. The view computed on the original should be used.
+		copy.unregisterGameObject(space);
+		copy.registerGameObject(structure);
+		copy.place(2, structure);
+		FieldOfView closedView = copy.getFieldOfView(viewer);
+		assertSame(originalView, closedView);
+		copy.unregisterGameObject(structure);
+		copy.registerGameObject(space);
+		copy.place(2, space);
+		assertEquals(6, copy.getFieldOfView(viewer)
+							.size());
+		copy.unregisterGameObject(space);
+		copy.registerGameObject(structure);
+		copy.place(2, structure);
+		assertSame(closedView, copy.getFieldOfView(viewer));
+	}
+
+	/**
+	 * Tests that the table of fields-of-view remembers views for a viewer that has more than 64 changeable positions
+	 * around it, on a map of 9x9 open Doors with the viewer in the middle.
+	 */
+	@Test
+	public void testWideFieldOfViewTable() {
+		Map map = new Map("FoV_wide_table_test", 9, 9);
+		GameObject[][] mapContent = new GameObject[81][HunterKillerConstants.MAP_INTERNAL_LAYERS];
+		for (int i = 0; i < mapContent.length; i++) {
+			Door door = new Door(map.toLocation(i), 1);
+			map.registerGameObject(door);
+			mapContent[i][HunterKillerConstants.MAP_INTERNAL_FEATURE_INDEX] = door;
+		}
+		map.setMapContent(mapContent);
+		Soldier viewer = new Soldier(0, new MapLocation(4, 4), 1, 1, Direction.EAST, 6, 360, 0, 0, 0, 0, 0);
+
+		FieldOfView view = map.getFieldOfView(viewer);
+		// The range is a Manhattan distance, which leaves out the corners of the map, but still more than 64 positions
+		assertEquals(69, view.size());
+		assertSame(view, map.getFieldOfView(viewer));
+		assertSame(view, map.copy()
+							.getFieldOfView(viewer));
 	}
 
 	// endregion
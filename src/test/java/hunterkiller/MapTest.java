@@ -2,7 +2,9 @@ package hunterkiller;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import net.codepoke.ai.challenge.hunterkiller.DistanceFields;
 import net.codepoke.ai.challenge.hunterkiller.FourPatch;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerMatchRequest;
@@ -12,8 +14,11 @@ import net.codepoke.ai.challenge.hunterkiller.HunterKillerStateFactory.HunterKil
 import net.codepoke.ai.challenge.hunterkiller.Map;
 import net.codepoke.ai.challenge.hunterkiller.MapLocation;
 import net.codepoke.ai.challenge.hunterkiller.MapSetup;
+import net.codepoke.ai.challenge.hunterkiller.PathFinder;
+import net.codepoke.ai.challenge.hunterkiller.ObjectRegistry;
 import net.codepoke.ai.challenge.hunterkiller.Player;
 import net.codepoke.ai.challenge.hunterkiller.StringExtensions;
+import net.codepoke.ai.challenge.hunterkiller.TimerSchedule;
 import net.codepoke.ai.challenge.hunterkiller.enums.Direction;
 import net.codepoke.ai.challenge.hunterkiller.enums.StructureType;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.GameObject;
@@ -22,6 +27,8 @@ import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Floor;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Space;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Structure;
 import net.codepoke.ai.challenge.hunterkiller.gameobjects.mapfeature.Wall;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Soldier;
+import net.codepoke.ai.challenge.hunterkiller.gameobjects.unit.Unit;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -30,6 +37,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 
 /**
  * Test class for Map.
@@ -325,6 +333,256 @@ public class MapTest
 		assertEquals(new MapLocation(9, 4), path2.get(11));
 		assertEquals(new MapLocation(9, 5), path2.get(12));
 		assertEquals(new MapLocation(8, 5), path2.get(13));
+
+		// Test 3
+		// Ask for the same path by position, in a collection that is reused between searches
+		IntArray path3 = new IntArray();
+		path3.add(-1);
+		assertEquals(14, map.findPath(map.toPosition(0, 5), map.toPosition(8, 5), path3));
+		assertEquals(14, path3.size);
+		for (int i = 0; i < path2.size; i++) {
+			assertEquals(map.toPosition(path2.get(i)), path3.get(i));
+		}
+		assertEquals(14, map.getPathLength(map.toPosition(0, 5), map.toPosition(8, 5)));
+		// A location that is not traversable can't be reached
+		assertEquals(-1, map.findPath(map.toPosition(0, 5), map.toPosition(1, 5), path3));
+		assertEquals(0, path3.size);
+		assertEquals(0, map.getPathLength(map.toPosition(0, 5), map.toPosition(0, 5)));
+
+		// Test 4
+		// A copy of the map searches with the same path finder, and finds the same path
+		Map copy = map.copy();
+		assertSame(PathFinder.get(map), PathFinder.get(copy));
+		assertEquals(14, copy.findPath(copy.toPosition(0, 5), copy.toPosition(8, 5), path3));
+		for (int i = 0; i < path2.size; i++) {
+			assertEquals(copy.toPosition(path2.get(i)), path3.get(i));
+		}
+	}
+
+	/**
+	 * Tests the distance fields towards a structure, and that they are recomputed when the walkability of the map
+	 * changes.
+	 */
+	@Test
+	public void testDistanceFields() {
+		String[] playerNames = new String[] { "A", "B" };
+		HunterKillerState state = new HunterKillerStateFactory().generateInitialStateFromPremade(	testPathMap,
+																									playerNames,
+																									"nonRandomSections");
+		Map map = state.getMap();
+		int baseID = state.getPlayer(0)
+							.getCommandCenterID();
+		int roomPosition = map.toPosition(2, 5);
+
+		// State of the map visualised, the room ('.') can be left through the Door above it:
+		// B _ _ _ _ _ _ _ _ _ _ _
+		// _ _ _ _ _ _ _ _ _ _ _ _
+		// _ _ _ _ _ _ _ _ _ _ _ _
+		// _ _ _ _ _ _ _ _ _ _ _ _
+		// _ █ D █ █ _ _ █ █ D █ _
+		// _ █ . _ █ _ _ █ _ _ █ _
+		// _ █ _ _ █ _ _ █ _ _ █ _
+		// _ █ D █ █ _ _ █ █ D █ _
+		assertEquals(0, map.distanceTo(baseID, map.toPosition(0, 0)));
+		assertEquals(7, map.distanceTo(baseID, roomPosition));
+		assertEquals(map.toPosition(2, 4), map.nextStepToward(baseID, roomPosition));
+		assertEquals(-1, map.nextStepToward(baseID, map.toPosition(0, 0)));
+		// Walls can't be walked on, so they can't reach the base
+		assertEquals(DistanceFields.UNREACHABLE, map.distanceTo(baseID, map.toPosition(1, 4)));
+
+		// Following the next steps should lead to the base, one move at a time
+		int position = roomPosition;
+		for (int distance = 7; distance > 0; distance--) {
+			assertEquals(distance, map.distanceTo(baseID, position));
+			position = map.nextStepToward(baseID, position);
+		}
+		assertEquals(map.toPosition(0, 0), position);
+
+		// A copy of the map should give the same distances
+		Map copy = map.copy();
+		assertEquals(7, copy.distanceTo(baseID, roomPosition));
+
+		// Replace the Door above the room with a Wall, the room can now only be left through the Door below it
+		Door door = (Door) map.getFeatureAtLocation(new MapLocation(2, 4));
+		map.remove(door.getLocation(), door);
+		Wall wall = new Wall(HunterKillerConstants.GAMEOBJECT_NOT_PLACED);
+		map.registerGameObject(wall);
+		map.place(new MapLocation(2, 4), wall);
+		assertEquals(13, map.distanceTo(baseID, roomPosition));
+		assertEquals(map.toPosition(2, 6), map.nextStepToward(baseID, roomPosition));
+
+		// The copy should not be affected
+		assertEquals(7, copy.distanceTo(baseID, roomPosition));
+	}
+
+	/**
+	 * Tests that the index of objects by type is kept in sync with the map's objects, when objects are registered and
+	 * unregistered, and when the map is copied.
+	 */
+	@Test
+	public void testObjectRegistry() {
+		String[] playerNames = new String[] { "A", "B" };
+		HunterKillerState state = new HunterKillerStateFactory().generateInitialStateFromPremade(	testPathMap,
+																									playerNames,
+																									"nonRandomSections");
+		Map map = state.getMap();
+		assertRegistry(map);
+		assertEquals(4, map.getRegistry()
+							.getDoorIDs().size);
+
+		// Register two units, the second one re-using the ID of a structure that is removed first
+		Soldier soldier = new Soldier(0, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.SOUTH);
+		map.registerGameObject(soldier);
+		map.place(new MapLocation(2, 2), soldier);
+		assertRegistry(map);
+		Structure base = (Structure) map.getFeatureAtLocation(new MapLocation(0, 0));
+		map.unregisterGameObject(base);
+		Soldier reused = new Soldier(1, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.SOUTH);
+		map.registerGameObject(reused);
+		map.place(new MapLocation(3, 2), reused);
+		assertEquals(base.getID(), reused.getID());
+		assertRegistry(map);
+
+		// A copy should have the same index, but not share it
+		Map copy = map.copy();
+		assertRegistry(copy);
+		copy.unregisterGameObject(copy.getObject(soldier.getID()));
+		assertRegistry(copy);
+		assertRegistry(map);
+		assertTrue(map.getRegistry()
+						.getUnitIDs()
+						.contains(soldier.getID()));
+	}
+
+	/**
+	 * Tests that only the open Doors and the units with a cooldown are scheduled to have their timers reduced, and that
+	 * they are dropped from the schedule once their timers run out.
+	 */
+	@Test
+	public void testTimerSchedule() {
+		String[] playerNames = new String[] { "A", "B" };
+		HunterKillerState state = new HunterKillerStateFactory().generateInitialStateFromPremade(	testPathMap,
+																									playerNames,
+																									"nonRandomSections");
+		Map map = state.getMap();
+		assertEquals(0, map.getTimers()
+							.size());
+
+		// Open a Door and start the cooldown of a soldier
+		Door door = (Door) map.getFeatureAtLocation(new MapLocation(2, 4));
+		door.open(map);
+		Soldier soldier = new Soldier(0, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.SOUTH);
+		map.registerGameObject(soldier);
+		map.place(new MapLocation(2, 2), soldier);
+		soldier.startCooldown();
+		assertEquals(2, map.getTimers()
+							.size());
+		assertEquals(2, map.copy()
+							.getTimers()
+							.size());
+
+		// Objects are only scheduled once, and can be removed in any order
+		TimerSchedule schedule = new TimerSchedule();
+		schedule.update(door);
+		schedule.update(soldier);
+		schedule.update(door);
+		assertEquals(2, schedule.size());
+		schedule.remove(door);
+		schedule.update(soldier);
+		assertEquals(1, schedule.size());
+		schedule.remove(door);
+		schedule.remove(soldier);
+		assertEquals(0, schedule.size());
+		schedule.update(door);
+		assertEquals(1, schedule.copy()
+								.size());
+
+		// Play rounds until both timers have run out
+		int rounds = Math.max(HunterKillerConstants.DOOR_OPEN_ROUNDS, soldier.getSpecialAttackCooldown());
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < playerNames.length; i++) {
+				state.endPlayerTurn();
+			}
+			int expected = (door.isOpen() ? 1 : 0) + (soldier.getSpecialAttackCooldown() > 0 ? 1 : 0);
+			assertEquals(expected, map.getTimers()
+										.size());
+		}
+		assertFalse(door.isOpen());
+		assertEquals(0, soldier.getSpecialAttackCooldown());
+		assertEquals(0, map.getTimers()
+							.size());
+	}
+
+	/**
+	 * Tests that opening a Door only invalidates the field-of-view of the units that can see it.
+	 */
+	@Test
+	public void testInvalidateFieldOfView() {
+		String[] playerNames = new String[] { "A", "B" };
+		HunterKillerState state = new HunterKillerStateFactory().generateInitialStateFromPremade(	testPathMap,
+																									playerNames,
+																									"nonRandomSections");
+		Map map = state.getMap();
+
+		// Place a soldier above both of the top Doors ('1' and '2'), facing the Door
+		// B _ _ _ _ _ _ _ _ _ _ _
+		// _ _ _ _ _ _ _ _ _ _ _ _
+		// _ _ 1 _ _ _ _ _ _ 2 _ _
+		// _ _ _ _ _ _ _ _ _ _ _ _
+		// _ █ D █ █ _ _ █ █ D █ _
+		Soldier soldier1 = new Soldier(0, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.SOUTH);
+		map.registerGameObject(soldier1);
+		map.place(new MapLocation(2, 2), soldier1);
+		Soldier soldier2 = new Soldier(0, HunterKillerConstants.GAMEOBJECT_NOT_PLACED, Direction.SOUTH);
+		map.registerGameObject(soldier2);
+		map.place(new MapLocation(9, 2), soldier2);
+		map.updateFieldOfView();
+		assertTrue(soldier1.isInFieldOfView(new MapLocation(2, 4)));
+		assertTrue(soldier2.isInFieldOfView(new MapLocation(9, 4)));
+
+		// Open the left Door, only the first soldier should be affected
+		((Door) map.getFeatureAtLocation(new MapLocation(2, 4))).open(map);
+		assertFalse(soldier1.isFieldOfViewValid());
+		assertTrue(soldier2.isFieldOfViewValid());
+
+		// Update, the first soldier should now see through the Door
+		map.updateFieldOfView();
+		assertTrue(soldier1.isInFieldOfView(new MapLocation(2, 5)));
+
+		// Move the first soldier to the right, next to the second soldier
+		map.move(new MapLocation(8, 2), soldier1, new StringBuilder());
+		soldier1.invalidateFieldOfView();
+		map.updateFieldOfView();
+
+		// Open the right Door, both soldiers should now be affected
+		((Door) map.getFeatureAtLocation(new MapLocation(9, 4))).open(map);
+		assertFalse(soldier1.isFieldOfViewValid());
+		assertFalse(soldier2.isFieldOfViewValid());
+	}
+
+	// endregion
+
+	// region Private methods
+
+	/**
+	 * Asserts that the index of objects by type on a map matches the objects on it.
+	 */
+	private void assertRegistry(Map map) {
+		IntArray units = new IntArray(), structures = new IntArray(), doors = new IntArray();
+		Array<GameObject> objects = map.getObjects();
+		for (int i = 0; i < objects.size; i++) {
+			GameObject object = objects.get(i);
+			if (object instanceof Unit)
+				units.add(i);
+			else if (object instanceof Structure)
+				structures.add(i);
+			else if (object instanceof Door)
+				doors.add(i);
+		}
+		ObjectRegistry registry = map.getRegistry();
+		assertEquals(units, registry.getUnitIDs());
+		assertEquals(structures, registry.getStructureIDs());
+		assertEquals(doors, registry.getDoorIDs());
 	}
 
 	// endregion
@@ -4,9 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import hunterkiller.HunterKillerTest;
 
-import java.util.HashSet;
-
 import net.codepoke.ai.GameRules.Result;
+import net.codepoke.ai.challenge.hunterkiller.FieldOfView;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
@@ -132,7 +131,7 @@ public class StructureOrderTest
 		Unit spawnedUnit = state.getMap()
 								.getUnitAtLocation(spawnLocation);
 		// Get the current combined FoV for the player
-		HashSet<MapLocation> playerFoV = activePlayer.getCombinedFieldOfView(state.getMap());
+		FieldOfView playerFoV = activePlayer.getCombinedFieldOfView(state.getMap());
 
 		// Check that each location that the new Infected can see, is also in the player's current combined FoV.
 		for (MapLocation location : state.getMap()
@@ -4,9 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import hunterkiller.HunterKillerTest;
 
-import java.util.HashSet;
-
 import net.codepoke.ai.GameRules.Result;
+import net.codepoke.ai.challenge.hunterkiller.FieldOfView;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerAction;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerConstants;
 import net.codepoke.ai.challenge.hunterkiller.HunterKillerRules;
@@ -129,7 +128,7 @@ public class UnitOrderTest
 		// _ _ _ _ _ _
 		// _ _ _ S _ B
 		Direction pre_UnitOrientation = unit.getOrientation();
-		HashSet<MapLocation> pre_UnitFoV = unit.getFieldOfView();
+		FieldOfView pre_UnitFoV = unit.getFieldOfView();
 		// Make sure we are assuming the right things about our unit
 		assertTrue(pre_UnitOrientation == Direction.NORTH);
 		assertEquals(1, pre_UnitFoV.size());
@@ -152,7 +151,7 @@ public class UnitOrderTest
 							.getObject(activePlayer.getUnitIDs()
 													.get(0));
 		Direction post_UnitOrientation = unit.getOrientation();
-		HashSet<MapLocation> post_UnitFoV = unit.getFieldOfView();
+		FieldOfView post_UnitFoV = unit.getFieldOfView();
 
 		// Check that the unit has the correct orientation
 		assertTrue(post_UnitOrientation == Direction.EAST);
@@ -166,7 +165,7 @@ public class UnitOrderTest
 		assertTrue(post_UnitFoV.contains(new MapLocation(4, 1)));
 
 		// Check that the player's combined field-of-view now also contains these locations
-		HashSet<MapLocation> post_PlayerFoV = state.getPlayer(activePlayer.getID())
+		FieldOfView post_PlayerFoV = state.getPlayer(activePlayer.getID())
 													.getCombinedFieldOfView(state.getMap());
 		for (MapLocation location : post_UnitFoV) {
 			assertTrue(post_PlayerFoV.contains(location));
@@ -223,7 +222,7 @@ public class UnitOrderTest
 		// Refresh the unit reference
 		unit = state.getMap()
 					.getUnitAtLocation(post_UnitLocation);
-		HashSet<MapLocation> post_UnitFoV = unit.getFieldOfView();
+		FieldOfView post_UnitFoV = unit.getFieldOfView();
 
 		// Check that the unit is at the target location
 		assertTrue(post_UnitLocation.equals(unit.getLocation()));
@@ -239,7 +238,7 @@ public class UnitOrderTest
 		assertTrue(post_UnitFoV.contains(new MapLocation(3, 0)));
 
 		// Check that the player's combined field-of-view now also contains these locations
-		HashSet<MapLocation> post_PlayerFoV = state.getPlayer(activePlayer.getID())
+		FieldOfView post_PlayerFoV = state.getPlayer(activePlayer.getID())
 													.getCombinedFieldOfView(state.getMap());
 		for (MapLocation location : post_UnitFoV) {
 			assertTrue(post_PlayerFoV.contains(location));
@@ -269,7 +268,7 @@ public class UnitOrderTest
 		Unit unit = state.getMap()
 							.getUnitAtLocation(unitLocation);
 		unit.setOrientation(Direction.SOUTH);
-		HashSet<MapLocation> pre_UnitFoV = unit.getFieldOfView();
+		FieldOfView pre_UnitFoV = unit.getFieldOfView();
 		// Get the door that we want to check.
 		Door door = (Door) state.getMap()
 								.getFeatureAtLocation(doorLocation);
@@ -317,7 +316,7 @@ public class UnitOrderTest
 		// Refresh unit reference
 		unit = state.getMap()
 					.getUnitAtLocation(doorLocation);
-		HashSet<MapLocation> post_UnitFoV = unit.getFieldOfView();
+		FieldOfView post_UnitFoV = unit.getFieldOfView();
 
 		// Check that the unit's Field-of-View has changed
 		assertTrue(post_UnitFoV.size() == 8);
@@ -331,7 +330,7 @@ public class UnitOrderTest
 		assertTrue(post_UnitFoV.contains(new MapLocation(1, 5)));
 
 		// Check that the player's combined Field-of-View contains the new locations
-		HashSet<MapLocation> post_PlayerFoV = state.getPlayer(activePlayer.getID())
+		FieldOfView post_PlayerFoV = state.getPlayer(activePlayer.getID())
 													.getCombinedFieldOfView(state.getMap());
 		for (MapLocation location : post_UnitFoV) {
 			assertTrue(post_PlayerFoV.contains(location));